@@ -5,6 +5,7 @@ import static java.util.Objects.requireNonNull;
 import static org.mitre.openaria.airborne.AirborneAria.airborneAria;
 import static org.mitre.openaria.system.StreamingKpi.trackPairKpi;
 
+import java.io.File;
 import java.time.Duration;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -13,6 +14,10 @@ import org.mitre.openaria.airborne.AirborneAlgorithmDef;
 import org.mitre.openaria.airborne.AirborneEvent;
 import org.mitre.openaria.airborne.AirbornePairConsumer;
 import org.mitre.openaria.airborne.OutputConfig;
+import org.mitre.openaria.core.ApproximateTimeSorter.BufferType;
+import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.SpillCodec;
+import org.mitre.openaria.core.SpillConfig;
 import org.mitre.openaria.core.formats.Format;
 import org.mitre.openaria.core.formats.nop.Facility;
 import org.mitre.openaria.pointpairing.PairingConfig;
@@ -34,6 +39,12 @@ public class AirborneFactory implements KpiFactory<Facility> {
 
     private final int inMemorySortBufferSec;
 
+    private final BufferType sortBufferType;
+
+    /* When non-null, each KPI's sort buffer spills older Points to disk. */
+    @SuppressWarnings("rawtypes")
+    private final SpillConfig<Point> spillConfig;
+
     /*
      * Retain a map of all the StreamingKpi created, and their corresponding Facility, so we can
      * extract the data we need to log Point, Track, and Event level data
@@ -50,18 +61,29 @@ public class AirborneFactory implements KpiFactory<Facility> {
      * @param inMemorySortBufferSec    How much data is kept in-memory before it gets processed.
      *                                 This value impacts latency, memory requirements, and output
      *                                 stability.
+     * @param sortBufferType           The data structure that holds the in-memory sort buffer
+     * @param spillDirectory           When non-null, older sort buffer data is spilled to this
+     *                                 directory (and sortBufferType is ignored)
+     * @param maxPointsInMemory        The number of buffered Points kept in memory when spilling
      */
     AirborneFactory(
         AirborneAlgorithmDef algorithmDef,
         OutputConfig outputConfig,
         double trackPairingDistanceInNM,
-        int inMemorySortBufferSec
+        int inMemorySortBufferSec,
+        BufferType sortBufferType,
+        File spillDirectory,
+        int maxPointsInMemory
     ) {
         this.algorithmDef = algorithmDef;
         this.sharedDownstream = outputConfig.outputSink();
         this.kpisCreated = newHashMap();
         this.trackPairingDistanceInNM = trackPairingDistanceInNM;
         this.inMemorySortBufferSec = inMemorySortBufferSec;
+        this.sortBufferType = requireNonNull(sortBufferType);
+        this.spillConfig = (spillDirectory == null)
+            ? null
+            : spillConfig(algorithmDef.dataFormat(), spillDirectory, maxPointsInMemory);
     }
 
     @Override
@@ -73,17 +95,29 @@ public class AirborneFactory implements KpiFactory<Facility> {
             sharedDownstream
         );
 
-        StreamingKpi<AirbornePairConsumer> kpi = trackPairKpi(
-            airborne,
-            new PairingConfig(Duration.ofSeconds(13), trackPairingDistanceInNM),
-            inMemorySortBufferSec
-        );
+        PairingConfig pairingConfig = new PairingConfig(Duration.ofSeconds(13), trackPairingDistanceInNM);
+
+        StreamingKpi<AirbornePairConsumer> kpi = (spillConfig == null)
+            ? trackPairKpi(airborne, pairingConfig, inMemorySortBufferSec, sortBufferType)
+            : trackPairKpi(airborne, pairingConfig, inMemorySortBufferSec, spillConfig);
 
         this.kpisCreated.put(facility, kpi);
 
         return kpi;
     }
 
+    /* Fails fast (i.e., when the config is built) if the data format cannot be spilled to disk. */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static SpillConfig<Point> spillConfig(Format<?> format, File spillDirectory, int maxPointsInMemory) {
+        SpillCodec<Point> codec;
+        try {
+            codec = (SpillCodec) format.spillCodec();
+        } catch (UnsupportedOperationException uoe) {
+            throw new IllegalArgumentException("A spillDirectory was configured but the data format cannot be spilled to disk", uoe);
+        }
+        return new SpillConfig<>(codec, maxPointsInMemory, spillDirectory);
+    }
+
     public Map<Facility, StreamingKpi<AirbornePairConsumer>> streamingKpis() {
         return kpisCreated;
     }
@@ -99,6 +133,9 @@ public class AirborneFactory implements KpiFactory<Facility> {
 
     /** This Builder is designed to be instantiated by a Yaml file. */
     public static class Builder {
+
+        private static final int DEFAULT_MAX_POINTS_IN_MEMORY = 1_000_000;
+
         AirborneAlgorithmDef.Builder algorithmDef;
 
         OutputConfig.Builder outputConfig;
@@ -106,6 +143,15 @@ public class AirborneFactory implements KpiFactory<Facility> {
         Double trackPairingDistanceInNM;
         Integer inMemorySortBufferSec;
 
+        //Optional, PRIORITY_QUEUE is used when this is omitted
+        BufferType sortBufferType;
+
+        //Optional, when provided older sort buffer data is spilled to this directory
+        String spillDirectory;
+
+        //Optional, only used when spilling
+        Integer maxPointsInMemory;
+
         public AirborneFactory build() {
             requireNonNull(algorithmDef);
             requireNonNull(outputConfig);
@@ -118,7 +164,10 @@ public class AirborneFactory implements KpiFactory<Facility> {
                 algorithmDef.build(),
                 outputConfig.build(),
                 trackPairingDistanceInNM,
-                inMemorySortBufferSec
+                inMemorySortBufferSec,
+                (sortBufferType == null) ? BufferType.PRIORITY_QUEUE : sortBufferType,
+                (spillDirectory == null) ? null : new File(spillDirectory),
+                (maxPointsInMemory == null) ? DEFAULT_MAX_POINTS_IN_MEMORY : maxPointsInMemory
             );
         }
     }
@@ -3,42 +3,76 @@ package org.mitre.openaria;
 import static com.google.common.base.Preconditions.checkState;
 import static org.mitre.caasd.commons.util.DemotedException.demote;
 import static org.mitre.openaria.core.config.YamlUtils.parseYaml;
-import static org.mitre.openaria.core.utils.Misc.downCastPointIter;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.mitre.openaria.airborne.AirbornePairConsumer;
 import org.mitre.openaria.core.Point;
 import org.mitre.openaria.core.formats.Format;
+import org.mitre.openaria.core.formats.MergedFileIterator;
+import org.mitre.openaria.core.formats.nop.Facility;
 import org.mitre.openaria.system.StreamingKpi;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
+import com.google.common.base.Enums;
+import com.google.common.collect.Iterators;
 
 /**
- * This executable program runs Airborne ARIA on a single input File.
+ * This executable program runs Airborne ARIA on a single input File (or a directory of input
+ * Files).
  *
- * <p>This program requires two command line args: "The input data file" and "The configuration".
+ * <p>This program requires two command line args: "The input data" and "The configuration".
  * The configuration file provides: (1) The AirborneAria algorithm config and (2) The names of
  * plugins that know "How to publish AirborneEvents"
+ *
+ * <p>The input data is either a single file ("-f") or a directory ("-d") whose files match an
+ * optional glob ("-g"). Every file in a directory is parsed on its own thread. The resulting
+ * Point streams are merged by time (see MergedFileIterator) and processed by one StreamingKpi. When
+ * "--kpiPerFacility" is used each file name must identify a Facility (e.g.
+ * "STARS_D21_RH_20180324.txt.gz"). In this case the files for each Facility are merged separately
+ * and processed by a dedicated StreamingKpi.
  */
 public class RunAirborneOnFile {
 
+    /** The number of Points given to a StreamingKpi at once. */
+    private static final int BATCH_SIZE = 1024;
+
     /**
      * Example: "java -cp ARIA.jar org.mitre.openaria.RunAirborneOnFile -c config.yaml -f rawData.gz"
+     * <p>
+     * Example: "java -cp ARIA.jar org.mitre.openaria.RunAirborneOnFile -c config.yaml -d rawDataDir
+     * -g *_RH_20210530.txt.gz --kpiPerFacility"
      *
-     * @param argv "-c CONFIG_FILE", "--config CONFIG_FILE", "-f DATA_FILE", "--file DATA_FILE"
+     * @param argv "-c CONFIG_FILE", "--config CONFIG_FILE", "-f DATA_FILE", "--file DATA_FILE",
+     *             "-d DATA_DIR", "--directory DATA_DIR", "-g GLOB", "--glob GLOB",
+     *             "--kpiPerFacility"
      */
     public static void main(String[] argv) {
 
         //Use JCommander to parse the CLI args into a useful class
         CommandLineArgs args = parseCommandLineArgs(argv);
 
-        execute(
-            args.dataFile,
-            configFromYaml(args.yamlConfig)
-        );
+        if (args.dataFile != null) {
+            execute(
+                args.dataFile,
+                configFromYaml(args.yamlConfig)
+            );
+        } else {
+            execute(
+                MergedFileIterator.filesMatching(args.dataDir, args.glob),
+                configFromYaml(args.yamlConfig),
+                args.kpiPerFacility
+            );
+        }
     }
 
     static void execute(File dataFile, Config config) {
@@ -49,14 +83,109 @@ public class RunAirborneOnFile {
         //Pass null because we don't need the AirborneFactory to keep a KPI-to-Facility mapping
         StreamingKpi<AirbornePairConsumer> streamingKpi = (config.airborneFactory()).createKpi(null);
 
-        Iterator<Point<?>> pointIterator = downCastPointIter(format.parseFile(dataFile));
+        /*
+         * Read (and decompress) the input on a separate thread so the KPI thread only parses data.
+         * Points are handed to the KPI in batches to amortize per-Point overhead.
+         */
+        Iterator<? extends List<? extends Point<?>>> batches = format.parseBatches(dataFile, BATCH_SIZE);
 
         System.out.println("Starting ARIA system.  Input File = " + dataFile.getName());
-        pointIterator.forEachRemaining(streamingKpi);
+        try {
+            batches.forEachRemaining(streamingKpi::acceptAll);
+        } finally {
+            closeQuietly(batches);
+        }
         streamingKpi.flush();
         System.out.println("DONE PROCESSING: " + dataFile.getName());
     }
 
+    /* Parsers that read ahead, or hold a file open, are AutoCloseable. */
+    private static void closeQuietly(Iterator<?> parsed) {
+        if (parsed instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ex) {
+                //every batch has already been processed (or processing failed)
+            }
+        }
+    }
+
+    /**
+     * Process many files at once. Each file is parsed on its own thread and the resulting Point
+     * streams are merged by time.
+     *
+     * @param dataFiles      The input files
+     * @param config         The configuration
+     * @param kpiPerFacility When true, each Facility's files are merged and processed by a
+     *                       dedicated StreamingKpi. When false, all files are merged into one
+     *                       StreamingKpi.
+     */
+    static void execute(List<File> dataFiles, Config config, boolean kpiPerFacility) {
+        checkState(!dataFiles.isEmpty(), "No input files were found");
+
+        AirborneFactory factory = config.airborneFactory();
+
+        if (!kpiPerFacility) {
+            //Pass null because we don't need the AirborneFactory to keep a KPI-to-Facility mapping
+            process(factory.createKpi(null), factory.format(), dataFiles);
+            return;
+        }
+
+        Map<Facility, List<File>> filesByFacility = groupByFacility(dataFiles);
+
+        //Facilities are independent, so each facility's KPI gets its own thread
+        ExecutorService executor = Executors.newFixedThreadPool(filesByFacility.size());
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            filesByFacility.forEach((facility, files) -> {
+                StreamingKpi<AirbornePairConsumer> kpi = factory.createKpi(facility);
+                tasks.add(executor.submit(() -> process(kpi, factory.format(), files)));
+            });
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (Exception ex) {
+            throw demote(ex);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> void process(StreamingKpi<?> kpi, Format<T> format, List<File> dataFiles) {
+
+        System.out.println("Starting ARIA system.  Merging " + dataFiles.size() + " input files");
+        try (MergedFileIterator<T> merged = new MergedFileIterator<>(format, dataFiles)) {
+            Iterators.partition(merged, BATCH_SIZE).forEachRemaining(kpi::acceptAll);
+        }
+        kpi.flush();
+        System.out.println("DONE PROCESSING: " + dataFiles.size() + " input files");
+    }
+
+    /**
+     * @return The input files grouped by the Facility found in their name (e.g. D21 in
+     *     "STARS_D21_RH_20180324.txt.gz").
+     */
+    static Map<Facility, List<File>> groupByFacility(List<File> dataFiles) {
+
+        Map<Facility, List<File>> filesByFacility = new TreeMap<>();
+        for (File file : dataFiles) {
+            Facility facility = facilityOf(file);
+            checkState(facility != null, "Cannot find a Facility in: " + file.getName());
+            filesByFacility.computeIfAbsent(facility, key -> new ArrayList<>()).add(file);
+        }
+        return filesByFacility;
+    }
+
+    /** @return The first "word" of the file's name that is a Facility (or null). */
+    static Facility facilityOf(File file) {
+        for (String word : file.getName().split("[_.\\-]")) {
+            Facility facility = Enums.getIfPresent(Facility.class, word).orNull();
+            if (facility != null) {
+                return facility;
+            }
+        }
+        return null;
+    }
 
     private static Config configFromYaml(File yamlFile) {
         try {
@@ -94,21 +223,42 @@ public class RunAirborneOnFile {
         @Parameter(names = {"-c", "--config"}, required = true, description = "A yaml config file")
         private String configFileArg;
 
-        @Parameter(names = {"-f", "--file"}, required = true, description = "The file where raw data will be found")
+        @Parameter(names = {"-f", "--file"}, description = "The file where raw data will be found")
         String fileCmdLineArg;
 
+        @Parameter(names = {"-d", "--directory"}, description = "A directory of raw data files")
+        String dirCmdLineArg;
+
+        @Parameter(names = {"-g", "--glob"}, description = "Only process files (in the directory) that match this glob")
+        String glob = "*";
+
+        @Parameter(names = {"--kpiPerFacility"}, description = "Process each Facility's files with a separate KPI")
+        boolean kpiPerFacility = false;
+
         File yamlConfig;
 
         File dataFile;
 
+        File dataDir;
+
         //ensure that when JCommander parses all the args the results meet all requirements
         void verifyArguments() {
             //ensure the propertyFile points us to a viable file
             this.yamlConfig = new File(configFileArg);
-            this.dataFile = new File(fileCmdLineArg);
 
-            checkState(dataFile.isFile(), dataFile.getAbsolutePath() + " is not a file");
-            checkState(dataFile.exists(), dataFile.getAbsolutePath() + " does not exist");
+            checkState(
+                (fileCmdLineArg == null) != (dirCmdLineArg == null),
+                "Exactly one of -f (a data file) or -d (a data directory) is required"
+            );
+
+            if (fileCmdLineArg != null) {
+                this.dataFile = new File(fileCmdLineArg);
+                checkState(dataFile.isFile(), dataFile.getAbsolutePath() + " is not a file");
+                checkState(dataFile.exists(), dataFile.getAbsolutePath() + " does not exist");
+            } else {
+                this.dataDir = new File(dirCmdLineArg);
+                checkState(dataDir.isDirectory(), dataDir.getAbsolutePath() + " is not a directory");
+            }
         }
     }
 
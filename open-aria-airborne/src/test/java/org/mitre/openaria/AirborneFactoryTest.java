@@ -1,7 +1,12 @@
 package org.mitre.openaria;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
 import java.io.File;
 
+import org.mitre.openaria.core.formats.nop.Facility;
+
 import org.junit.jupiter.api.Test;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
@@ -16,15 +21,26 @@ public class AirborneFactoryTest {
     public void canBuildFromYaml() throws Exception {
 
         //load the yaml file that "wants to build" a SimplePlugin
+        AirborneFactory af = buildFromYaml("airborneFactory.yaml");
+    }
+
+    @Test
+    public void canBuildWithACalendarQueueSortBuffer() throws Exception {
+
+        AirborneFactory af = buildFromYaml("airborneFactory_calendarQueue.yaml");
+
+        assertThat(af.createKpi(Facility.D21).pointSorter().inMemoryBuffer().numRecordsInQueue(), is(0));
+    }
+
+    private static AirborneFactory buildFromYaml(String resourceName) throws Exception {
         ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-        File yamlFile = new File(classLoader.getResource("airborneFactory.yaml").getFile());
+        File yamlFile = new File(classLoader.getResource(resourceName).getFile());
 
         ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
         mapper.configure(MapperFeature.ALLOW_FINAL_FIELDS_AS_MUTATORS, true);
         mapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
 
         //parse out a Builder....then execute the build method
-        AirborneFactory af = mapper.readValue(yamlFile, AirborneFactory.Builder.class).build();
+        return mapper.readValue(yamlFile, AirborneFactory.Builder.class).build();
     }
-
-}
\ No newline at end of file
+}
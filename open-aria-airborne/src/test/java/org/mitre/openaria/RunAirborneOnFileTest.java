@@ -1,15 +1,21 @@
 package org.mitre.openaria;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
+import org.mitre.openaria.core.formats.nop.Facility;
+
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
@@ -179,4 +185,53 @@ public class RunAirborneOnFileTest {
             targetAvroFile.delete();
         }
     }
-}
\ No newline at end of file
+
+
+    @Test
+    public void runProjectDemo_directoryOfFiles() throws IOException {
+        // Verify a directory (filtered by a glob) produces the same output as the single file
+
+        String[] args = new String[]{
+            "-c", "src/main/resources/sampleNopConfig.yaml",
+            "-d", "src/main/resources",
+            "-g", "sampleNopData.txt.gz"
+        };
+
+        assertDoesNotThrow(
+            () -> RunAirborneOnFile.main(args)
+        );
+
+        File eventDir = new File("detectedEvents");
+        assertThat(eventDir.exists(), is(true));
+
+        File[] eventFiles = eventDir.listFiles();
+        assertThat(eventFiles.length, is(1));
+
+        Stream.of(eventFiles).forEach(file -> file.delete());
+        Files.deleteIfExists(eventDir.toPath());
+
+        File mapDir = new File("eventMaps");
+        File[] mapFiles = mapDir.listFiles();
+        if (mapFiles != null) {
+            Stream.of(mapFiles).forEach(file -> file.delete());
+        }
+        Files.deleteIfExists(mapDir.toPath());
+    }
+
+
+    @Test
+    public void filesAreGroupedByFacility() {
+
+        List<File> files = List.of(
+            new File("STARS_D21_RH_20180324.txt.gz"),
+            new File("STARS_A80_RH_20180324.txt.gz"),
+            new File("STARS_D21_RH_20180325.txt.gz")
+        );
+
+        Map<Facility, List<File>> groups = RunAirborneOnFile.groupByFacility(files);
+
+        assertThat(groups.keySet(), contains(Facility.A80, Facility.D21));
+        assertThat(groups.get(Facility.D21), hasSize(2));
+        assertThat(RunAirborneOnFile.facilityOf(new File("sampleNopData.txt.gz")), nullValue());
+    }
+}
@@ -2,16 +2,16 @@ package org.mitre.openaria.core;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static org.mitre.caasd.commons.Time.theDuration;
 
 import java.time.Duration;
-import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.PriorityQueue;
+import java.util.Queue;
 import java.util.function.Consumer;
 
 import org.mitre.caasd.commons.HasTime;
-import org.mitre.caasd.commons.Time;
 
 /**
  * An {@code ApproximateTimeSorter<T>} intercepts and organizes timestamped-data that is eventually
@@ -48,30 +48,49 @@ import org.mitre.caasd.commons.Time;
  * <p>
  * An ApproximateTimeSorter can be combined with a StrictTimeSortEnforcer to ensure a Consumer that
  * absolutely requires time sorted input never receives out-of-order input.
+ * <p>
+ * The short term pool is either a binary heap (a PriorityQueue) or a CalendarQueue (see
+ * BufferType). A CalendarQueue is faster when the pool holds a lot of nearly time-sorted data
+ * (e.g. several minutes of Point data from a busy facility). When the pool must span a very long
+ * window the older part of the pool can be spilled to disk (see SpillConfig).
  *
  * @see StreamingTimeSorter
  */
-public class ApproximateTimeSorter<T extends HasTime> implements Consumer<T> {
+public class ApproximateTimeSorter<T extends HasTime> implements SortBuffer<T> {
+
+    /** The data structures that can hold an ApproximateTimeSorter's short term storage. */
+    public enum BufferType {
+
+        /** A binary heap, each add and poll costs O(log n). */
+        PRIORITY_QUEUE,
+
+        /** A ring of fixed-width time buckets, each add and poll costs O(1) amortized. */
+        CALENDAR_QUEUE
+    }
+
+    /** The span of time covered by each bucket when the BufferType is CALENDAR_QUEUE. */
+    public static final Duration CALENDAR_BUCKET_WIDTH = Duration.ofSeconds(1);
 
     /**
      * The maximum amount of "input lag" that will be corrected by this ApproximateTimeSorter. As
      * this value grows so too does the number of record this ApproximateTimeSorter must retain to
      * meet its commitment to the user.
      */
-    private final Duration regularEvictionLag;
+    private final long regularEvictionLagMs;
 
     /**
      * Records that are this old with respect to the timeHighWaterMark are immediately evicted. This
      * guardrail prevents OutOfMemoryException when input data gradually gets OLDER and OLDER
      * instead of "newer and newer"
      */
-    private final Duration failSafeEvictionLag;
+    private final long failSafeEvictionLagMs;
 
     private final Consumer<T> outputMechanism;
 
-    private final PriorityQueue<T> shortTermStorage;
+    private final Queue<T> shortTermStorage;
 
-    private Instant timeHighWaterMark;
+    /* The latest input time (in epoch milliseconds), this is Long.MIN_VALUE before any input. */
+    private long timeHighWaterMarkMs;
 
     /**
      * The highest number of records ever held in this ApproximateTimeSorter's short term storage.
@@ -81,56 +100,117 @@ public class ApproximateTimeSorter<T extends HasTime> implements Consumer<T> {
     private int sizeHighWaterMark;
 
     public ApproximateTimeSorter(Duration maxInputLag, Consumer<T> outputMechanism) {
-        this.regularEvictionLag = checkNotNull(maxInputLag);
-        this.failSafeEvictionLag = maxInputLag.multipliedBy(2);
-        this.outputMechanism = checkNotNull(outputMechanism);
-        checkArgument(!maxInputLag.isNegative());
-        this.shortTermStorage = new PriorityQueue<>(
-            Comparator.comparing(t -> t.time())
+        this(maxInputLag, outputMechanism, BufferType.PRIORITY_QUEUE);
+    }
+
+    /**
+     * @param maxInputLag     The maximum amount of "input lag" that will be corrected
+     * @param outputMechanism The Consumer that receives (approximately) time-sorted data
+     * @param bufferType      The data structure used to hold data until it is released
+     */
+    public ApproximateTimeSorter(Duration maxInputLag, Consumer<T> outputMechanism, BufferType bufferType) {
+        this(maxInputLag, outputMechanism, inMemoryStorage(maxInputLag, bufferType));
+    }
+
+    /**
+     * Create an ApproximateTimeSorter that can correct a large amount of input lag without holding
+     * all of its data on the heap. The most recent data is kept in a CalendarQueue, older data is
+     * spilled to sorted run files (see SpillingTimeQueue).
+     *
+     * @param maxInputLag     The maximum amount of "input lag" that will be corrected
+     * @param outputMechanism The Consumer that receives (approximately) time-sorted data
+     * @param spillConfig     Where, when, and how data is spilled to disk
+     */
+    public ApproximateTimeSorter(Duration maxInputLag, Consumer<T> outputMechanism, SpillConfig<T> spillConfig) {
+        this(
+            maxInputLag,
+            outputMechanism,
+            new SpillingTimeQueue<>(inMemoryStorage(maxInputLag, BufferType.CALENDAR_QUEUE), spillConfig)
         );
+    }
+
+    private ApproximateTimeSorter(Duration maxInputLag, Consumer<T> outputMechanism, Queue<T> storage) {
+        this.regularEvictionLagMs = maxInputLag.toMillis();
+        this.failSafeEvictionLagMs = maxInputLag.multipliedBy(2).toMillis();
+        this.outputMechanism = checkNotNull(outputMechanism);
+        this.shortTermStorage = storage;
+        this.timeHighWaterMarkMs = Long.MIN_VALUE;
         this.sizeHighWaterMark = 0;
     }
 
+    private static <T extends HasTime> Queue<T> inMemoryStorage(Duration maxInputLag, BufferType bufferType) {
+        checkNotNull(maxInputLag);
+        checkArgument(!maxInputLag.isNegative());
+
+        return switch (checkNotNull(bufferType)) {
+            case PRIORITY_QUEUE -> new PriorityQueue<>(Comparator.comparing(t -> t.time()));
+            case CALENDAR_QUEUE -> new CalendarQueue<>(CALENDAR_BUCKET_WIDTH, maxInputLag.multipliedBy(2));
+        };
+    }
+
     @Override
     public void accept(T t) {
-        updateTimeHighWaterMark(t.time());
+        acceptOne(t, outputMechanism);
+    }
 
-        shortTermStorage.add(t);
+    /**
+     * Accept an entire batch of input. Each datum is added and followed by the same eviction checks
+     * accept(T) performs, so the data evicted (and its order) is identical to calling accept(T) for
+     * each datum. The evicted data is collected and passed downstream as a single batch when the
+     * downstream Consumer is a BatchConsumer.
+     */
+    @Override
+    public void acceptAll(List<? extends T> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
 
-        drainDueToLatestInput(t); //standard drain policy
-        drainDueToTimeHighWaterMark();  //prevent blow-up when data goes backwards in time
+        List<T> evicted = new ArrayList<>();
+        for (T t : batch) {
+            acceptOne(t, evicted::add);
+        }
 
-        sizeHighWaterMark = Math.max(sizeHighWaterMark, shortTermStorage.size());
+        BatchConsumer.deliver(evicted, outputMechanism);
     }
 
-    private void updateTimeHighWaterMark(Instant time) {
-        timeHighWaterMark = (timeHighWaterMark == null)
-            ? time
-            : Time.latest(timeHighWaterMark, time);
+    /* Add one datum to short term storage and pass any data it evicts to the sink. */
+    private void acceptOne(T t, Consumer<? super T> sink) {
+        long timeMs = t.time().toEpochMilli();
+        timeHighWaterMarkMs = Math.max(timeHighWaterMarkMs, timeMs);
+
+        shortTermStorage.add(t);
+
+        drainDueToLatestInput(timeMs, sink); //standard drain policy
+        drainDueToTimeHighWaterMark(sink);  //prevent blow-up when data goes backwards in time
+
+        sizeHighWaterMark = Math.max(sizeHighWaterMark, shortTermStorage.size());
     }
 
-    /** Drains all data that is "too old" in comparison to a recent input t. */
-    private void drainDueToLatestInput(T t) {
-        while (!shortTermStorage.isEmpty() && shouldEvict(t.time(), regularEvictionLag)) {
-            outputMechanism.accept(shortTermStorage.poll());
+    /** Drains all data that is "too old" in comparison to the time of a recent input. */
+    private void drainDueToLatestInput(long inputTimeMs, Consumer<? super T> sink) {
+        while (!shortTermStorage.isEmpty() && shouldEvict(inputTimeMs, regularEvictionLagMs)) {
+            sink.accept(shortTermStorage.poll());
         }
     }
 
     /** Drains all data that is "too old" in comparison to the timeHighWaterMark. */
-    private void drainDueToTimeHighWaterMark() {
-        while (!shortTermStorage.isEmpty() && shouldEvict(timeHighWaterMark, failSafeEvictionLag)) {
-            outputMechanism.accept(shortTermStorage.poll());
+    private void drainDueToTimeHighWaterMark(Consumer<? super T> sink) {
+        while (!shortTermStorage.isEmpty() && shouldEvict(timeHighWaterMarkMs, failSafeEvictionLagMs)) {
+            sink.accept(shortTermStorage.poll());
         }
     }
 
-    /** @return True if the oldest point in storage is "older" than comparisonTime - evictionLimit. */
-    private boolean shouldEvict(Instant comparisonTime, Duration evictionLimit) {
-        T oldest = shortTermStorage.peek();
-        Duration age = Duration.between(oldest.time(), comparisonTime);
-        return theDuration(age).isGreaterThan(evictionLimit);
+    /**
+     * @return True if the oldest point in storage is "older" than comparisonTime - evictionLimit.
+     *     Times are compared in epoch milliseconds so this check never allocates.
+     */
+    private boolean shouldEvict(long comparisonTimeMs, long evictionLimitMs) {
+        long oldestMs = shortTermStorage.peek().time().toEpochMilli();
+        return comparisonTimeMs - oldestMs > evictionLimitMs;
     }
 
     /** Drains the internal queue of data to the wrapped Consumer. */
+    @Override
     public void flush() {
         while (!shortTermStorage.isEmpty()) {
             T oldestRecord = shortTermStorage.poll();
@@ -142,14 +222,29 @@ public class ApproximateTimeSorter<T extends HasTime> implements Consumer<T> {
      * @return The number of records current held in the queue that have not yet been delivered to
      *     the outputMechanism (i.e. The Consumer<T>).
      */
+    @Override
     public int numRecordsInQueue() {
         return shortTermStorage.size();
     }
 
+    @Override
+    public void forEachBufferedRecord(Consumer<? super T> action) {
+        shortTermStorage.forEach(action);
+    }
+
+    /** Delete any spill files (and the spill directory this sorter created). */
+    @Override
+    public void close() {
+        if (shortTermStorage instanceof SpillingTimeQueue<T> spillingQueue) {
+            spillingQueue.close();
+        }
+    }
+
     /**
      * @return The highest number of records ever held in short term storage. This value gives
      *     insight into how much memory is used while organizing input destined for the Consumer.
      */
+    @Override
     public int sizeHighWaterMark() {
         return this.sizeHighWaterMark;
     }
@@ -0,0 +1,43 @@
+package org.mitre.openaria.core;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A BatchConsumer is a Consumer that can also receive a List of inputs in a single call.
+ * <p>
+ * Stages in a data pipeline (e.g., StreamingTimeSorter -> TrackPairer -> TrackMaker) implement
+ * this interface when they can amortize per-call bookkeeping (e.g., time ordering checks, sort
+ * buffer eviction checks, or thread-safety guards) over an entire batch. Receiving a batch must
+ * always produce the same result as receiving each item, in order, via accept(T).
+ * <p>
+ * The List given to acceptAll is only valid for the duration of the call. Implementations must not
+ * retain or modify it.
+ *
+ * @param <T> The type of input
+ */
+public interface BatchConsumer<T> extends Consumer<T> {
+
+    /** Accept every item in the batch (in order). By default, this calls accept(T) for each item. */
+    default void acceptAll(List<? extends T> batch) {
+        for (T item : batch) {
+            accept(item);
+        }
+    }
+
+    /**
+     * Pass a batch to a Consumer. Consumers that implement BatchConsumer receive the entire batch
+     * at once. Other Consumers receive one item at a time.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> void deliver(List<? extends T> batch, Consumer<? super T> target) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (target instanceof BatchConsumer) {
+            ((BatchConsumer<T>) target).acceptAll(batch);
+        } else {
+            batch.forEach(target);
+        }
+    }
+}
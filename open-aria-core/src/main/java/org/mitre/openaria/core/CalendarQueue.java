@@ -0,0 +1,348 @@
+package org.mitre.openaria.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Duration;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.mitre.caasd.commons.HasTime;
+
+import com.google.common.collect.Iterators;
+
+/**
+ * A CalendarQueue is a time-ordered Queue of timestamped data. It is an alternative to a {@code
+ * PriorityQueue<T>} that is designed for large, nearly time-sorted, data streams (e.g. the Point
+ * data held by an ApproximateTimeSorter).
+ * <p>
+ * Data is placed in "buckets" that each cover a fixed-width slot of time (e.g. 1 second). The
+ * buckets form a ring that covers every slot between the oldest and newest datum in the ring (the
+ * ring grows when necessary). Adding a datum is O(1) because it is simply appended to its bucket.
+ * The oldest bucket is sorted once, when it is first polled, and then drained in order. Sorting a
+ * nearly sorted bucket is (almost) linear. Consequently, add and poll are O(1) amortized rather
+ * than the O(log n) of a binary heap.
+ * <p>
+ * The ring never spans more than MAX_SPAN_FACTOR times the expected time span. A datum that would
+ * stretch the ring further (e.g. a Point with a corrupt year) is held in a small "overflow" heap
+ * instead. When the ring empties it shrinks back to its initial size and is refilled from the
+ * overflow heap, so a single outlier never pins a huge ring in memory.
+ * <p>
+ * Like a PriorityQueue, a CalendarQueue does not guarantee the order in which data with identical
+ * times are polled. The Iterator provided by a CalendarQueue does not visit data in time order.
+ *
+ * @param <T> The type of timestamped data
+ */
+public class CalendarQueue<T extends HasTime> extends AbstractQueue<T> {
+
+    private static final int MIN_NUM_BUCKETS = 16;
+
+    private static final int MAX_NUM_BUCKETS = 1 << 30;
+
+    /* The ring can span this many times the expected time span (rounded up to a power of 2). */
+    private static final int MAX_SPAN_FACTOR = 16;
+
+    private final Comparator<T> byTime = Comparator.comparing(HasTime::time);
+
+    private final long bucketWidthMs;
+
+    private final int initialNumBuckets;
+
+    /* The maximum number of consecutive slots the ring may span. */
+    private final int maxNumBuckets;
+
+    /* Data that is too far from the data in the ring to be stored in the ring. */
+    private final PriorityQueue<T> overflow;
+
+    /* The ring of buckets. Slot s is stored at ring[s & mask]. The length is a power of 2. */
+    private Bucket<T>[] ring;
+
+    private int mask;
+
+    /* The slot of the oldest datum in the ring (only meaningful when ringSize > 0). */
+    private long headSlot;
+
+    /* The slot of the newest datum in the ring (only meaningful when ringSize > 0). */
+    private long tailSlot;
+
+    /* The number of data in the ring (i.e. not in the overflow heap). */
+    private int ringSize;
+
+    /**
+     * @param bucketWidth     The span of time covered by each bucket
+     * @param expectedTimeSpan The expected time difference between the oldest and newest datum in
+     *                         the queue. This sets the initial size of the ring of buckets.
+     */
+    public CalendarQueue(Duration bucketWidth, Duration expectedTimeSpan) {
+        checkNotNull(bucketWidth);
+        checkNotNull(expectedTimeSpan);
+        checkArgument(bucketWidth.toMillis() >= 1, "The bucketWidth must be at least 1 millisecond");
+
+        this.bucketWidthMs = bucketWidth.toMillis();
+        long expectedNumBuckets = expectedTimeSpan.toMillis() / bucketWidthMs + 1;
+        this.initialNumBuckets = ringSizeFor(expectedNumBuckets);
+        this.maxNumBuckets = (int) Math.min((long) initialNumBuckets * MAX_SPAN_FACTOR, MAX_NUM_BUCKETS);
+        this.overflow = new PriorityQueue<>(byTime);
+        this.ring = newRing(initialNumBuckets);
+        this.mask = ring.length - 1;
+    }
+
+    @Override
+    public boolean offer(T item) {
+        checkNotNull(item);
+
+        long slot = slotOf(item);
+        if (ringSize == 0) {
+            headSlot = slot;
+            tailSlot = slot;
+        } else if (slot < headSlot || slot > tailSlot) {
+            long newHead = Math.min(headSlot, slot);
+            long newTail = Math.max(tailSlot, slot);
+            if (newTail - newHead + 1 > maxNumBuckets) {
+                overflow.add(item);
+                return true;
+            }
+            ensureCapacity(newTail - newHead + 1);
+            headSlot = newHead;
+            tailSlot = newTail;
+        }
+
+        bucketAt(slot).add(item, byTime);
+        ringSize++;
+        return true;
+    }
+
+    @Override
+    public T poll() {
+        if (ringSize == 0 || overflowIsOlder()) {
+            return overflow.poll();
+        }
+        Bucket<T> head = bucketAt(headSlot);
+        T oldest = head.removeFirst(byTime);
+        ringSize--;
+        if (ringSize == 0) {
+            refillFromOverflow();
+        } else if (head.isEmpty()) {
+            advanceHead();
+        }
+        return oldest;
+    }
+
+    @Override
+    public T peek() {
+        if (ringSize == 0 || overflowIsOlder()) {
+            return overflow.peek();
+        }
+        return bucketAt(headSlot).first(byTime);
+    }
+
+    @Override
+    public int size() {
+        return ringSize + overflow.size();
+    }
+
+    @Override
+    public void clear() {
+        this.ring = newRing(initialNumBuckets);
+        this.mask = ring.length - 1;
+        ringSize = 0;
+        overflow.clear();
+    }
+
+    /** @return An Iterator that visits every datum in the queue (NOT in time order). */
+    @Override
+    public Iterator<T> iterator() {
+        return Iterators.concat(ringIterator(), overflow.iterator());
+    }
+
+    /** @return The number of buckets in the ring (this supports testing). */
+    int numBuckets() {
+        return ring.length;
+    }
+
+    /* True when the oldest datum in the overflow heap is older than the oldest datum in the ring. */
+    private boolean overflowIsOlder() {
+        return !overflow.isEmpty() && byTime.compare(overflow.peek(), bucketAt(headSlot).first(byTime)) < 0;
+    }
+
+    /*
+     * Called when the ring empties. Shrink a ring that grew and move the oldest overflow data (as
+     * much as fits) into it.
+     */
+    private void refillFromOverflow() {
+        if (ring.length > initialNumBuckets) {
+            this.ring = newRing(initialNumBuckets);
+            this.mask = ring.length - 1;
+        }
+        if (overflow.isEmpty()) {
+            return;
+        }
+        List<T> pending = new ArrayList<>(overflow.size());
+        while (!overflow.isEmpty()) {
+            pending.add(overflow.poll());
+        }
+        //oldest first, so the ring restarts at the oldest datum
+        pending.forEach(this::offer);
+    }
+
+    private Iterator<T> ringIterator() {
+        return new Iterator<>() {
+
+            long slot = headSlot;
+
+            int index = firstIndexIn(slot);
+
+            int remaining = ringSize;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public T next() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                Bucket<T> bucket = ring[(int) (slot & mask)];
+                while (bucket == null || index >= bucket.items.size()) {
+                    slot++;
+                    index = firstIndexIn(slot);
+                    bucket = ring[(int) (slot & mask)];
+                }
+                remaining--;
+                return bucket.items.get(index++);
+            }
+
+            private int firstIndexIn(long s) {
+                Bucket<T> bucket = ring[(int) (s & mask)];
+                return (bucket == null) ? 0 : bucket.next;
+            }
+        };
+    }
+
+    private long slotOf(T item) {
+        return Math.floorDiv(item.time().toEpochMilli(), bucketWidthMs);
+    }
+
+    private Bucket<T> bucketAt(long slot) {
+        int index = (int) (slot & mask);
+        Bucket<T> bucket = ring[index];
+        if (bucket == null) {
+            bucket = new Bucket<>();
+            ring[index] = bucket;
+        }
+        return bucket;
+    }
+
+    /* Move the headSlot to the next non-empty bucket (the ring must not be empty). */
+    private void advanceHead() {
+        do {
+            headSlot++;
+        } while (isEmptySlot(headSlot));
+    }
+
+    private boolean isEmptySlot(long slot) {
+        Bucket<T> bucket = ring[(int) (slot & mask)];
+        return bucket == null || bucket.isEmpty();
+    }
+
+    /* Grow the ring (if necessary) so it can hold numSlots consecutive slots. */
+    private void ensureCapacity(long numSlots) {
+        if (numSlots <= ring.length) {
+            return;
+        }
+        Bucket<T>[] newRing = newRing(ringSizeFor(numSlots));
+        int newMask = newRing.length - 1;
+        for (long slot = headSlot; slot <= tailSlot; slot++) {
+            newRing[(int) (slot & newMask)] = ring[(int) (slot & mask)];
+        }
+        this.ring = newRing;
+        this.mask = newMask;
+    }
+
+    private static int ringSizeFor(long numSlots) {
+        long size = MIN_NUM_BUCKETS;
+        while (size < numSlots && size < MAX_NUM_BUCKETS) {
+            size <<= 1;
+        }
+        return (int) size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Bucket<T>[] newRing(int size) {
+        return (Bucket<T>[]) new Bucket[size];
+    }
+
+    /**
+     * The data for one slot of time. Data is appended until the bucket is first read. Then, the
+     * unread data is sorted and consumed from the front (i.e. starting at "next").
+     */
+    private static class Bucket<T> {
+
+        final ArrayList<T> items = new ArrayList<>();
+
+        /* The index of the first item that has not been removed. */
+        int next;
+
+        boolean isSorted;
+
+        void add(T item, Comparator<T> byTime) {
+            if (!isSorted) {
+                items.add(item);
+                return;
+            }
+            //this bucket is being drained, keep its unread items sorted
+            int lo = next;
+            int hi = items.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (byTime.compare(items.get(mid), item) <= 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            items.add(lo, item);
+        }
+
+        T first(Comparator<T> byTime) {
+            sortIfNecessary(byTime);
+            return items.get(next);
+        }
+
+        T removeFirst(Comparator<T> byTime) {
+            sortIfNecessary(byTime);
+            T first = items.get(next);
+            items.set(next, null);
+            next++;
+            if (next == items.size()) {
+                clear();
+            }
+            return first;
+        }
+
+        boolean isEmpty() {
+            return next == items.size();
+        }
+
+        void clear() {
+            items.clear();
+            next = 0;
+            isSorted = false;
+        }
+
+        private void sortIfNecessary(Comparator<T> byTime) {
+            if (!isSorted) {
+                Collections.sort(items.subList(next, items.size()), byTime);
+                isSorted = true;
+            }
+        }
+    }
+}
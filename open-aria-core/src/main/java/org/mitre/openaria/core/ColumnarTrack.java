@@ -0,0 +1,324 @@
+package org.mitre.openaria.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.mitre.openaria.core.UnitCodec.altitudeOrNull;
+import static org.mitre.openaria.core.UnitCodec.degreesOrNaN;
+import static org.mitre.openaria.core.UnitCodec.feetOrNaN;
+import static org.mitre.openaria.core.UnitCodec.knotsOrNaN;
+import static org.mitre.openaria.core.UnitCodec.velocityOrNull;
+
+import java.time.Instant;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+import org.mitre.caasd.commons.LatLong;
+import org.mitre.caasd.commons.Position;
+
+import com.google.common.collect.ImmutableSortedSet;
+
+/**
+ * A ColumnarTrack is an immutable NavigableSet of Points that stores its data column-by-column in
+ * primitive arrays (one array for time, one for latitude, one for longitude, etc.).
+ * <p>
+ * A Point, and the Position, LatLong, Distance, Velocity, Speed, and Course it holds, costs about 8
+ * objects per radar hit. A ColumnarTrack only keeps one array slot per field and creates Point
+ * objects on demand (e.g. when iterating). Time-based queries (floor, ceiling, headSet, tailSet,
+ * subSet) binary search the time column and only create Points to break ties between Points that
+ * share a time.
+ * <p>
+ * Wrap a ColumnarTrack in a Track (see Track.ofColumnar) to use it with the rest of the pipeline.
+ * Points are stored with millisecond time precision (like PointBuilder). Altitudes, speeds, and
+ * courses are stored in feet, knots, and degrees, so the Points this set returns use those units.
+ * Points created by this set are not cached, repeated access returns equal (but not identical)
+ * Points.
+ *
+ * @param <T> The format of the underlying Point data
+ */
+public class ColumnarTrack<T> extends AbstractSet<Point<T>> implements NavigableSet<Point<T>> {
+
+    private final long[] epochMs;
+
+    private final double[] latitude;
+
+    private final double[] longitude;
+
+    /* NaN when a Point has no altitude. */
+    private final double[] altitudeFt;
+
+    /* NaN when a Point has no Velocity. */
+    private final double[] speedKt;
+
+    private final double[] courseDeg;
+
+    private final String[] trackId;
+
+    private final Object[] rawData;
+
+    /* This set (which may be a view) contains the Points at indices [lo, hi). */
+    private final int lo;
+
+    private final int hi;
+
+    private ColumnarTrack(ColumnarTrack<T> source, int lo, int hi) {
+        this.epochMs = source.epochMs;
+        this.latitude = source.latitude;
+        this.longitude = source.longitude;
+        this.altitudeFt = source.altitudeFt;
+        this.speedKt = source.speedKt;
+        this.courseDeg = source.courseDeg;
+        this.trackId = source.trackId;
+        this.rawData = source.rawData;
+        this.lo = lo;
+        this.hi = hi;
+    }
+
+    private ColumnarTrack(SortedSet<Point<T>> sortedPoints) {
+        int n = sortedPoints.size();
+        this.epochMs = new long[n];
+        this.latitude = new double[n];
+        this.longitude = new double[n];
+        this.altitudeFt = new double[n];
+        this.speedKt = new double[n];
+        this.courseDeg = new double[n];
+        this.trackId = new String[n];
+        this.rawData = new Object[n];
+        this.lo = 0;
+        this.hi = n;
+
+        int i = 0;
+        for (Point<T> p : sortedPoints) {
+            Instant time = p.time();
+            checkArgument(time.getNano() % 1_000_000 == 0, "Point times cannot have sub-millisecond precision");
+            epochMs[i] = time.toEpochMilli();
+            latitude[i] = p.latitude();
+            longitude[i] = p.longitude();
+            altitudeFt[i] = feetOrNaN(p.altitude());
+            speedKt[i] = knotsOrNaN(p.speed());
+            courseDeg[i] = degreesOrNaN(p.course());
+            trackId[i] = p.trackId();
+            rawData[i] = p.rawData();
+            i++;
+        }
+    }
+
+    /**
+     * @param points The Points of a track (in any order), duplicates (according to
+     *               Point.compareTo) are removed just like they are in Track.of(points)
+     */
+    public static <T> ColumnarTrack<T> of(Collection<Point<T>> points) {
+        checkNotNull(points);
+        return new ColumnarTrack<>(ImmutableSortedSet.copyOf(points));
+    }
+
+    /** Create the i-th Point of the underlying arrays. */
+    @SuppressWarnings("unchecked")
+    private Point<T> pointAt(int i) {
+        Position position = new Position(
+            Instant.ofEpochMilli(epochMs[i]), LatLong.of(latitude[i], longitude[i]), altitudeOrNull(altitudeFt[i])
+        );
+        Velocity velocity = velocityOrNull(speedKt[i], courseDeg[i]);
+
+        return new Point<>(position, velocity, trackId[i], (T) rawData[i]);
+    }
+
+    /** Compare the time of the i-th Point to a (possibly sub-millisecond) time. */
+    private int compareTime(int i, Instant time) {
+        int result = Long.compare(epochMs[i], time.toEpochMilli());
+        if (result == 0 && time.getNano() % 1_000_000 != 0) {
+            return -1; //toEpochMilli() rounds down, so the stored time is earlier
+        }
+        return result;
+    }
+
+    /* The first index in [lo, hi) whose time is at or after this time (or hi). */
+    private int firstIndexAtOrAfter(Instant time) {
+        int low = lo;
+        int high = hi;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareTime(mid, time) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /* The first index in [lo, hi) whose Point is >= target (or hi). */
+    private int ceilingIndex(Point<T> target) {
+        int i = firstIndexAtOrAfter(target.time());
+        //only Points that share the target's time need a full comparison
+        while (i < hi && compareTime(i, target.time()) == 0 && pointAt(i).compareTo(target) < 0) {
+            i++;
+        }
+        return i;
+    }
+
+    /* The first index in [lo, hi) whose Point is > target (or hi). */
+    private int higherIndex(Point<T> target) {
+        int i = firstIndexAtOrAfter(target.time());
+        while (i < hi && compareTime(i, target.time()) == 0 && pointAt(i).compareTo(target) <= 0) {
+            i++;
+        }
+        return i;
+    }
+
+    private Point<T> pointAtOrNull(int i) {
+        return (lo <= i && i < hi) ? pointAt(i) : null;
+    }
+
+    @Override
+    public int size() {
+        return hi - lo;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        if (!(o instanceof Point)) {
+            return false;
+        }
+        Point<T> target = (Point<T>) o;
+        int i = ceilingIndex(target);
+        return i < hi && pointAt(i).compareTo(target) == 0;
+    }
+
+    @Override
+    public Iterator<Point<T>> iterator() {
+        return new Iterator<>() {
+            int next = lo;
+
+            @Override
+            public boolean hasNext() {
+                return next < hi;
+            }
+
+            @Override
+            public Point<T> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return pointAt(next++);
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Point<T>> descendingIterator() {
+        return new Iterator<>() {
+            int next = hi - 1;
+
+            @Override
+            public boolean hasNext() {
+                return next >= lo;
+            }
+
+            @Override
+            public Point<T> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return pointAt(next--);
+            }
+        };
+    }
+
+    /** This view materializes every Point, prefer descendingIterator() when possible. */
+    @Override
+    public NavigableSet<Point<T>> descendingSet() {
+        return ImmutableSortedSet.copyOf(this).descendingSet();
+    }
+
+    @Override
+    public Comparator<? super Point<T>> comparator() {
+        return null; //natural ordering
+    }
+
+    @Override
+    public Point<T> first() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return pointAt(lo);
+    }
+
+    @Override
+    public Point<T> last() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return pointAt(hi - 1);
+    }
+
+    @Override
+    public Point<T> lower(Point<T> p) {
+        return pointAtOrNull(ceilingIndex(p) - 1);
+    }
+
+    @Override
+    public Point<T> floor(Point<T> p) {
+        return pointAtOrNull(higherIndex(p) - 1);
+    }
+
+    @Override
+    public Point<T> ceiling(Point<T> p) {
+        return pointAtOrNull(ceilingIndex(p));
+    }
+
+    @Override
+    public Point<T> higher(Point<T> p) {
+        return pointAtOrNull(higherIndex(p));
+    }
+
+    @Override
+    public Point<T> pollFirst() {
+        throw new UnsupportedOperationException("A ColumnarTrack is immutable");
+    }
+
+    @Override
+    public Point<T> pollLast() {
+        throw new UnsupportedOperationException("A ColumnarTrack is immutable");
+    }
+
+    @Override
+    public NavigableSet<Point<T>> subSet(Point<T> fromElement, boolean fromInclusive, Point<T> toElement, boolean toInclusive) {
+        checkArgument(fromElement.compareTo(toElement) <= 0, "fromElement cannot be greater than toElement");
+        int from = fromInclusive ? ceilingIndex(fromElement) : higherIndex(fromElement);
+        int to = toInclusive ? higherIndex(toElement) : ceilingIndex(toElement);
+        return new ColumnarTrack<>(this, from, Math.max(from, to));
+    }
+
+    @Override
+    public NavigableSet<Point<T>> headSet(Point<T> toElement, boolean inclusive) {
+        int to = inclusive ? higherIndex(toElement) : ceilingIndex(toElement);
+        return new ColumnarTrack<>(this, lo, to);
+    }
+
+    @Override
+    public NavigableSet<Point<T>> tailSet(Point<T> fromElement, boolean inclusive) {
+        int from = inclusive ? ceilingIndex(fromElement) : higherIndex(fromElement);
+        return new ColumnarTrack<>(this, from, hi);
+    }
+
+    @Override
+    public SortedSet<Point<T>> subSet(Point<T> fromElement, Point<T> toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<Point<T>> headSet(Point<T> toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<Point<T>> tailSet(Point<T> fromElement) {
+        return tailSet(fromElement, true);
+    }
+}
@@ -0,0 +1,250 @@
+package org.mitre.openaria.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.mitre.openaria.core.UnitCodec.altitudeOrNull;
+import static org.mitre.openaria.core.UnitCodec.compareNullable;
+import static org.mitre.openaria.core.UnitCodec.courseOrNull;
+import static org.mitre.openaria.core.UnitCodec.degreesOrNaN;
+import static org.mitre.openaria.core.UnitCodec.feetOrNaN;
+import static org.mitre.openaria.core.UnitCodec.knotsOrNaN;
+import static org.mitre.openaria.core.UnitCodec.speedOrNull;
+import static org.mitre.openaria.core.UnitCodec.velocityOrNull;
+
+import java.time.Instant;
+import java.util.Objects;
+
+import org.mitre.caasd.commons.Course;
+import org.mitre.caasd.commons.Distance;
+import org.mitre.caasd.commons.HasPosition;
+import org.mitre.caasd.commons.HasTime;
+import org.mitre.caasd.commons.LatLong;
+import org.mitre.caasd.commons.Position;
+import org.mitre.caasd.commons.Speed;
+
+/**
+ * A CompactPoint holds the same data as a Point in a single object.
+ * <p>
+ * A Point is a record of a Position (which holds an Instant, a LatLong, and a Distance) and a
+ * Velocity (which holds a Speed and a Course). Consequently, each Point costs about 8 objects. A
+ * CompactPoint stores time, latitude, longitude, altitude, speed, and course as primitives and
+ * only creates the unit-typed wrappers (Instant, LatLong, Distance, Speed, Course, Position, and
+ * Velocity) when they are requested. Use CompactPoints when many Points must be retained for a
+ * while. Convert to a Point with toPoint() when the full API is needed.
+ * <p>
+ * CompactPoints are opt-in. The streaming stages (sort buffers, PointPairFinder, and TrackMaker)
+ * keep Points because their inputs already exist as Points and may carry sub-millisecond times.
+ * Converting each Point on the way in (and back on the way out) would add allocations, not remove
+ * them. Parse straight into CompactPoints (see NopHit.compactFrom) when retaining data in a custom
+ * stage.
+ * <p>
+ * Like PointBuilder, a CompactPoint stores time with millisecond precision. Altitude, speed, and
+ * course are stored in feet, knots, and degrees, so the wrappers this class returns use those
+ * units. Each call to a wrapper accessor returns a new (but equal) object.
+ *
+ * @param <T> The format of the underlying Point data
+ */
+public final class CompactPoint<T> implements HasPosition, HasTime, Comparable<CompactPoint<T>> {
+
+    private final long epochMs;
+
+    private final double latitude;
+
+    private final double longitude;
+
+    /* NaN when this point has no altitude. */
+    private final double altitudeFt;
+
+    /* NaN when this point has no Velocity. */
+    private final double speedKt;
+
+    private final double courseDeg;
+
+    private final String trackId;
+
+    private final T rawData;
+
+    /**
+     * Create a CompactPoint from primitives. NaN signals a missing altitude or velocity.
+     *
+     * @param epochMs    The time of this point (in epoch milliseconds)
+     * @param latitude   The latitude (in degrees)
+     * @param longitude  The longitude (in degrees)
+     * @param altitudeFt The altitude in feet (NaN when missing)
+     * @param speedKt    The speed in knots (NaN when the Velocity is missing)
+     * @param courseDeg  The course in degrees (NaN when the Velocity is missing)
+     * @param trackId    The trackId (may be null)
+     * @param rawData    The raw data (may be null)
+     */
+    public CompactPoint(long epochMs, double latitude, double longitude, double altitudeFt, double speedKt, double courseDeg, String trackId, T rawData) {
+        LatLong.checkLatitude(latitude);
+        LatLong.checkLongitude(longitude);
+        checkArgument(
+            Double.isNaN(speedKt) == Double.isNaN(courseDeg),
+            "Speed and course must both be present or both be missing"
+        );
+        this.epochMs = epochMs;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.altitudeFt = altitudeFt;
+        this.speedKt = speedKt;
+        this.courseDeg = courseDeg;
+        this.trackId = trackId;
+        this.rawData = rawData;
+    }
+
+    /**
+     * @param point A Point whose time has (at most) millisecond precision
+     *
+     * @return A CompactPoint that holds the same data
+     */
+    public static <T> CompactPoint<T> of(Point<T> point) {
+        checkNotNull(point);
+        Instant time = point.time();
+        checkArgument(time.getNano() % 1_000_000 == 0, "Point times cannot have sub-millisecond precision");
+
+        return new CompactPoint<>(
+            time.toEpochMilli(),
+            point.latitude(),
+            point.longitude(),
+            feetOrNaN(point.altitude()),
+            knotsOrNaN(point.speed()),
+            degreesOrNaN(point.course()),
+            point.trackId(),
+            point.rawData()
+        );
+    }
+
+    /** @return An equivalent Point (see the class documentation regarding units). */
+    public Point<T> toPoint() {
+        return new Point<>(position(), velocity(), trackId, rawData);
+    }
+
+    @Override
+    public Instant time() {
+        return Instant.ofEpochMilli(epochMs);
+    }
+
+    @Override
+    public long timeAsEpochMs() {
+        return epochMs;
+    }
+
+    @Override
+    public LatLong latLong() {
+        return LatLong.of(latitude, longitude);
+    }
+
+    @Override
+    public double latitude() {
+        return latitude;
+    }
+
+    @Override
+    public double longitude() {
+        return longitude;
+    }
+
+    @Override
+    public Position position() {
+        return new Position(time(), latLong(), altitude());
+    }
+
+    /** @return The altitude of this point (which may be null). */
+    public Distance altitude() {
+        return altitudeOrNull(altitudeFt);
+    }
+
+    /** @return The altitude in feet (NaN when altitude data is missing). */
+    public double altitudeInFeet() {
+        return altitudeFt;
+    }
+
+    public Velocity velocity() {
+        return velocityOrNull(speedKt, courseDeg);
+    }
+
+    public boolean hasVelocity() {
+        return !Double.isNaN(speedKt);
+    }
+
+    public Speed speed() {
+        return speedOrNull(speedKt);
+    }
+
+    public Course course() {
+        return courseOrNull(courseDeg);
+    }
+
+    /** @return The speed in knots (NaN when velocity data is missing). */
+    public double speedInKnots() {
+        return speedKt;
+    }
+
+    /** @return The course in degrees (NaN when velocity data is missing). */
+    public double courseInDegrees() {
+        return courseDeg;
+    }
+
+    public String trackId() {
+        return trackId;
+    }
+
+    public T rawData() {
+        return rawData;
+    }
+
+    /**
+     * CompactPoints are ordered exactly like the equivalent Points (see Point.compareTo), i.e. by
+     * time, latitude, longitude, altitude (missing first), and trackId (missing first). Ties are
+     * broken using the primitive fields, no Points or unit-typed wrappers are created.
+     */
+    @Override
+    public int compareTo(CompactPoint<T> other) {
+        int result = Long.compare(epochMs, other.epochMs);
+        if (result != 0) {
+            return result;
+        }
+        result = Double.compare(latitude, other.latitude);
+        if (result != 0) {
+            return result;
+        }
+        result = Double.compare(longitude, other.longitude);
+        if (result != 0) {
+            return result;
+        }
+        result = compareNullable(altitudeFt, other.altitudeFt);
+        if (result != 0) {
+            return result;
+        }
+        return Points.NULLABLE_COMPARATOR.compare(trackId, other.trackId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactPoint<?> other)) {
+            return false;
+        }
+        return epochMs == other.epochMs
+            && Double.compare(latitude, other.latitude) == 0
+            && Double.compare(longitude, other.longitude) == 0
+            && Double.compare(altitudeFt, other.altitudeFt) == 0
+            && Double.compare(speedKt, other.speedKt) == 0
+            && Double.compare(courseDeg, other.courseDeg) == 0
+            && Objects.equals(trackId, other.trackId)
+            && Objects.equals(rawData, other.rawData);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(epochMs, latitude, longitude, altitudeFt, speedKt, courseDeg, trackId, rawData);
+    }
+
+    @Override
+    public String toString() {
+        return "CompactPoint[" + toPoint() + "]";
+    }
+}
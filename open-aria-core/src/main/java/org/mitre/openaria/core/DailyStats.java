@@ -0,0 +1,157 @@
+package org.mitre.openaria.core;
+
+import static com.google.common.collect.Maps.newTreeMap;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.mitre.caasd.commons.YyyyMmDd;
+
+import com.google.common.math.StatsAccumulator;
+
+/**
+ * DailyStats keeps per-day counts and per-day StatsAccumulators in arrays indexed by "days since
+ * the first day seen". Recording a value for a day that has already been seen does not allocate
+ * any objects (i.e., no YyyyMmDd, no boxed Long, and no Map lookup). This matters because the time
+ * sorters record statistics for every input record.
+ * <p>
+ * The arrays never span more than MAX_NUM_DAYS. Days that would stretch the arrays beyond that
+ * window (e.g. a corrupt timestamp at the epoch or in the year 2099) are kept in small "outlier"
+ * Maps instead. Consequently, one bad timestamp cannot force a huge allocation.
+ * <p>
+ * The per-day data is also available as Maps keyed by YyyyMmDd (the format used in log output).
+ * The accumulator Map is "live" (it holds the same StatsAccumulators that receive new data). The
+ * count Map is a snapshot built on demand.
+ */
+class DailyStats {
+
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    private static final int INITIAL_NUM_DAYS = 4;
+
+    /** The maximum number of consecutive days held in the arrays. */
+    static final int MAX_NUM_DAYS = 366;
+
+    /* The epoch day stored at index 0 (only meaningful when hasData is true). */
+    private long firstDay;
+
+    private boolean hasData;
+
+    private long[] counts = new long[INITIAL_NUM_DAYS];
+
+    private StatsAccumulator[] accumulators = new StatsAccumulator[INITIAL_NUM_DAYS];
+
+    /* Days that do not fit in the arrays, keyed by epoch day. */
+    private final Map<Long, Long> outlierCounts = new HashMap<>();
+
+    private final Map<Long, StatsAccumulator> outlierAccumulators = new HashMap<>();
+
+    /* Holds the same StatsAccumulators as the accumulators array. */
+    private final Map<YyyyMmDd, StatsAccumulator> accumulatorsByDate = newTreeMap();
+
+    /** @return The number of days between the epoch and the (UTC) day that contains this time. */
+    static long epochDayOf(Instant time) {
+        return Math.floorDiv(time.getEpochSecond(), SECONDS_PER_DAY);
+    }
+
+    /** Add "amount" to the count for one day. */
+    void increment(long epochDay, long amount) {
+        int index = indexOf(epochDay);
+        if (index < 0) {
+            outlierCounts.merge(epochDay, amount, Long::sum);
+        } else {
+            counts[index] += amount;
+        }
+    }
+
+    /** @return The StatsAccumulator for one day (it is created the first time a day is seen). */
+    StatsAccumulator accumulatorFor(long epochDay) {
+        int index = indexOf(epochDay);
+        if (index < 0) {
+            return outlierAccumulators.computeIfAbsent(epochDay, day -> newAccumulator(day));
+        }
+        StatsAccumulator accumulator = accumulators[index];
+        if (accumulator == null) {
+            accumulator = newAccumulator(epochDay);
+            accumulators[index] = accumulator;
+        }
+        return accumulator;
+    }
+
+    private StatsAccumulator newAccumulator(long epochDay) {
+        StatsAccumulator accumulator = new StatsAccumulator();
+        accumulatorsByDate.put(dateOf(epochDay), accumulator);
+        return accumulator;
+    }
+
+    /** @return The sum of every day's count. */
+    long totalCount() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        for (long count : outlierCounts.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /** @return A snapshot of the non-zero daily counts. */
+    Map<YyyyMmDd, Long> counts() {
+        TreeMap<YyyyMmDd, Long> snapshot = newTreeMap();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                snapshot.put(dateOf(firstDay + i), counts[i]);
+            }
+        }
+        outlierCounts.forEach((day, count) -> snapshot.put(dateOf(day), count));
+        return snapshot;
+    }
+
+    /** @return The daily StatsAccumulators (this Map reflects all future updates). */
+    Map<YyyyMmDd, StatsAccumulator> accumulators() {
+        return Collections.unmodifiableMap(accumulatorsByDate);
+    }
+
+    /*
+     * Find the array index for a day. The arrays are grown (or shifted) when necessary. Returns -1
+     * when the day cannot fit in the arrays without spanning more than MAX_NUM_DAYS.
+     */
+    private int indexOf(long epochDay) {
+        if (!hasData) {
+            hasData = true;
+            firstDay = epochDay;
+        }
+        long offset = epochDay - firstDay;
+        if (0 <= offset && offset < counts.length) {
+            return (int) offset;
+        }
+
+        //this day is outside the current range, reallocate so that both ranges fit
+        long newFirstDay = Math.min(firstDay, epochDay);
+        long newLastDay = Math.max(firstDay + counts.length - 1, epochDay);
+        long numDaysNeeded = newLastDay - newFirstDay + 1;
+        if (numDaysNeeded > MAX_NUM_DAYS) {
+            return -1;
+        }
+        int newLength = (int) Math.min(Math.max(numDaysNeeded, 2L * counts.length), MAX_NUM_DAYS);
+        int shift = (int) (firstDay - newFirstDay);
+
+        long[] newCounts = new long[newLength];
+        System.arraycopy(counts, 0, newCounts, shift, counts.length);
+        StatsAccumulator[] newAccumulators = new StatsAccumulator[newLength];
+        System.arraycopy(accumulators, 0, newAccumulators, shift, accumulators.length);
+
+        this.counts = newCounts;
+        this.accumulators = newAccumulators;
+        this.firstDay = newFirstDay;
+        return (int) (epochDay - firstDay);
+    }
+
+    private static YyyyMmDd dateOf(long epochDay) {
+        return YyyyMmDd.from(Instant.ofEpochSecond(epochDay * SECONDS_PER_DAY));
+    }
+}
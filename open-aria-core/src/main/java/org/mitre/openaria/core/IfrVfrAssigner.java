@@ -7,7 +7,6 @@ import static org.mitre.openaria.core.IfrVfrStatus.IFR;
 import static org.mitre.openaria.core.IfrVfrStatus.VFR;
 
 import java.time.Instant;
-import java.util.Collection;
 
 import org.mitre.openaria.core.formats.nop.NopEncoder;
 import org.mitre.openaria.core.formats.nop.NopHit;
@@ -69,10 +68,12 @@ public class IfrVfrAssigner {
         );
 
         EnumMultiset<IfrVfrStatus> counts = EnumMultiset.create(IfrVfrStatus.class);
-        Collection<Point<T>> localPoints = track.kNearestPoints(time, numPointsToConsider);
+        TimeSortedPoints<T> points = track.timeSortedPoints();
+        int start = points.kNearestStart(time, numPointsToConsider);
+        int end = start + Math.min(numPointsToConsider, points.size());
 
-        for (Point<T> point : localPoints) {
-            counts.add(statusOf(point));
+        for (int i = start; i < end; i++) {
+            counts.add(statusOf(points.get(i)));
         }
         return (counts.count(IFR) > counts.count(VFR)) ? IFR : VFR;
     }
@@ -30,6 +30,9 @@ import org.mitre.caasd.commons.Speed;
  * Point p1 = (new PointBuilder(otherPoint)).butLatLong(newLatLong).build();
  * <p>
  * Notice, Point data can be converted to a CommonPoint object AND/OR a {@code Map<PointField, Object>}
+ * <p>
+ * A PointBuilder can also assemble a CompactPoint (see buildCompact()), which holds the same data
+ * in a single object.
  */
 public class PointBuilder<T> {
 
@@ -71,6 +74,23 @@ public class PointBuilder<T> {
         this.rawData = p.rawData();
     }
 
+    /**
+     * Copy all the attributes of the input CompactPoint p
+     *
+     * @param p A CompactPoint
+     */
+    public PointBuilder(CompactPoint<T> p) {
+        this();
+        this.epochTime = p.timeAsEpochMs();
+        this.latitude = p.latitude();
+        this.longitude = p.longitude();
+        this.altitude = p.altitude();
+        this.speed = p.speed();
+        this.course = p.course();
+        this.trackId = p.trackId();
+        this.rawData = p.rawData();
+    }
+
     public PointBuilder<T> trackId(String trackId) {
         this.trackId = trackId;
         return this;
@@ -141,4 +161,27 @@ public class PointBuilder<T> {
 
         return new Point<>(pos, vel, trackId, rawData);
     }
+
+    /**
+     * @return A CompactPoint that holds the same data as build() would. Altitude, speed, and course
+     *     are stored in feet, knots, and degrees.
+     */
+    public CompactPoint<T> buildCompact() {
+        requireNonNull(epochTime, "Points must have a time");
+        requireNonNull(latitude, "Points must have a latitude");
+        requireNonNull(longitude, "Points must have a longitude");
+
+        boolean hasVelocity = nonNull(speed) && nonNull(course);
+
+        return new CompactPoint<>(
+            epochTime,
+            latitude,
+            longitude,
+            UnitCodec.feetOrNaN(altitude),
+            hasVelocity ? speed.inKnots() : Double.NaN,
+            hasVelocity ? course.inDegrees() : Double.NaN,
+            trackId,
+            rawData
+        );
+    }
 }
@@ -0,0 +1,127 @@
+package org.mitre.openaria.core;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Objects.nonNull;
+import static org.mitre.caasd.commons.util.DemotedException.demote;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+
+import org.mitre.caasd.commons.Course;
+import org.mitre.caasd.commons.Distance;
+import org.mitre.caasd.commons.LatLong;
+import org.mitre.caasd.commons.Position;
+import org.mitre.caasd.commons.Speed;
+
+/**
+ * A PointCodec is a compact binary SpillCodec for Points. The fields of a Point are written
+ * directly (no text is produced or parsed):
+ * <pre>
+ *   [flags: byte] [epochSecond: long] [nano: int] [latitude: double] [longitude: double]
+ *   [altitudeInFeet: double]?  [speedInKnots: double, courseInDegrees: double]?
+ *   [trackId: UTF]?  [rawData: int length + bytes]?
+ * </pre>
+ * The flags declare which optional fields are present. The raw data is encoded by a format-specific
+ * SpillCodec (see Format.rawDataCodec()).
+ * <p>
+ * Altitude, speed, and course are stored in feet, knots, and degrees, so the decoded Point's unit
+ * typed values use those units.
+ *
+ * @param <T> The type of raw data inside the Points
+ */
+public final class PointCodec<T> implements SpillCodec<Point<T>> {
+
+    private static final int HAS_ALTITUDE = 1;
+    private static final int HAS_VELOCITY = 1 << 1;
+    private static final int HAS_TRACK_ID = 1 << 2;
+    private static final int HAS_RAW_DATA = 1 << 3;
+
+    /* Enough for the fixed-width fields, a trackId, and a typical line of NOP. */
+    private static final int EXPECTED_SIZE = 256;
+
+    private final SpillCodec<T> rawDataCodec;
+
+    /** @param rawDataCodec Encodes the raw data inside each Point */
+    public PointCodec(SpillCodec<T> rawDataCodec) {
+        this.rawDataCodec = checkNotNull(rawDataCodec);
+    }
+
+    @Override
+    public byte[] encode(Point<T> point) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(EXPECTED_SIZE);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeFields(out, point);
+        } catch (IOException ioe) {
+            throw demote(ioe);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Point<T> decode(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return readFields(in);
+        } catch (IOException ioe) {
+            throw demote(ioe);
+        }
+    }
+
+    private void writeFields(DataOutput out, Point<T> point) throws IOException {
+        Distance altitude = point.altitude();
+        Velocity velocity = point.velocity();
+        String trackId = point.trackId();
+        T rawData = point.rawData();
+
+        int flags = (nonNull(altitude) ? HAS_ALTITUDE : 0)
+            | (nonNull(velocity) ? HAS_VELOCITY : 0)
+            | (nonNull(trackId) ? HAS_TRACK_ID : 0)
+            | (nonNull(rawData) ? HAS_RAW_DATA : 0);
+        out.writeByte(flags);
+
+        Instant time = point.time();
+        out.writeLong(time.getEpochSecond());
+        out.writeInt(time.getNano());
+        out.writeDouble(point.latitude());
+        out.writeDouble(point.longitude());
+
+        if (nonNull(altitude)) {
+            out.writeDouble(altitude.inFeet());
+        }
+        if (nonNull(velocity)) {
+            out.writeDouble(velocity.speed().inKnots());
+            out.writeDouble(velocity.course().inDegrees());
+        }
+        if (nonNull(trackId)) {
+            out.writeUTF(trackId);
+        }
+        if (nonNull(rawData)) {
+            rawDataCodec.write(out, rawData);
+        }
+    }
+
+    private Point<T> readFields(DataInput in) throws IOException {
+        int flags = in.readByte();
+
+        Instant time = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        LatLong latLong = LatLong.of(in.readDouble(), in.readDouble());
+
+        Distance altitude = isSet(flags, HAS_ALTITUDE) ? Distance.ofFeet(in.readDouble()) : null;
+        Velocity velocity = isSet(flags, HAS_VELOCITY)
+            ? new Velocity(Speed.ofKnots(in.readDouble()), Course.ofDegrees(in.readDouble()))
+            : null;
+        String trackId = isSet(flags, HAS_TRACK_ID) ? in.readUTF() : null;
+        T rawData = isSet(flags, HAS_RAW_DATA) ? rawDataCodec.read(in) : null;
+
+        return new Point<>(new Position(time, latLong, altitude), velocity, trackId, rawData);
+    }
+
+    private static boolean isSet(int flags, int flag) {
+        return (flags & flag) != 0;
+    }
+}
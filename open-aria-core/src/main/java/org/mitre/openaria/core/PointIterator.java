@@ -14,10 +14,11 @@ import org.mitre.openaria.core.formats.nop.NopRadarHit;
 /**
  * A PointIterator wraps a NopParser or a SWIMParser. The Iterator ensure
  * <p>
+ * Closing a PointIterator closes the NopParser it wraps.
  */
-public class PointIterator implements Iterator<Point<NopHit>> {
+public class PointIterator implements Iterator<Point<NopHit>>, AutoCloseable {
 
-    private final Iterator<NopMessage> nopMessageIter;
+    private final NopParser nopMessageIter;
 
     Point<NopHit> nextPoint;
 
@@ -65,4 +66,9 @@ public class PointIterator implements Iterator<Point<NopHit>> {
         return null;
     }
 
+    @Override //part of AutoCloseable
+    public void close() throws Exception {
+        this.nextPoint = null;
+        nopMessageIter.close();
+    }
 }
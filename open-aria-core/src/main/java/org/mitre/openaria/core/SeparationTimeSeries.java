@@ -98,12 +98,15 @@ public class SeparationTimeSeries implements Serializable, Iterable<Instant> {
 
         LinkedList<Triple> triples = newLinkedList();
 
+        TrackCursor<?> cursor1 = trackPair.track1().cursor();
+        TrackCursor<?> cursor2 = trackPair.track2().cursor();
+
         Instant curTime = startTime;
         while (curTime.isBefore(endTime)) {
 
-            PointPair points = trackPair.interpolatedPointsAt(curTime);
-            Distance horizontal = points.lateralDistance();
-            Distance vert = points.altitudeDelta();
+            moveBoth(cursor1, cursor2, curTime);
+            Distance horizontal = lateralSeparation(cursor1, cursor2);
+            Distance vert = verticalSeparation(cursor1, cursor2);
 
             Triple trip = new Triple(curTime, horizontal, vert);
 
@@ -116,9 +119,9 @@ public class SeparationTimeSeries implements Serializable, Iterable<Instant> {
 
         //add the final "end of time window" triplet
         if (!triples.getLast().time.equals(endTime)) {
-            PointPair points = trackPair.interpolatedPointsAt(endTime);
-            Distance horizontal = points.lateralDistance();
-            Distance vert = points.altitudeDelta();
+            moveBoth(cursor1, cursor2, endTime);
+            Distance horizontal = lateralSeparation(cursor1, cursor2);
+            Distance vert = verticalSeparation(cursor1, cursor2);
 
             triples.add(new Triple(endTime, horizontal, vert));
         }
@@ -221,13 +224,38 @@ public class SeparationTimeSeries implements Serializable, Iterable<Instant> {
     }
 
     private void fillInSeparationTimeSeries(TrackPair<?> trackPair) {
+        TrackCursor<?> cursor1 = trackPair.track1().cursor();
+        TrackCursor<?> cursor2 = trackPair.track2().cursor();
+
         for (int i = 0; i < times.length; i++) {
-            PointPair points = trackPair.interpolatedPointsAt(times[i]);
-            verticalDistances[i] = points.altitudeDelta();
-            horizontalDistances[i] = points.lateralDistance();
+            moveBoth(cursor1, cursor2, times[i]);
+            verticalDistances[i] = verticalSeparation(cursor1, cursor2);
+            horizontalDistances[i] = lateralSeparation(cursor1, cursor2);
         }
     }
 
+    /*
+     * The methods below replace TrackPair.interpolatedPointsAt(time). They sample each Track with
+     * a TrackCursor (which does not build interpolated Points) because the sample times increase.
+     */
+
+    private static void moveBoth(TrackCursor<?> cursor1, TrackCursor<?> cursor2, Instant time) {
+        boolean inOverlap = cursor1.moveTo(time) && cursor2.moveTo(time);
+        checkArgument(inOverlap, "The provided time must occur within the overlap");
+    }
+
+    /** Equivalent to PointPair.lateralDistance(). */
+    private static Distance lateralSeparation(TrackCursor<?> cursor1, TrackCursor<?> cursor2) {
+        return Distance.ofNauticalMiles(cursor1.distanceInNmTo(cursor2));
+    }
+
+    /** Equivalent to PointPair.altitudeDelta(), this fails when altitude data is missing. */
+    private static Distance verticalSeparation(TrackCursor<?> cursor1, TrackCursor<?> cursor2) {
+        double delta = Math.abs(cursor1.altitudeInFeet() - cursor2.altitudeInFeet());
+        checkState(!Double.isNaN(delta), "Both Tracks must have altitude data");
+        return Distance.of(delta, Distance.Unit.FEET);
+    }
+
     /**
      * The Speed at which the Vertical Separation is changing at a particular moment in time.
      *
@@ -0,0 +1,40 @@
+package org.mitre.openaria.core;
+
+import java.util.function.Consumer;
+
+import org.mitre.caasd.commons.HasTime;
+
+/**
+ * A SortBuffer temporarily holds timestamped data so that the data can be released to a
+ * downstream Consumer in (approximately) time-sorted order. A StreamingTimeSorter places a
+ * SortBuffer in front of its StrictTimeSortEnforcer.
+ *
+ * @param <T> The type of timestamped data
+ * @see ApproximateTimeSorter
+ * @see WatermarkTimeSorter
+ */
+public interface SortBuffer<T extends HasTime> extends BatchConsumer<T>, AutoCloseable {
+
+    /** Release all buffered data to the downstream Consumer. */
+    void flush();
+
+    /** @return The number of records that have not yet been released. */
+    int numRecordsInQueue();
+
+    /** @return The highest number of records ever held at one time. */
+    int sizeHighWaterMark();
+
+    /**
+     * Perform an action on every record that has not yet been released (in no particular order).
+     * The records are not released. This supports writing checkpoints of in-flight data.
+     */
+    void forEachBufferedRecord(Consumer<? super T> action);
+
+    /**
+     * Release any resources held outside the heap (e.g. spill files). Buffered data that has not
+     * been flushed is discarded. The default implementation does nothing.
+     */
+    @Override
+    default void close() {
+    }
+}
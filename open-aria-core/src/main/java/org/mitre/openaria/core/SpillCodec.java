@@ -0,0 +1,35 @@
+package org.mitre.openaria.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A SpillCodec converts records to (and from) a compact byte[] so they can be temporarily moved out
+ * of the heap and onto disk (see SpillingTimeQueue). The same encoding is used when checkpoints of
+ * in-flight state (e.g. the Points in a sort buffer) are written to disk.
+ * <p>
+ * decode(encode(x)) must produce a record that is equivalent to x.
+ *
+ * @param <T> The type of record
+ */
+public interface SpillCodec<T> {
+
+    byte[] encode(T record);
+
+    T decode(byte[] bytes);
+
+    /** Write one record as an int length followed by the encoded bytes. */
+    default void write(DataOutput out, T record) throws IOException {
+        byte[] bytes = encode(record);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Read one record that was written by write(DataOutput, T). */
+    default T read(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return decode(bytes);
+    }
+}
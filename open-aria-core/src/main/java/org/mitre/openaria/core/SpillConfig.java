@@ -0,0 +1,24 @@
+package org.mitre.openaria.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+
+/**
+ * The settings of a sort buffer that spills data to disk (see SpillingTimeQueue).
+ *
+ * @param codec              Converts records to (and from) bytes
+ * @param maxRecordsInMemory The number of records kept in memory before the oldest half of them are
+ *                           written to a sorted "run" file
+ * @param directory          Where run files are written (run files are deleted once they are read)
+ * @param <T>                The type of record
+ */
+public record SpillConfig<T>(SpillCodec<T> codec, int maxRecordsInMemory, File directory) {
+
+    public SpillConfig {
+        checkNotNull(codec);
+        checkNotNull(directory);
+        checkArgument(maxRecordsInMemory >= 2, "At least 2 records must be kept in memory");
+    }
+}
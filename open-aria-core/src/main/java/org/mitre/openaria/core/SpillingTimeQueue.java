@@ -0,0 +1,333 @@
+package org.mitre.openaria.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.mitre.caasd.commons.util.DemotedException.demote;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+import org.mitre.caasd.commons.HasTime;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+
+/**
+ * A SpillingTimeQueue is a time-ordered Queue that keeps a bounded number of records in memory.
+ * When the in-memory queue grows beyond its limit the oldest half of its records (i.e. the records
+ * that are furthest from the "hot" end of the stream) are written, in time order, to a "run" file.
+ * <p>
+ * Run files use a compact binary encoding: each record is an int length followed by the bytes
+ * produced by a SpillCodec (see PointCodec). Run files are read sequentially through a small
+ * buffer. Polling this queue merges the in-memory queue and every run file (each run contributes
+ * its oldest unread record).
+ * Consequently, a SpillingTimeQueue can reorder data over a very long window (e.g. 30 minutes of
+ * data from a busy facility) without holding that entire window on the heap.
+ * <p>
+ * Each run file is closed and deleted as soon as its last record is polled (or when clear() or
+ * close() is called). An open run holds one file descriptor and one read buffer. Closing a
+ * SpillingTimeQueue also removes the spill directory when this queue created it and it is empty.
+ *
+ * @param <T> The type of timestamped data
+ */
+public class SpillingTimeQueue<T extends HasTime> extends AbstractQueue<T> implements AutoCloseable {
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private final Queue<T> inMemory;
+
+    private final SpillCodec<T> codec;
+
+    private final int maxRecordsInMemory;
+
+    private final File directory;
+
+    /* True when the directory did not exist before this queue was made. */
+    private final boolean createdDirectory;
+
+    /* Every run that still has unread data, ordered by the time of its oldest unread record. */
+    private final PriorityQueue<Run> runs;
+
+    private long numRunsWritten;
+
+    /* The number of records held in run files (including each run's decoded head). */
+    private int spilledCount;
+
+    /**
+     * @param inMemory The (initially empty) time-ordered Queue that holds the "hot" records
+     * @param config   Where, when, and how records are spilled to disk
+     */
+    public SpillingTimeQueue(Queue<T> inMemory, SpillConfig<T> config) {
+        checkNotNull(inMemory);
+        checkNotNull(config);
+        checkArgument(inMemory.isEmpty(), "The in-memory queue must start empty");
+        File dir = config.directory();
+        boolean dirExisted = dir.isDirectory();
+        checkArgument(dirExisted || dir.mkdirs(), "Cannot create: " + dir.getAbsolutePath());
+
+        this.inMemory = inMemory;
+        this.codec = config.codec();
+        this.maxRecordsInMemory = config.maxRecordsInMemory();
+        this.directory = dir;
+        this.createdDirectory = !dirExisted;
+        this.runs = new PriorityQueue<>(
+            Comparator.comparing((Run run) -> run.head.time()).thenComparingLong(run -> run.index)
+        );
+    }
+
+    @Override
+    public boolean offer(T item) {
+        checkNotNull(item);
+        inMemory.add(item);
+        if (inMemory.size() > maxRecordsInMemory) {
+            spillOldestHalf();
+        }
+        return true;
+    }
+
+    @Override
+    public T poll() {
+        Run oldestRun = runs.peek();
+        if (oldestRun == null || (!inMemory.isEmpty() && isOlder(inMemory.peek(), oldestRun.head))) {
+            return inMemory.poll();
+        }
+
+        runs.poll();
+        T oldest = oldestRun.head;
+        spilledCount--;
+        if (oldestRun.advance()) {
+            runs.add(oldestRun);
+        } else {
+            oldestRun.delete();
+        }
+        return oldest;
+    }
+
+    @Override
+    public T peek() {
+        Run oldestRun = runs.peek();
+        if (oldestRun == null || (!inMemory.isEmpty() && isOlder(inMemory.peek(), oldestRun.head))) {
+            return inMemory.peek();
+        }
+        return oldestRun.head;
+    }
+
+    @Override
+    public int size() {
+        return inMemory.size() + spilledCount;
+    }
+
+    /** @return The number of records currently stored on disk (rather than in memory). */
+    public int numSpilledRecords() {
+        return spilledCount;
+    }
+
+    /** @return The number of run files that still contain unread data. */
+    public int numRuns() {
+        return runs.size();
+    }
+
+    /** Discard all records and delete every run file. */
+    @Override
+    public void clear() {
+        inMemory.clear();
+        runs.forEach(Run::delete);
+        runs.clear();
+        spilledCount = 0;
+    }
+
+    /**
+     * Discard all records, delete every run file, and remove the spill directory if this queue
+     * created it and no other queue still uses it (i.e. it is empty).
+     */
+    @Override
+    public void close() {
+        clear();
+        if (createdDirectory) {
+            //fails (harmlessly) when the directory still holds another queue's run files
+            directory.delete();
+        }
+    }
+
+    /** @return An Iterator that visits every record (NOT in time order). Run files are decoded. */
+    @Override
+    public Iterator<T> iterator() {
+        List<Iterator<T>> parts = new ArrayList<>(runs.size() + 1);
+        parts.add(inMemory.iterator());
+        runs.forEach(run -> parts.add(run.unreadRecords()));
+        return Iterators.concat(parts.iterator());
+    }
+
+    /* Ties go to the run because its data arrived first. */
+    private static boolean isOlder(HasTime a, HasTime b) {
+        return a.time().isBefore(b.time());
+    }
+
+    private void spillOldestHalf() {
+        int numToSpill = inMemory.size() / 2;
+
+        try {
+            File file = File.createTempFile("sort-run-", ".bin", directory);
+            try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), WRITE_BUFFER_SIZE))) {
+                for (int i = 0; i < numToSpill; i++) {
+                    byte[] bytes = codec.encode(inMemory.poll());
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            } catch (IOException ioe) {
+                file.delete();
+                throw ioe;
+            }
+            Run run = new Run(numRunsWritten++, file, numToSpill);
+            run.advance();
+            runs.add(run);
+            spilledCount += numToSpill;
+        } catch (IOException ioe) {
+            throw demote("Could not spill data to: " + directory.getAbsolutePath(), ioe);
+        }
+    }
+
+    /** A sorted run file and the oldest record that has not been read from it. */
+    private class Run {
+
+        final long index;
+
+        final File file;
+
+        /* Open until the run is deleted. Reads are positional, so several readers can share it. */
+        final FileChannel channel;
+
+        final RecordReader reader;
+
+        /* The number of records that have not been decoded yet. */
+        int numUndecoded;
+
+        T head;
+
+        Run(long index, File file, int numRecords) throws IOException {
+            this.index = index;
+            this.file = file;
+            this.numUndecoded = numRecords;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            this.reader = new RecordReader(channel, 0L);
+        }
+
+        /** Decode the next record into head, return false when the run is exhausted. */
+        boolean advance() {
+            if (numUndecoded == 0) {
+                head = null;
+                return false;
+            }
+            head = reader.next();
+            numUndecoded--;
+            return true;
+        }
+
+        Iterator<T> unreadRecords() {
+            RecordReader copy = new RecordReader(channel, reader.position());
+            return new AbstractIterator<>() {
+
+                boolean headVisited;
+
+                int numLeft = numUndecoded;
+
+                @Override
+                protected T computeNext() {
+                    if (!headVisited) {
+                        headVisited = true;
+                        return head;
+                    }
+                    if (numLeft == 0) {
+                        return endOfData();
+                    }
+                    numLeft--;
+                    return copy.next();
+                }
+            };
+        }
+
+        void delete() {
+            try {
+                channel.close();
+            } catch (IOException ioe) {
+                //the file is deleted regardless
+            }
+            //only a file that cannot be deleted now is left for the JVM to delete at exit
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    /** Reads length-prefixed records from a run file, starting at a given position. */
+    private class RecordReader {
+
+        final FileChannel channel;
+
+        /* Holds bytes that have been read from the file but not yet decoded (in "read mode"). */
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE).limit(0);
+
+        /* The file position of the first byte that has not been copied into the buffer. */
+        long filePosition;
+
+        RecordReader(FileChannel channel, long start) {
+            this.channel = channel;
+            this.filePosition = start;
+        }
+
+        /** @return The file position of the next record. */
+        long position() {
+            return filePosition - buffer.remaining();
+        }
+
+        T next() {
+            try {
+                fill(Integer.BYTES);
+                byte[] bytes = new byte[buffer.getInt()];
+                fill(bytes.length);
+                buffer.get(bytes);
+                return codec.decode(bytes);
+            } catch (IOException ioe) {
+                throw demote("Could not read spilled data from: " + directory.getAbsolutePath(), ioe);
+            }
+        }
+
+        /* Ensure the buffer holds at least numBytes unread bytes. */
+        private void fill(int numBytes) throws IOException {
+            if (buffer.remaining() >= numBytes) {
+                return;
+            }
+            if (numBytes > buffer.capacity()) {
+                //a record larger than the buffer, grow the buffer
+                buffer = ByteBuffer.allocate(numBytes).put(buffer);
+            } else {
+                buffer.compact();
+            }
+            while (buffer.position() < numBytes) {
+                int numRead = channel.read(buffer, filePosition);
+                if (numRead < 0) {
+                    throw new EOFException("Unexpected end of run file");
+                }
+                filePosition += numRead;
+            }
+            buffer.flip();
+        }
+    }
+}
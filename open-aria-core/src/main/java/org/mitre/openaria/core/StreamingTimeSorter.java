@@ -1,18 +1,26 @@
 package org.mitre.openaria.core;
 
+import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Maps.newHashMap;
-import static com.google.common.collect.Maps.newTreeMap;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.mitre.caasd.commons.HasTime;
 import org.mitre.caasd.commons.YyyyMmDd;
+import org.mitre.openaria.core.ApproximateTimeSorter.BufferType;
 
 import com.google.common.math.StatsAccumulator;
 
@@ -25,10 +33,15 @@ import com.google.common.math.StatsAccumulator;
  * <p>A StreamingTimeSorter provides this guarantee by combining the capabilities of a {@link
  * ApproximateTimeSorter} and a {@link StrictTimeSortEnforcer}.
  *
+ * <p>When the input merges several unsynchronized sources (e.g. radars or Kafka partitions) a
+ * {@link WatermarkTimeSorter} can replace the ApproximateTimeSorter. This keeps a source that
+ * races ahead from causing the data of the lagging sources to be dropped.
+ *
  * @see org.mitre.openaria.core.ApproximateTimeSorter
+ * @see org.mitre.openaria.core.WatermarkTimeSorter
  * @see org.mitre.openaria.core.StrictTimeSortEnforcer
  */
-public class StreamingTimeSorter<T extends HasTime> implements Consumer<T> {
+public class StreamingTimeSorter<T extends HasTime> implements BatchConsumer<T> {
 
     /* Strictly ensures all data passed to the targetConsumer are in chronological-order. */
     private final StrictTimeSortEnforcer<T> strictSorter;
@@ -37,7 +50,7 @@ public class StreamingTimeSorter<T extends HasTime> implements Consumer<T> {
      * Maintains an in-memory buffer of data to improve time sequencing before forwarding data
      * to the StrictTimeSortEnforcer.
      */
-    private final ApproximateTimeSorter<T> approxSorter;
+    private final SortBuffer<T> sortBuffer;
 
     private final StreamIntegritySummarizer<T> integritySummarizer;
 
@@ -52,12 +65,89 @@ public class StreamingTimeSorter<T extends HasTime> implements Consumer<T> {
      *                        correct the timing difference.
      */
     public StreamingTimeSorter(Consumer<T> target, Duration sortingDuration, Consumer<T> rejectedData) {
+        this(target, sortingDuration, rejectedData, BufferType.PRIORITY_QUEUE);
+    }
+
+    /**
+     * Create a StreamingTimeSorter that ensures the wrapped downstreamConsumer never receives
+     * out-of-time-order data (assuming all data is routed through this sorter).
+     *
+     * @param target          This Consumer<T> will receive a time-ordered stream of data
+     * @param sortingDuration How much data is kept in memory to smooth out timing errors
+     * @param rejectedData    This Consumer<T> receives all data that is rejected because they were
+     *                        so far out of time-order that the in-memory data buffer could not
+     *                        correct the timing difference.
+     * @param bufferType      The data structure that holds the in-memory data buffer
+     */
+    public StreamingTimeSorter(
+        Consumer<T> target,
+        Duration sortingDuration,
+        Consumer<T> rejectedData,
+        BufferType bufferType
+    ) {
+        this(
+            target,
+            rejectedData,
+            output -> new ApproximateTimeSorter<>(sortingDuration, output, bufferType)
+        );
+    }
+
+    /**
+     * Create a StreamingTimeSorter whose in-memory data buffer spills older data to disk. This
+     * allows a long sortingDuration (e.g. 30 minutes) without a correspondingly large heap.
+     *
+     * @param target          This Consumer<T> will receive a time-ordered stream of data
+     * @param sortingDuration How much data is kept to smooth out timing errors
+     * @param rejectedData    This Consumer<T> receives all data that is rejected because they were
+     *                        too far out of time-order to correct.
+     * @param spillConfig     Where, when, and how buffered data is spilled to disk
+     */
+    public StreamingTimeSorter(
+        Consumer<T> target,
+        Duration sortingDuration,
+        Consumer<T> rejectedData,
+        SpillConfig<T> spillConfig
+    ) {
+        this(
+            target,
+            rejectedData,
+            output -> new ApproximateTimeSorter<>(sortingDuration, output, spillConfig)
+        );
+    }
+
+    /**
+     * Create a StreamingTimeSorter that merges several unsynchronized sources using a per-source
+     * watermark (see WatermarkTimeSorter).
+     *
+     * @param target          This Consumer<T> will receive a time-ordered stream of data
+     * @param rejectedData    This Consumer<T> receives all data that is rejected because it arrived
+     *                        after its source's watermark had already been passed (e.g. data from
+     *                        a source that was idle).
+     * @param watermarkConfig How sources are identified and how long they are waited for
+     */
+    public StreamingTimeSorter(
+        Consumer<T> target,
+        Consumer<T> rejectedData,
+        WatermarkConfig<? super T> watermarkConfig
+    ) {
+        this(
+            target,
+            rejectedData,
+            output -> new WatermarkTimeSorter<>(watermarkConfig, output)
+        );
+    }
+
+    private StreamingTimeSorter(
+        Consumer<T> target,
+        Consumer<T> rejectedData,
+        Function<Consumer<T>, SortBuffer<T>> sortBufferFactory
+    ) {
         this.integritySummarizer = new StreamIntegritySummarizer<>();
 
         Consumer<T> droppedInputHandler = rejectedData.andThen(integritySummarizer);
 
         this.strictSorter = new StrictTimeSortEnforcer<>(target, droppedInputHandler);
-        this.approxSorter = new ApproximateTimeSorter<>(sortingDuration, strictSorter);
+        this.sortBuffer = sortBufferFactory.apply(strictSorter);
     }
 
     /**
@@ -78,7 +168,18 @@ public class StreamingTimeSorter<T extends HasTime> implements Consumer<T> {
          * track ALL point before any rejection logic is applied.
          */
         integritySummarizer.acceptUnsortedRecords(t);
-        approxSorter.accept(t);
+        sortBuffer.accept(t);
+    }
+
+    /**
+     * Accept an entire batch of data. This produces the same time-sorted output as accept(T) (see
+     * ApproximateTimeSorter.acceptAll). Data released by the sort buffer is passed to the target
+     * as a batch when the target is a BatchConsumer.
+     */
+    @Override
+    public void acceptAll(List<? extends T> batch) {
+        integritySummarizer.acceptUnsortedBatch(batch);
+        sortBuffer.acceptAll(batch);
     }
 
     /**
@@ -97,11 +198,82 @@ public class StreamingTimeSorter<T extends HasTime> implements Consumer<T> {
      * stranded in memory.
      */
     public void flush() {
-        this.approxSorter.flush();
+        this.sortBuffer.flush();
     }
 
+    /**
+     * Release the resources the sort buffer holds outside the heap (e.g. spill files). Data that
+     * has not been flushed is discarded.
+     */
+    public void close() {
+        this.sortBuffer.close();
+    }
+
+    /**
+     * Write the time seen by the target and every datum that is held in the sort buffer (i.e. not
+     * yet sent to the target). The buffer is not changed.
+     *
+     * @param out   Receives the checkpoint
+     * @param codec Encodes each datum
+     */
+    public void writeCheckpoint(DataOutput out, SpillCodec<T> codec) throws IOException {
+        List<T> buffered = new ArrayList<>(sortBuffer.numRecordsInQueue());
+        sortBuffer.forEachBufferedRecord(buffered::add);
+
+        Instant timeSeenByTarget = strictSorter.currentTime();
+        out.writeBoolean(timeSeenByTarget != null);
+        if (timeSeenByTarget != null) {
+            out.writeLong(timeSeenByTarget.getEpochSecond());
+            out.writeInt(timeSeenByTarget.getNano());
+        }
+
+        out.writeInt(buffered.size());
+        for (T t : buffered) {
+            codec.write(out, t);
+        }
+    }
+
+    /**
+     * Put the data from a checkpoint (see writeCheckpoint) back into the sort buffer. Restored data
+     * is not counted as new input by the integritySummarizer. The time seen by the target is also
+     * restored, so replayed input that the target has already passed is dropped (i.e., sent to the
+     * droppedInputHandler) rather than forwarded out of order.
+     *
+     * @param in    Provides the checkpoint
+     * @param codec Decodes each datum
+     */
+    public void restoreCheckpoint(DataInput in, SpillCodec<T> codec) throws IOException {
+        if (in.readBoolean()) {
+            strictSorter.restoreCurrentTime(Instant.ofEpochSecond(in.readLong(), in.readInt()));
+        }
+
+        int count = in.readInt();
+        List<T> restored = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            restored.add(codec.read(in));
+        }
+        //the buffer was written in no particular order
+        restored.sort(Comparator.comparing(HasTime::time));
+        sortBuffer.acceptAll(restored);
+    }
+
+    /**
+     * @return The ApproximateTimeSorter that holds data until it can be released in time-order.
+     * @throws IllegalStateException When this StreamingTimeSorter uses a different SortBuffer (see
+     *                               sortBuffer())
+     */
     public ApproximateTimeSorter<T> inMemoryBuffer() {
-        return this.approxSorter;
+        checkState(sortBuffer instanceof ApproximateTimeSorter, "The sort buffer is not an ApproximateTimeSorter");
+        return (ApproximateTimeSorter<T>) this.sortBuffer;
+    }
+
+    /**
+     * @return The buffer that holds data until it can be released in time-order. This is an
+     *     ApproximateTimeSorter unless the StreamingTimeSorter was built with a WatermarkConfig (in
+     *     which case it is a WatermarkTimeSorter).
+     */
+    public SortBuffer<T> sortBuffer() {
+        return this.sortBuffer;
     }
 
     public StreamIntegritySummarizer<T> integritySummarizer() {
@@ -124,18 +296,39 @@ public class StreamingTimeSorter<T extends HasTime> implements Consumer<T> {
          * receive the delay between the "currentTime" and the time of an input recrod that was
          * dropped because it was out of chronological order.
          */
-        private final Map<YyyyMmDd, StatsAccumulator> droppedPointDelays;
+        private final DailyStats droppedPointDelays;
 
-        private final Map<YyyyMmDd, Long> unsortedInputCounts;
+        private final DailyStats unsortedInputCounts;
 
         private StreamIntegritySummarizer() {
-            this.droppedPointDelays = newTreeMap();
-            this.unsortedInputCounts = newTreeMap();
+            this.droppedPointDelays = new DailyStats();
+            this.unsortedInputCounts = new DailyStats();
         }
 
         private void acceptUnsortedRecords(T p) {
-            YyyyMmDd date = YyyyMmDd.from(p.time());
-            unsortedInputCounts.merge(date, 1L, Long::sum); //insert 1 if missing, otherwise increment by 1
+            unsortedInputCounts.increment(DailyStats.epochDayOf(p.time()), 1L);
+        }
+
+        /* Count a batch with one array update per "run" of records from the same (UTC) day. */
+        private void acceptUnsortedBatch(List<? extends T> batch) {
+            long runDay = Long.MIN_VALUE;
+            long runLength = 0;
+            for (T p : batch) {
+                long day = DailyStats.epochDayOf(p.time());
+                if (day != runDay) {
+                    countRun(runDay, runLength);
+                    runDay = day;
+                    runLength = 0;
+                }
+                runLength++;
+            }
+            countRun(runDay, runLength);
+        }
+
+        private void countRun(long runDay, long runLength) {
+            if (runLength > 0) {
+                unsortedInputCounts.increment(runDay, runLength);
+            }
         }
 
         @Override
@@ -143,41 +336,32 @@ public class StreamingTimeSorter<T extends HasTime> implements Consumer<T> {
             long delayInMs = strictSorter.currentTime.toEpochMilli() - delayedInputRecord.time().toEpochMilli();
 
             //save statistics on the delay amount
-            accumlatorFor(delayedInputRecord).add(delayInMs);
-        }
-
-        /* Get or create the StatsAccumulator that will be used to summarize rejected data. */
-        private StatsAccumulator accumlatorFor(T t) {
-
-            return droppedPointDelays.computeIfAbsent(
-                YyyyMmDd.from(t.time()),
-                (ignoreMe) -> new StatsAccumulator()
-            );
+            long day = DailyStats.epochDayOf(delayedInputRecord.time());
+            droppedPointDelays.accumulatorFor(day).add(delayInMs);
         }
 
         public Map<YyyyMmDd, StatsAccumulator> droppedPointData() {
-            return droppedPointDelays;
+            return droppedPointDelays.accumulators();
         }
 
+        /** @return A snapshot of the number of input records per (UTC) day. */
         public Map<YyyyMmDd, Long> completePointCounts() {
-            return unsortedInputCounts;
+            return unsortedInputCounts.counts();
         }
 
         public long totalInputCount() {
-            return unsortedInputCounts.entrySet().stream()
-                .mapToLong(entry -> entry.getValue())
-                .sum();
+            return unsortedInputCounts.totalCount();
         }
 
         public long droppedCount() {
-            return droppedPointDelays.entrySet().stream()
-                .mapToLong(entry -> entry.getValue().count())
+            return droppedPointDelays.accumulators().values().stream()
+                .mapToLong(accumulator -> accumulator.count())
                 .sum();
         }
 
         public long totalDelayOfDroppedRecordsInMs() {
-            return droppedPointDelays.entrySet().stream()
-                .mapToLong(entry -> (long) entry.getValue().sum())
+            return droppedPointDelays.accumulators().values().stream()
+                .mapToLong(accumulator -> (long) accumulator.sum())
                 .sum();
         }
     }
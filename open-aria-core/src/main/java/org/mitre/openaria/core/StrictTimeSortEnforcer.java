@@ -2,9 +2,10 @@
 package org.mitre.openaria.core;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Maps.newTreeMap;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
@@ -28,7 +29,7 @@ import com.google.common.math.StatsAccumulator;
  * Note, an ApproximateTimeSorter can be combined with a StrictTimeSortEnforcer to ensure a Point
  * consumer that absolutely requires time sorted input never receives out-of-order input.
  */
-public class StrictTimeSortEnforcer<T extends HasTime> implements Consumer<T> {
+public class StrictTimeSortEnforcer<T extends HasTime> implements BatchConsumer<T> {
 
     /** This time only increases, thus, currentTime is actually the "time high-water mark" */
     protected Instant currentTime;
@@ -48,7 +49,7 @@ public class StrictTimeSortEnforcer<T extends HasTime> implements Consumer<T> {
      * receive the delta between the "last point" and the "next new point" that increments the
      * "currentTime" value.
      */
-    private final Map<YyyyMmDd, StatsAccumulator> timeIncrementsInMs;
+    private final DailyStats timeIncrementsInMs;
 
     /**
      * Create a StrictTimeSortEnforcer that protects the targetPointConsumer from out-of-order
@@ -76,7 +77,7 @@ public class StrictTimeSortEnforcer<T extends HasTime> implements Consumer<T> {
     public StrictTimeSortEnforcer(Consumer<T> targetPointConsumer, Consumer<T> rejectedPointHandler) {
         this.targetPointConsumer = checkNotNull(targetPointConsumer, "Must provide a downstream Point consumer");
         this.rejectedPointHandler = checkNotNull(rejectedPointHandler, "Must provide an rejected Point Handler");
-        this.timeIncrementsInMs = newTreeMap();
+        this.timeIncrementsInMs = new DailyStats();
     }
 
     @Override
@@ -92,6 +93,30 @@ public class StrictTimeSortEnforcer<T extends HasTime> implements Consumer<T> {
         }
     }
 
+    /**
+     * Filter an entire batch. Rejected Points are passed to the rejected Point handler immediately
+     * (so it observes the same "currentTime" it would observe via accept(T)). The Points that are
+     * in chronological order are passed downstream as a single batch when the downstream Consumer
+     * is a BatchConsumer.
+     */
+    @Override
+    public void acceptAll(List<? extends T> batch) {
+
+        List<T> accepted = new ArrayList<>(batch.size());
+        for (T newPoint : batch) {
+            considerAdvancingCurrentTime(newPoint.time());
+
+            if (newPoint.time().isBefore(currentTime)) {
+                lastDroppedPoint = newPoint;
+                rejectedPointHandler.accept(newPoint);
+            } else {
+                accepted.add(newPoint);
+            }
+        }
+
+        BatchConsumer.deliver(accepted, targetPointConsumer);
+    }
+
     private void considerAdvancingCurrentTime(Instant candidateTime) {
         if (currentTime == null) {
             currentTime = candidateTime;
@@ -107,25 +132,25 @@ public class StrictTimeSortEnforcer<T extends HasTime> implements Consumer<T> {
 
     private void logTimeIncrement(Instant candidateTime) {
         long increment = candidateTime.toEpochMilli() - currentTime.toEpochMilli();
-        accumlatorFor(candidateTime).add(increment);
-    }
-
-    private StatsAccumulator accumlatorFor(Instant time) {
-
-        return timeIncrementsInMs.computeIfAbsent(
-            YyyyMmDd.from(time),
-            (ignoreMe) -> new StatsAccumulator()
-        );
+        timeIncrementsInMs.accumulatorFor(DailyStats.epochDayOf(candidateTime)).add(increment);
     }
 
     public Map<YyyyMmDd, StatsAccumulator> timeIncrementsInMs() {
-        return this.timeIncrementsInMs;
+        return this.timeIncrementsInMs.accumulators();
     }
 
     public Instant currentTime() {
         return this.currentTime;
     }
 
+    /**
+     * Reinstate the "currentTime" recorded by a checkpoint. Consequently, input that occurs before
+     * the restored time is rejected (exactly as it would have been before the checkpoint).
+     */
+    void restoreCurrentTime(Instant time) {
+        this.currentTime = time;
+    }
+
     public T getLastDroppedPoint() {
         return this.lastDroppedPoint;
     }
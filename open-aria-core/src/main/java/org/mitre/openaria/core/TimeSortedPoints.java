@@ -0,0 +1,121 @@
+package org.mitre.openaria.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.mitre.openaria.core.utils.TimeUtils.nanosBetween;
+
+import java.time.Instant;
+import java.util.SortedSet;
+
+/**
+ * TimeSortedPoints is a read-only, array-backed view of a Track's Points (in time order) that
+ * supports allocation-free k-nearest-neighbor queries.
+ * <p>
+ * Track.kNearestPoints(time, k) probes the Track's NavigableSet and copies its answer into a new
+ * TreeSet. Code that runs a kNN query for every Point in a Track (e.g. the outlier detectors)
+ * should use this class instead. The k Points nearest to a moment in time are always a contiguous
+ * run of the time-sorted array, so a query only needs to return where that run begins:
+ * <pre>{@code
+ *     int start = sorted.kNearestStart(time, k);
+ *     int end = start + Math.min(k, sorted.size());
+ *     for (int i = start; i < end; i++) {
+ *         Point<T> p = sorted.get(i);
+ *     }
+ * }</pre>
+ * A query costs O(log n + k) and creates no objects.
+ *
+ * @param <T> The format of the underlying Point data
+ */
+public class TimeSortedPoints<T> {
+
+    private final Point<T>[] points;
+
+    /* The nanoseconds between each Point and the 1st Point (avoids Instant math during queries). */
+    private final long[] offsetNanos;
+
+    @SuppressWarnings("unchecked")
+    private TimeSortedPoints(SortedSet<Point<T>> sortedPoints) {
+        this.points = sortedPoints.toArray(new Point[0]);
+        this.offsetNanos = new long[points.length];
+        for (int i = 0; i < points.length; i++) {
+            offsetNanos[i] = nanosBetween(points[0].time(), points[i].time());
+        }
+    }
+
+    /**
+     * Copy these Points into a TimeSortedPoints. Prefer Track.timeSortedPoints(), which only
+     * performs this copy once per Track.
+     *
+     * @param points A SortedSet of Points (like the points() of a Track)
+     */
+    public static <T> TimeSortedPoints<T> of(SortedSet<Point<T>> points) {
+        checkNotNull(points, "The input SortedSet of Points cannot be null");
+        return new TimeSortedPoints<>(points);
+    }
+
+    public int size() {
+        return points.length;
+    }
+
+    /** @return The i-th Point (in time order). */
+    public Point<T> get(int i) {
+        return points[i];
+    }
+
+    /**
+     * Find the k Points with time values closest to the input time. These k Points are always the
+     * contiguous index range [start, start + min(k, size())).
+     * <p>
+     * This method selects the same Points as Points.fastKNearestPoints(points, time, k): when two
+     * candidate Points are equally far from the input time the earlier Point is preferred. (The
+     * only difference arises when fewer than all the Points that exactly share the input time are
+     * requested, in that case this method prefers the first of those Points in Point order.)
+     *
+     * @param time The time "anchor" for the kNN computation
+     * @param k    The maximum number of Points that should be retrieved.
+     *
+     * @return The index of the first Point in the kNN window
+     */
+    public int kNearestStart(Instant time, int k) {
+        checkNotNull(time, "The input time cannot be null");
+        checkArgument(k >= 0, "k (" + k + ") must be non-negative");
+
+        int n = points.length;
+        if (k >= n) {
+            return 0;
+        }
+
+        long target = nanosBetween(points[0].time(), time);
+
+        //grow the window [lo, hi) outward from the 1st Point at or after the input time
+        int lo = firstIndexAtOrAfter(target);
+        int hi = lo;
+        while (hi - lo < k) {
+            if (lo == 0) {
+                hi++;
+            } else if (hi == n) {
+                lo--;
+            } else if (target - offsetNanos[lo - 1] <= offsetNanos[hi] - target) {
+                lo--;
+            } else {
+                hi++;
+            }
+        }
+        return lo;
+    }
+
+    /* The first index whose time offset is at or after the target (or size()). */
+    private int firstIndexAtOrAfter(long target) {
+        int low = 0;
+        int high = offsetNanos.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (offsetNanos[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
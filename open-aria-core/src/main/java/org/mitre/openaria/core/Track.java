@@ -2,47 +2,86 @@ package org.mitre.openaria.core;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static java.util.Collections.unmodifiableNavigableSet;
-import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toCollection;
-import static org.mitre.openaria.core.utils.Misc.mostCommon;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.TreeSet;
 import java.util.function.Predicate;
 
 import org.mitre.caasd.commons.LatLong;
+import org.mitre.caasd.commons.Position;
 import org.mitre.caasd.commons.TimeWindow;
 import org.mitre.caasd.commons.out.JsonWritable;
-import org.mitre.openaria.core.temp.Extras.HasAircraftDetails;
+
+import com.google.common.collect.ImmutableSortedSet;
 
 /**
  * A Track is a NavigableSet of Points backed by a single type of location data T.
  * <p>
  * Track provides access to the underlying point data as well as a handful of convenience methods
- * that operate on the internal Point data. Ideally, all Tracks would contain an immutable
- * Collection of Points. This is not strictly required, but the convenience constructors always
- * migrate Point data to an unmodifiableNavigableSet
+ * that operate on the internal Point data. A Track's Points are immutable, the constructor copies
+ * any set of Points that might change (i.e. anything other than an ImmutableSortedSet or a
+ * ColumnarTrack) into an ImmutableSortedSet. Consequently, the attributes derived by scanning every
+ * Point (e.g. trackId and asTimeWindow) are computed once and then cached (see TrackSummary).
  * <p>
  * @param <T> The format of the underlying Point data
  */
-public record Track<T>(NavigableSet<Point<T>> points) implements JsonWritable {
+public final class Track<T> implements JsonWritable {
+
+    private static final LatLong SEARCH_KEY_LAT_LONG = LatLong.of(0.0, 0.0);
+
+    private final NavigableSet<Point<T>> points;
 
-    /** Ensure a Track uses a non-null, non-empty Collection of Points. */
-    public Track {
+    /* Set on first use, concurrent first uses may build equivalent summaries (this is harmless). */
+    private transient volatile TrackSummary<T> summary;
+
+    /** Ensure a Track uses a non-null, non-empty, immutable Collection of Points. */
+    public Track(NavigableSet<Point<T>> points) {
         requireNonNull(points);
         checkArgument(!points.isEmpty());
+        this.points = isImmutable(points) ? points : ImmutableSortedSet.copyOfSorted(points);
     }
 
     public static <T> Track<T> of(Collection<Point<T>> points) {
-        TreeSet<Point<T>> pts = new TreeSet<>(points);
-        return new Track<>(unmodifiableNavigableSet(pts));
+        return new Track<>(ImmutableSortedSet.copyOf(points));
+    }
+
+    /**
+     * Create a Track from Points that are already in time order (e.g. the Points of a track that
+     * was assembled from a time-sorted stream). The result equals Track.of(points).
+     * <p>
+     * The Points are stored in an array-backed ImmutableSortedSet rather than a TreeSet, so the
+     * Track does not hold one tree node per Point. Building the set from time-sorted input is O(n)
+     * because the set's construction sort (a TimSort) makes a single pass over presorted data. Input
+     * that is not perfectly sorted (e.g. Points with identical times) is still handled correctly.
+     *
+     * @param timeSortedPoints Points in time order
+     */
+    public static <T> Track<T> ofPresorted(List<Point<T>> timeSortedPoints) {
+        return new Track<>(ImmutableSortedSet.copyOf(timeSortedPoints));
+    }
+
+    /**
+     * Create a Track whose Points are stored in a ColumnarTrack (i.e., in primitive arrays). This
+     * Track uses several times less heap than Track.of(points) because Point objects are only
+     * created when they are accessed. The Points are otherwise equivalent, see ColumnarTrack for
+     * the units and time precision that are retained.
+     *
+     * @param points The Points of a track (in any order)
+     */
+    public static <T> Track<T> ofColumnar(Collection<Point<T>> points) {
+        return new Track<>(ColumnarTrack.of(points));
+    }
+
+    private static boolean isImmutable(NavigableSet<?> points) {
+        return points instanceof ImmutableSortedSet || points instanceof ColumnarTrack;
     }
 
     /** @return The Points inside this track (sorted in time order). */
@@ -60,41 +99,27 @@ public record Track<T>(NavigableSet<Point<T>> points) implements JsonWritable {
         return points().size();
     }
 
+    /** @return The most common trackId in this Track (computed once, then cached). */
     public String trackId() {
-        Collection<String> trackIds = points().stream().map(p -> p.trackId()).toList();
-
-        return mostCommon(trackIds);
+        return summary().trackId();
     }
 
+    /** @return The most common aircraftType in this Track (computed once, then cached). */
     public String aircraftType() {
-
-        List<String> aircraftTypes = points().stream()
-            .filter(p -> p.rawData() instanceof HasAircraftDetails)
-            .map(p -> ((HasAircraftDetails) p.rawData()).acDetails().aircraftType())
-            .filter(acType -> nonNull(acType))
-            .toList();
-
-        return aircraftTypes.isEmpty() ? "UNKNOWN" : mostCommon(aircraftTypes);
+        return summary().aircraftType();
     }
 
+    /** @return The most common callsign in this Track (computed once, then cached). */
     public String callsign() {
-        List<String> callsigns = points().stream()
-            .filter(p -> p.rawData() instanceof HasAircraftDetails)
-            .map(p -> ((HasAircraftDetails) p.rawData()).acDetails().callsign())
-            .filter(callsign -> nonNull(callsign))
-            .toList();
-
-        return callsigns.isEmpty() ? "UNKNOWN" : mostCommon(callsigns);
+        return summary().callsign();
     }
 
     /**
-     * @return The minimum TimeWindow that contains all Points within this Track.
+     * @return The minimum TimeWindow that contains all Points within this Track (computed once,
+     *     then cached).
      */
     public TimeWindow asTimeWindow() {
-        return TimeWindow.of(
-            points().first().time(),
-            points().last().time()
-        );
+        return summary().timeWindow();
     }
 
     /**
@@ -116,12 +141,15 @@ public record Track<T>(NavigableSet<Point<T>> points) implements JsonWritable {
     public Optional<Point<T>> interpolatedPoint(Instant time) {
 
         //here we interpolate, we do not extrapolate.
-        if (!asTimeWindow().contains(time)) {
+        if (time.isBefore(startTime()) || time.isAfter(endTime())) {
             return Optional.empty();
         }
 
+        //this search key only needs the fields Point.compareTo uses (time, LatLong, altitude, trackId)
         Point<T> stub = points.first();
-        Point<T> pointWithTime = Point.builder(stub).time(time).latLong(0.0, 0.0).build();
+        Point<T> pointWithTime = new Point<>(
+            new Position(time, SEARCH_KEY_LAT_LONG, stub.altitude()), null, stub.trackId(), null
+        );
 
         Point<T> ceiling = points.ceiling(pointWithTime);
         Point<T> floor = points.floor(pointWithTime);
@@ -134,6 +162,23 @@ public record Track<T>(NavigableSet<Point<T>> points) implements JsonWritable {
         return Optional.of(Interpolate.interpolate(floor, ceiling, time));
     }
 
+    /**
+     * @return A new TrackCursor that interpolates this Track without creating Points. Use a
+     *     TrackCursor when sampling this Track at many (ideally increasing) times.
+     */
+    public TrackCursor<T> cursor() {
+        return new TrackCursor<>(this);
+    }
+
+    /**
+     * @return An array-backed view of this Track's Points that answers kNN queries without
+     *     allocating (built once, then cached). Use it when running a kNN query for every Point in
+     *     this Track.
+     */
+    public TimeSortedPoints<T> timeSortedPoints() {
+        return summary().timeSortedPoints();
+    }
+
     /**
      * Find the k Points in this Track with time values closest to the given input time.
      *
@@ -223,4 +268,31 @@ public record Track<T>(NavigableSet<Point<T>> points) implements JsonWritable {
     public Instant endTime() {
         return points().last().time();
     }
+
+    private TrackSummary<T> summary() {
+        TrackSummary<T> result = summary;
+        if (result == null) {
+            result = new TrackSummary<>(points);
+            summary = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Track<?> other && points.equals(other.points);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(points);
+    }
+
+    @Override
+    public String toString() {
+        return "Track[points=" + points + "]";
+    }
 }
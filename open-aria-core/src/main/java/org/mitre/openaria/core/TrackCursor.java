@@ -0,0 +1,234 @@
+package org.mitre.openaria.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.mitre.openaria.core.Interpolate.interpolate;
+import static org.mitre.openaria.core.UnitCodec.altitudeOrNull;
+import static org.mitre.openaria.core.UnitCodec.degreesOrNaN;
+import static org.mitre.openaria.core.UnitCodec.feetOrNaN;
+import static org.mitre.openaria.core.UnitCodec.knotsOrNaN;
+import static org.mitre.openaria.core.utils.TimeUtils.nanosBetween;
+
+import java.time.Instant;
+
+import org.mitre.caasd.commons.Course;
+import org.mitre.caasd.commons.LatLong;
+import org.mitre.caasd.commons.Speed;
+import org.mitre.caasd.commons.Spherical;
+
+/**
+ * A TrackCursor interpolates a Track at a sequence of times without creating any Point, TimeWindow,
+ * LatLong, Speed, Course, or Distance objects.
+ * <p>
+ * Track.interpolatedPoint(time) probes the Track's NavigableSet and builds several objects per
+ * call. Code that samples two Tracks thousands of times (e.g. SeparationTimeSeries) should use a
+ * TrackCursor instead. A TrackCursor remembers where the prior query landed. Consequently, a
+ * sequence of increasing query times is answered in O(1) amortized time per query. Queries that go
+ * backwards in time are allowed, they are answered with a binary search.
+ * <p>
+ * The results of the most recent call to moveTo are available as primitives (i.e. the cursor is a
+ * reusable, mutable sample). These values match the Point that Track.interpolatedPoint(time)
+ * returns: the same Interpolate arithmetic is used, and when the query time equals the time of a
+ * Point in the Track that Point's data is reported. Missing values (e.g. a Point without altitude
+ * data) are reported as NaN.
+ * <p>
+ * A TrackCursor is not thread-safe.
+ *
+ * @param <T> The format of the underlying Point data
+ */
+public class TrackCursor<T> {
+
+    private final Point<T>[] points;
+
+    /* The index of the first Point whose time is at or after the current query time. */
+    private int next;
+
+    private Instant time;
+
+    private double latitude;
+
+    private double longitude;
+
+    private double altitudeInFeet;
+
+    private double speedInKnots;
+
+    private double courseInDegrees;
+
+    /* The Points that produced the current sample (these are the same Point for an exact match). */
+    private Point<T> before;
+
+    private Point<T> after;
+
+    @SuppressWarnings("unchecked")
+    TrackCursor(Track<T> track) {
+        checkNotNull(track);
+        this.points = track.points().toArray(new Point[0]);
+        this.next = 0;
+    }
+
+    /**
+     * Interpolate the Track at this time. The results are available via latitude(), longitude(),
+     * altitudeInFeet(), speedInKnots(), and courseInDegrees().
+     *
+     * @param queryTime A moment in time
+     *
+     * @return True if the queryTime is within the Track's TimeWindow (this cursor interpolates, it
+     *     does not extrapolate). When false is returned the sample is cleared.
+     */
+    public boolean moveTo(Instant queryTime) {
+        checkNotNull(queryTime);
+        this.time = queryTime;
+
+        if (queryTime.isBefore(points[0].time()) || queryTime.isAfter(points[points.length - 1].time())) {
+            clear();
+            return false;
+        }
+
+        if (next > 0 && points[next - 1].time().compareTo(queryTime) >= 0) {
+            next = firstIndexAtOrAfter(queryTime); //moved backwards
+        }
+        while (points[next].time().isBefore(queryTime)) {
+            next++;
+        }
+
+        Point<T> ceiling = points[next];
+        if (next == 0 || ceiling.time().equals(queryTime)) {
+            copy(ceiling);
+        } else {
+            interpolateBetween(points[next - 1], ceiling);
+        }
+        return true;
+    }
+
+    private int firstIndexAtOrAfter(Instant queryTime) {
+        int low = 0;
+        int high = points.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (points[mid].time().isBefore(queryTime)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void copy(Point<T> p) {
+        this.before = p;
+        this.after = p;
+        this.latitude = p.latLong().latitude();
+        this.longitude = p.latLong().longitude();
+        this.altitudeInFeet = feetOrNaN(p.altitude());
+        this.speedInKnots = knotsOrNaN(p.speed());
+        this.courseInDegrees = degreesOrNaN(p.course());
+    }
+
+    /* Mirrors Interpolate.interpolate(p1, p2, time) using primitives. */
+    private void interpolateBetween(Point<T> p1, Point<T> p2) {
+        this.before = p1;
+        this.after = p2;
+
+        double fraction = (double) nanosBetween(p1.time(), time) / nanosBetween(p1.time(), p2.time());
+
+        LatLong ll1 = p1.latLong();
+        LatLong ll2 = p2.latLong();
+        checkArgument(Math.abs(ll1.latitude() - ll2.latitude()) <= 90.0, "Interpolation is unsafe at this distance (latitude)");
+        checkArgument(Math.abs(ll1.longitude() - ll2.longitude()) <= 180.0, "Interpolation is unsafe at this distance (longitude)");
+        this.latitude = interpolate(ll1.latitude(), ll2.latitude(), fraction);
+        this.longitude = interpolate(ll1.longitude(), ll2.longitude(), fraction);
+
+        this.courseInDegrees = (isNull(p1.course()) || isNull(p2.course()))
+            ? Spherical.courseInDegrees(ll1, ll2)
+            : interpolateCourse(p1.course().inDegrees(), p2.course().inDegrees(), fraction);
+
+        this.speedInKnots = (isNull(p1.speed()) || isNull(p2.speed()))
+            ? Speed.between(ll1, p1.time(), ll2, p2.time()).inKnots()
+            : interpolate(p1.speed().inKnots(), p2.speed().inKnots(), fraction);
+
+        this.altitudeInFeet = (isNull(p1.altitude()) || isNull(p2.altitude()))
+            ? Double.NaN
+            : interpolate(p1.altitude().inFeet(), p2.altitude().inFeet(), fraction);
+    }
+
+    /* Mirrors Interpolate.interpolateCourse without boxing. */
+    private static double interpolateCourse(double c1, double c2, double fraction) {
+        checkArgument(0.0 <= c1 && c1 <= 360.0, "The 1st course is not in range");
+        checkArgument(0.0 <= c2 && c2 <= 360.0, "The 2nd course is not in range");
+
+        double angleDelta = Spherical.angleDifference(c2, c1);
+        return Spherical.mod(c1 + interpolate(0.0, angleDelta, fraction), 360.0d);
+    }
+
+    private void clear() {
+        this.before = null;
+        this.after = null;
+        this.latitude = Double.NaN;
+        this.longitude = Double.NaN;
+        this.altitudeInFeet = Double.NaN;
+        this.speedInKnots = Double.NaN;
+        this.courseInDegrees = Double.NaN;
+    }
+
+    /** @return True if the most recent call to moveTo produced a sample. */
+    public boolean hasSample() {
+        return nonNull(before);
+    }
+
+    /** @return The time given to the most recent call to moveTo (or null). */
+    public Instant time() {
+        return time;
+    }
+
+    public double latitude() {
+        return latitude;
+    }
+
+    public double longitude() {
+        return longitude;
+    }
+
+    /** @return The altitude in feet (NaN when altitude data is missing). */
+    public double altitudeInFeet() {
+        return altitudeInFeet;
+    }
+
+    /** @return The speed in knots (NaN when speed data is missing). */
+    public double speedInKnots() {
+        return speedInKnots;
+    }
+
+    /** @return The course in degrees (NaN when course data is missing). */
+    public double courseInDegrees() {
+        return courseInDegrees;
+    }
+
+    /** @return The lateral distance (in NM) between the current samples of two cursors. */
+    public double distanceInNmTo(TrackCursor<?> other) {
+        checkState(this.hasSample() && other.hasSample(), "Both cursors must have a sample");
+        return Spherical.distanceInNM(latitude, longitude, other.latitude, other.longitude);
+    }
+
+    /**
+     * @return The current sample as a Point. This Point equals the Point returned by
+     *     Track.interpolatedPoint(time()) (altitudes are reported in feet).
+     */
+    public Point<T> toPoint() {
+        checkState(hasSample(), "moveTo did not produce a sample");
+
+        if (before == after) {
+            return (new PointBuilder<>(before)).build();
+        }
+        return (new PointBuilder<>(before))
+            .latLong(LatLong.of(latitude, longitude))
+            .course(Course.ofDegrees(courseInDegrees))
+            .speed(Speed.ofKnots(speedInKnots))
+            .altitude(altitudeOrNull(altitudeInFeet))
+            .time(time)
+            .build();
+    }
+}
@@ -17,7 +17,6 @@ import java.util.Optional;
 import java.util.function.Function;
 
 import org.mitre.caasd.commons.Distance;
-import org.mitre.caasd.commons.LatLong;
 import org.mitre.caasd.commons.TimeWindow;
 
 /**
@@ -35,6 +34,9 @@ public class TrackPair<T> implements Serializable {
 
     private transient SeparationTimeSeries sepInfo;
 
+    /* Computed on first use, both Tracks are immutable so this never changes. */
+    private transient volatile Optional<TimeWindow> timeOverlap;
+
     public TrackPair(Track<T> track1, Track<T> track2) {
         this.track1 = checkNotNull(track1);
         this.track2 = checkNotNull(track2);
@@ -122,7 +124,13 @@ public class TrackPair<T> implements Serializable {
      *     space if the data from these two tracks overlap in time.
      */
     public Optional<TimeWindow> timeOverlap() {
-        return track1.asTimeWindow().getOverlapWith(track2.asTimeWindow());
+        //racy single-check: concurrent first calls compute equal (immutable) values
+        Optional<TimeWindow> overlap = this.timeOverlap;
+        if (overlap == null) {
+            overlap = track1.asTimeWindow().getOverlapWith(track2.asTimeWindow());
+            this.timeOverlap = overlap;
+        }
+        return overlap;
     }
 
     /**
@@ -183,21 +191,17 @@ public class TrackPair<T> implements Serializable {
         TimeWindow overlap = timeOverlap().get();
         Instant endTime = overlap.end();
 
+        TrackCursor<T> cursor1 = track1.cursor();
+        TrackCursor<T> cursor2 = track2.cursor();
+
         Instant currentTime = overlap.start();
         while (currentTime.isBefore(endTime)) {
 
-            Optional<Point<T>> opt1 = track1.interpolatedPoint(currentTime);
-            Optional<Point<T>> opt2 = track2.interpolatedPoint(currentTime);
-
-            //set the "isClose" variable
-            if (!opt1.isPresent() || !opt2.isPresent()) {
+            if (!cursor1.moveTo(currentTime) || !cursor2.moveTo(currentTime)) {
                 throw new IllegalStateException("Both points should have viable interpolation");
             }
 
-            LatLong location1 = opt1.get().latLong();
-            LatLong location2 = opt2.get().latLong();
-
-            if (location1.distanceInNM(location2) > distInNm) {
+            if (cursor1.distanceInNmTo(cursor2) > distInNm) {
                 return true;
             }
 
@@ -0,0 +1,113 @@
+package org.mitre.openaria.core;
+
+import static java.util.Objects.nonNull;
+import static org.mitre.openaria.core.utils.Misc.mostCommon;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+
+import org.mitre.caasd.commons.TimeWindow;
+import org.mitre.openaria.core.temp.Extras.HasAircraftDetails;
+
+/**
+ * A TrackSummary memoizes the attributes of a Track that are derived by scanning every Point
+ * (trackId, callsign, aircraftType, TimeWindow, and the TimeSortedPoints index). Each Track lazily
+ * creates one TrackSummary, this is only correct because a Track's Points are immutable.
+ * <p>
+ * Each attribute is computed on first use and is safe to access from multiple threads. Concurrent
+ * first uses may compute an attribute twice, this is harmless because the results are equivalent
+ * immutable values.
+ *
+ * @param <T> The format of the underlying Point data
+ */
+class TrackSummary<T> {
+
+    private final NavigableSet<Point<T>> points;
+
+    private volatile String trackId;
+
+    private volatile String callsign;
+
+    private volatile String aircraftType;
+
+    private volatile TimeWindow timeWindow;
+
+    private volatile TimeSortedPoints<T> timeSortedPoints;
+
+    TrackSummary(NavigableSet<Point<T>> points) {
+        this.points = points;
+    }
+
+    String trackId() {
+        String result = trackId;
+        if (result == null) {
+            result = computeTrackId(points);
+            trackId = result;
+        }
+        return result;
+    }
+
+    String callsign() {
+        String result = callsign;
+        if (result == null) {
+            result = computeCallsign(points);
+            callsign = result;
+        }
+        return result;
+    }
+
+    String aircraftType() {
+        String result = aircraftType;
+        if (result == null) {
+            result = computeAircraftType(points);
+            aircraftType = result;
+        }
+        return result;
+    }
+
+    TimeWindow timeWindow() {
+        TimeWindow result = timeWindow;
+        if (result == null) {
+            result = TimeWindow.of(points.first().time(), points.last().time());
+            timeWindow = result;
+        }
+        return result;
+    }
+
+    TimeSortedPoints<T> timeSortedPoints() {
+        TimeSortedPoints<T> result = timeSortedPoints;
+        if (result == null) {
+            result = TimeSortedPoints.of(points);
+            timeSortedPoints = result;
+        }
+        return result;
+    }
+
+    private static String computeTrackId(NavigableSet<? extends Point<?>> points) {
+        Collection<String> trackIds = points.stream().map(p -> p.trackId()).toList();
+
+        return mostCommon(trackIds);
+    }
+
+    private static String computeAircraftType(NavigableSet<? extends Point<?>> points) {
+
+        List<String> aircraftTypes = points.stream()
+            .filter(p -> p.rawData() instanceof HasAircraftDetails)
+            .map(p -> ((HasAircraftDetails) p.rawData()).acDetails().aircraftType())
+            .filter(acType -> nonNull(acType))
+            .toList();
+
+        return aircraftTypes.isEmpty() ? "UNKNOWN" : mostCommon(aircraftTypes);
+    }
+
+    private static String computeCallsign(NavigableSet<? extends Point<?>> points) {
+        List<String> callsigns = points.stream()
+            .filter(p -> p.rawData() instanceof HasAircraftDetails)
+            .map(p -> ((HasAircraftDetails) p.rawData()).acDetails().callsign())
+            .filter(callsign -> nonNull(callsign))
+            .toList();
+
+        return callsigns.isEmpty() ? "UNKNOWN" : mostCommon(callsigns);
+    }
+}
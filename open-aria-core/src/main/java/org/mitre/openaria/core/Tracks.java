@@ -168,7 +168,7 @@ public class Tracks {
      */
     public static Track<NopHit> createTrackFromFile(File sourceFile) {
 
-        PointIterator ptIter = new PointIterator(new NopParser(sourceFile));
+        PointIterator ptIter = new PointIterator(new NopParser(sourceFile, true));
 
         List<Point<NopHit>> points = newArrayList(ptIter);
 
@@ -197,6 +197,9 @@ public class Tracks {
 
         Duration totalTimeCloseTogether = Duration.ZERO;
 
+        TrackCursor<T> cursor1 = t1.cursor();
+        TrackCursor<T> cursor2 = t2.cursor();
+
         Instant currentTime = overlap.start();
         boolean wasClose;
         boolean isClose = false;
@@ -205,18 +208,10 @@ public class Tracks {
             wasClose = isClose;
 
             //determine if the track "are close right now"
-            Optional<Point<T>> opt1 = t1.interpolatedPoint(currentTime);
-            Optional<Point<T>> opt2 = t2.interpolatedPoint(currentTime);
+            boolean bothSampled = cursor1.moveTo(currentTime) && cursor2.moveTo(currentTime);
 
             //set the "isClose" variable
-            if (opt1.isEmpty() || opt2.isEmpty()) {
-                isClose = false;
-            } else {
-                Point<T> p1 = opt1.get();
-                Point<T> p2 = opt2.get();
-                double curDist = p1.distanceInNmTo(p2);
-                isClose = curDist <= distInNm;
-            }
+            isClose = bothSampled && cursor1.distanceInNmTo(cursor2) <= distInNm;
 
             if (wasClose && isClose) {
                 totalTimeCloseTogether = totalTimeCloseTogether.plus(timeStep);
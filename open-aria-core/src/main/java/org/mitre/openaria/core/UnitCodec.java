@@ -0,0 +1,67 @@
+package org.mitre.openaria.core;
+
+import org.mitre.caasd.commons.Course;
+import org.mitre.caasd.commons.Distance;
+import org.mitre.caasd.commons.Speed;
+
+/**
+ * UnitCodec converts the unit-typed values of a Point to and from primitive doubles. Altitude,
+ * speed, and course are always stored in feet, knots, and degrees. NaN marks a missing value.
+ * <p>
+ * CompactPoint, ColumnarTrack, and TrackCursor all store Point data as primitives. They share this
+ * class so they encode and decode those primitives the same way.
+ */
+final class UnitCodec {
+
+    private UnitCodec() {
+        //only static methods
+    }
+
+    /** @return The altitude in feet, or NaN when the altitude is null. */
+    static double feetOrNaN(Distance altitude) {
+        return (altitude == null) ? Double.NaN : altitude.inFeet();
+    }
+
+    /** @return The speed in knots, or NaN when the speed is null. */
+    static double knotsOrNaN(Speed speed) {
+        return (speed == null) ? Double.NaN : speed.inKnots();
+    }
+
+    /** @return The course in degrees, or NaN when the course is null. */
+    static double degreesOrNaN(Course course) {
+        return (course == null) ? Double.NaN : course.inDegrees();
+    }
+
+    /** @return An altitude in feet, or null when the input is NaN. */
+    static Distance altitudeOrNull(double feet) {
+        return Double.isNaN(feet) ? null : Distance.ofFeet(feet);
+    }
+
+    /** @return A speed in knots, or null when the input is NaN. */
+    static Speed speedOrNull(double knots) {
+        return Double.isNaN(knots) ? null : Speed.ofKnots(knots);
+    }
+
+    /** @return A course in degrees, or null when the input is NaN. */
+    static Course courseOrNull(double degrees) {
+        return Double.isNaN(degrees) ? null : Course.ofDegrees(degrees);
+    }
+
+    /** @return A Velocity, or null when the speed is NaN (i.e. the Velocity was missing). */
+    static Velocity velocityOrNull(double knots, double degrees) {
+        return Double.isNaN(knots) ? null : new Velocity(Speed.ofKnots(knots), Course.ofDegrees(degrees));
+    }
+
+    /**
+     * Compare two encoded values the same way Points compare the decoded (nullable) values, i.e.
+     * a missing value (NaN) sorts first.
+     */
+    static int compareNullable(double value, double otherValue) {
+        boolean isMissing = Double.isNaN(value);
+        boolean otherIsMissing = Double.isNaN(otherValue);
+        if (isMissing || otherIsMissing) {
+            return Boolean.compare(otherIsMissing, isMissing);
+        }
+        return Double.compare(value, otherValue);
+    }
+}
@@ -0,0 +1,46 @@
+package org.mitre.openaria.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * The settings of a WatermarkTimeSorter.
+ *
+ * @param sourceOf         Extracts the "source" of a record (e.g. a sensor id, a Kafka partition,
+ *                         or a file name). The returned keys must support equals and hashCode.
+ * @param allowedLateness  How far out of time-order the data from a single source can be
+ * @param idleAfterRecords A source is "idle" once this many records have arrived (from any
+ *                         source) since that source's last record. Idle sources do not hold back
+ *                         the output.
+ * @param maxSkew          A source whose latest time is more than this far behind the latest time
+ *                         of any source is also "idle". This bounds the buffered time span (to
+ *                         maxSkew + allowedLateness) when a live source lags far behind.
+ * @param <T>              The type of record
+ */
+public record WatermarkConfig<T>(
+    Function<? super T, ?> sourceOf,
+    Duration allowedLateness,
+    int idleAfterRecords,
+    Duration maxSkew
+) {
+
+    /** The maxSkew used when none is given. */
+    public static final Duration DEFAULT_MAX_SKEW = Duration.ofMinutes(10);
+
+    public WatermarkConfig {
+        checkNotNull(sourceOf);
+        checkNotNull(allowedLateness);
+        checkNotNull(maxSkew);
+        checkArgument(!allowedLateness.isNegative(), "The allowedLateness cannot be negative");
+        checkArgument(idleAfterRecords > 0, "The idleAfterRecords must be positive");
+        checkArgument(!maxSkew.isNegative(), "The maxSkew cannot be negative");
+    }
+
+    /** Create a WatermarkConfig that uses the DEFAULT_MAX_SKEW. */
+    public WatermarkConfig(Function<? super T, ?> sourceOf, Duration allowedLateness, int idleAfterRecords) {
+        this(sourceOf, allowedLateness, idleAfterRecords, DEFAULT_MAX_SKEW);
+    }
+}
@@ -0,0 +1,237 @@
+package org.mitre.openaria.core;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.mitre.caasd.commons.HasTime;
+
+/**
+ * A WatermarkTimeSorter is a SortBuffer for a data stream that merges several "sources" (e.g.
+ * radars, Kafka partitions, or files) that are each nearly time-sorted but are not synchronized
+ * with each other.
+ * <p>
+ * An ApproximateTimeSorter uses a single time high-water mark. When one source races ahead of the
+ * others the data from the lagging sources becomes "too old" and is eventually dropped by the
+ * downstream StrictTimeSortEnforcer. A WatermarkTimeSorter instead tracks a "watermark" for each
+ * source: the latest time seen from that source minus the allowed lateness. Data is only released
+ * once it is older than the minimum watermark across all active sources. Consequently, a source
+ * that races ahead simply waits (in the buffer) for the other sources to catch up.
+ * <p>
+ * A source becomes "idle" once idleAfterRecords records have arrived (from any source) since that
+ * source's last record. Idle sources are ignored when computing the minimum watermark, so a
+ * stalled (or finished) source cannot block the output indefinitely. Idleness is measured by
+ * arrival count rather than event time. Arrival counts (like event times) do not depend on the
+ * wall-clock, so replaying archived data produces the same output as processing a live stream.
+ * When an idle source resumes its data is released immediately (the output watermark never moves
+ * backwards).
+ * <p>
+ * A live source that lags behind the other sources keeps delivering records, so it stays active
+ * and its data is not dropped, as long as it lags by no more than maxSkew. A source that lags
+ * further (or that sends just enough records to never go idle) is also treated as idle. This
+ * bounds the buffer. The data of such a source is released as soon as it arrives, and the
+ * downstream StrictTimeSortEnforcer may drop it.
+ * <p>
+ * Sources are discovered from the data itself. Therefore, no data is released until
+ * idleAfterRecords records have been received. This "warm-up" period gives every source a chance
+ * to be seen before the output watermark starts advancing.
+ * <p>
+ * The buffer holds the data between the slowest active source's watermark and the latest input.
+ * Therefore, its size tracks the actual skew between the sources (plus the allowedLateness), up to
+ * maxSkew. The
+ * minimum watermark is recomputed with a linear scan of the sources, this assumes the number of
+ * sources is small.
+ *
+ * @param <T> The type of timestamped data
+ * @see WatermarkConfig
+ */
+public class WatermarkTimeSorter<T extends HasTime> implements SortBuffer<T> {
+
+    private final Function<? super T, ?> sourceOf;
+
+    private final long allowedLatenessMs;
+
+    private final long idleAfterRecords;
+
+    private final long maxSkewMs;
+
+    private final Consumer<T> outputMechanism;
+
+    private final Queue<T> buffer;
+
+    private final Map<Object, Source> sourcesByKey = new HashMap<>();
+
+    /* The same Source objects as sourcesByKey, kept in a List for fast iteration. */
+    private final List<Source> sources = new ArrayList<>();
+
+    /* The number of records received so far, this "clock" measures idleness and warm-up. */
+    private long numArrivals;
+
+    /* Data at or before this time can be released. This value never decreases. */
+    private long outputWatermarkMs = Long.MIN_VALUE;
+
+    private int sizeHighWaterMark;
+
+    /**
+     * @param config          How sources are identified and how long they are waited for
+     * @param outputMechanism The Consumer that receives time-sorted data
+     */
+    public WatermarkTimeSorter(WatermarkConfig<? super T> config, Consumer<T> outputMechanism) {
+        checkNotNull(config);
+        this.sourceOf = config.sourceOf();
+        this.allowedLatenessMs = config.allowedLateness().toMillis();
+        this.idleAfterRecords = config.idleAfterRecords();
+        this.maxSkewMs = config.maxSkew().toMillis();
+        this.outputMechanism = checkNotNull(outputMechanism);
+        this.buffer = new CalendarQueue<>(ApproximateTimeSorter.CALENDAR_BUCKET_WIDTH, config.allowedLateness());
+    }
+
+    @Override
+    public void accept(T t) {
+        acceptOne(t, outputMechanism);
+    }
+
+    /**
+     * Accept an entire batch of input. Each datum is recorded and followed by the same release
+     * check accept(T) performs, so the data released (and its order) is identical to calling
+     * accept(T) for each datum. Released data is collected and passed downstream as a single batch
+     * when the downstream Consumer is a BatchConsumer.
+     */
+    @Override
+    public void acceptAll(List<? extends T> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<T> released = new ArrayList<>();
+        for (T t : batch) {
+            acceptOne(t, released::add);
+        }
+        BatchConsumer.deliver(released, outputMechanism);
+    }
+
+    /* Buffer one datum and pass any data it releases to the sink. */
+    private void acceptOne(T t, Consumer<? super T> sink) {
+        record(t);
+        buffer.add(t);
+        sizeHighWaterMark = Math.max(sizeHighWaterMark, buffer.size());
+
+        advanceOutputWatermark();
+        while (hasReleasableData()) {
+            sink.accept(buffer.poll());
+        }
+    }
+
+    /* Update the latest time and arrival seen from this datum's source. */
+    private void record(T t) {
+        long timeMs = t.time().toEpochMilli();
+        numArrivals++;
+
+        Object key = sourceOf.apply(t);
+        Source source = sourcesByKey.get(key);
+        if (source == null) {
+            source = new Source();
+            sourcesByKey.put(key, source);
+            sources.add(source);
+        }
+        source.latestTimeMs = Math.max(source.latestTimeMs, timeMs);
+        source.lastArrival = numArrivals;
+    }
+
+    /* Move the output watermark to the minimum watermark of the active sources. */
+    private void advanceOutputWatermark() {
+        if (numArrivals < idleAfterRecords) {
+            return; //still warming up, some sources may not have been seen yet
+        }
+        long newestMs = newestRecentTimeMs();
+        long minWatermarkMs = Long.MAX_VALUE;
+        for (Source source : sources) {
+            if (isActive(source, newestMs)) {
+                minWatermarkMs = Math.min(minWatermarkMs, source.latestTimeMs - allowedLatenessMs);
+            }
+        }
+        //at least one source (the recent source with the newest data) is always active
+        outputWatermarkMs = Math.max(outputWatermarkMs, minWatermarkMs);
+    }
+
+    /* The latest time of the sources that delivered data recently. */
+    private long newestRecentTimeMs() {
+        long newestMs = Long.MIN_VALUE;
+        for (Source source : sources) {
+            if (isRecent(source)) {
+                newestMs = Math.max(newestMs, source.latestTimeMs);
+            }
+        }
+        return newestMs;
+    }
+
+    private boolean isRecent(Source source) {
+        return numArrivals - source.lastArrival <= idleAfterRecords;
+    }
+
+    /* An active source delivered data recently AND is no more than maxSkew behind newestMs. */
+    private boolean isActive(Source source, long newestMs) {
+        return isRecent(source) && newestMs - source.latestTimeMs <= maxSkewMs;
+    }
+
+    private boolean hasReleasableData() {
+        return !buffer.isEmpty() && buffer.peek().time().toEpochMilli() <= outputWatermarkMs;
+    }
+
+    /** Release all buffered data to the downstream Consumer. */
+    @Override
+    public void flush() {
+        while (!buffer.isEmpty()) {
+            outputMechanism.accept(buffer.poll());
+        }
+    }
+
+    /**
+     * @return The time at (or before) which all buffered data is released. This is null until the
+     *     warm-up period ends.
+     */
+    public Instant outputWatermark() {
+        return (outputWatermarkMs == Long.MIN_VALUE) ? null : Instant.ofEpochMilli(outputWatermarkMs);
+    }
+
+    /** @return The number of distinct sources that have provided data. */
+    public int numSources() {
+        return sources.size();
+    }
+
+    /** @return The number of sources that are currently ignored because they are idle. */
+    public int numIdleSources() {
+        long newestMs = newestRecentTimeMs();
+        return (int) sources.stream().filter(source -> !isActive(source, newestMs)).count();
+    }
+
+    @Override
+    public int numRecordsInQueue() {
+        return buffer.size();
+    }
+
+    @Override
+    public int sizeHighWaterMark() {
+        return sizeHighWaterMark;
+    }
+
+    @Override
+    public void forEachBufferedRecord(Consumer<? super T> action) {
+        buffer.forEach(action);
+    }
+
+    /** The mutable state of one source. */
+    private static class Source {
+
+        long latestTimeMs = Long.MIN_VALUE;
+
+        /* The value of numArrivals when this source's most recent record arrived. */
+        long lastArrival;
+    }
+}
@@ -3,8 +3,11 @@ package org.mitre.openaria.core.formats;
 import java.io.File;
 import java.util.Base64;
 import java.util.Iterator;
+import java.util.List;
 
 import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.PointCodec;
+import org.mitre.openaria.core.SpillCodec;
 import org.mitre.openaria.core.Track;
 
 /**
@@ -19,6 +22,28 @@ public interface Format<T> {
     /** Convert a file of location data written in some unknown format into an Iterator of Points. */
     Iterator<Point<T>> parseFile(File file);
 
+    /**
+     * Convert a file of location data into an Iterator of Points while reading (and decompressing)
+     * the file on a dedicated "read-ahead" thread. The default implementation simply calls
+     * parseFile(File).
+     */
+    default Iterator<Point<T>> parseFileWithReadAhead(File file) {
+        return parseFile(file);
+    }
+
+    /**
+     * Convert a file of location data into an Iterator of fixed-size batches of Points (the last
+     * batch may be smaller). Batches let downstream stages (e.g., StreamingKpi.acceptAll) amortize
+     * per-Point overhead. The default implementation partitions parseFileWithReadAhead(File). The
+     * returned Iterator is AutoCloseable, closing it releases the underlying parser.
+     *
+     * @param file      A file of location data
+     * @param batchSize The number of Points in each batch
+     */
+    default Iterator<List<Point<T>>> parseBatches(File file, int batchSize) {
+        return new PointBatches<>(parseFileWithReadAhead(file), batchSize);
+    }
+
     /**
      * Given a positionReport (of format T) provide a json-friendly String that describes the
      * positionReport. When no JSON-friendly String exists consider converting the positionReport to
@@ -29,6 +54,23 @@ public interface Format<T> {
      */
     String asRawString(T positionReport);
 
+    /**
+     * @return A SpillCodec that converts the raw data of this format (e.g. a NopHit) to (and from)
+     *     bytes. Formats whose raw data cannot be encoded throw an UnsupportedOperationException.
+     */
+    default SpillCodec<T> rawDataCodec() {
+        throw new UnsupportedOperationException("This format's raw data cannot be encoded as bytes");
+    }
+
+    /**
+     * @return A SpillCodec that lets a sort buffer (or a checkpoint) move Points of this format to
+     *     disk. The Point fields are written in a compact binary form (see PointCodec) and the raw
+     *     data is encoded by rawDataCodec(). This method throws an UnsupportedOperationException
+     *     immediately when the format does not support spilling.
+     */
+    default SpillCodec<Point<T>> spillCodec() {
+        return new PointCodec<>(rawDataCodec());
+    }
 
     /** Uses java.util.Base64's unpadded url encoder to produce a json-friendly String. */
     static String asBase64(byte[] bytes) {
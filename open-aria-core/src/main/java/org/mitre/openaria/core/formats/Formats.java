@@ -1,19 +1,39 @@
 package org.mitre.openaria.core.formats;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.File;
 import java.util.Iterator;
+import java.util.function.Function;
 
 import org.mitre.openaria.core.Point;
 import org.mitre.openaria.core.PointIterator;
+import org.mitre.openaria.core.SpillCodec;
+import org.mitre.openaria.core.formats.ariabin.AriaBinHit;
+import org.mitre.openaria.core.formats.ariabin.AriaBinReader;
 import org.mitre.openaria.core.formats.ariacsv.AriaCsvHit;
 import org.mitre.openaria.core.formats.ariacsv.AriaCsvParser;
 import org.mitre.openaria.core.formats.nop.NopHit;
+import org.mitre.openaria.core.formats.nop.NopMessageType;
 import org.mitre.openaria.core.formats.nop.NopParser;
+import org.mitre.openaria.core.formats.nop.NopRadarHit;
+import org.mitre.openaria.core.formats.nop.ParallelNopParser;
 
 public class Formats {
 
+    /* NopHits are stored as the text of their radar hit (PointCodec stores the Point fields). */
+    private static final SpillCodec<NopHit> NOP_HIT_CODEC = textCodec(
+        hit -> hit.rawMessage().rawMessage(),
+        text -> new NopHit((NopRadarHit) NopMessageType.parse(text))
+    );
+
+    private static final SpillCodec<AriaCsvHit> ARIA_CSV_HIT_CODEC = textCodec(
+        AriaCsvHit::rawCsvText,
+        AriaCsvHit::new
+    );
+
     /**
-     * @param format One of {"NOP" or "CSV"} (case-insensitive).  (Supporting FAA SWIM data is
+     * @param format One of {"NOP", "NOP-PARALLEL", "CSV", or "ARIA-BIN"} (case-insensitive).  (Supporting FAA SWIM data is
      *               coming soon)
      *
      * @return A Format that can help us parse a specific type of data
@@ -26,10 +46,18 @@ public class Formats {
             return Formats.nop();
         }
 
+        if (cleanFormat.equals("nop-parallel")) {
+            return Formats.parallelNop();
+        }
+
         if (cleanFormat.equals("csv")) {
             return Formats.csv();
         }
 
+        if (cleanFormat.equals("aria-bin")) {
+            return Formats.ariaBin();
+        }
+
         throw new IllegalArgumentException("Unsupported format: " + format);
     }
 
@@ -43,9 +71,46 @@ public class Formats {
                 return message.rawMessage().rawMessage();
             }
 
+            @Override
+            public SpillCodec<NopHit> rawDataCodec() {
+                return NOP_HIT_CODEC;
+            }
+
+            @Override
+            public Iterator<Point<NopHit>> parseFile(File file) {
+                return new PointIterator(new NopParser(file, true));
+            }
+
+            @Override
+            public Iterator<Point<NopHit>> parseFileWithReadAhead(File file) {
+                return new PointIterator(NopParser.withReadAhead(file, true));
+            }
+        };
+    }
+
+    /**
+     * @return a Format that support processing NOP data using multiple threads. Uncompressed files
+     *     are memory-mapped and parsed in parallel chunks (see ParallelNopParser). Compressed files
+     *     cannot be memory-mapped, so they are decompressed on a read-ahead thread instead.
+     */
+    public static Format<NopHit> parallelNop() {
+
+        return new Format<>() {
+            @Override
+            public String asRawString(NopHit message) {
+                return message.rawMessage().rawMessage();
+            }
+
+            @Override
+            public SpillCodec<NopHit> rawDataCodec() {
+                return NOP_HIT_CODEC;
+            }
+
             @Override
             public Iterator<Point<NopHit>> parseFile(File file) {
-                return new PointIterator(new NopParser(file));
+                return file.getName().endsWith(".gz")
+                    ? new PointIterator(NopParser.withReadAhead(file, true))
+                    : new ParallelNopParser(file);
             }
         };
     }
@@ -62,10 +127,61 @@ public class Formats {
                 return message.rawCsvText();
             }
 
+            @Override
+            public SpillCodec<AriaCsvHit> rawDataCodec() {
+                return ARIA_CSV_HIT_CODEC;
+            }
+
             @Override
             public Iterator<Point<AriaCsvHit>> parseFile(File file) {
                 return new AriaCsvParser(file);
             }
+
+            @Override
+            public Iterator<Point<AriaCsvHit>> parseFileWithReadAhead(File file) {
+                return AriaCsvParser.withReadAhead(file);
+            }
+        };
+    }
+
+    /**
+     * @return a Format that supports replaying "aria-bin" files. These binary files are written by
+     *     AriaBinWriter (usually by converting NOP or CSV data). Replaying an aria-bin file does not
+     *     require parsing any text. The asRawString method returns the original NOP or CSV text, so
+     *     output records are identical to the output produced from the original data.
+     */
+    public static Format<AriaBinHit> ariaBin() {
+
+        return new Format<>() {
+            @Override
+            public String asRawString(AriaBinHit message) {
+                return message.rawMessage();
+            }
+
+            @Override
+            public SpillCodec<AriaBinHit> rawDataCodec() {
+                return AriaBinHit.codec();
+            }
+
+            @Override
+            public Iterator<Point<AriaBinHit>> parseFile(File file) {
+                return new AriaBinReader(file);
+            }
+        };
+    }
+
+    /* A SpillCodec that stores raw data as the UTF-8 bytes of the text it was parsed from. */
+    private static <T> SpillCodec<T> textCodec(Function<T, String> toText, Function<String, T> fromText) {
+        return new SpillCodec<>() {
+            @Override
+            public byte[] encode(T rawData) {
+                return toText.apply(rawData).getBytes(UTF_8);
+            }
+
+            @Override
+            public T decode(byte[] bytes) {
+                return fromText.apply(new String(bytes, UTF_8));
+            }
         };
     }
 }
@@ -0,0 +1,244 @@
+package org.mitre.openaria.core.formats;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.mitre.caasd.commons.util.DemotedException.demote;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.mitre.openaria.core.Point;
+
+/**
+ * A MergedFileIterator parses several files of location data concurrently and merges the results
+ * into a single, time-ordered, stream of Points.
+ * <p>
+ * Each file is parsed on its own thread. Parsed Points are handed to the merging thread in small
+ * batches via a bounded queue, so a fast parser cannot run far ahead of the merge. The merge itself
+ * is a k-way heap merge: the next Point emitted is always the earliest "head" Point among the k
+ * files. Consequently, each emitted Point costs O(log k) regardless of how large the files are.
+ * <p>
+ * This merge assumes each file is (approximately) sorted by time, which is true of archives that
+ * store one file per facility per day. Small ordering flaws within a single file pass through the
+ * merge unchanged and should still be corrected downstream (e.g., by a StreamingTimeSorter). The
+ * large time skew that comes from concatenating whole files is eliminated by the merge.
+ *
+ * @param <T> The type of raw data inside the Points (e.g., NopHit or AriaCsvHit)
+ */
+public class MergedFileIterator<T> implements Iterator<Point<T>>, AutoCloseable {
+
+    /** The number of Points handed from a parsing thread to the merging thread at once. */
+    static final int BATCH_SIZE = 1024;
+
+    /** The number of batches a parsing thread can produce before it waits for the merge. */
+    static final int BATCHES_PER_FILE = 8;
+
+    /* Marks the end of a file's data (compared by identity). */
+    private final List<Point<T>> endOfData = new ArrayList<>(0);
+
+    private final List<Source> sources;
+
+    private final PriorityQueue<Source> heap;
+
+    private boolean isPrimed;
+
+    private boolean isClosed;
+
+    /**
+     * Start parsing every file.
+     *
+     * @param format The format of every input file
+     * @param files  The files to parse and merge (each is parsed on its own thread)
+     */
+    public MergedFileIterator(Format<T> format, List<File> files) {
+        checkNotNull(format);
+        checkNotNull(files);
+        checkArgument(!files.isEmpty(), "At least one file is required");
+
+        //ties are broken by file order so the output is deterministic
+        Comparator<Source> byHeadTime = Comparator
+            .comparing((Source src) -> src.head.time())
+            .thenComparingInt(src -> src.index);
+
+        this.heap = new PriorityQueue<>(files.size(), byHeadTime);
+        this.sources = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            Source source = new Source(i, format, files.get(i));
+            sources.add(source);
+            source.thread.start();
+        }
+    }
+
+    /**
+     * @param directory A directory of data files
+     * @param glob      A glob pattern like "STARS_*_RH_20210530.txt.gz" ("*" matches every file)
+     *
+     * @return All regular files in the directory whose name matches the glob (sorted by name)
+     */
+    public static List<File> filesMatching(File directory, String glob) {
+        checkArgument(directory.isDirectory(), directory.getAbsolutePath() + " is not a directory");
+
+        List<File> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath(), glob)) {
+            for (Path path : stream) {
+                if (Files.isRegularFile(path)) {
+                    files.add(path.toFile());
+                }
+            }
+        } catch (IOException ioe) {
+            throw demote("Could not list: " + directory.getAbsolutePath(), ioe);
+        }
+        files.sort(Comparator.comparing(File::getName));
+        return files;
+    }
+
+    @Override
+    public boolean hasNext() {
+        primeIfNecessary();
+        return !heap.isEmpty();
+    }
+
+    @Override
+    public Point<T> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Source source = heap.poll();
+        Point<T> point = source.head;
+        source.advance();
+        if (source.head != null) {
+            heap.add(source);
+        }
+        return point;
+    }
+
+    /* Wait for the first Point of every file (this is deferred so construction never blocks). */
+    private void primeIfNecessary() {
+        if (isPrimed || isClosed) {
+            return;
+        }
+        isPrimed = true;
+        for (Source source : sources) {
+            source.advance();
+            if (source.head != null) {
+                heap.add(source);
+            }
+        }
+    }
+
+    /** Stop all parsing threads. After close() hasNext() always returns false. */
+    @Override
+    public void close() {
+        isClosed = true;
+        heap.clear();
+        sources.forEach(source -> source.thread.interrupt());
+    }
+
+    /** One input file, the thread that parses it, and the next Point that file will contribute. */
+    private class Source {
+
+        final int index;
+
+        final File file;
+
+        final BlockingQueue<List<Point<T>>> batches = new ArrayBlockingQueue<>(BATCHES_PER_FILE);
+
+        final Thread thread;
+
+        /* Set by the parsing thread before it publishes endOfData. */
+        volatile RuntimeException failure;
+
+        List<Point<T>> currentBatch = new ArrayList<>(0);
+
+        int nextInBatch;
+
+        /* The earliest unmerged Point from this file (null when the file is exhausted). */
+        Point<T> head;
+
+        Source(int index, Format<T> format, File file) {
+            this.index = index;
+            this.file = file;
+            this.thread = new Thread(() -> parse(format), "file-parser-" + file.getName());
+            thread.setDaemon(true);
+        }
+
+        /* Runs on this Source's parsing thread. */
+        private void parse(Format<T> format) {
+            Iterator<List<Point<T>>> parsed = null;
+            try {
+                try {
+                    parsed = format.parseBatches(file, BATCH_SIZE);
+                    while (parsed.hasNext()) {
+                        batches.put(parsed.next());
+                    }
+                } catch (RuntimeException ex) {
+                    //the merging thread rethrows this when it reaches endOfData
+                    this.failure = ex;
+                }
+                batches.put(endOfData);
+            } catch (InterruptedException ie) {
+                //close() was called, nobody is waiting for this data
+            } finally {
+                closeQuietly(parsed);
+            }
+        }
+
+        /* Release the parser's read-ahead thread, channel, or mapped file (if it has any). */
+        private void closeQuietly(Iterator<List<Point<T>>> parsed) {
+            if (parsed instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception ex) {
+                    //the data has already been handed off (or is no longer wanted)
+                }
+            }
+        }
+
+        /* Runs on the merging thread. Moves head to this file's next Point (or null). */
+        void advance() {
+            if (nextInBatch == currentBatch.size()) {
+                if (currentBatch == endOfData) {
+                    head = null;
+                    return;
+                }
+                currentBatch = takeBatch();
+                nextInBatch = 0;
+                if (currentBatch == endOfData) {
+                    head = null;
+                    return;
+                }
+            }
+            head = currentBatch.get(nextInBatch++);
+        }
+
+        /* Wait for this file's next non-empty batch (or endOfData). */
+        private List<Point<T>> takeBatch() {
+            try {
+                List<Point<T>> batch = batches.take();
+                //a parser can emit an empty batch (e.g. a chunk with no radar hits), skip it
+                while (batch.isEmpty() && batch != endOfData) {
+                    batch = batches.take();
+                }
+                if (batch == endOfData && failure != null) {
+                    throw new IllegalStateException("Could not parse: " + file.getName(), failure);
+                }
+                return batch;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while merging " + file.getName(), ie);
+            }
+        }
+    }
+}
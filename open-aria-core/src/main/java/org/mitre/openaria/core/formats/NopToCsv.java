@@ -1,34 +1,71 @@
 package org.mitre.openaria.core.formats;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mitre.caasd.commons.util.DemotedException.demote;
+import static org.mitre.openaria.core.utils.FastFormatting.appendFixed;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
 
 import org.mitre.openaria.core.Point;
 import org.mitre.openaria.core.formats.nop.NopHit;
+import org.mitre.openaria.core.formats.nop.NopMessageType;
+import org.mitre.openaria.core.utils.ReadAheadInputStream;
 
 /**
  * This is a temporary class that we'll use to convert NOP data to CsvPoint data.
+ * <p>
+ * Files are converted in a bounded, streaming pipeline. Raw lines are read (and decompressed) on a
+ * read-ahead thread, batches of lines are parsed and encoded in parallel, and the encoded batches
+ * are written, in their original order, by the calling thread. At most a few batches are ever held
+ * in memory so files of any size can be converted. Output files whose name ends in ".gz" are
+ * gzip compressed.
  */
 public class NopToCsv {
 
     private static final Base64.Encoder BASE64_ENCODER = Base64.getUrlEncoder().withoutPadding();
 
+    /** The number of NOP lines parsed and encoded by a single task. */
+    static final int BATCH_SIZE = 4096;
+
+    /** The number of batches (per encoding thread) that can be waiting to be written. */
+    static final int BATCHES_PER_THREAD = 2;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
     static String toAriaCsvFormat(Point<NopHit> nop) {
+        return appendAriaCsvFormat(new StringBuilder(256), nop).toString();
+    }
 
-        String linkId = nop.rawData().rawMessage().facility() + "-" + nop.trackId();
-        String lat = String.format("%.4f", nop.latitude());
-        String lng = String.format("%.4f", nop.longitude());
-        String alt = String.format("%.0f", nop.altitude().inFeet());
+    /* Append a Point's AriaCsv row (without a line separator) to the StringBuilder. */
+    private static StringBuilder appendAriaCsvFormat(StringBuilder sb, Point<NopHit> nop) {
 
         String rawSourceNop = nop.rawData().rawMessage().rawMessage();
-        String nopAsBase64 = BASE64_ENCODER.encodeToString(rawSourceNop.getBytes());
+        String nopAsBase64 = BASE64_ENCODER.encodeToString(rawSourceNop.getBytes(UTF_8));
 
-        return ",," + nop.time().toString() + "," + linkId + ","+lat + "," + lng + "," + alt + "," + nopAsBase64;
+        sb.append(",,").append(nop.time().toString()).append(',');
+        sb.append(nop.rawData().rawMessage().facility()).append('-').append(nop.trackId()).append(',');
+        appendFixed(sb, nop.latitude(), 4).append(',');
+        appendFixed(sb, nop.longitude(), 4).append(',');
+        appendFixed(sb, nop.altitude().inFeet(), 0).append(',');
+        return sb.append(nopAsBase64);
     }
 
 
@@ -47,37 +84,195 @@ public class NopToCsv {
 
     /** Reads a file of NOP data, converts each line to "AriaCsv" format. */
     public static void convertFileOfNop(File f) throws IOException {
+        convertFile(f, new File("convertedNop.txt"));
+    }
 
-        //read a File, convert each Line to a Point and collect the results in a list
-        List<Point<NopHit>> points = Files.lines(f.toPath())
-            .map((String s) -> NopHit.from(s))
-            .collect(Collectors.toList());
+    /**
+     * Convert a file of NOP data (plain text or ".gz") to a file of AriaCsv data. Lines that are
+     * not NOP radar hits (or cannot be parsed) are skipped.
+     *
+     * @param nopFile A file of NOP data
+     * @param csvFile The output file, this file is gzip compressed when its name ends in ".gz"
+     *
+     * @return The number of rows written
+     */
+    public static long convertFile(File nopFile, File csvFile) {
+        ExecutorService encoders = newEncoderPool();
+        try {
+            return convertFile(nopFile, csvFile, encoders, maxInFlight());
+        } finally {
+            encoders.shutdownNow();
+        }
+    }
 
+    /**
+     * Convert every file in a directory that matches the glob. Each input file produces one output
+     * file in the outputDir (e.g. "STARS_A80_RH_20240101.txt.gz" becomes
+     * "STARS_A80_RH_20240101.csv.gz"). Compressed inputs produce compressed outputs.
+     *
+     * @return The number of rows written (across all files)
+     */
+    public static long convertDirectory(File inputDir, String glob, File outputDir) {
+        List<File> nopFiles = MergedFileIterator.filesMatching(inputDir, glob);
+        checkArgument(outputDir.isDirectory() || outputDir.mkdirs(), "Cannot create: " + outputDir);
+
+        //files are converted one at a time, the encoding threads are shared
+        ExecutorService encoders = newEncoderPool();
+        try {
+            long rowCount = 0;
+            for (File nopFile : nopFiles) {
+                File csvFile = new File(outputDir, csvNameFor(nopFile.getName()));
+                rowCount += convertFile(nopFile, csvFile, encoders, maxInFlight());
+                System.out.println("Converted: " + nopFile.getName() + " -> " + csvFile.getName());
+            }
+            return rowCount;
+        } finally {
+            encoders.shutdownNow();
+        }
+    }
+
+    /** @return The output file name for a NOP file name (e.g. "data.txt.gz" -> "data.csv.gz"). */
+    static String csvNameFor(String nopFileName) {
+        boolean isCompressed = nopFileName.endsWith(".gz");
+        String name = isCompressed
+            ? nopFileName.substring(0, nopFileName.length() - ".gz".length())
+            : nopFileName;
 
-//        points.forEach(pt -> System.out.println(toAriaCsvFormat(pt)));
+        int dot = name.lastIndexOf('.');
+        String baseName = (dot > 0) ? name.substring(0, dot) : name;
 
-        writeFile(points, new File("convertedNop.txt"));
+        return baseName + (isCompressed ? ".csv.gz" : ".csv");
     }
 
-    private static void writeFile(List<Point<NopHit>> points, File targetFile) throws IOException {
+    /**
+     * Convert a file using a caller-provided pool of encoding threads.
+     *
+     * @param maxInFlight The largest number of encoded batches that can wait to be written
+     */
+    static long convertFile(File nopFile, File csvFile, ExecutorService encoders, int maxInFlight) {
+        checkNotNull(nopFile);
+        checkNotNull(csvFile);
+        checkArgument(maxInFlight >= 1, "At least one batch must be in flight");
+
+        try (BufferedReader reader = ReadAheadInputStream.readerFor(nopFile);
+             Writer writer = writerFor(csvFile)) {
+            return convert(reader, writer, encoders, maxInFlight);
+        } catch (IOException ioe) {
+            throw demote("Could not convert: " + nopFile.getAbsolutePath(), ioe);
+        }
+    }
 
-        try (FileWriter fw = new FileWriter(targetFile)) {
+    /* Read, encode (in parallel), and write every batch of lines while preserving their order. */
+    private static long convert(
+        BufferedReader reader,
+        Writer writer,
+        ExecutorService encoders,
+        int maxInFlight
+    ) throws IOException {
 
-            points.forEach(pt -> {
-                try {
-                    fw.write(toAriaCsvFormat(pt) + "\n");
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
+        ArrayDeque<Future<EncodedBatch>> inFlight = new ArrayDeque<>(maxInFlight);
+        long rowCount = 0;
+        try {
+            List<String> lines = new ArrayList<>(BATCH_SIZE);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                if (lines.size() == BATCH_SIZE) {
+                    if (inFlight.size() == maxInFlight) {
+                        //wait for the oldest batch (this bounds the memory used by the pipeline)
+                        rowCount += write(inFlight.poll(), writer);
+                    }
+                    List<String> batch = lines;
+                    inFlight.add(encoders.submit(() -> encode(batch)));
+                    lines = new ArrayList<>(BATCH_SIZE);
                 }
-            });
+            }
+            if (!lines.isEmpty()) {
+                List<String> batch = lines;
+                inFlight.add(encoders.submit(() -> encode(batch)));
+            }
+            while (!inFlight.isEmpty()) {
+                rowCount += write(inFlight.poll(), writer);
+            }
+            return rowCount;
+        } finally {
+            //only non-empty after a failure
+            inFlight.forEach(future -> future.cancel(true));
         }
     }
 
-    public static void main(String[] args) throws IOException {
+    /* Runs on an encoding thread. */
+    private static EncodedBatch encode(List<String> lines) {
+        StringBuilder sb = new StringBuilder(lines.size() * 256);
+        int rowCount = 0;
+        for (String line : lines) {
+            if (!NopMessageType.isNopRadarHit(line)) {
+                continue;
+            }
+            Optional<Point<NopHit>> point = NopHit.parseSafely(line);
+            if (point.isPresent()) {
+                appendAriaCsvFormat(sb, point.get()).append('\n');
+                rowCount++;
+            }
+        }
+        return new EncodedBatch(sb.toString(), rowCount);
+    }
+
+    private static int write(Future<EncodedBatch> future, Writer writer) throws IOException {
+        try {
+            EncodedBatch batch = future.get();
+            writer.write(batch.text());
+            return batch.rowCount();
+        } catch (Exception ex) {
+            if (ex instanceof IOException ioe) {
+                throw ioe;
+            }
+            throw demote(ex);
+        }
+    }
 
-        File nopData = new File("open-aria-airborne/src/main/resources/scaryTrackData.txt");
+    private static Writer writerFor(File csvFile) throws IOException {
+        OutputStream out = new FileOutputStream(csvFile);
+        if (csvFile.getName().endsWith(".gz")) {
+            out = new GZIPOutputStream(out, WRITE_BUFFER_SIZE);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, UTF_8), WRITE_BUFFER_SIZE);
+    }
+
+    private static int maxInFlight() {
+        return Runtime.getRuntime().availableProcessors() * BATCHES_PER_THREAD;
+    }
 
-        convertFileOfNop(nopData);
+    private static ExecutorService newEncoderPool() {
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
     }
 
+    /** A batch of AriaCsv rows (each ending in a newline) ready to be written. */
+    private record EncodedBatch(String text, int rowCount) {}
+
+    /**
+     * Example: "java -cp ARIA.jar org.mitre.openaria.core.formats.NopToCsv rawNop.txt.gz out.csv.gz"
+     * <p>
+     * Example: "java -cp ARIA.jar org.mitre.openaria.core.formats.NopToCsv nopDir csvDir *.txt.gz"
+     *
+     * @param args "INPUT_FILE OUTPUT_FILE" or "INPUT_DIR OUTPUT_DIR [GLOB]". When no args are
+     *             given the project's sample data is converted to "convertedNop.txt"
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length == 0) {
+            File nopData = new File("open-aria-airborne/src/main/resources/scaryTrackData.txt");
+            convertFileOfNop(nopData);
+            return;
+        }
+        checkArgument(args.length == 2 || args.length == 3, "Usage: INPUT OUTPUT [GLOB]");
+
+        File input = new File(args[0]);
+        File output = new File(args[1]);
+        long rowCount = input.isDirectory()
+            ? convertDirectory(input, (args.length == 3) ? args[2] : "*", output)
+            : convertFile(input, output);
+
+        System.out.println("Wrote " + rowCount + " AriaCsv rows");
+    }
 }
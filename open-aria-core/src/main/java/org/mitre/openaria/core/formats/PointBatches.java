@@ -0,0 +1,47 @@
+package org.mitre.openaria.core.formats;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.mitre.openaria.core.Point;
+
+import com.google.common.collect.Iterators;
+
+/**
+ * PointBatches partitions an Iterator of Points into fixed-size batches (the last batch may be
+ * smaller). Closing a PointBatches closes the Iterator it partitions (when that Iterator is
+ * AutoCloseable). This releases any read-ahead threads, channels, or mapped files the underlying
+ * parser holds.
+ */
+class PointBatches<T> implements Iterator<List<Point<T>>>, AutoCloseable {
+
+    private final Iterator<Point<T>> points;
+
+    private final Iterator<List<Point<T>>> batches;
+
+    PointBatches(Iterator<Point<T>> points, int batchSize) {
+        checkArgument(batchSize > 0, "The batchSize must be positive");
+        this.points = checkNotNull(points);
+        this.batches = Iterators.partition(points, batchSize);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return batches.hasNext();
+    }
+
+    @Override
+    public List<Point<T>> next() {
+        return batches.next();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (points instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.mitre.openaria.core.formats;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A TokenPool deduplicates the low-cardinality String fields found in raw location data (e.g.,
+ * facility, aircraft type, callsign, sensor, and flight rules). It replaces String.intern().
+ * <p>
+ * Calling String.intern() on every parsed field has two problems. First, it contends on the JVM's
+ * global string table. Second, that string table grows without limit in a long-running process
+ * (like a Kafka deployment that runs for months). A TokenPool avoids both problems because it is a
+ * fixed-size, direct-mapped cache. Each token hashes to exactly one slot. When two tokens share a
+ * slot the newer token replaces the older token. Consequently, a TokenPool never grows, and a
+ * "collision" only costs a missed deduplication opportunity (it never produces a wrong answer).
+ * <p>
+ * A TokenPool is thread-safe. Tokens are looked up directly from a region of a larger String, so no
+ * substring is created when the token is already in the pool.
+ * <p>
+ * Highly unique fields (like timestamps and lat/long text) should NOT be added to a TokenPool. They
+ * would evict the useful entries while saving no memory.
+ */
+public class TokenPool {
+
+    /** The default TokenPool shared by OpenARIA's parsers. */
+    private static final TokenPool SHARED = new TokenPool(1 << 14);
+
+    private final AtomicReferenceArray<String> slots;
+
+    private final int mask;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * @param capacity The number of slots in the pool. This must be a power of 2.
+     */
+    public TokenPool(int capacity) {
+        checkArgument(Integer.bitCount(capacity) == 1, "The capacity must be a power of 2");
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /** @return The TokenPool shared by the NOP and OpenARIA CSV parsers. */
+    public static TokenPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param text  The raw text that contains a token (e.g. a full line of NOP or CSV data)
+     * @param start The index of the first character of the token
+     * @param end   The index just past the last character of the token
+     *
+     * @return A String equal to text.substring(start, end). The returned String is shared with
+     *     prior callers whenever possible.
+     */
+    public String pooled(String text, int start, int end) {
+        checkNotNull(text);
+
+        int length = end - start;
+        int hash = hashOf(text, start, end);
+        int slot = spread(hash) & mask;
+
+        String candidate = slots.get(slot);
+        if (candidate != null
+            && candidate.length() == length
+            && candidate.regionMatches(0, text, start, length)) {
+            hitCount.increment();
+            return candidate;
+        }
+
+        missCount.increment();
+        String token = text.substring(start, end);
+        slots.lazySet(slot, token);
+        return token;
+    }
+
+    /**
+     * @param token A String that may have an equal copy in the pool
+     *
+     * @return A String equal to the input token. The returned String is shared with prior callers
+     *     whenever possible.
+     */
+    public String pooled(String token) {
+        return (token == null) ? null : pooled(token, 0, token.length());
+    }
+
+    /* Equivalent to text.substring(start, end).hashCode() */
+    private static int hashOf(String text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash;
+    }
+
+    /* Mix the high bits into the low bits because only the low bits select a slot. */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /** @return The number of lookups that found an equal String already in the pool. */
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    /** @return The number of lookups that had to add a new String to the pool. */
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /** @return The maximum number of Strings this pool can hold. */
+    public int capacity() {
+        return slots.length();
+    }
+}
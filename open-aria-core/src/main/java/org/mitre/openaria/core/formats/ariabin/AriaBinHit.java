@@ -0,0 +1,220 @@
+package org.mitre.openaria.core.formats.ariabin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mitre.caasd.commons.util.DemotedException.demote;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.mitre.openaria.core.SpillCodec;
+import org.mitre.openaria.core.temp.Extras.AircraftDetails;
+import org.mitre.openaria.core.temp.Extras.BeaconCodes;
+import org.mitre.openaria.core.temp.Extras.HasAircraftDetails;
+import org.mitre.openaria.core.temp.Extras.HasBeaconCodes;
+import org.mitre.openaria.core.temp.Extras.HasFlightRules;
+import org.mitre.openaria.core.temp.Extras.HasSourceDetails;
+import org.mitre.openaria.core.temp.Extras.SourceDetails;
+
+/**
+ * An AriaBinHit is the raw data behind a Point read from an "aria-bin" file. It carries the
+ * metadata that was extracted from the original input when the aria-bin file was written (e.g.
+ * callsign, beacon codes, and flight rules). It also provides the original raw message (e.g. a line
+ * of NOP) so that output records that copy raw input data are unchanged by replaying an aria-bin
+ * file.
+ * <p>
+ * The raw message is not decoded until it is requested. AriaBinHits that were rebuilt by codec()
+ * (e.g. after being spilled to disk) hold their raw message as a String.
+ */
+public class AriaBinHit
+    implements HasAircraftDetails, HasSourceDetails, HasFlightRules, HasBeaconCodes {
+
+    private final String callsign;
+    private final String aircraftType;
+    private final String flightRules;
+    private final String beaconActual;
+    private final String beaconAssigned;
+    private final String sensor;
+    private final String facility;
+
+    private final boolean isCoasted;
+
+    private final RawMessageBlob blob;
+    private final long rawOffset;
+    private final int rawLength;
+
+    /* Only used by AriaBinHits rebuilt by codec() (the blob is null in that case). */
+    private final String rawText;
+
+    AriaBinHit(
+        String callsign, String aircraftType, String flightRules,
+        String beaconActual, String beaconAssigned, String sensor, String facility,
+        boolean isCoasted, RawMessageBlob blob, long rawOffset, int rawLength) {
+        this.callsign = callsign;
+        this.aircraftType = aircraftType;
+        this.flightRules = flightRules;
+        this.beaconActual = beaconActual;
+        this.beaconAssigned = beaconAssigned;
+        this.sensor = sensor;
+        this.facility = facility;
+        this.isCoasted = isCoasted;
+        this.blob = blob;
+        this.rawOffset = rawOffset;
+        this.rawLength = rawLength;
+        this.rawText = null;
+    }
+
+    private AriaBinHit(
+        String callsign, String aircraftType, String flightRules,
+        String beaconActual, String beaconAssigned, String sensor, String facility,
+        boolean isCoasted, String rawText) {
+        this.callsign = callsign;
+        this.aircraftType = aircraftType;
+        this.flightRules = flightRules;
+        this.beaconActual = beaconActual;
+        this.beaconAssigned = beaconAssigned;
+        this.sensor = sensor;
+        this.facility = facility;
+        this.isCoasted = isCoasted;
+        this.blob = null;
+        this.rawOffset = -1;
+        this.rawLength = 0;
+        this.rawText = rawText;
+    }
+
+    /** @return True if the original input (e.g. a line of NOP) was stored in the aria-bin file. */
+    public boolean hasRawMessage() {
+        return rawText != null || (blob != null && rawOffset >= 0);
+    }
+
+    /**
+     * @return The original input that produced this Point (e.g. a line of NOP or OpenARIA CSV)
+     * @throws IllegalStateException when the aria-bin file was written without raw messages
+     */
+    public String rawMessage() {
+        if (!hasRawMessage()) {
+            throw new IllegalStateException("This aria-bin file was written without raw messages");
+        }
+        return (rawText != null) ? rawText : blob.text(rawOffset, rawLength);
+    }
+
+    /** @return True if the source radar hit was "coasted" (see CoastedPointRemover). */
+    public boolean isCoasted() {
+        return isCoasted;
+    }
+
+    @Override
+    public AircraftDetails acDetails() {
+        return new AircraftDetails(callsign, aircraftType);
+    }
+
+    @Override
+    public String callsign() {
+        return callsign;
+    }
+
+    @Override
+    public String aircraftType() {
+        return aircraftType;
+    }
+
+    @Override
+    public SourceDetails sourceDetails() {
+        return new SourceDetails(sensor, facility);
+    }
+
+    @Override
+    public String flightRules() {
+        return flightRules;
+    }
+
+    @Override
+    public BeaconCodes beaconCodes() {
+        return new BeaconCodes(beaconActual, beaconAssigned);
+    }
+
+    @Override
+    public String beaconActual() {
+        return beaconActual;
+    }
+
+    @Override
+    public String beaconAssigned() {
+        return beaconAssigned;
+    }
+
+    /**
+     * @return A SpillCodec that writes every field of an AriaBinHit (including the raw message, when
+     *     present) in a compact binary form.
+     */
+    public static SpillCodec<AriaBinHit> codec() {
+        return CODEC;
+    }
+
+    private static final SpillCodec<AriaBinHit> CODEC = new SpillCodec<>() {
+        @Override
+        public byte[] encode(AriaBinHit hit) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                writeNullable(out, hit.callsign);
+                writeNullable(out, hit.aircraftType);
+                writeNullable(out, hit.flightRules);
+                writeNullable(out, hit.beaconActual);
+                writeNullable(out, hit.beaconAssigned);
+                writeNullable(out, hit.sensor);
+                writeNullable(out, hit.facility);
+                out.writeBoolean(hit.isCoasted);
+                out.writeBoolean(hit.hasRawMessage());
+                if (hit.hasRawMessage()) {
+                    byte[] raw = hit.rawMessage().getBytes(UTF_8);
+                    out.writeInt(raw.length);
+                    out.write(raw);
+                }
+            } catch (IOException ioe) {
+                throw demote(ioe);
+            }
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public AriaBinHit decode(byte[] bytes) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                String callsign = readNullable(in);
+                String aircraftType = readNullable(in);
+                String flightRules = readNullable(in);
+                String beaconActual = readNullable(in);
+                String beaconAssigned = readNullable(in);
+                String sensor = readNullable(in);
+                String facility = readNullable(in);
+                boolean isCoasted = in.readBoolean();
+                String rawText = null;
+                if (in.readBoolean()) {
+                    byte[] raw = new byte[in.readInt()];
+                    in.readFully(raw);
+                    rawText = new String(raw, UTF_8);
+                }
+                return new AriaBinHit(
+                    callsign, aircraftType, flightRules, beaconActual, beaconAssigned,
+                    sensor, facility, isCoasted, rawText
+                );
+            } catch (IOException ioe) {
+                throw demote(ioe);
+            }
+        }
+    };
+
+    private static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,72 @@
+package org.mitre.openaria.core.formats.ariabin;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.nio.ByteOrder;
+
+/**
+ * The byte layout of an "aria-bin" file. An aria-bin file has four sections:
+ * <pre>
+ *   [header] [fixed-width records] [raw message blob (optional)] [string dictionary]
+ * </pre>
+ * <p>
+ * The header is 64 bytes. It records where each of the other sections begins.
+ * <p>
+ * Every record is exactly RECORD_SIZE bytes. Consequently, the i_th Point is found at HEADER_SIZE +
+ * i * RECORD_SIZE. String fields (e.g. trackId, callsign, and facility) are stored as indices into
+ * the string dictionary (-1 means null). The raw message of a record is stored as an
+ * (offset, length) pair that points into the raw message blob (-1 means "no raw message").
+ * <p>
+ * All values are little-endian.
+ */
+final class AriaBinLayout {
+
+    private AriaBinLayout() {
+        //prevent Object creation
+    }
+
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final byte[] MAGIC = "ARIA-BIN".getBytes(US_ASCII);
+
+    static final int VERSION = 1;
+
+    //header fields
+    static final int HEADER_SIZE = 64;
+    static final int H_MAGIC = 0;
+    static final int H_VERSION = 8;
+    static final int H_RECORD_SIZE = 12;
+    static final int H_RECORD_COUNT = 16;
+    static final int H_RAW_OFFSET = 24;
+    static final int H_RAW_LENGTH = 32;
+    static final int H_DICTIONARY_OFFSET = 40;
+    static final int H_MAX_RAW_LENGTH = 48;
+    static final int H_DICTIONARY_SIZE = 52;
+
+    //record fields
+    static final int RECORD_SIZE = 104;
+    static final int R_EPOCH_SECOND = 0;
+    static final int R_NANO = 8;
+    static final int R_FLAGS = 12;
+    static final int R_LATITUDE = 16;
+    static final int R_LONGITUDE = 24;
+    static final int R_ALTITUDE_FT = 32;
+    static final int R_SPEED_KNOTS = 40;
+    static final int R_COURSE_DEGREES = 48;
+    static final int R_TRACK_ID = 56;
+    static final int R_CALLSIGN = 60;
+    static final int R_AIRCRAFT_TYPE = 64;
+    static final int R_FLIGHT_RULES = 68;
+    static final int R_BEACON_ACTUAL = 72;
+    static final int R_BEACON_ASSIGNED = 76;
+    static final int R_SENSOR = 80;
+    static final int R_FACILITY = 84;
+    static final int R_RAW_OFFSET = 88;
+    static final int R_RAW_LENGTH = 96;
+
+    //flags
+    static final int FLAG_COASTED = 1;
+
+    /** The dictionary index used for null Strings. */
+    static final int NULL_INDEX = -1;
+}
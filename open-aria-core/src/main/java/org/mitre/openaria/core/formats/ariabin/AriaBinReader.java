@@ -0,0 +1,225 @@
+package org.mitre.openaria.core.formats.ariabin;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mitre.caasd.commons.util.DemotedException.demote;
+import static org.mitre.openaria.core.formats.ariabin.AriaBinLayout.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.mitre.caasd.commons.Course;
+import org.mitre.caasd.commons.Distance;
+import org.mitre.caasd.commons.LatLong;
+import org.mitre.caasd.commons.Position;
+import org.mitre.caasd.commons.Speed;
+import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.Velocity;
+
+/**
+ * An AriaBinReader provides the Points stored in an "aria-bin" file (see AriaBinLayout).
+ * <p>
+ * The fixed-width records are memory-mapped (in windows of RECORDS_PER_WINDOW records) and decoded
+ * directly into Points. No text is parsed. The raw messages are also memory-mapped, but they are
+ * only decoded when AriaBinHit.rawMessage() is called.
+ * <p>
+ * The underlying FileChannel is released as soon as the last record is read (mapped buffers remain
+ * valid after the channel is closed). Therefore, callers that iterate to the end of the file do not
+ * need to call close(). Callers that stop early should call close().
+ */
+public class AriaBinReader implements Iterator<Point<AriaBinHit>>, AutoCloseable {
+
+    /** The number of records in each memory-mapped window (about 100MB). */
+    static final int RECORDS_PER_WINDOW = 1 << 20;
+
+    private final FileChannel channel;
+
+    private final long recordCount;
+
+    private final String[] dictionary;
+
+    private final RawMessageBlob blob;
+
+    private MappedByteBuffer window;
+
+    private long windowStart;
+
+    private long nextRecord;
+
+    private boolean isClosed;
+
+    public AriaBinReader(File ariaBinFile) {
+        checkNotNull(ariaBinFile, "An AriaBinReader's input file cannot be null");
+        checkArgument(ariaBinFile.isFile(), "Input file (" + ariaBinFile.getName() + ") is not a file");
+
+        try {
+            this.channel = FileChannel.open(ariaBinFile.toPath(), StandardOpenOption.READ);
+
+            ByteBuffer header = readFully(0, HEADER_SIZE);
+            byte[] magic = new byte[MAGIC.length];
+            header.get(H_MAGIC, magic);
+            checkArgument(Arrays.equals(magic, MAGIC), ariaBinFile.getName() + " is not aria-bin");
+            checkArgument(header.getInt(H_VERSION) == VERSION, "Unsupported aria-bin version");
+            checkArgument(header.getInt(H_RECORD_SIZE) == RECORD_SIZE, "Unexpected record size");
+
+            this.recordCount = header.getLong(H_RECORD_COUNT);
+            this.dictionary = readDictionary(
+                header.getLong(H_DICTIONARY_OFFSET),
+                header.getInt(H_DICTIONARY_SIZE)
+            );
+
+            long rawOffset = header.getLong(H_RAW_OFFSET);
+            this.blob = (rawOffset < 0)
+                ? null
+                : new RawMessageBlob(
+                    channel, rawOffset, header.getLong(H_RAW_LENGTH), header.getInt(H_MAX_RAW_LENGTH)
+                );
+            if (recordCount == 0) {
+                channel.close();
+            }
+        } catch (IOException ioe) {
+            throw demote("Problem reading: " + ariaBinFile.getAbsolutePath(), ioe);
+        }
+    }
+
+    private ByteBuffer readFully(long position, int numBytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(numBytes).order(BYTE_ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of aria-bin file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private String[] readDictionary(long offset, int size) throws IOException {
+
+        int numBytes = (int) (channel.size() - offset);
+        ByteBuffer bytes = readFully(offset, numBytes);
+
+        String[] entries = new String[size];
+        for (int i = 0; i < size; i++) {
+            int length = bytes.getInt();
+            entries[i] = new String(bytes.array(), bytes.position(), length, UTF_8);
+            bytes.position(bytes.position() + length);
+        }
+        return entries;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !isClosed && nextRecord < recordCount;
+    }
+
+    @Override
+    public Point<AriaBinHit> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        if (window == null || nextRecord - windowStart == RECORDS_PER_WINDOW) {
+            mapWindow(nextRecord);
+        }
+        int start = (int) (nextRecord - windowStart) * RECORD_SIZE;
+        nextRecord++;
+
+        Point<AriaBinHit> point = decode(window, start);
+        if (nextRecord == recordCount) {
+            //the last record was read, so the channel is no longer needed
+            releaseChannel();
+        }
+        return point;
+    }
+
+    private void mapWindow(long firstRecord) {
+        long numRecords = Math.min(RECORDS_PER_WINDOW, recordCount - firstRecord);
+        try {
+            this.window = channel.map(
+                FileChannel.MapMode.READ_ONLY,
+                HEADER_SIZE + firstRecord * RECORD_SIZE,
+                numRecords * RECORD_SIZE
+            );
+            window.order(BYTE_ORDER);
+            this.windowStart = firstRecord;
+        } catch (IOException ioe) {
+            throw demote(ioe);
+        }
+    }
+
+    private Point<AriaBinHit> decode(ByteBuffer buf, int start) {
+
+        long epochSecond = buf.getLong(start + R_EPOCH_SECOND);
+        int nanos = buf.getInt(start + R_NANO);
+        double latitude = buf.getDouble(start + R_LATITUDE);
+        double longitude = buf.getDouble(start + R_LONGITUDE);
+        double altitude = buf.getDouble(start + R_ALTITUDE_FT);
+        double speed = buf.getDouble(start + R_SPEED_KNOTS);
+        double course = buf.getDouble(start + R_COURSE_DEGREES);
+
+        Position position = new Position(
+            Instant.ofEpochSecond(epochSecond, nanos),
+            LatLong.of(latitude, longitude),
+            Double.isNaN(altitude) ? null : Distance.ofFeet(altitude)
+        );
+        Velocity velocity = (Double.isNaN(speed) || Double.isNaN(course))
+            ? null
+            : new Velocity(Speed.ofKnots(speed), Course.ofDegrees(course));
+
+        AriaBinHit hit = new AriaBinHit(
+            lookup(buf.getInt(start + R_CALLSIGN)),
+            lookup(buf.getInt(start + R_AIRCRAFT_TYPE)),
+            lookup(buf.getInt(start + R_FLIGHT_RULES)),
+            lookup(buf.getInt(start + R_BEACON_ACTUAL)),
+            lookup(buf.getInt(start + R_BEACON_ASSIGNED)),
+            lookup(buf.getInt(start + R_SENSOR)),
+            lookup(buf.getInt(start + R_FACILITY)),
+            (buf.getInt(start + R_FLAGS) & FLAG_COASTED) != 0,
+            blob,
+            buf.getLong(start + R_RAW_OFFSET),
+            buf.getInt(start + R_RAW_LENGTH)
+        );
+
+        return new Point<>(position, velocity, lookup(buf.getInt(start + R_TRACK_ID)), hit);
+    }
+
+    private String lookup(int index) {
+        return (index == NULL_INDEX) ? null : dictionary[index];
+    }
+
+    /** @return The total number of Points in the aria-bin file. */
+    public long recordCount() {
+        return recordCount;
+    }
+
+    private void releaseChannel() {
+        try {
+            channel.close();
+        } catch (IOException ioe) {
+            throw demote(ioe);
+        }
+    }
+
+    /** @return True when the underlying FileChannel is still open. */
+    boolean isChannelOpen() {
+        return channel.isOpen();
+    }
+
+    @Override //part of AutoCloseable
+    public void close() throws IOException {
+        /*
+         * ensure "hasNext()" always returns false after close() is called. Mapped buffers remain
+         * valid after the channel is closed, so previously returned Points still work.
+         */
+        this.isClosed = true;
+        channel.close();
+    }
+}
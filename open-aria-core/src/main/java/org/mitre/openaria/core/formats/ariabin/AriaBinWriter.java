@@ -0,0 +1,288 @@
+package org.mitre.openaria.core.formats.ariabin;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.Double.NaN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mitre.openaria.core.formats.ariabin.AriaBinLayout.*;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.mitre.caasd.commons.Distance;
+import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.formats.Format;
+import org.mitre.openaria.core.formats.Formats;
+import org.mitre.openaria.core.temp.Extras.AircraftDetails;
+import org.mitre.openaria.core.temp.Extras.HasAircraftDetails;
+import org.mitre.openaria.core.temp.Extras.HasBeaconCodes;
+import org.mitre.openaria.core.temp.Extras.HasFlightRules;
+import org.mitre.openaria.core.temp.Extras.HasSourceDetails;
+import org.mitre.openaria.core.temp.Extras.SourceDetails;
+import org.mitre.openaria.smoothing.CoastedPointRemover;
+
+/**
+ * An AriaBinWriter converts Points (typically parsed from NOP or OpenARIA CSV data) into an
+ * "aria-bin" file (see AriaBinLayout). Replaying an aria-bin file avoids re-parsing text.
+ * <p>
+ * Records are written as they arrive. Raw messages are staged in a temporary file and appended
+ * (along with the string dictionary) when the writer is closed. An aria-bin file is not valid until
+ * its writer is closed.
+ *
+ * @param <T> The type of raw data inside the Points being written (e.g., NopHit or AriaCsvHit)
+ */
+public class AriaBinWriter<T> implements AutoCloseable {
+
+    private static final int RECORDS_PER_BUFFER = 4096;
+
+    private final File targetFile;
+
+    private final FileChannel channel;
+
+    /** Converts a Point's raw data to its raw String (null means "do not store raw messages"). */
+    private final Function<T, String> rawEncoder;
+
+    private final File rawStagingFile;
+
+    private final OutputStream rawStaging;
+
+    private final ByteBuffer recordBuffer;
+
+    private final Map<String, Integer> dictionaryIndex = new HashMap<>();
+
+    private final List<String> dictionary = new ArrayList<>();
+
+    private long recordCount;
+
+    private long rawLength;
+
+    private int maxRawLength;
+
+    private boolean isClosed;
+
+    /**
+     * @param targetFile The aria-bin file to write (any existing file is replaced)
+     * @param rawEncoder Converts a Point's raw data to the String that Format.asRawString() should
+     *                   return when the aria-bin file is replayed. Provide null to omit raw
+     *                   messages (this makes the file smaller, but Format.asRawString() will fail)
+     */
+    public AriaBinWriter(File targetFile, Function<T, String> rawEncoder) throws IOException {
+        this.targetFile = checkNotNull(targetFile);
+        this.rawEncoder = rawEncoder;
+        this.channel = FileChannel.open(
+            targetFile.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        );
+        this.recordBuffer = ByteBuffer.allocate(RECORDS_PER_BUFFER * RECORD_SIZE).order(BYTE_ORDER);
+
+        if (rawEncoder != null) {
+            File directory = targetFile.getAbsoluteFile().getParentFile();
+            this.rawStagingFile = File.createTempFile(targetFile.getName(), ".raw", directory);
+            this.rawStaging = new BufferedOutputStream(new FileOutputStream(rawStagingFile), 1 << 16);
+        } else {
+            this.rawStagingFile = null;
+            this.rawStaging = null;
+        }
+
+        //the header is rewritten by close()
+        channel.write(ByteBuffer.allocate(HEADER_SIZE), 0);
+        channel.position(HEADER_SIZE);
+    }
+
+    /**
+     * Convert an entire file of location data into an aria-bin file.
+     *
+     * @param format     The format of the input file (e.g. Formats.nop() or Formats.csv())
+     * @param inputFile  A file of location data
+     * @param outputFile The aria-bin file to write
+     * @param includeRaw Store the raw messages (required for Format.asRawString())
+     *
+     * @return The number of Points written
+     */
+    public static <T> long convert(Format<T> format, File inputFile, File outputFile,
+        boolean includeRaw) throws IOException {
+
+        Function<T, String> rawEncoder = includeRaw ? format::asRawString : null;
+
+        try (AriaBinWriter<T> writer = new AriaBinWriter<>(outputFile, rawEncoder)) {
+            Iterator<Point<T>> points = format.parseFile(inputFile);
+            points.forEachRemaining(writer::write);
+            return writer.recordCount;
+        }
+    }
+
+    /** Add one Point to the aria-bin file. */
+    public void write(Point<T> point) {
+        checkState(!isClosed, "This AriaBinWriter is closed");
+        try {
+            if (!recordBuffer.hasRemaining()) {
+                flushRecords();
+            }
+            encode(point);
+            recordCount++;
+        } catch (IOException ioe) {
+            throw new RuntimeException("Could not write to: " + targetFile.getAbsolutePath(), ioe);
+        }
+    }
+
+    private void encode(Point<T> point) throws IOException {
+
+        T raw = point.rawData();
+
+        Distance altitude = point.altitude();
+        boolean hasVelocity = point.velocity() != null;
+
+        AircraftDetails ac = (raw instanceof HasAircraftDetails had) ? had.acDetails() : null;
+        SourceDetails src = (raw instanceof HasSourceDetails hsd) ? hsd.sourceDetails() : null;
+        HasBeaconCodes beacons = (raw instanceof HasBeaconCodes hbc) ? hbc : null;
+        String flightRules = (raw instanceof HasFlightRules hfr) ? hfr.flightRules() : null;
+
+        int start = recordBuffer.position();
+        recordBuffer
+            .putLong(start + R_EPOCH_SECOND, point.time().getEpochSecond())
+            .putInt(start + R_NANO, point.time().getNano())
+            .putInt(start + R_FLAGS, CoastedPointRemover.isCoasted(point) ? FLAG_COASTED : 0)
+            .putDouble(start + R_LATITUDE, point.latLong().latitude())
+            .putDouble(start + R_LONGITUDE, point.latLong().longitude())
+            .putDouble(start + R_ALTITUDE_FT, altitude == null ? NaN : altitude.inFeet())
+            .putDouble(start + R_SPEED_KNOTS, hasVelocity ? point.speed().inKnots() : NaN)
+            .putDouble(start + R_COURSE_DEGREES, hasVelocity ? point.course().inDegrees() : NaN)
+            .putInt(start + R_TRACK_ID, indexOf(point.trackId()))
+            .putInt(start + R_CALLSIGN, indexOf(ac == null ? null : ac.callsign()))
+            .putInt(start + R_AIRCRAFT_TYPE, indexOf(ac == null ? null : ac.aircraftType()))
+            .putInt(start + R_FLIGHT_RULES, indexOf(flightRules))
+            .putInt(start + R_BEACON_ACTUAL, indexOf(beacons == null ? null : beacons.beaconActual()))
+            .putInt(start + R_BEACON_ASSIGNED, indexOf(beacons == null ? null : beacons.beaconAssigned()))
+            .putInt(start + R_SENSOR, indexOf(src == null ? null : src.sensor()))
+            .putInt(start + R_FACILITY, indexOf(src == null ? null : src.facility()));
+
+        if (rawEncoder != null) {
+            byte[] rawBytes = rawEncoder.apply(raw).getBytes(UTF_8);
+            rawStaging.write(rawBytes);
+            recordBuffer
+                .putLong(start + R_RAW_OFFSET, rawLength)
+                .putInt(start + R_RAW_LENGTH, rawBytes.length);
+            rawLength += rawBytes.length;
+            maxRawLength = Math.max(maxRawLength, rawBytes.length);
+        } else {
+            recordBuffer.putLong(start + R_RAW_OFFSET, -1L).putInt(start + R_RAW_LENGTH, 0);
+        }
+
+        recordBuffer.position(start + RECORD_SIZE);
+    }
+
+    private int indexOf(String value) {
+        if (value == null) {
+            return NULL_INDEX;
+        }
+        return dictionaryIndex.computeIfAbsent(value, str -> {
+            dictionary.add(str);
+            return dictionary.size() - 1;
+        });
+    }
+
+    private void flushRecords() throws IOException {
+        recordBuffer.flip();
+        while (recordBuffer.hasRemaining()) {
+            channel.write(recordBuffer);
+        }
+        recordBuffer.clear();
+    }
+
+    /** @return The number of Points written so far. */
+    public long recordCount() {
+        return recordCount;
+    }
+
+    /** Write the raw message section, the string dictionary, and the header. */
+    @Override
+    public void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+
+        try {
+            flushRecords();
+
+            long rawOffset = channel.position();
+            if (rawStaging != null) {
+                rawStaging.close();
+                try (FileChannel staged = FileChannel.open(rawStagingFile.toPath())) {
+                    long copied = 0;
+                    while (copied < rawLength) {
+                        copied += staged.transferTo(copied, rawLength - copied, channel);
+                    }
+                }
+            }
+
+            long dictionaryOffset = rawOffset + rawLength;
+            channel.position(dictionaryOffset);
+            writeDictionary();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER);
+            header.put(H_MAGIC, MAGIC)
+                .putInt(H_VERSION, VERSION)
+                .putInt(H_RECORD_SIZE, RECORD_SIZE)
+                .putLong(H_RECORD_COUNT, recordCount)
+                .putLong(H_RAW_OFFSET, rawEncoder == null ? -1L : rawOffset)
+                .putLong(H_RAW_LENGTH, rawLength)
+                .putLong(H_DICTIONARY_OFFSET, dictionaryOffset)
+                .putInt(H_MAX_RAW_LENGTH, maxRawLength)
+                .putInt(H_DICTIONARY_SIZE, dictionary.size());
+            channel.write(header, 0);
+        } finally {
+            channel.close();
+            if (rawStagingFile != null) {
+                Files.deleteIfExists(rawStagingFile.toPath());
+            }
+        }
+    }
+
+    /* Each entry is an int length followed by that many UTF-8 bytes. */
+    private void writeDictionary() throws IOException {
+        for (String entry : dictionary) {
+            byte[] bytes = entry.getBytes(UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocate(4 + bytes.length).order(BYTE_ORDER);
+            buffer.putInt(bytes.length).put(bytes).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Convert a file of NOP or OpenARIA CSV data to an aria-bin file.
+     * <p>
+     * Example: "java -cp ARIA.jar org.mitre.openaria.core.formats.ariabin.AriaBinWriter nop
+     * STARS_A80_RH_20240101.txt.gz STARS_A80_RH_20240101.ariabin"
+     *
+     * @param args The input format ("nop" or "csv"), the input file, and the output file
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length != 3) {
+            System.out.println("Usage: AriaBinWriter FORMAT INPUT_FILE OUTPUT_FILE");
+            return;
+        }
+
+        long count = convert(Formats.getFormat(args[0]), new File(args[1]), new File(args[2]), true);
+
+        System.out.println("Wrote " + count + " points to " + args[2]);
+    }
+}
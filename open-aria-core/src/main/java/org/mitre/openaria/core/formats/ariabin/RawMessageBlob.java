@@ -0,0 +1,43 @@
+package org.mitre.openaria.core.formats.ariabin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A RawMessageBlob provides random access to the raw message section of an aria-bin file.
+ * <p>
+ * The section is memory-mapped in large windows. A single MappedByteBuffer cannot exceed 2GB, so
+ * each window also maps an extra "maxRawLength" bytes past its nominal end. This overlap ensures
+ * every raw message is fully contained by the window in which it begins.
+ */
+class RawMessageBlob {
+
+    private static final long WINDOW_SIZE = 1L << 30;
+
+    private final MappedByteBuffer[] windows;
+
+    RawMessageBlob(FileChannel channel, long blobOffset, long blobLength, int maxRawLength)
+        throws IOException {
+
+        int numWindows = (int) ((blobLength + WINDOW_SIZE - 1) / WINDOW_SIZE);
+        this.windows = new MappedByteBuffer[numWindows];
+
+        for (int i = 0; i < numWindows; i++) {
+            long start = i * WINDOW_SIZE;
+            long length = Math.min(blobLength - start, WINDOW_SIZE + maxRawLength);
+            windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, blobOffset + start, length);
+        }
+    }
+
+    /** @return The UTF-8 text stored at [offset, offset + length) of the raw message section. */
+    String text(long offset, int length) {
+        MappedByteBuffer window = windows[(int) (offset / WINDOW_SIZE)];
+        byte[] bytes = new byte[length];
+        //absolute bulk get, safe to call from multiple threads
+        window.get((int) (offset % WINDOW_SIZE), bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -1,6 +1,5 @@
 package org.mitre.openaria.core.formats.ariacsv;
 
-import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 import static org.mitre.caasd.commons.LatLong.checkLatitude;
 import static org.mitre.caasd.commons.LatLong.checkLongitude;
@@ -11,6 +10,8 @@ import org.mitre.caasd.commons.Distance;
 import org.mitre.caasd.commons.HasPosition;
 import org.mitre.caasd.commons.HasTime;
 import org.mitre.caasd.commons.LatLong;
+import org.mitre.openaria.core.formats.TokenPool;
+import org.mitre.openaria.core.utils.FastParsing;
 
 
 /**
@@ -56,6 +57,12 @@ public class AriaCsvHit implements HasTime, HasPosition, Comparable<AriaCsvHit>
      */
     private final double longitude;
 
+    /*
+     * Altitude is stored directly because Track and smoothing code request it repeatedly. This value
+     * is stored as a primitive to save memory (NaN means the altitude is missing).
+     */
+    private final double altitudeInFeet;
+
     /**
      * A unique ID number that identifies a specific vehicle within a large dataset of many location
      * measurements.
@@ -63,8 +70,8 @@ public class AriaCsvHit implements HasTime, HasPosition, Comparable<AriaCsvHit>
     private final String linkId;
 
     /**
-     * Eagerly parse: {time, latitude, longitude, and linkId} from this CSV.  Other fields are
-     * extract lazily
+     * Eagerly parse: {time, latitude, longitude, altitude, and linkId} from this CSV.  Other fields
+     * are extract lazily
      *
      * @param rawCsv A String of Comma Separated Values that matches the OpenARIA format.
      */
@@ -75,15 +82,28 @@ public class AriaCsvHit implements HasTime, HasPosition, Comparable<AriaCsvHit>
 
         this.commaIndices = findTokenIndices(rawCsv);
 
-        //these fields are cached for speed
-        this.time = Instant.parse(token(2));
-        this.linkId = token(3);
-        this.latitude = Double.parseDouble(token(4));
-        this.longitude = Double.parseDouble(token(5));
+        //these fields are cached for speed, they are parsed directly from rawCsv (no substrings)
+        this.time = FastParsing.parseInstant(rawCsv, tokenStart(2), tokenEnd(2));
+        this.linkId = pooledToken(3);
+        this.latitude = FastParsing.parseDouble(rawCsv, tokenStart(4), tokenEnd(4));
+        this.longitude = FastParsing.parseDouble(rawCsv, tokenStart(5), tokenEnd(5));
+        this.altitudeInFeet = parseAltitude();
         checkLatitude(latitude);
         checkLongitude(longitude);
     }
 
+    /** @return The altitude token in feet, or NaN when that token is missing or unparsable. */
+    private double parseAltitude() {
+        if (commaIndices.length < 6) {
+            return Double.NaN;
+        }
+        try {
+            return FastParsing.parseDouble(rawCsv, tokenStart(6), tokenEnd(6));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
     private static short[] findTokenIndices(String rawCsv) {
 
         char[] text = rawCsv.toCharArray();
@@ -112,22 +132,31 @@ public class AriaCsvHit implements HasTime, HasPosition, Comparable<AriaCsvHit>
 
     /** @return The i_th token in the CSV row. */
     public String token(int index) {
+        return rawCsv.substring(tokenStart(index), tokenEnd(index));
+    }
+
+    /**
+     * @return The i_th token in the CSV row, deduplicated via the shared TokenPool. Only use this
+     *     for low-cardinality fields (e.g., the partition columns and the linkId).
+     */
+    public String pooledToken(int index) {
+        return TokenPool.shared().pooled(rawCsv, tokenStart(index), tokenEnd(index));
+    }
+
+    /** @return The index of the first character of the i_th token. */
+    private int tokenStart(int index) {
 
         if (index > commaIndices.length) {
             throw new ArrayIndexOutOfBoundsException("Requested token " + index + " but there are only " + commaIndices.length + " commas");
         }
 
-        if (index == 0) {
-            return rawCsv.substring(0, commaIndices[index]).intern();
-        }
+        return (index == 0) ? 0 : commaIndices[index - 1] + 1;
+    }
 
+    /** @return The index just past the last character of the i_th token. */
+    private int tokenEnd(int index) {
         //if there is text after the last comma we still want to return that text
-        if (index == commaIndices.length) {
-            return rawCsv.substring(commaIndices[index - 1] + 1, rawCsv.length()).intern();
-        }
-
-        return rawCsv.substring(commaIndices[index - 1] + 1, commaIndices[index]).intern();
-
+        return (index == commaIndices.length) ? rawCsv.length() : commaIndices[index];
     }
 
     public static AriaCsvHit from(String csvText) {
@@ -156,8 +185,12 @@ public class AriaCsvHit implements HasTime, HasPosition, Comparable<AriaCsvHit>
     }
 
     public Distance altitude() {
-        Double altInFeet = parseDouble(token(6));
-        return nonNull(altInFeet) ? Distance.ofFeet(altInFeet) : null;
+        return Double.isNaN(altitudeInFeet) ? null : Distance.ofFeet(altitudeInFeet);
+    }
+
+    /** @return The altitude in feet without creating a Distance (NaN when altitude is missing). */
+    public double altitudeInFeet() {
+        return altitudeInFeet;
     }
 
     public String rawCsvText() {
@@ -17,6 +17,7 @@ import java.util.stream.StreamSupport;
 import org.mitre.caasd.commons.fileutil.FileLineIterator;
 import org.mitre.caasd.commons.fileutil.FileUtils;
 import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.utils.ReadAheadInputStream;
 
 
 public class AriaCsvParser implements Iterator<Point<AriaCsvHit>>, AutoCloseable {
@@ -31,9 +32,7 @@ public class AriaCsvParser implements Iterator<Point<AriaCsvHit>>, AutoCloseable
     /** Parse a File directly. */
     public AriaCsvParser(File rawFile) {
 
-        checkNotNull(rawFile, "An AriaCsvParser's input file cannot be null");
-        checkArgument(rawFile.exists(), "Input file (" + rawFile.getName() + ") does not exist");
-        checkArgument(!rawFile.isDirectory(), "Input file (" + rawFile.getName() + ") should not be a directory");
+        checkInputFile(rawFile);
 
         this.lineIter = new FileLineIterator(silentlyGetReader(rawFile));
         this.next = findNext();
@@ -50,6 +49,23 @@ public class AriaCsvParser implements Iterator<Point<AriaCsvHit>>, AutoCloseable
     }
 
 
+    /**
+     * Create an AriaCsvParser whose input is read on a dedicated "read-ahead" thread. Compressed
+     * (.gz) files are decompressed on that thread (and multi-member gzip files are decompressed in
+     * parallel). This removes the cost of decompression from the thread that consumes the parsed
+     * data. The returned parser should be closed to release the read-ahead thread.
+     */
+    public static AriaCsvParser withReadAhead(File rawFile) {
+        checkInputFile(rawFile);
+        return new AriaCsvParser(ReadAheadInputStream.readerFor(rawFile));
+    }
+
+    private static void checkInputFile(File rawFile) {
+        checkNotNull(rawFile, "An AriaCsvParser's input file cannot be null");
+        checkArgument(rawFile.exists(), "Input file (" + rawFile.getName() + ") does not exist");
+        checkArgument(!rawFile.isDirectory(), "Input file (" + rawFile.getName() + ") should not be a directory");
+    }
+
     /*
      * Convert Checked Exceptions to Unchecked Exceptions.
      */
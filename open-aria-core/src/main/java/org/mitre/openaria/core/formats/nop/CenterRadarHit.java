@@ -35,7 +35,7 @@ public class CenterRadarHit extends NopRadarHit {
     }
 
     public String computerId() {
-        return parseString(token(14));
+        return parseString(trackIdToken());
     }
 
     public String controllingFacilitySector() {
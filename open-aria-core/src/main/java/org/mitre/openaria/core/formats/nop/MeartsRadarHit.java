@@ -1,9 +1,10 @@
 package org.mitre.openaria.core.formats.nop;
 
-import static java.lang.Double.parseDouble;
 import static org.mitre.openaria.core.formats.nop.NopMessageType.MEARTS_RADAR_HIT;
 import static org.mitre.openaria.core.formats.nop.NopParsingUtils.parseString;
 
+import org.mitre.openaria.core.utils.FastParsing;
+
 import com.google.common.base.Preconditions;
 
 
@@ -35,15 +36,15 @@ public class MeartsRadarHit extends NopRadarHit {
     }
 
     public String computerId() {
-        return parseString(token(14));
+        return parseString(trackIdToken());
     }
 
     public Double x() {
-        return parseDouble(token(16));
+        return FastParsing.parseDouble(rawMessage(), tokenStart(16), tokenEnd(16));
     }
 
     public Double y() {
-        return parseDouble(token(17));
+        return FastParsing.parseDouble(rawMessage(), tokenStart(17), tokenEnd(17));
     }
 
     public String controllingFacilitySector() {
@@ -13,6 +13,7 @@ import java.util.stream.Collectors;
 
 import org.mitre.openaria.core.Point;
 import org.mitre.openaria.core.Track;
+import org.mitre.openaria.core.formats.ariabin.AriaBinHit;
 import org.mitre.openaria.core.temp.Extras.AircraftDetails;
 import org.mitre.openaria.core.temp.Extras.HasAircraftDetails;
 import org.mitre.openaria.core.temp.Extras.HasBeaconCodes;
@@ -77,6 +78,14 @@ public class NopEncoder {
             return nop.rawMessage().rawMessage();
         }
 
+        //an aria-bin file converted from NOP data stores the original NOP message
+        if (p.rawData() instanceof AriaBinHit bin && bin.hasRawMessage()) {
+            String rawMessage = bin.rawMessage();
+            if (NopMessageType.isNopRadarHit(rawMessage)) {
+                return rawMessage;
+            }
+        }
+
         AircraftDetails acDetails = null;
         SourceDetails sourceDetails = null;
         String flightRules = null;
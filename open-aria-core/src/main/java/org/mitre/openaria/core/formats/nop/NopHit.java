@@ -15,8 +15,10 @@ import org.mitre.caasd.commons.HasTime;
 import org.mitre.caasd.commons.LatLong;
 import org.mitre.caasd.commons.Position;
 import org.mitre.caasd.commons.Speed;
+import org.mitre.openaria.core.CompactPoint;
 import org.mitre.openaria.core.Point;
 import org.mitre.openaria.core.Velocity;
+import org.mitre.openaria.core.formats.TokenPool;
 import org.mitre.openaria.core.temp.Extras.AircraftDetails;
 import org.mitre.openaria.core.temp.Extras.HasAircraftDetails;
 import org.mitre.openaria.core.temp.Extras.HasFlightRules;
@@ -53,6 +55,45 @@ public class NopHit implements HasSourceDetails, HasAircraftDetails, HasFlightRu
     }
 
     public static Point<NopHit> from(NopMessage message) {
+        NopHit wrapped = wrap(message);
+        return new Point<>(wrapped.position(), wrapped.velocity(), wrapped.trackId(), wrapped);
+    }
+
+    public static Point<NopHit> from(String rhMessage) {
+        return from(NopMessageType.parse(rhMessage));
+    }
+
+    /**
+     * Create a CompactPoint directly from the primitive fields of a NopMessage. Unlike from(message),
+     * this method does not create Position, LatLong, Distance, Velocity, Speed, or Course objects.
+     * The result is equivalent to CompactPoint.of(NopHit.from(message)).
+     */
+    public static CompactPoint<NopHit> compactFrom(NopMessage message) {
+        NopHit wrapped = wrap(message);
+        NopRadarHit rh = wrapped.rawMessage();
+
+        //mirror velocity(), which is null when the speed or heading is missing
+        Double speed = rh.speed();
+        Double heading = rh.heading();
+        boolean hasVelocity = speed != null && heading != null;
+
+        return new CompactPoint<>(
+            rh.time().toEpochMilli(),
+            rh.latitude(),
+            rh.longitude(),
+            rh.altitudeInHundredsOfFeet() * 100.0,
+            hasVelocity ? speed : Double.NaN,
+            hasVelocity ? heading : Double.NaN,
+            wrapped.trackId(),
+            wrapped
+        );
+    }
+
+    public static CompactPoint<NopHit> compactFrom(String rhMessage) {
+        return compactFrom(NopMessageType.parse(rhMessage));
+    }
+
+    private static NopHit wrap(NopMessage message) {
         checkNotNull(message, "Cannot create a NopPoint from a null NopMessage");
 
         NopHit wrapped = null;
@@ -68,12 +109,7 @@ public class NopHit implements HasSourceDetails, HasAircraftDetails, HasFlightRu
         } else {
             throw new IllegalArgumentException("Cannot create a NopPoint from a " + message.getNopType());
         }
-
-        return new Point<>(wrapped.position(), wrapped.velocity(), wrapped.trackId(), wrapped);
-    }
-
-    public static Point<NopHit> from(String rhMessage) {
-        return from(NopMessageType.parse(rhMessage));
+        return wrapped;
     }
 
     /**
@@ -126,10 +162,10 @@ public class NopHit implements HasSourceDetails, HasAircraftDetails, HasFlightRu
             return (agw.assignedBeaconCode() == null)
                 ? null
                 /*
-                 * when converting the Integer to a String be sure to intern the resulting String so
+                 * when converting the Integer to a String be sure to pool the resulting String so
                  * that you don't generate hundreds of separate copies of the beacon code
                  */
-                : agw.assignedBeaconCode().toString().intern();
+                : TokenPool.shared().pooled(agw.assignedBeaconCode().toString());
         }
 
         if (rawMessage() instanceof StarsRadarHit stars) {
@@ -137,10 +173,10 @@ public class NopHit implements HasSourceDetails, HasAircraftDetails, HasFlightRu
             return (stars.assignedBeaconCode() == null)
                 ? null
                 /*
-                 * when converting the Integer to a String be sure to intern the resulting String so
+                 * when converting the Integer to a String be sure to pool the resulting String so
                  * that you don't generate hundreds of separate copies of the beacon code
                  */
-                : stars.assignedBeaconCode().toString().intern();
+                : TokenPool.shared().pooled(stars.assignedBeaconCode().toString());
         }
 
         if (rawMessage() instanceof CenterRadarHit center) {
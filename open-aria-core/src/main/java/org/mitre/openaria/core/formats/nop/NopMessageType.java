@@ -111,16 +111,75 @@ public enum NopMessageType {
     public static NopMessage parse(String line) {
         checkNotNull(line, "Cannot parse a NopMessage from a null String");
 
+        NopMessageType type = classify(line);
+        if (type == null) {
+            throw new NopParsingException("Could not match the input:\n  " + line + "\n to a NopType");
+        }
         try {
-            for (NopMessageType type : NopMessageType.values()) {
-                if (type.accepts(line)) {
-                    return type.parseMessage(line);
-                }
-            }
+            return type.parseMessage(line);
         } catch (Exception ex) {
             throw new NopParsingException("Exception when parsing:\n  " + line, ex);
         }
-        throw new NopParsingException("Could not match the input:\n  " + line + "\n to a NopType");
+    }
+
+    /**
+     * Find the NopMessageType of a line of text without testing every prefix. The first one or two
+     * characters after the opening "[" select a single candidate type. Then, that candidate's full
+     * prefix is verified.
+     *
+     * @param line A single line of raw NOP input text
+     *
+     * @return The NopMessageType that accepts this line, or null when no type accepts the line
+     */
+    public static NopMessageType classify(String line) {
+        checkNotNull(line, "Cannot classify a null String");
+
+        //the shortest prefix is 5 characters (e.g. "[HB],"), radar hit prefixes are longer
+        if (line.length() < 5 || line.charAt(0) != '[') {
+            return null;
+        }
+
+        NopMessageType candidate = switch (line.charAt(1)) {
+            case 'R' -> (line.length() < 6) ? null : switch (line.charAt(5)) {
+                case 'A' -> AGW_RADAR_HIT;
+                case 'S' -> STARS_RADAR_HIT;
+                case 'C' -> CENTER_RADAR_HIT;
+                case 'M' -> MEARTS_RADAR_HIT;
+                default -> null;
+            };
+            case 'F' -> FLIGHT_PLAN;
+            case 'H' -> (line.charAt(2) == 'B') ? HEART_BEAT : HF_MESSAGE;
+            case 'B' -> BYTES_MESSAGE;
+            case 'C' -> CONFLICT_ALERT_MESSAGE;
+            case 'I' -> INSTRUMENT_APPROACH_MESSAGE;
+            case 'O' -> HANDOFF_MESSAGE;
+            case 'T' -> TRAFFIC_COUNT_MESSAGE;
+            case 'S' -> SH_MESSAGE;
+            default -> null;
+        };
+
+        return (candidate != null && candidate.accepts(line)) ? candidate : null;
+    }
+
+    /**
+     * Parse a line of text that is already known to have this NopMessageType. Unlike {@link
+     * NopMessageType#parse(String)}, this method does not wrap failures in a NopParsingException.
+     * Truncated radar hits are rejected by a structural check without throwing any exception at
+     * all.
+     *
+     * @param line A line of text that this NopMessageType accepts
+     *
+     * @return A NopMessage, or null when the line could not be parsed
+     */
+    NopMessage tryParse(String line) {
+        if (isRadarHit && !NopRadarHit.hasRadarHitShape(line)) {
+            return null;
+        }
+        try {
+            return parseMessage(line);
+        } catch (RuntimeException ex) {
+            return null;
+        }
     }
 
     /**
@@ -143,10 +202,8 @@ public enum NopMessageType {
     public static boolean isNopRadarHit(String message) {
         checkNotNull(message);
 
-        return STARS_RADAR_HIT.accepts(message)
-            || CENTER_RADAR_HIT.accepts(message)
-            || MEARTS_RADAR_HIT.accepts(message)
-            || AGW_RADAR_HIT.accepts(message);
+        NopMessageType type = classify(message);
+        return type != null && type.isRadarHit();
     }
 
     /**
@@ -12,6 +12,7 @@ import java.util.NoSuchElementException;
 
 import org.mitre.caasd.commons.fileutil.FileLineIterator;
 import org.mitre.caasd.commons.fileutil.FileUtils;
+import org.mitre.openaria.core.utils.ReadAheadInputStream;
 
 
 /**
@@ -19,33 +20,81 @@ import org.mitre.caasd.commons.fileutil.FileUtils;
  * goes. NopParsers do not keep the entire contents of a file/stream in memory at any one time. This
  * can be very important when processing a data source that either contains an extremely large
  * amount of data or perhaps has no end whatsoever.
+ * <p>
+ * A NopParser can be restricted to radar hits. A radar-hit-only NopParser classifies each line with
+ * a single character lookup and skips every other kind of message (e.g. flight plans and heart
+ * beats) without creating any objects. Lines that are malformed are counted (see exceptionCount())
+ * without building a NopParsingException. The messages skipped by a radar-hit-only parser are not
+ * validated. Therefore, this mode may report fewer exceptions than a parser that processes all
+ * message types.
  */
 public class NopParser implements Iterator<NopMessage>, AutoCloseable {
 
     private final FileLineIterator lineIter;
     private NopMessage next;
 
+    private final boolean radarHitsOnly;
+
     private int lineCount;
     private int exceptionCount;
+    private int skippedCount;
 
     public NopParser(File rawFile) {
+        this(rawFile, false);
+    }
 
-        checkNotNull(rawFile, "A NopParser's input file cannot be null");
-        checkArgument(rawFile.exists(), "Input file (" + rawFile.getName() + ") does not exist");
-        checkArgument(!rawFile.isDirectory(), "Input file (" + rawFile.getName() + ") should not be a directory");
+    /**
+     * @param rawFile       A File of NOP data
+     * @param radarHitsOnly When true, only radar hits are provided and all other lines are skipped
+     */
+    public NopParser(File rawFile, boolean radarHitsOnly) {
+
+        checkInputFile(rawFile);
 
         this.lineIter = new FileLineIterator(silentlyGetReader(rawFile));
+        this.radarHitsOnly = radarHitsOnly;
         this.next = findNext();
     }
 
     public NopParser(Reader reader) {
+        this(reader, false);
+    }
+
+    /**
+     * @param reader        A source of NOP data
+     * @param radarHitsOnly When true, only radar hits are provided and all other lines are skipped
+     */
+    public NopParser(Reader reader, boolean radarHitsOnly) {
 
         checkNotNull(reader, "A NopParers's input reader cannot be null");
 
         this.lineIter = new FileLineIterator(reader);
+        this.radarHitsOnly = radarHitsOnly;
         this.next = findNext();
     }
 
+    /**
+     * Create a NopParser whose input is read on a dedicated "read-ahead" thread. Compressed (.gz)
+     * files are decompressed on that thread (and multi-member gzip files are decompressed in
+     * parallel). This removes the cost of decompression from the thread that consumes the parsed
+     * data. The returned parser should be closed to release the read-ahead thread.
+     */
+    public static NopParser withReadAhead(File rawFile) {
+        return withReadAhead(rawFile, false);
+    }
+
+    /** Create a NopParser that uses a read-ahead thread and may be restricted to radar hits. */
+    public static NopParser withReadAhead(File rawFile, boolean radarHitsOnly) {
+        checkInputFile(rawFile);
+        return new NopParser(ReadAheadInputStream.readerFor(rawFile), radarHitsOnly);
+    }
+
+    private static void checkInputFile(File rawFile) {
+        checkNotNull(rawFile, "A NopParser's input file cannot be null");
+        checkArgument(rawFile.exists(), "Input file (" + rawFile.getName() + ") does not exist");
+        checkArgument(!rawFile.isDirectory(), "Input file (" + rawFile.getName() + ") should not be a directory");
+    }
+
     /*
      * Convert Checked Exceptions to Unchecked Exceptions.
      */
@@ -75,6 +124,10 @@ public class NopParser implements Iterator<NopMessage>, AutoCloseable {
     }
 
     private NopMessage findNext() {
+        return radarHitsOnly ? findNextRadarHit() : findNextMessage();
+    }
+
+    private NopMessage findNextMessage() {
 
         /*
          * Use a while loop based implementation because recursion can produce a StackOverflow when
@@ -94,6 +147,34 @@ public class NopParser implements Iterator<NopMessage>, AutoCloseable {
         return null;
     }
 
+    private NopMessage findNextRadarHit() {
+
+        while (lineIter.hasNext()) {
+
+            lineCount++;
+
+            String line = lineIter.next();
+            NopMessageType type = NopMessageType.classify(line);
+
+            if (type == null) {
+                this.exceptionCount++;
+                continue;
+            }
+            if (!type.isRadarHit()) {
+                this.skippedCount++;
+                continue;
+            }
+
+            NopMessage message = type.tryParse(line);
+            if (message == null) {
+                this.exceptionCount++;
+            } else {
+                return message;
+            }
+        }
+        return null;
+    }
+
     @Override //part of AutoCloseable
     public void close() throws Exception {
         /*
@@ -118,4 +199,12 @@ public class NopParser implements Iterator<NopMessage>, AutoCloseable {
     public int exceptionCount() {
         return this.exceptionCount;
     }
+
+    /**
+     * @return The number of well-formed lines a radar-hit-only parser skipped because they were not
+     *     radar hits (this is always 0 when all message types are parsed).
+     */
+    public int skippedCount() {
+        return this.skippedCount;
+    }
 }
@@ -1,11 +1,18 @@
 package org.mitre.openaria.core.formats.nop;
 
+import static org.mitre.openaria.core.utils.FastParsing.epochMillis;
+import static org.mitre.openaria.core.utils.FastParsing.isValidDate;
+import static org.mitre.openaria.core.utils.FastParsing.isValidTime;
+import static org.mitre.openaria.core.utils.FastParsing.parseDigits;
+
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
+import org.mitre.openaria.core.utils.FastParsing;
+
 /**
  * This class contains simple text processing utilities that are used when processing raw NOP data.
  */
@@ -64,6 +71,65 @@ public class NopParsingUtils {
         }
     }
 
+    /**
+     * Parse the two "time entries" from a Nop Message without creating substrings. The common
+     * layout ("MM/dd/yyyy" or "MM-dd-yyyy" followed by "HH:mm:ss.SSS") is decoded directly when
+     * every field is in range. All other inputs (including the flawed millisecond values handled by
+     * parseNopTime(String, String) and out-of-range values like "02/30/2016" or "24:00:00.000")
+     * are delegated to parseNopTime(String, String) so they get exactly the same treatment.
+     *
+     * @param text      The raw text of a Nop Message
+     * @param dateStart The index of the first character of the date
+     * @param dateEnd   The index just past the last character of the date
+     * @param timeStart The index of the first character of the time
+     * @param timeEnd   The index just past the last character of the time
+     *
+     * @return The Instant corresponding to the date and time (Z time is assume)
+     */
+    public static Instant parseNopTime(String text, int dateStart, int dateEnd, int timeStart, int timeEnd) {
+
+        long epochMs = fastParseNopTime(text, dateStart, dateEnd, timeStart, timeEnd);
+
+        return (epochMs == Long.MIN_VALUE)
+            ? parseNopTime(text.substring(dateStart, dateEnd), text.substring(timeStart, timeEnd))
+            : Instant.ofEpochMilli(epochMs);
+    }
+
+    /** @return The epoch milliseconds of a well-formed, valid NOP date and time, or Long.MIN_VALUE. */
+    private static long fastParseNopTime(String text, int dateStart, int dateEnd, int timeStart, int timeEnd) {
+
+        boolean hasExpectedLayout = dateEnd - dateStart == 10
+            && timeEnd - timeStart == 12
+            && isDateSeparator(text.charAt(dateStart + 2))
+            && text.charAt(dateStart + 5) == text.charAt(dateStart + 2)
+            && text.charAt(timeStart + 2) == ':'
+            && text.charAt(timeStart + 5) == ':'
+            && text.charAt(timeStart + 8) == '.';
+
+        if (!hasExpectedLayout) {
+            return Long.MIN_VALUE;
+        }
+
+        int month = parseDigits(text, dateStart, dateStart + 2);
+        int day = parseDigits(text, dateStart + 3, dateStart + 5);
+        int year = parseDigits(text, dateStart + 6, dateStart + 10);
+        int hour = parseDigits(text, timeStart, timeStart + 2);
+        int minute = parseDigits(text, timeStart + 3, timeStart + 5);
+        int second = parseDigits(text, timeStart + 6, timeStart + 8);
+        int millis = parseDigits(text, timeStart + 9, timeStart + 12);
+
+        //parseDigits gives -1 for non-digits, the range checks reject those too
+        if (year < 0 || !isValidDate(year, month, day) || !isValidTime(hour, minute, second) || millis < 0) {
+            return Long.MIN_VALUE;
+        }
+
+        return epochMillis(year, month, day, hour, minute, second, millis);
+    }
+
+    private static boolean isDateSeparator(char c) {
+        return c == '/' || c == '-';
+    }
+
     /*
      * This method makes it more obvious when a NOP message does not contain any information in its
      * comma-delimited form. We don't want anyone assume an aircraftId of "" is valid.
@@ -84,6 +150,24 @@ public class NopParsingUtils {
         }
     }
 
+    /** Parse text[start, end) as an Integer without creating a substring (empty text gives null). */
+    public static Integer parseInteger(CharSequence text, int start, int end) {
+        if (start == end) {
+            return null;
+        } else {
+            return FastParsing.parseInt(text, start, end);
+        }
+    }
+
+    /** Parse text[start, end) as a Double without creating a substring (returns null on failure). */
+    public static Double parseDouble(CharSequence text, int start, int end) {
+        try {
+            return FastParsing.parseDouble(text, start, end);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     public static Double parseDouble(String x) {
         try {
             return Double.valueOf(x);
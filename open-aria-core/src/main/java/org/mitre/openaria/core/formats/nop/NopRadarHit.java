@@ -6,6 +6,10 @@ import static org.mitre.caasd.commons.LatLong.checkLongitude;
 import static org.mitre.openaria.core.formats.nop.NopParsingUtils.*;
 
 import java.time.Instant;
+import java.util.Arrays;
+
+import org.mitre.openaria.core.formats.TokenPool;
+import org.mitre.openaria.core.utils.FastParsing;
 
 
 /**
@@ -51,55 +55,128 @@ public abstract class NopRadarHit implements NopMessage {
      */
     private final double longitude;
 
+    /*
+     * These String fields are decoded lazily, at most once, because downstream code (e.g.,
+     * Track.callsign() and IfrVfrAssigner) asks for them over and over. The unsynchronized lazy
+     * initialization is a benign race. Strings are immutable, so the worst case is that two
+     * threads both decode the same (equal) value.
+     */
+    private String facility;
+    private String callSign;
+    private String aircraftType;
+    private String reportedBeaconCode;
+    private String sensorIdLetters;
+    private String flightRules;
+    private String trackIdToken;
+
+    /* The indices of the latitude and longitude tokens. */
+    private static final int LATITUDE_TOKEN = 12;
+    private static final int LONGITUDE_TOKEN = 13;
+
+    /** Radar Hits have about 40 fields, this is enough to find every comma without resizing. */
+    private static final int EXPECTED_NUM_COMMAS = 48;
+
     public NopRadarHit(String rawTextInput) {
 
         checkArgument(rawTextInput.startsWith("[RH],"));
 
         this.rawTextInput = rawTextInput;
 
-        this.commaIndices = findTokenIndices();
+        this.commaIndices = findTokenIndices(rawTextInput);
 
         //these fields are cached for speed
-        this.time = parseNopTime(token(3), token(4));
-        this.latitude = Double.parseDouble(token(12));
-        this.longitude = Double.parseDouble(token(13));
+        this.time = parseNopTime(rawTextInput, tokenStart(3), tokenEnd(3), tokenStart(4), tokenEnd(4));
+        this.latitude = FastParsing.parseDouble(rawTextInput, tokenStart(12), tokenEnd(12));
+        this.longitude = FastParsing.parseDouble(rawTextInput, tokenStart(13), tokenEnd(13));
         checkLatitude(latitude);
         checkLongitude(longitude);
     }
 
-    private short[] findTokenIndices() {
+    /**
+     * A cheap structural check that detects truncated or garbled radar hits without constructing
+     * anything (or throwing an exception). Lines that pass this check can still fail to parse.
+     *
+     * @return True when the text contains non-empty date, time, latitude, and longitude tokens.
+     */
+    static boolean hasRadarHitShape(String text) {
+
+        int numCommas = 0;
+        int tokenStart = 0;
+        for (int i = 0; i < text.length() && numCommas <= LONGITUDE_TOKEN; i++) {
+            if (text.charAt(i) == ',') {
+                boolean isRequired = numCommas == 3 || numCommas == 4
+                    || numCommas == LATITUDE_TOKEN || numCommas == LONGITUDE_TOKEN;
+                if (isRequired && i == tokenStart) {
+                    return false;
+                }
+                numCommas++;
+                tokenStart = i + 1;
+            }
+        }
+        return numCommas > LONGITUDE_TOKEN;
+    }
 
-        char[] text = rawTextInput.toCharArray();
+    /* Find every comma in a single pass over the text (without copying the text to a char[]). */
+    private static short[] findTokenIndices(String text) {
 
-        //how big is the output array?
+        short[] output = new short[EXPECTED_NUM_COMMAS];
         int count = 0;
-        for (int i = 0; i < text.length; i++) {
-            if (text[i] == ',') {
+
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == ',') {
+                if (count == output.length) {
+                    output = Arrays.copyOf(output, 2 * count);
+                }
+                output[count] = (short) i;
                 count++;
             }
         }
 
-        //make the output array
-        short[] output = new short[count];
-        short counter = 0;
-        for (int i = 0; i < text.length; i++) {
+        return Arrays.copyOf(output, count);
+    }
 
-            if (text[i] == ',') {
-                output[counter] = (short) i;
-                counter++;
-            }
-        }
+    /** @return The index of the first character of the i_th token. */
+    protected int tokenStart(int index) {
+        return (index == 0) ? 0 : commaIndices[index - 1] + 1;
+    }
 
-        return output;
+    /** @return The index just past the last character of the i_th token. */
+    protected int tokenEnd(int index) {
+        return commaIndices[index];
     }
 
     protected String token(int index) {
+        return rawTextInput.substring(tokenStart(index), tokenEnd(index));
+    }
+
+    /**
+     * @return The i_th token, deduplicated via the shared TokenPool. Only use this for
+     *     low-cardinality fields (e.g., facility, callsign, and aircraft type).
+     */
+    protected String pooledToken(int index) {
+        return TokenPool.shared().pooled(rawTextInput, tokenStart(index), tokenEnd(index));
+    }
+
+    /** Parse the i_th token as an Integer without creating a substring (empty tokens give null). */
+    protected Integer integerToken(int index) {
+        return NopParsingUtils.parseInteger(rawTextInput, tokenStart(index), tokenEnd(index));
+    }
+
+    /** Parse the i_th token as a Double without creating a substring (bad tokens give null). */
+    protected Double doubleToken(int index) {
+        return NopParsingUtils.parseDouble(rawTextInput, tokenStart(index), tokenEnd(index));
+    }
 
-        if (index == 0) {
-            return rawTextInput.substring(0, commaIndices[index]).intern();
-        } else {
-            return rawTextInput.substring(commaIndices[index - 1] + 1, commaIndices[index]).intern();
+    /**
+     * @return The 15th token (which contains the track number of AGW and STARS data and the
+     *     computer id of CENTER and MEARTS data). This token is cached because it is used to
+     *     assign every Point to a Track.
+     */
+    protected String trackIdToken() {
+        if (trackIdToken == null) {
+            trackIdToken = pooledToken(14);
         }
+        return trackIdToken;
     }
 
     @Override
@@ -108,7 +185,14 @@ public abstract class NopRadarHit implements NopMessage {
     }
 
     public String facility() {
-        return parseFacility(token(2)).intern();
+        if (facility == null) {
+            //parse first 3 characters to avoid backup facility "XXX_B"
+            int start = tokenStart(2);
+            facility = (tokenEnd(2) - start >= 3)
+                ? TokenPool.shared().pooled(rawTextInput, start, start + 3)
+                : parseFacility(token(2));
+        }
+        return facility;
     }
 
     public Instant time() {
@@ -116,11 +200,17 @@ public abstract class NopRadarHit implements NopMessage {
     }
 
     public String callSign() {
-        return parseString(token(5));
+        if (callSign == null) {
+            callSign = pooledToken(5);
+        }
+        return parseString(callSign);
     }
 
     public String aircraftType() {
-        return parseString(token(6));
+        if (aircraftType == null) {
+            aircraftType = pooledToken(6);
+        }
+        return parseString(aircraftType);
     }
 
     public String equipmentTypeSuffix() {
@@ -128,19 +218,22 @@ public abstract class NopRadarHit implements NopMessage {
     }
 
     public String reportedBeaconCode() {
-        return parseString(token(8));
+        if (reportedBeaconCode == null) {
+            reportedBeaconCode = pooledToken(8);
+        }
+        return parseString(reportedBeaconCode);
     }
 
     public Integer altitudeInHundredsOfFeet() {
-        return parseInteger(token(9));
+        return integerToken(9);
     }
 
     public Double speed() {
-        return NopParsingUtils.parseDouble(token(10));
+        return doubleToken(10);
     }
 
     public Double heading() {
-        return NopParsingUtils.parseDouble(token(11));
+        return doubleToken(11);
     }
 
     public Double latitude() {
@@ -152,7 +245,10 @@ public abstract class NopRadarHit implements NopMessage {
     }
 
     public String sensorIdLetters() {
-        return parseString(token(21));
+        if (sensorIdLetters == null) {
+            sensorIdLetters = pooledToken(21);
+        }
+        return parseString(sensorIdLetters);
     }
 
     public String arrivalAirport() {
@@ -160,7 +256,10 @@ public abstract class NopRadarHit implements NopMessage {
     }
 
     public String flightRules() {
-        return parseString(token(28));
+        if (flightRules == null) {
+            flightRules = pooledToken(28);
+        }
+        return parseString(flightRules);
     }
 
     public String heavyLargeOrSmall() {
@@ -0,0 +1,294 @@
+package org.mitre.openaria.core.formats.nop;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.mitre.caasd.commons.util.DemotedException.demote;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.mitre.openaria.core.Point;
+
+/**
+ * A ParallelNopParser converts a (not compressed) File of NOP data into a sequence of
+ * {@code Point<NopHit>}. The output is identical to the output of
+ * {@code new PointIterator(new NopParser(file, true))}. However, the work is spread across multiple
+ * threads.
+ * <p>
+ * The input File is memory-mapped and split into newline-aligned chunks. Each chunk is parsed as an
+ * independent task on a ForkJoinPool. The resulting batches of Points are handed back in file order.
+ * Only a bounded number of chunks are "in-flight" at any one time, so the amount of memory in use
+ * does not grow with the size of the input File.
+ * <p>
+ * Memory-mapping requires random access to the raw bytes of the input File. Consequently,
+ * compressed files (e.g. "STARS_A80_RH_20240101.txt.gz") cannot be processed by this class.
+ * <p>
+ * The underlying FileChannel is released as soon as the last chunk has been consumed. Therefore,
+ * callers that iterate to the end of the file do not need to call close(). Callers that stop early
+ * should call close().
+ */
+public class ParallelNopParser implements Iterator<Point<NopHit>>, AutoCloseable {
+
+    /** The default number of bytes in a single chunk of work. */
+    public static final int DEFAULT_CHUNK_SIZE_IN_BYTES = 8 * 1024 * 1024;
+
+    private final FileChannel channel;
+
+    private final long fileSize;
+
+    private final int chunkSizeInBytes;
+
+    private final ForkJoinPool pool;
+
+    /** The maximum number of chunks that can be parsed (or awaiting consumption) at one time. */
+    private final int maxChunksInFlight;
+
+    /** Parse tasks in file order. The head of this queue is the "oldest" chunk of the file. */
+    private final ArrayDeque<ForkJoinTask<ParsedChunk>> inFlight;
+
+    /** Where the next unassigned chunk of the file begins. */
+    private long nextChunkStart;
+
+    private Iterator<Point<NopHit>> currentBatch;
+
+    private int lineCount;
+
+    private int exceptionCount;
+
+    private boolean isClosed;
+
+    /**
+     * Create a ParallelNopParser that uses 8MB chunks and the common ForkJoinPool.
+     *
+     * @param rawFile A (not compressed) File of NOP data
+     */
+    public ParallelNopParser(File rawFile) {
+        this(rawFile, DEFAULT_CHUNK_SIZE_IN_BYTES, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param rawFile          A (not compressed) File of NOP data
+     * @param chunkSizeInBytes The approximate size of each independently parsed chunk of the file.
+     *                         Chunks are extended to the next newline so that no line is split.
+     * @param pool             The ForkJoinPool that executes the parse tasks
+     */
+    public ParallelNopParser(File rawFile, int chunkSizeInBytes, ForkJoinPool pool) {
+
+        checkNotNull(rawFile, "A ParallelNopParser's input file cannot be null");
+        checkArgument(rawFile.exists(), "Input file (" + rawFile.getName() + ") does not exist");
+        checkArgument(!rawFile.isDirectory(), "Input file (" + rawFile.getName() + ") should not be a directory");
+        checkArgument(!rawFile.getName().endsWith(".gz"), "Compressed files cannot be memory-mapped: " + rawFile.getName());
+        checkArgument(chunkSizeInBytes > 0, "The chunkSize must be positive");
+
+        this.channel = silentlyOpen(rawFile);
+        this.fileSize = silentlySize(channel);
+        this.chunkSizeInBytes = chunkSizeInBytes;
+        this.pool = checkNotNull(pool);
+        this.maxChunksInFlight = 2 * pool.getParallelism();
+        this.inFlight = new ArrayDeque<>();
+        this.nextChunkStart = 0L;
+        this.currentBatch = Collections.emptyIterator();
+
+        submitChunksUntilWindowIsFull();
+    }
+
+    /*
+     * Convert Checked Exceptions to Unchecked Exceptions.
+     */
+    private static FileChannel silentlyOpen(File rawFile) {
+        try {
+            return FileChannel.open(rawFile.toPath(), StandardOpenOption.READ);
+        } catch (IOException ioe) {
+            throw demote("Problem opening: " + rawFile.getAbsolutePath(), ioe);
+        }
+    }
+
+    private static long silentlySize(FileChannel channel) {
+        try {
+            return channel.size();
+        } catch (IOException ioe) {
+            throw demote(ioe);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+
+        //Use a while loop because some chunks (e.g. chunks full of [HB] messages) contain no Points
+        while (!currentBatch.hasNext()) {
+            if (isClosed) {
+                return false;
+            }
+            if (inFlight.isEmpty()) {
+                //every chunk has been submitted and consumed, so the channel is no longer needed
+                releaseChannel();
+                return false;
+            }
+            ParsedChunk chunk = inFlight.poll().join();
+            this.lineCount += chunk.lineCount;
+            this.exceptionCount += chunk.exceptionCount;
+            this.currentBatch = chunk.points.iterator();
+
+            submitChunksUntilWindowIsFull();
+        }
+        return true;
+    }
+
+    @Override
+    public Point<NopHit> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentBatch.next();
+    }
+
+    private void submitChunksUntilWindowIsFull() {
+        while (inFlight.size() < maxChunksInFlight && nextChunkStart < fileSize) {
+            long start = nextChunkStart;
+            long end = findChunkEnd(start);
+            this.nextChunkStart = end;
+
+            inFlight.add(pool.submit(() -> parseChunk(start, end)));
+        }
+    }
+
+    /**
+     * @return The position just after the first newline that occurs at, or after, (start +
+     *     chunkSize). Returns the size of the file when no such newline exists.
+     */
+    private long findChunkEnd(long start) {
+
+        long position = start + chunkSizeInBytes;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+
+        try {
+            while (position < fileSize) {
+                probe.clear();
+                int numRead = channel.read(probe, position);
+                if (numRead <= 0) {
+                    break;
+                }
+                for (int i = 0; i < numRead; i++) {
+                    if (probe.get(i) == '\n') {
+                        return position + i + 1;
+                    }
+                }
+                position += numRead;
+            }
+        } catch (IOException ioe) {
+            throw demote(ioe);
+        }
+        return fileSize;
+    }
+
+    /* This method is executed on the ForkJoinPool. */
+    private ParsedChunk parseChunk(long start, long end) throws IOException {
+
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        byte[] bytes = new byte[mapped.remaining()];
+        mapped.get(bytes);
+
+        ParsedChunk result = new ParsedChunk();
+
+        int lineStart = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+
+            boolean atEndOfLine = (i == bytes.length) || bytes[i] == '\n';
+            if (!atEndOfLine) {
+                continue;
+            }
+            //mimic BufferedReader.readLine(), the text after the final newline is not an extra line
+            if (i == bytes.length && lineStart == bytes.length) {
+                break;
+            }
+
+            int lineEnd = (i > lineStart && bytes[i - 1] == '\r') ? i - 1 : i;
+            result.accept(new String(bytes, lineStart, lineEnd - lineStart, ISO_8859_1));
+            lineStart = i + 1;
+        }
+
+        return result;
+    }
+
+    @Override //part of AutoCloseable
+    public void close() throws Exception {
+        /*
+         * ensure "hasNext()" always returns false after close() is called. We want consistent
+         * behavior if this Iterator is closed before it reaches the end of the file.
+         */
+        this.isClosed = true;
+        this.currentBatch = Collections.emptyIterator();
+        inFlight.forEach(task -> task.cancel(true));
+        inFlight.clear();
+        channel.close();
+    }
+
+    private void releaseChannel() {
+        try {
+            channel.close();
+        } catch (IOException ioe) {
+            throw demote(ioe);
+        }
+    }
+
+    /** @return True when the underlying FileChannel is still open. */
+    boolean isChannelOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Return the total number lines this parser has processed. This count only reflects chunks
+     * whose Points have started being consumed via "next()".
+     *
+     * @return The total number of lines this parser has processed.
+     */
+    public int currentLineCount() {
+        return lineCount;
+    }
+
+    public int exceptionCount() {
+        return this.exceptionCount;
+    }
+
+    /** The result of parsing one chunk of a file. */
+    private static class ParsedChunk {
+
+        private final List<Point<NopHit>> points = new ArrayList<>();
+
+        private int lineCount;
+
+        private int exceptionCount;
+
+        /* Skip non-radar-hit lines without parsing them (see NopParser's radar-hit-only mode). */
+        void accept(String line) {
+            lineCount++;
+            NopMessageType type = NopMessageType.classify(line);
+            if (type == null) {
+                exceptionCount++;
+                return;
+            }
+            if (!type.isRadarHit()) {
+                return;
+            }
+            NopMessage message = type.tryParse(line);
+            if (message == null) {
+                exceptionCount++;
+            } else {
+                points.add(NopHit.from(message));
+            }
+        }
+    }
+}
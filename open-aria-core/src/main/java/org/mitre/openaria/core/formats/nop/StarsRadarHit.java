@@ -1,11 +1,11 @@
 package org.mitre.openaria.core.formats.nop;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static java.lang.Double.parseDouble;
 import static org.mitre.openaria.core.formats.nop.NopMessageType.STARS_RADAR_HIT;
-import static org.mitre.openaria.core.formats.nop.NopParsingUtils.parseInteger;
 import static org.mitre.openaria.core.formats.nop.NopParsingUtils.parseString;
 
+import org.mitre.openaria.core.utils.FastParsing;
+
 
 /**
  * A StarsRadarHit represents the data found within a single "STARS Radar Hit" message from a NOP
@@ -35,19 +35,19 @@ public class StarsRadarHit extends NopRadarHit {
     }
 
     public String trackNumber() {
-        return token(14);
+        return trackIdToken();
     }
 
     public Integer assignedBeaconCode() {
-        return parseInteger(token(15));
+        return integerToken(15);
     }
 
     public Double x() {
-        return parseDouble(token(16));
+        return FastParsing.parseDouble(rawMessage(), tokenStart(16), tokenEnd(16));
     }
 
     public Double y() {
-        return parseDouble(token(17));
+        return FastParsing.parseDouble(rawMessage(), tokenStart(17), tokenEnd(17));
     }
 
     public String keyboard() {
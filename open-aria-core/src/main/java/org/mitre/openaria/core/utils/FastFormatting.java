@@ -0,0 +1,94 @@
+package org.mitre.openaria.core.utils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Locale;
+
+/**
+ * FastFormatting contains number-to-text conversions that append directly to a StringBuilder. These
+ * methods avoid the format-string parsing, Formatter allocation, and intermediate Strings that
+ * String.format requires.
+ * <p>
+ * These methods produce exactly the same text as String.format(Locale.ROOT, "%.Nf", value). The
+ * common case (a moderately sized number that is not within a rounding "tie") is handled with
+ * integer arithmetic. All other inputs are delegated to the JDK.
+ */
+public class FastFormatting {
+
+    /* The largest number of digits after the decimal point that this class supports. */
+    public static final int MAX_DECIMALS = 8;
+
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L
+    };
+
+    /* Scaled values at or above this size are too coarse to round correctly with a double. */
+    private static final double MAX_FAST_SCALED_VALUE = 1e9;
+
+    /*
+     * Scaled values whose fractional part is this close to 0.5 could round either way depending on
+     * the decimal digits String.format uses. These values take the slow path.
+     */
+    private static final double TIE_TOLERANCE = 1e-6;
+
+    private FastFormatting() {
+        //prevent Object creation
+    }
+
+    /**
+     * Append a number with a fixed number of digits after the decimal point. This is equivalent to
+     * target.append(String.format(Locale.ROOT, "%.Nf", value)) where N = decimals.
+     *
+     * @param target   The StringBuilder that receives the text
+     * @param value    The number to format
+     * @param decimals The number of digits after the decimal point (0 to MAX_DECIMALS)
+     *
+     * @return The target StringBuilder (for method chaining)
+     */
+    public static StringBuilder appendFixed(StringBuilder target, double value, int decimals) {
+        checkNotNull(target);
+        checkArgument(0 <= decimals && decimals <= MAX_DECIMALS, "Unsupported decimals: " + decimals);
+
+        long unit = POWERS_OF_TEN[decimals];
+        double scaled = Math.abs(value) * unit;
+
+        if (!(scaled < MAX_FAST_SCALED_VALUE)) {
+            //also catches NaN and infinity
+            return appendSlowly(target, value, decimals);
+        }
+
+        long whole = (long) scaled;
+        double fraction = scaled - whole;
+        if (Math.abs(fraction - 0.5) < TIE_TOLERANCE) {
+            return appendSlowly(target, value, decimals);
+        }
+        long rounded = (fraction > 0.5) ? whole + 1 : whole;
+
+        //String.format keeps the sign of negative numbers that round to zero (e.g. "-0.0000")
+        if (value < 0 || Double.doubleToRawLongBits(value) == Long.MIN_VALUE) {
+            target.append('-');
+        }
+        target.append(rounded / unit);
+        if (decimals > 0) {
+            target.append('.');
+            long fractionDigits = rounded % unit;
+            for (long pad = unit / 10; pad > fractionDigits && pad > 1; pad /= 10) {
+                target.append('0');
+            }
+            target.append(fractionDigits);
+        }
+        return target;
+    }
+
+    /**
+     * @return The same String as String.format(Locale.ROOT, "%.Nf", value) where N = decimals
+     */
+    public static String formatFixed(double value, int decimals) {
+        return appendFixed(new StringBuilder(16), value, decimals).toString();
+    }
+
+    private static StringBuilder appendSlowly(StringBuilder target, double value, int decimals) {
+        return target.append(String.format(Locale.ROOT, "%." + decimals + "f", value));
+    }
+}
@@ -0,0 +1,254 @@
+package org.mitre.openaria.core.utils;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+
+/**
+ * FastParsing contains text-to-number conversions that read directly from a region of a larger
+ * CharSequence (e.g. one field of a CSV row or NOP message). These methods avoid creating a
+ * substring for every field that is converted to a number.
+ * <p>
+ * These methods produce exactly the same results as their JDK counterparts (e.g.,
+ * Double.parseDouble). They achieve their speed by handling the simple input formats that dominate
+ * real-world data (like "-084.54589" or "2478") directly. Unusual inputs (like "1.5E10" or " 12 ")
+ * are delegated to the JDK.
+ */
+public class FastParsing {
+
+    /* The powers of 10 that can be represented exactly as a double. */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /* Mantissas at or above 2^53 cannot be converted to a double without rounding. */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    /* The shortest layout handled directly is "yyyy-MM-ddTHH:mm:ssZ". */
+    private static final int MIN_INSTANT_LENGTH = 20;
+
+    private FastParsing() {
+        //prevent Object creation
+    }
+
+    /**
+     * Parse an int from text[start, end). This is equivalent to Integer.parseInt(text.substring(start,
+     * end)) but no substring is created.
+     *
+     * @throws NumberFormatException when the region does not contain a parsable int
+     */
+    public static int parseInt(CharSequence text, int start, int end) {
+        return Integer.parseInt(text, start, end, 10);
+    }
+
+    /**
+     * Parse a double from text[start, end). This is equivalent to
+     * Double.parseDouble(text.substring(start, end)) but no substring is created when the number
+     * is written in plain decimal notation (e.g., "033.47637").
+     *
+     * @throws NumberFormatException when the region does not contain a parsable double
+     */
+    public static double parseDouble(CharSequence text, int start, int end) {
+
+        double fastResult = parsePlainDecimal(text, start, end);
+
+        return Double.isNaN(fastResult)
+            ? Double.parseDouble(text.subSequence(start, end).toString())
+            : fastResult;
+    }
+
+    /**
+     * Parse a number like "-084.54589". This method returns NaN when the input has an unexpected
+     * format (e.g., exponents, whitespace, too many digits) and must be handled by
+     * Double.parseDouble.
+     * <p>
+     * The result is exact because both the digits (as a long smaller than 2^53) and the power of
+     * ten (at most 10^22) are exactly representable as doubles. Consequently, one IEEE division
+     * produces the correctly rounded result -- the same result Double.parseDouble produces.
+     */
+    private static double parsePlainDecimal(CharSequence text, int start, int end) {
+
+        if (end <= start) {
+            return Double.NaN;
+        }
+
+        int i = start;
+        boolean negative = false;
+        char first = text.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = (first == '-');
+            i++;
+        }
+
+        long mantissa = 0;
+        int numDigits = 0;
+        int numFractionDigits = 0;
+        boolean seenDecimalPoint = false;
+
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                numDigits++;
+                if (seenDecimalPoint) {
+                    numFractionDigits++;
+                }
+                if (mantissa >= MAX_EXACT_MANTISSA) {
+                    return Double.NaN;
+                }
+            } else if (c == '.' && !seenDecimalPoint) {
+                seenDecimalPoint = true;
+            } else {
+                return Double.NaN;
+            }
+        }
+
+        if (numDigits == 0 || numFractionDigits >= POWERS_OF_TEN.length) {
+            return Double.NaN;
+        }
+
+        double magnitude = mantissa / POWERS_OF_TEN[numFractionDigits];
+
+        //"-0" and "-0.0" must produce -0.0 (just like Double.parseDouble)
+        return negative ? -magnitude : magnitude;
+    }
+
+    /**
+     * Parse a UTC timestamp like "2018-03-24T14:41:09.371Z" from text[start, end). This is
+     * equivalent to Instant.parse(text.substring(start, end)) but the fixed-width fields of the
+     * common "yyyy-MM-ddTHH:mm:ss[.fraction]Z" layout are decoded in place. Less common layouts
+     * (e.g., zone offsets or leap seconds) are delegated to Instant.parse.
+     *
+     * @throws java.time.format.DateTimeParseException when the region does not contain a parsable
+     *                                                 Instant
+     */
+    public static Instant parseInstant(CharSequence text, int start, int end) {
+
+        if (end - start >= MIN_INSTANT_LENGTH && hasInstantLayout(text, start, end)) {
+            int year = parseDigits(text, start, start + 4);
+            int month = parseDigits(text, start + 5, start + 7);
+            int day = parseDigits(text, start + 8, start + 10);
+            int hour = parseDigits(text, start + 11, start + 13);
+            int minute = parseDigits(text, start + 14, start + 16);
+            int second = parseDigits(text, start + 17, start + 19);
+            int nanos = parseFraction(text, start + 19, end - 1);
+
+            if (year >= 0 && isValidDate(year, month, day) && isValidTime(hour, minute, second) && nanos >= 0) {
+                long secondOfDay = (hour * 60L + minute) * 60L + second;
+                return Instant.ofEpochSecond(
+                    epochDay(year, month, day) * SECONDS_PER_DAY + secondOfDay,
+                    nanos
+                );
+            }
+        }
+
+        return Instant.parse(text.subSequence(start, end));
+    }
+
+    private static boolean hasInstantLayout(CharSequence text, int start, int end) {
+        return text.charAt(start + 4) == '-'
+            && text.charAt(start + 7) == '-'
+            && text.charAt(start + 10) == 'T'
+            && text.charAt(start + 13) == ':'
+            && text.charAt(start + 16) == ':'
+            && text.charAt(end - 1) == 'Z';
+    }
+
+    /**
+     * @return The nanoseconds encoded by an optional fraction like ".371" in text[start, end), or
+     *     -1 if the region is not empty and not a decimal point followed by 1 to 9 digits.
+     */
+    private static int parseFraction(CharSequence text, int start, int end) {
+        if (start == end) {
+            return 0;
+        }
+        int numDigits = end - start - 1;
+        if (text.charAt(start) != '.' || numDigits < 1 || numDigits > 9) {
+            return -1;
+        }
+        int digits = parseDigits(text, start + 1, end);
+        return (digits < 0) ? -1 : digits * (int) POWERS_OF_TEN[9 - numDigits];
+    }
+
+    /**
+     * @return The value of the digits in text[start, end), or -1 if any character is not a digit.
+     */
+    public static int parseDigits(CharSequence text, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    /**
+     * Compute the epoch milliseconds of a UTC date and time without allocating intermediate
+     * objects (like LocalDate or ZonedDateTime).
+     *
+     * @throws DateTimeException when any field is out of range (e.g., month 13 or February 30th)
+     */
+    public static long epochMillis(int year, int month, int day, int hour, int minute, int second, int millis) {
+
+        if (!isValidTime(hour, minute, second) || millis < 0 || millis > 999) {
+            throw new DateTimeException("Invalid time: " + hour + ":" + minute + ":" + second + "." + millis);
+        }
+
+        long timeOfDay = ((hour * 60L + minute) * 60L + second) * 1000L + millis;
+
+        return epochDay(year, month, day) * MILLIS_PER_DAY + timeOfDay;
+    }
+
+    /**
+     * Compute the number of days between 1970-01-01 and the given (proleptic Gregorian) date. This
+     * is the same value as LocalDate.of(year, month, day).toEpochDay().
+     *
+     * @throws DateTimeException when the month or day is out of range
+     */
+    public static long epochDay(int year, int month, int day) {
+
+        if (!isValidDate(year, month, day)) {
+            throw new DateTimeException("Invalid date: " + year + "-" + month + "-" + day);
+        }
+
+        //Shift the year so it begins in March, this puts the leap day at the end of the year
+        long y = (month <= 2) ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        int monthFromMarch = (month + 9) % 12;
+        long dayOfYear = (153 * monthFromMarch + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+
+        //719468 = the number of days from 0000-03-01 to 1970-01-01
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /** @return True when the month is 1-12 and the day exists in that month (e.g., not Feb 30th). */
+    public static boolean isValidDate(int year, int month, int day) {
+        return month >= 1 && month <= 12 && day >= 1 && day <= lengthOfMonth(year, month);
+    }
+
+    /** @return True when the hour is 0-23 and the minute and second are 0-59 (no leap seconds). */
+    public static boolean isValidTime(int hour, int minute, int second) {
+        return hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59 && second >= 0 && second <= 59;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> isLeapYear(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+    }
+}
@@ -0,0 +1,451 @@
+package org.mitre.openaria.core.utils;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * A ParallelGzipDecoder decompresses a gzip File whose content may be split across multiple
+ * concatenated gzip "members" (e.g. files built with "cat a.gz b.gz > c.gz" or with bgzip).
+ * <p>
+ * The boundaries between gzip members are not recorded anywhere in the file. They are only known
+ * after a member is completely inflated. Therefore, this class speculates. The compressed bytes are
+ * scanned for sequences that look like gzip member headers. Each of these "candidate members" is
+ * inflated on a ForkJoinPool while the calling thread inflates the member at the current position.
+ * A speculative result is used only when a previous member ends exactly where the candidate begins
+ * AND the candidate's CRC32 and length match its trailer. False candidates (i.e. header-like bytes
+ * inside compressed data) are discarded, so the output is always identical to the output of
+ * GZIPInputStream.
+ * <p>
+ * Headers and member boundaries are also handled exactly like GZIPInputStream handles them. A
+ * header's optional CRC16 is verified, reserved flag bits are ignored, and bytes that follow a
+ * member are only decoded as another member when they begin with a complete, valid header. Any
+ * other trailing bytes are ignored.
+ * <p>
+ * Speculative results are held in memory until they are written. Consequently, the output of each
+ * speculative task is capped. Members that exceed this cap (including the sole member of an ordinary
+ * single-member file) are inflated sequentially, by the calling thread, with no cap.
+ */
+class ParallelGzipDecoder {
+
+    /** The maximum number of decompressed bytes one speculative task can hold in memory. */
+    static final int MAX_SPECULATIVE_OUTPUT = 8 * 1024 * 1024;
+
+    /** Candidate headers farther than this from the current position are not scanned for yet. */
+    static final int MAX_SCAN_AHEAD = 32 * 1024 * 1024;
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int RESERVED_FLAGS = 0xE0;
+
+    private final FileChannel channel;
+
+    private final long fileSize;
+
+    private final ForkJoinPool pool;
+
+    private final OutputStream sink;
+
+    /** Speculative decodes of candidate members, ordered by where each candidate begins. */
+    private final ArrayDeque<Speculation> speculations = new ArrayDeque<>();
+
+    private final HeaderScanner scanner;
+
+    private ParallelGzipDecoder(FileChannel channel, ForkJoinPool pool, OutputStream sink)
+        throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.pool = pool;
+        this.sink = sink;
+        this.scanner = new HeaderScanner();
+    }
+
+    /** Decompress every member of a gzip File and write the result to the sink (in order). */
+    static void decompress(File gzFile, OutputStream sink, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(gzFile.toPath(), StandardOpenOption.READ)) {
+            new ParallelGzipDecoder(channel, pool, sink).run();
+        }
+    }
+
+    private void run() throws IOException {
+
+        try {
+            long position = 0;
+            do {
+                scanner.skipTo(position + 1);
+                scheduleSpeculation(position);
+                position = writeMember(position);
+            } while (position < fileSize && hasMemberHeader(position));
+        } finally {
+            speculations.forEach(Speculation::cancel);
+            speculations.clear();
+        }
+    }
+
+    /* Keep one speculative task per thread running on candidates beyond the current position. */
+    private void scheduleSpeculation(long position) throws IOException {
+
+        while (!speculations.isEmpty() && speculations.peekFirst().start < position) {
+            speculations.pollFirst().cancel();
+        }
+
+        while (speculations.size() < pool.getParallelism()) {
+            long candidate = scanner.nextCandidate(position + MAX_SCAN_AHEAD);
+            if (candidate < 0) {
+                return;
+            }
+            Speculation spec = new Speculation(candidate);
+            spec.future = pool.submit(spec::decode);
+            speculations.addLast(spec);
+        }
+    }
+
+    /** Write the member that begins at "start" to the sink and return where that member ends. */
+    private long writeMember(long start) throws IOException {
+
+        Speculation head = speculations.peekFirst();
+        if (head != null && head.start == start) {
+            speculations.pollFirst();
+            SpeculativeResult result = head.await();
+            if (result != null) {
+                for (byte[] chunk : result.output) {
+                    sink.write(chunk);
+                }
+                return result.end;
+            }
+        }
+        //This member was never a candidate, or it was too big to decode speculatively
+        return inflateMember(new BlockReader(start), sink, Long.MAX_VALUE);
+    }
+
+    /*
+     * GZIPInputStream treats the bytes after a member as trailing garbage (and ignores them) when
+     * they do not begin with a complete, valid gzip header. A member with a valid header is decoded
+     * even if its compressed data turns out to be corrupt (that failure is reported).
+     */
+    private boolean hasMemberHeader(long position) {
+        try {
+            readHeader(new BlockReader(position));
+            return true;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Inflate the gzip member that begins at the reader's position. The decompressed bytes are
+     * written to the output.
+     *
+     * @return The file position immediately after the member's trailer
+     * @throws ZipException When the member is corrupt or does not match its CRC or length
+     */
+    private static long inflateMember(BlockReader in, OutputStream out, long maxOutput)
+        throws IOException {
+
+        readHeader(in);
+
+        Inflater inflater = new Inflater(true);
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[BLOCK_SIZE];
+        long totalOut = 0;
+
+        try {
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    in.feed(inflater);
+                }
+                int n = inflater.inflate(buffer);
+                if (n == 0 && inflater.needsDictionary()) {
+                    throw new ZipException("Unexpected preset dictionary");
+                }
+                crc.update(buffer, 0, n);
+                totalOut += n;
+                if (totalOut > maxOutput) {
+                    throw new OutputLimitExceeded();
+                }
+                out.write(buffer, 0, n);
+            }
+            in.unread(inflater.getRemaining());
+        } catch (DataFormatException dfe) {
+            throw new ZipException(dfe.getMessage());
+        } finally {
+            inflater.end();
+        }
+
+        long expectedCrc = in.readIntLE() & 0xFFFFFFFFL;
+        long expectedSize = in.readIntLE() & 0xFFFFFFFFL;
+        if (expectedCrc != crc.getValue()) {
+            throw new ZipException("Corrupt GZIP trailer (CRC mismatch)");
+        }
+        if (expectedSize != (totalOut & 0xFFFFFFFFL)) {
+            throw new ZipException("Corrupt GZIP trailer (size mismatch)");
+        }
+        return in.position();
+    }
+
+    /* See RFC 1952, section 2.3. This accepts (and rejects) the same headers GZIPInputStream does. */
+    private static void readHeader(BlockReader in) throws IOException {
+
+        CRC32 headerCrc = new CRC32();
+        in.checksum = headerCrc;
+
+        if (in.readUnsignedShortLE() != GZIP_MAGIC) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if (in.readUnsignedByte() != 8) {
+            throw new ZipException("Unsupported compression method");
+        }
+        int flags = in.readUnsignedByte();
+        in.skip(6); //MTIME, XFL, and OS
+
+        if ((flags & FEXTRA) != 0) {
+            in.skip(in.readUnsignedShortLE());
+        }
+        if ((flags & FNAME) != 0) {
+            while (in.readUnsignedByte() != 0) {
+                //skip the zero-terminated file name
+            }
+        }
+        if ((flags & FCOMMENT) != 0) {
+            while (in.readUnsignedByte() != 0) {
+                //skip the zero-terminated comment
+            }
+        }
+        in.checksum = null;
+
+        if ((flags & FHCRC) != 0 && in.readUnsignedShortLE() != (int) (headerCrc.getValue() & 0xFFFF)) {
+            throw new ZipException("Corrupt GZIP header");
+        }
+    }
+
+    /** Finds byte sequences that could be the beginning of a gzip member (in file order). */
+    private class HeaderScanner {
+
+        private BlockReader reader = new BlockReader(0);
+
+        /** The most recent 4 bytes. */
+        private int window;
+
+        /** The number of bytes in the window that belong to the current scan. */
+        private int windowSize;
+
+        void skipTo(long position) throws IOException {
+            if (reader.position() < position) {
+                this.reader = new BlockReader(position);
+                this.windowSize = 0;
+            }
+        }
+
+        /**
+         * @param limit Stop scanning at this file position (the scan resumes from here next time)
+         *
+         * @return The file position of the next candidate header, or -1 if there are none.
+         */
+        long nextCandidate(long limit) throws IOException {
+
+            while (reader.position() < limit) {
+                int b = reader.read();
+                if (b < 0) {
+                    return -1;
+                }
+                window = (window << 8) | b;
+                windowSize++;
+                //ID1 = 0x1f, ID2 = 0x8b, CM = 8 (deflate), FLG has no reserved bits. GZIPInputStream
+                //accepts members with reserved bits, those rare members are decoded sequentially
+                boolean looksLikeHeader = (window & 0xFFFFFF00) == 0x1f8b0800
+                    && (b & RESERVED_FLAGS) == 0;
+                if (windowSize >= 4 && looksLikeHeader) {
+                    return reader.position() - 4;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /** A speculative attempt to inflate the gzip member that (might) begin at a certain position. */
+    private class Speculation {
+
+        final long start;
+
+        Future<SpeculativeResult> future;
+
+        volatile boolean isCancelled;
+
+        Speculation(long start) {
+            this.start = start;
+        }
+
+        /* This method is executed on the ForkJoinPool. */
+        SpeculativeResult decode() {
+            if (isCancelled) {
+                return null;
+            }
+            ChunkCollector collector = new ChunkCollector(this);
+            try {
+                long end = inflateMember(new BlockReader(start), collector, MAX_SPECULATIVE_OUTPUT);
+                return new SpeculativeResult(collector.chunks, end);
+            } catch (IOException | RuntimeException ex) {
+                //A false candidate, a cancellation, or a member that is too big (or truly corrupt)
+                return null;
+            }
+        }
+
+        /** @return The result of this speculation, or null if it failed. */
+        SpeculativeResult await() throws InterruptedIOException {
+            try {
+                return future.get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException ee) {
+                return null;
+            }
+        }
+
+        void cancel() {
+            this.isCancelled = true;
+            future.cancel(false);
+        }
+    }
+
+    private record SpeculativeResult(List<byte[]> output, long end) {}
+
+    /** Collects the output of a Speculation (and abandons the work once it is cancelled). */
+    private static class ChunkCollector extends OutputStream {
+
+        private final Speculation owner;
+
+        private final List<byte[]> chunks = new ArrayList<>();
+
+        ChunkCollector(Speculation owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (owner.isCancelled) {
+                throw new InterruptedIOException("Speculation cancelled");
+            }
+            byte[] copy = new byte[len];
+            System.arraycopy(b, off, copy, 0, len);
+            chunks.add(copy);
+        }
+    }
+
+    /** Thrown when a speculative task decompresses more data than it is allowed to hold. */
+    private static class OutputLimitExceeded extends IOException {
+        OutputLimitExceeded() {
+            super("Speculative output limit exceeded");
+        }
+    }
+
+    /**
+     * Reads a FileChannel sequentially from an arbitrary start position. Positional reads do not
+     * move the channel's own position, so many BlockReaders can safely share one FileChannel.
+     */
+    private class BlockReader {
+
+        private final ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+
+        /** The file position of the first byte in the block. */
+        private long blockStart;
+
+        /** When set, every byte returned by read() is added to this checksum. */
+        private CRC32 checksum;
+
+        BlockReader(long start) {
+            this.blockStart = start;
+            block.limit(0);
+        }
+
+        long position() {
+            return blockStart + block.position();
+        }
+
+        /** @return The next byte (as an int from 0-255) or -1 at the end of the file. */
+        int read() throws IOException {
+            if (!block.hasRemaining() && !fill()) {
+                return -1;
+            }
+            int b = block.get() & 0xFF;
+            if (checksum != null) {
+                checksum.update(b);
+            }
+            return b;
+        }
+
+        int readUnsignedByte() throws IOException {
+            int b = read();
+            if (b < 0) {
+                throw new EOFException("Unexpected end of GZIP data");
+            }
+            return b;
+        }
+
+        int readUnsignedShortLE() throws IOException {
+            return readUnsignedByte() | (readUnsignedByte() << 8);
+        }
+
+        int readIntLE() throws IOException {
+            return readUnsignedShortLE() | (readUnsignedShortLE() << 16);
+        }
+
+        void skip(int numBytes) throws IOException {
+            for (int i = 0; i < numBytes; i++) {
+                readUnsignedByte();
+            }
+        }
+
+        /** Give every remaining byte of the current block to the Inflater. */
+        void feed(Inflater inflater) throws IOException {
+            if (!block.hasRemaining() && !fill()) {
+                throw new EOFException("Unexpected end of GZIP data");
+            }
+            inflater.setInput(block.array(), block.position(), block.remaining());
+            block.position(block.limit());
+        }
+
+        /** Return bytes the Inflater did not use (i.e. the trailer) to this reader. */
+        void unread(int numBytes) {
+            block.position(block.position() - numBytes);
+        }
+
+        private boolean fill() throws IOException {
+            long next = position();
+            if (next >= fileSize) {
+                return false;
+            }
+            block.clear();
+            int numRead = channel.read(block, next);
+            block.flip();
+            this.blockStart = next;
+            return numRead > 0;
+        }
+    }
+}
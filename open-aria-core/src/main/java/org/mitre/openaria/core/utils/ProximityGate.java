@@ -0,0 +1,125 @@
+package org.mitre.openaria.core.utils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.mitre.caasd.commons.Spherical.distanceInNM;
+
+import org.mitre.caasd.commons.LatLong;
+
+/**
+ * A ProximityGate answers "Are these two locations within X NM of each other?" without computing a
+ * great-circle distance in the common case.
+ * <p>
+ * The gate first makes a flat-earth estimate of the distance (the longitude delta is scaled by the
+ * cosine of the mean latitude, which comes from a precomputed table). This estimate is extremely
+ * accurate for the short distances we care about. When the estimate is clearly below, or clearly
+ * above, the threshold the answer is returned immediately. Only estimates that land near the
+ * threshold (or locations close to the poles) fall back to the exact Spherical.distanceInNM
+ * computation. Consequently, a ProximityGate always gives the same answer as the exact computation.
+ * <p>
+ * A ProximityGate is immutable and thread-safe.
+ */
+public class ProximityGate {
+
+    private static final double NM_PER_DEGREE = 60.0;
+
+    /* Flat-earth estimates within 5% of the threshold are not trusted. */
+    private static final double MARGIN = 0.05;
+
+    /* Near the poles the cosine changes too quickly, these locations always get the exact check. */
+    private static final double MAX_TABLE_LATITUDE = 70.0;
+
+    private static final int STEPS_PER_DEGREE = 10;
+
+    /* COSINES[i] = cos(i / STEPS_PER_DEGREE degrees), the last entry is only used to interpolate. */
+    private static final double[] COSINES = cosineTable();
+
+    private static double[] cosineTable() {
+        double[] table = new double[(int) MAX_TABLE_LATITUDE * STEPS_PER_DEGREE + 2];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = Math.cos(Math.toRadians((double) i / STEPS_PER_DEGREE));
+        }
+        return table;
+    }
+
+    private static final int NEAR = -1;
+
+    private static final int UNKNOWN = 0;
+
+    private static final int FAR = 1;
+
+    private final double maxDistInNm;
+
+    /* Squared flat-earth distances (in degrees^2) below this are definitely within maxDistInNm. */
+    private final double clearlyNearSq;
+
+    /* Squared flat-earth distances (in degrees^2) above this are definitely beyond maxDistInNm. */
+    private final double clearlyFarSq;
+
+    /** @param maxDistInNm The distance threshold this gate tests against */
+    public ProximityGate(double maxDistInNm) {
+        checkArgument(maxDistInNm >= 0, "The max distance must be non-negative");
+        this.maxDistInNm = maxDistInNm;
+
+        double nearDegrees = maxDistInNm * (1.0 - MARGIN) / NM_PER_DEGREE;
+        double farDegrees = maxDistInNm * (1.0 + MARGIN) / NM_PER_DEGREE;
+        this.clearlyNearSq = nearDegrees * nearDegrees;
+        this.clearlyFarSq = farDegrees * farDegrees;
+    }
+
+    public double maxDistInNm() {
+        return maxDistInNm;
+    }
+
+    /** @return True when distanceInNM(one, two) < maxDistInNm. */
+    public boolean isCloserThan(LatLong one, LatLong two) {
+        int verdict = flatEarthVerdict(one, two);
+        return (verdict == UNKNOWN)
+            ? distanceInNM(one, two) < maxDistInNm
+            : verdict == NEAR;
+    }
+
+    /** @return True when distanceInNM(one, two) <= maxDistInNm. */
+    public boolean isWithin(LatLong one, LatLong two) {
+        int verdict = flatEarthVerdict(one, two);
+        return (verdict == UNKNOWN)
+            ? distanceInNM(one, two) <= maxDistInNm
+            : verdict == NEAR;
+    }
+
+    private int flatEarthVerdict(LatLong one, LatLong two) {
+
+        double dLat = two.latitude() - one.latitude();
+        double dLatSq = dLat * dLat;
+
+        //the great-circle distance is never less than the latitude delta (at any latitude)
+        if (dLatSq > clearlyFarSq) {
+            return FAR;
+        }
+
+        double meanLat = Math.abs(one.latitude() + two.latitude()) / 2.0;
+        if (meanLat > MAX_TABLE_LATITUDE) {
+            return UNKNOWN;
+        }
+
+        double dLong = Math.abs(two.longitude() - one.longitude());
+        if (dLong > 180.0) {
+            dLong = 360.0 - dLong; //crossing the anti-meridian
+        }
+
+        double dx = dLong * cosine(meanLat);
+        double distSq = dx * dx + dLatSq;
+
+        if (distSq < clearlyNearSq) {
+            return NEAR;
+        }
+        return (distSq > clearlyFarSq) ? FAR : UNKNOWN;
+    }
+
+    /* Linearly interpolate the cosine table, latitude must be in [0, MAX_TABLE_LATITUDE]. */
+    private static double cosine(double latitude) {
+        double index = latitude * STEPS_PER_DEGREE;
+        int i = (int) index;
+        double frac = index - i;
+        return COSINES[i] + (COSINES[i + 1] - COSINES[i]) * frac;
+    }
+}
@@ -0,0 +1,277 @@
+package org.mitre.openaria.core.utils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.mitre.caasd.commons.util.DemotedException.demote;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A ReadAheadInputStream moves the work of producing bytes (e.g. gzip decompression) off the thread
+ * that consumes those bytes. A dedicated "read-ahead" thread writes into a bounded ring of reusable
+ * byte buffers while the consuming thread (e.g. a NopParser feeding a StreamingKpi) reads from
+ * that ring.
+ * <p>
+ * The ring has a fixed number of buffers. Consequently, the read-ahead thread blocks (rather than
+ * consuming more memory) when it gets too far ahead of the consumer. Any IOException thrown on the
+ * read-ahead thread is rethrown to the consumer by the next call to read().
+ * <p>
+ * A ReadAheadInputStream should always be closed. Closing the stream stops the read-ahead thread
+ * even if the stream was not read to completion.
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    public static final int DEFAULT_NUM_BUFFERS = 8;
+
+    /** The sentinel placed in the ring after the final chunk of data. */
+    private static final Chunk END_OF_STREAM = new Chunk(new byte[0], 0, null);
+
+    /** Work that produces all the bytes this stream will provide. */
+    @FunctionalInterface
+    public interface Source {
+        void writeTo(OutputStream sink) throws IOException;
+    }
+
+    /** Full buffers waiting to be read (in order). */
+    private final BlockingQueue<Chunk> filled;
+
+    /** Empty buffers waiting to be reused by the read-ahead thread. */
+    private final BlockingQueue<byte[]> empty;
+
+    private final Thread readAheadThread;
+
+    private Chunk current;
+
+    private int position;
+
+    private boolean isClosed;
+
+    /**
+     * @param source     The work that produces the bytes. This is executed on a new thread.
+     * @param bufferSize The size of each buffer in the ring
+     * @param numBuffers The number of buffers in the ring
+     */
+    public ReadAheadInputStream(Source source, int bufferSize, int numBuffers) {
+        checkNotNull(source);
+        checkArgument(bufferSize > 0, "The bufferSize must be positive");
+        checkArgument(numBuffers >= 2, "The ring must have at least 2 buffers");
+
+        //leave room for the END_OF_STREAM sentinel (or a failure) when every buffer is full
+        this.filled = new ArrayBlockingQueue<>(numBuffers + 1);
+        this.empty = new ArrayBlockingQueue<>(numBuffers);
+        for (int i = 0; i < numBuffers; i++) {
+            empty.add(new byte[bufferSize]);
+        }
+
+        this.readAheadThread = new Thread(() -> produce(source), "read-ahead");
+        this.readAheadThread.setDaemon(true);
+        this.readAheadThread.start();
+    }
+
+    /** Copy an InputStream (e.g. a GZIPInputStream) on a dedicated read-ahead thread. */
+    public static ReadAheadInputStream of(InputStream in) {
+        checkNotNull(in);
+        return new ReadAheadInputStream(
+            sink -> {
+                try (in) {
+                    in.transferTo(sink);
+                }
+            },
+            DEFAULT_BUFFER_SIZE,
+            DEFAULT_NUM_BUFFERS
+        );
+    }
+
+    /**
+     * Decompress a gzip File on a dedicated read-ahead thread. When the File contains multiple
+     * concatenated gzip members those members are decompressed in parallel using the common
+     * ForkJoinPool (see ParallelGzipDecoder).
+     */
+    public static ReadAheadInputStream decompressing(File gzFile) {
+        checkNotNull(gzFile);
+        checkArgument(gzFile.isFile(), "Input file (" + gzFile.getName() + ") is not a file");
+
+        return new ReadAheadInputStream(
+            sink -> ParallelGzipDecoder.decompress(gzFile, sink, ForkJoinPool.commonPool()),
+            DEFAULT_BUFFER_SIZE,
+            DEFAULT_NUM_BUFFERS
+        );
+    }
+
+    /**
+     * @return A BufferedReader for the File. Compressed files (i.e. ".gz" files) are decompressed
+     *     on a read-ahead thread. Every file is decoded with the platform's default charset, just
+     *     like FileUtils.createReaderFor, so a File produces the same text either way.
+     */
+    public static BufferedReader readerFor(File file) {
+
+        try {
+            InputStream in = file.getName().endsWith(".gz")
+                ? decompressing(file)
+                : new FileInputStream(file);
+            return new BufferedReader(new InputStreamReader(in, Charset.defaultCharset()));
+        } catch (IOException ex) {
+            throw demote("Problem creating reader for: " + file.getAbsolutePath(), ex);
+        }
+    }
+
+    /* This method is executed on the read-ahead thread. */
+    private void produce(Source source) {
+        try {
+            RingWriter writer = new RingWriter();
+            source.writeTo(writer);
+            writer.flushPartialBuffer();
+            filled.put(END_OF_STREAM);
+        } catch (InterruptedException | InterruptedIOException ie) {
+            //the consumer closed this stream, there is no one left to tell
+        } catch (Throwable t) {
+            //Ensure the consumer sees the failure. This put cannot block if the consumer is gone
+            filled.offer(new Chunk(null, 0, t));
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int n = read(single, 0, 1);
+        return (n == -1) ? -1 : (single[0] & 0xFF);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureDataAvailable()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current.buffer, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return (current == null || current == END_OF_STREAM) ? 0 : current.length - position;
+    }
+
+    /** @return true when the "current" Chunk has unread data, false at the end of the stream. */
+    private boolean ensureDataAvailable() throws IOException {
+
+        if (isClosed) {
+            throw new IOException("Stream closed");
+        }
+
+        while (current == null || position == current.length) {
+            if (current == END_OF_STREAM) {
+                return false;
+            }
+            if (current != null) {
+                empty.offer(current.buffer);
+            }
+            current = takeNextChunk();
+            position = 0;
+
+            if (current.failure != null) {
+                Throwable failure = current.failure;
+                current = END_OF_STREAM;
+                throw (failure instanceof IOException ioe)
+                    ? ioe
+                    : new IOException("Read-ahead failed", failure);
+            }
+        }
+        return true;
+    }
+
+    private Chunk takeNextChunk() throws InterruptedIOException {
+        try {
+            return filled.take();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for read-ahead data");
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!isClosed) {
+            isClosed = true;
+            readAheadThread.interrupt();
+            filled.clear();
+            empty.clear();
+        }
+    }
+
+    /** A buffer from the ring and the number of valid bytes it contains. */
+    private record Chunk(byte[] buffer, int length, Throwable failure) {}
+
+    /** An OutputStream that fills buffers from the ring and hands them to the consumer. */
+    private class RingWriter extends OutputStream {
+
+        private byte[] buffer;
+
+        private int count;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (buffer == null) {
+                    buffer = takeEmptyBuffer();
+                    count = 0;
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+
+                if (count == buffer.length) {
+                    handOff();
+                }
+            }
+        }
+
+        void flushPartialBuffer() throws IOException {
+            if (buffer != null && count > 0) {
+                handOff();
+            }
+        }
+
+        private void handOff() throws InterruptedIOException {
+            try {
+                filled.put(new Chunk(buffer, count, null));
+            } catch (InterruptedException ie) {
+                throw new InterruptedIOException();
+            }
+            buffer = null;
+            count = 0;
+        }
+
+        private byte[] takeEmptyBuffer() throws InterruptedIOException {
+            try {
+                return empty.take();
+            } catch (InterruptedException ie) {
+                throw new InterruptedIOException();
+            }
+        }
+    }
+}
@@ -34,6 +34,21 @@ public class TimeUtils {
         }
     }
 
+    /**
+     * Compute the nanoseconds between two Instants without allocating a Duration. The result is
+     * negative when end is before start. The result overflows when the Instants are more than
+     * about 292 years apart.
+     *
+     * @param start The first Instant
+     * @param end   The second Instant
+     *
+     * @return The number of nanoseconds from start to end
+     */
+    public static long nanosBetween(Instant start, Instant end) {
+        return (end.getEpochSecond() - start.getEpochSecond()) * 1_000_000_000L
+            + (end.getNano() - start.getNano());
+    }
+
     /**
      * Convert an Instant to a String that contains the date and time.
      *
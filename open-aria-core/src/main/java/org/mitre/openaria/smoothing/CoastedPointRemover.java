@@ -9,6 +9,7 @@ import java.util.TreeSet;
 import org.mitre.caasd.commons.DataCleaner;
 import org.mitre.openaria.core.Point;
 import org.mitre.openaria.core.Track;
+import org.mitre.openaria.core.formats.ariabin.AriaBinHit;
 import org.mitre.openaria.core.formats.nop.CenterRadarHit;
 import org.mitre.openaria.core.formats.nop.NopHit;
 import org.mitre.openaria.core.formats.nop.StarsRadarHit;
@@ -29,6 +30,10 @@ public class CoastedPointRemover<T> implements DataCleaner<Track<T>> {
 
     public static <T> boolean isCoasted(Point<T> p) {
 
+        if (p.rawData() instanceof AriaBinHit bin) {
+            return bin.isCoasted();
+        }
+
         if (p.rawData() instanceof NopHit nop) {
             if (nop.rawMessage() instanceof CenterRadarHit crh) {
                 return CenterSmoothing.isCoastedRadarHit(crh);
@@ -13,6 +13,7 @@ import org.mitre.caasd.commons.DataCleaner;
 import org.mitre.caasd.commons.Distance;
 import org.mitre.caasd.commons.LatLong;
 import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.TimeSortedPoints;
 import org.mitre.openaria.core.Track;
 
 import org.apache.commons.math3.stat.regression.SimpleRegression;
@@ -38,11 +39,12 @@ public class LateralOutlierDetector<T> implements DataCleaner<Track<T>> {
     public NavigableSet<Point<T>> getOutliers(Track<T> track) {
 
         TreeSet<Point<T>> outliers = new TreeSet<>();
+        TimeSortedPoints<T> points = track.timeSortedPoints();
 
-        // the for loop is wonky due to the raw type, probably could be improved
-        for (Point<T> point : track.points()) {
+        for (int i = 0; i < points.size(); i++) {
 
-            LateralAnalysisResult result = analyzePoint(point, track);
+            Point<T> point = points.get(i);
+            LateralAnalysisResult result = analyzePoint(point, points);
 
             if (result.isOutlier) {
                 outliers.add(point);
@@ -64,23 +66,22 @@ public class LateralOutlierDetector<T> implements DataCleaner<Track<T>> {
      * rSquared of the regression AND the Mean Squared Error of the full regression is "relevant".
      *
      * @param testPoint A single point within the track
-     * @param track     The source track
+     * @param points    The source track's Points
      *
      * @return A LateralAnalysisResult object that tells us if the testPoint is an outlier.
      */
-    private LateralAnalysisResult analyzePoint(Point<T> testPoint, Track<T> track) {
+    private LateralAnalysisResult analyzePoint(Point<T> testPoint, TimeSortedPoints<T> points) {
 
-        Collection<Point<T>> pointsNearby = track.kNearestPoints(
-            testPoint.time(),
-            REQUIRED_SAMPLE_SIZE
-        );
-
-        if (pointsNearby.size() < REQUIRED_SAMPLE_SIZE) {
+        if (points.size() < REQUIRED_SAMPLE_SIZE) {
             //When the sample size is small do not declare outliers and do not provide predictions
             return new LateralAnalysisResult(false);
         }
 
-        LateralRegression<T> localRegression = new LateralRegression<>(pointsNearby, testPoint);
+        int start = points.kNearestStart(testPoint.time(), REQUIRED_SAMPLE_SIZE);
+
+        LateralRegression<T> localRegression = new LateralRegression<>(
+            points, start, start + REQUIRED_SAMPLE_SIZE, testPoint
+        );
 
 //        return oldMethod(localRegression, testPoint);
         return newMethod(localRegression, testPoint);
@@ -179,19 +180,20 @@ public class LateralOutlierDetector<T> implements DataCleaner<Track<T>> {
     }
 
     /*
-     * A LateralRegression puts LatLong locations from a collection of Points into two Regressions
-     * (one for latitude, one for longitude).
+     * A LateralRegression puts LatLong locations from a window of Points into two Regressions (one
+     * for latitude, one for longitude).
      */
     private static class LateralRegression<T> {
 
         SimpleRegression latRegression;
         SimpleRegression longRegression;
 
-        LateralRegression(Collection<Point<T>> points, Point<T> testPoint) {
+        LateralRegression(TimeSortedPoints<T> points, int start, int end, Point<T> testPoint) {
             this.latRegression = new SimpleRegression();
             this.longRegression = new SimpleRegression();
 
-            for (Point<T> point : points) {
+            for (int i = start; i < end; i++) {
+                Point<T> point = points.get(i);
                 if (point == testPoint) {
                     continue;
                 }
@@ -3,16 +3,15 @@ package org.mitre.openaria.smoothing;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.Math.abs;
-import static java.util.stream.Collectors.toCollection;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Optional;
 import java.util.TreeSet;
 
 import org.mitre.caasd.commons.DataCleaner;
 import org.mitre.caasd.commons.Distance;
 import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.TimeSortedPoints;
 import org.mitre.openaria.core.Track;
 
 import org.apache.commons.math3.stat.regression.SimpleRegression;
@@ -37,12 +36,19 @@ public class VerticalOutlierDetector<T> implements DataCleaner<Track<T>> {
      */
     public ArrayList<AnalysisResult<T>> getOutliers(Track<T> track) {
 
-        // the stream is wonky due to the raw type, probably could be improved
+        ArrayList<AnalysisResult<T>> outliers = new ArrayList<>();
+        TimeSortedPoints<T> points = track.timeSortedPoints();
 
-        return track.points().stream()
-            .map(point -> analyzePoint(point, track))
-            .filter(analysisResult -> analysisResult.isOutlier())
-            .collect(toCollection(ArrayList::new));
+        for (int i = 0; i < points.size(); i++) {
+
+            AnalysisResult<T> result = analyzePoint(points.get(i), points);
+
+            if (result.isOutlier()) {
+                outliers.add(result);
+            }
+        }
+
+        return outliers;
     }
 
     /**
@@ -81,23 +87,22 @@ public class VerticalOutlierDetector<T> implements DataCleaner<Track<T>> {
      * rSquared of the regression AND the Mean Squared Error of the full regression is "relevant".
      *
      * @param testPoint A single point within the track
-     * @param track     The source track
+     * @param points    The source track's Points
      *
      * @return An AnalysisResult object that summarizes the altitude analysis.
      */
-    private AnalysisResult<T> analyzePoint(Point<T> testPoint, Track<T> track) {
+    private AnalysisResult<T> analyzePoint(Point<T> testPoint, TimeSortedPoints<T> points) {
 
-        Collection<Point<T>> pointsNearby = track.kNearestPoints(
-            testPoint.time(),
-            REQUIRED_SAMPLE_SIZE
-        );
-
-        if (pointsNearby.size() < REQUIRED_SAMPLE_SIZE) {
+        if (points.size() < REQUIRED_SAMPLE_SIZE) {
             //When the sample size is small do not declare outliers and do not provide predictions
             return new AnalysisResult<>(testPoint);
         }
 
-        SimpleRegression regression = regressionWithoutTestPoint(pointsNearby, testPoint);
+        int start = points.kNearestStart(testPoint.time(), REQUIRED_SAMPLE_SIZE);
+
+        SimpleRegression regression = regressionWithoutTestPoint(
+            points, start, start + REQUIRED_SAMPLE_SIZE, testPoint
+        );
 
         //use the regression to predict the "correct" altitude
         double predictedAltitude = regression.predict(testPoint.time().toEpochMilli());
@@ -167,18 +172,22 @@ public class VerticalOutlierDetector<T> implements DataCleaner<Track<T>> {
     }
 
     /**
-     * Create a Linear Regression that from all these input points except for the testPoint.
+     * Create a Linear Regression that from all the points in a window except for the testPoint.
      *
-     * @param localPoints A set of points that are near the test point
-     * @param testPoint   A point that will be excluded from the regression
+     * @param points    The source track's Points
+     * @param start     The index of the first point near the test point
+     * @param end       The index after the last point near the test point
+     * @param testPoint A point that will be excluded from the regression
      *
      * @return A simple linear regression that regresses altitude vs. time from the points supplied.
      */
-    private SimpleRegression regressionWithoutTestPoint(Collection<Point<T>> localPoints, Point<T> testPoint) {
+    private SimpleRegression regressionWithoutTestPoint(TimeSortedPoints<T> points, int start, int end, Point<T> testPoint) {
 
         SimpleRegression regression = new SimpleRegression();
 
-        for (Point<T> localPoint : localPoints) {
+        for (int i = start; i < end; i++) {
+
+            Point<T> localPoint = points.get(i);
 
             //don't include the test point
             if (localPoint == testPoint) {
@@ -16,6 +16,7 @@ import java.util.function.Consumer;
 
 import org.mitre.caasd.commons.ConsumingCollections.ConsumingArrayList;
 import org.mitre.caasd.commons.HasTime;
+import org.mitre.openaria.core.ApproximateTimeSorter.BufferType;
 
 import com.google.common.collect.Lists;
 import org.junit.jupiter.api.Test;
@@ -274,4 +275,87 @@ public class ApproximateTimeSorterTest {
             //suppress the expected exception
         }
     }
+
+    @Test
+    public void acceptAllEvictsSortedBatches() {
+
+        List<List<TimePojo>> receivedBatches = new ArrayList<>();
+        BatchConsumer<TimePojo> downstream = new BatchConsumer<>() {
+            @Override
+            public void accept(TimePojo timePojo) {
+                fail("Batches should be delivered via acceptAll");
+            }
+
+            @Override
+            public void acceptAll(List<? extends TimePojo> batch) {
+                receivedBatches.add(new ArrayList<>(batch));
+            }
+        };
+
+        ApproximateTimeSorter<TimePojo> sorter = new ApproximateTimeSorter<>(Duration.ofSeconds(10), downstream);
+
+        sorter.acceptAll(testData());
+
+        //everything evicted by the batch arrives at once (and in the same order accept(T) would produce)
+        assertThat(receivedBatches, hasSize(1));
+        assertThat(
+            receivedBatches.get(0).stream().map(TimePojo::time).toList(),
+            contains(EPOCH, EPOCH.plusSeconds(1), EPOCH.plusSeconds(4), EPOCH.plusSeconds(5),
+                EPOCH.plusSeconds(10), EPOCH.plusSeconds(11), EPOCH.plusSeconds(12))
+        );
+        assertThat(sorter.numRecordsInQueue(), is(2));
+        assertThat(sorter.sizeHighWaterMark(), is(6));
+    }
+
+    @Test
+    public void acceptAllMatchesAcceptingEachItem() {
+
+        //EPOCH is evicted by EPOCH+20, evicting once per batch (using the last item) would keep it
+        List<TimePojo> input = List.of(
+            new TimePojo(EPOCH),
+            new TimePojo(EPOCH.plusSeconds(20)),
+            new TimePojo(EPOCH.plusSeconds(5)),
+            new TimePojo(EPOCH.plusSeconds(3)),
+            new TimePojo(EPOCH.plusSeconds(31)),
+            new TimePojo(EPOCH.plusSeconds(22))
+        );
+
+        ConsumingArrayList<TimePojo> singles = newConsumingArrayList();
+        ApproximateTimeSorter<TimePojo> singleSorter = new ApproximateTimeSorter<>(Duration.ofSeconds(10), singles);
+        input.forEach(singleSorter);
+
+        ConsumingArrayList<TimePojo> batched = newConsumingArrayList();
+        ApproximateTimeSorter<TimePojo> batchSorter = new ApproximateTimeSorter<>(Duration.ofSeconds(10), batched);
+        batchSorter.acceptAll(input);
+
+        assertThat(batched, is(singles));
+        assertThat(batched.get(0).time(), is(EPOCH));
+        assertThat(batchSorter.numRecordsInQueue(), is(singleSorter.numRecordsInQueue()));
+        assertThat(batchSorter.sizeHighWaterMark(), is(singleSorter.sizeHighWaterMark()));
+    }
+
+    @Test
+    public void calendarQueueBufferMatchesPriorityQueueBuffer() {
+
+        TimeOrderVerifyingConsumer heapOutput = new TimeOrderVerifyingConsumer();
+        TimeOrderVerifyingConsumer calendarOutput = new TimeOrderVerifyingConsumer();
+
+        Duration maxLag = Duration.ofSeconds(10);
+        ApproximateTimeSorter<TimePojo> heapSorter = new ApproximateTimeSorter<>(maxLag, heapOutput);
+        ApproximateTimeSorter<TimePojo> calendarSorter = new ApproximateTimeSorter<>(
+            maxLag, calendarOutput, BufferType.CALENDAR_QUEUE
+        );
+
+        for (TimePojo pojo : testData()) {
+            heapSorter.accept(pojo);
+            calendarSorter.accept(pojo);
+            assertEquals(heapOutput.size(), calendarOutput.size());
+            assertEquals(heapSorter.numRecordsInQueue(), calendarSorter.numRecordsInQueue());
+        }
+        heapSorter.flush();
+        calendarSorter.flush();
+
+        assertEquals(heapOutput.timePojos, calendarOutput.timePojos);
+        assertEquals(heapSorter.sizeHighWaterMark(), calendarSorter.sizeHighWaterMark());
+    }
 }
@@ -0,0 +1,131 @@
+package org.mitre.openaria.core;
+
+import static java.time.Instant.EPOCH;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.mitre.caasd.commons.HasTime;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Test;
+
+public class CalendarQueueTest {
+
+    record TimePojo(Instant time) implements HasTime {}
+
+    @Test
+    public void pollsDataInTimeOrder() {
+
+        Random rng = new Random(17L);
+        CalendarQueue<TimePojo> queue = new CalendarQueue<>(Duration.ofSeconds(1), Duration.ofSeconds(30));
+
+        //nearly sorted input with occasional stragglers that are much older
+        List<TimePojo> input = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            long jitter = (i % 100 == 0) ? -rng.nextInt(300_000) : rng.nextInt(5_000);
+            input.add(new TimePojo(EPOCH.plusMillis(i * 50L + jitter)));
+        }
+        queue.addAll(input);
+
+        List<TimePojo> expected = new ArrayList<>(input);
+        expected.sort(Comparator.comparing(TimePojo::time));
+
+        assertThat(queue.size(), is(input.size()));
+        for (TimePojo pojo : expected) {
+            assertThat(queue.peek().time(), is(pojo.time()));
+            assertThat(queue.poll().time(), is(pojo.time()));
+        }
+        assertThat(queue.isEmpty(), is(true));
+        assertThat(queue.poll(), nullValue());
+    }
+
+    @Test
+    public void addingToThePartiallyPolledBucketKeepsItSorted() {
+
+        CalendarQueue<TimePojo> queue = new CalendarQueue<>(Duration.ofSeconds(10), Duration.ofSeconds(10));
+        queue.add(new TimePojo(EPOCH.plusSeconds(5)));
+        queue.add(new TimePojo(EPOCH.plusSeconds(1)));
+        queue.add(new TimePojo(EPOCH.plusSeconds(8)));
+
+        assertThat(queue.poll().time(), is(EPOCH.plusSeconds(1)));
+
+        //same bucket as the data being drained, but still newer than the data already polled
+        queue.add(new TimePojo(EPOCH.plusSeconds(6)));
+        queue.add(new TimePojo(EPOCH.plusSeconds(2)));
+
+        assertThat(queue.poll().time(), is(EPOCH.plusSeconds(2)));
+        assertThat(queue.poll().time(), is(EPOCH.plusSeconds(5)));
+        assertThat(queue.poll().time(), is(EPOCH.plusSeconds(6)));
+        assertThat(queue.poll().time(), is(EPOCH.plusSeconds(8)));
+    }
+
+    @Test
+    public void wideTimeSpansArePolledInTimeOrder() {
+
+        //the initial ring is far too small for 3 days of data
+        CalendarQueue<TimePojo> queue = new CalendarQueue<>(Duration.ofSeconds(1), Duration.ZERO);
+        TimePojo a = new TimePojo(EPOCH.plus(Duration.ofDays(2)));
+        TimePojo b = new TimePojo(EPOCH);
+        TimePojo c = new TimePojo(EPOCH.plus(Duration.ofDays(3)));
+        queue.add(a);
+        queue.add(b);
+        queue.add(c);
+
+        assertThat(Lists.newArrayList(queue), containsInAnyOrder(a, b, c));
+        assertThat(queue.poll(), is(b));
+        assertThat(queue.poll(), is(a));
+        assertThat(queue.poll(), is(c));
+    }
+
+    @Test
+    public void ringGrowsToFitSpansNearTheExpectedSpan() {
+
+        CalendarQueue<TimePojo> queue = new CalendarQueue<>(Duration.ofSeconds(1), Duration.ofSeconds(30));
+        for (int i = 0; i < 120; i++) {
+            queue.add(new TimePojo(EPOCH.plusSeconds(i)));
+        }
+
+        assertThat(queue.numBuckets(), is(128));
+    }
+
+    @Test
+    public void outliersDoNotGrowTheRing() {
+
+        CalendarQueue<TimePojo> queue = new CalendarQueue<>(Duration.ofSeconds(1), Duration.ofSeconds(30));
+        int initialNumBuckets = queue.numBuckets();
+
+        Instant now = Instant.parse("2024-06-01T12:00:00Z");
+        TimePojo epochZero = new TimePojo(EPOCH);
+        TimePojo badYear = new TimePojo(Instant.parse("9024-06-01T12:00:00Z"));
+
+        List<TimePojo> input = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            input.add(new TimePojo(now.plusMillis(i * 250L)));
+        }
+        queue.add(epochZero);
+        queue.addAll(input);
+        queue.add(badYear);
+
+        assertThat(queue.size(), is(102));
+        assertThat(queue.numBuckets(), is(initialNumBuckets));
+        assertThat(Lists.newArrayList(queue), containsInAnyOrder(Lists.asList(epochZero, badYear, input.toArray(new TimePojo[0])).toArray()));
+
+        //the ring recenters on the regular data once epochZero drains
+        assertThat(queue.poll(), is(epochZero));
+        for (TimePojo pojo : input) {
+            assertThat(queue.poll(), is(pojo));
+        }
+        assertThat(queue.poll(), is(badYear));
+        assertThat(queue.isEmpty(), is(true));
+        assertThat(queue.numBuckets(), is(initialNumBuckets));
+    }
+}
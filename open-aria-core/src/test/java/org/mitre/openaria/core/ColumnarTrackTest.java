@@ -0,0 +1,113 @@
+package org.mitre.openaria.core;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mitre.caasd.commons.fileutil.FileUtils.getResourceFile;
+import static org.mitre.openaria.core.Tracks.createTrackFromFile;
+import static org.mitre.openaria.core.formats.nop.NopParsingUtils.parseNopTime;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.NavigableSet;
+
+import org.mitre.caasd.commons.TimeWindow;
+import org.mitre.openaria.core.formats.nop.NopHit;
+
+import com.google.common.collect.ImmutableSortedSet;
+import org.junit.jupiter.api.Test;
+
+public class ColumnarTrackTest {
+
+    @Test
+    public void columnarTrackMatchesTrackOf() {
+
+        Track<NopHit> source = createTrackFromFile(getResourceFile("Track1.txt"));
+
+        //with one duplicate, which is removed (just like Track.of)
+        List<Point<NopHit>> points = newArrayList(source.points());
+        points.add(5, points.get(5));
+
+        Track<NopHit> columnar = Track.ofColumnar(points);
+        Track<NopHit> sorted = Track.of(points);
+
+        assertThat(columnar.size(), is(source.size()));
+        assertThat(newArrayList(columnar.points()), is(newArrayList(sorted.points())));
+        assertThat(columnar.points(), is(sorted.points()));
+        assertThat(columnar.trackId(), is(sorted.trackId()));
+        assertThat(columnar.callsign(), is(sorted.callsign()));
+        assertThat(columnar.asTimeWindow(), is(sorted.asTimeWindow()));
+
+        Instant time = parseNopTime("07/08/2017", "14:11:59.454");
+        assertThat(columnar.kNearestPoints(time, 5), is(sorted.kNearestPoints(time, 5)));
+        assertThat(columnar.interpolatedPoint(time), is(sorted.interpolatedPoint(time)));
+        assertThat(columnar.interpolatedPoint(time.plusMillis(1_234)), is(sorted.interpolatedPoint(time.plusMillis(1_234))));
+
+        TimeWindow window = TimeWindow.of(time.minusSeconds(60), time.plusSeconds(60));
+        assertThat(columnar.subset(window), is(sorted.subset(window)));
+    }
+
+    @Test
+    public void navigationMatchesAnImmutableSortedSet() {
+
+        Track<NopHit> source = createTrackFromFile(getResourceFile("Track1.txt"));
+        ColumnarTrack<NopHit> columnar = ColumnarTrack.of(source.points());
+        NavigableSet<Point<NopHit>> expected = ImmutableSortedSet.copyOf(source.points());
+
+        Instant start = source.startTime().minusSeconds(10);
+        Instant end = source.endTime().plusSeconds(10);
+
+        //probe with every Point in the track and with Points in between
+        for (Instant t = start; t.isBefore(end); t = t.plusMillis(2_345)) {
+            Point<NopHit> probe = Point.builder(source.points().first()).time(t).build();
+            confirmSameNavigation(columnar, expected, probe);
+        }
+        for (Point<NopHit> probe : source.points()) {
+            confirmSameNavigation(columnar, expected, probe);
+        }
+    }
+
+    private static void confirmSameNavigation(NavigableSet<Point<NopHit>> actual, NavigableSet<Point<NopHit>> expected, Point<NopHit> probe) {
+        assertThat(actual.floor(probe), is(expected.floor(probe)));
+        assertThat(actual.ceiling(probe), is(expected.ceiling(probe)));
+        assertThat(actual.lower(probe), is(expected.lower(probe)));
+        assertThat(actual.higher(probe), is(expected.higher(probe)));
+        assertThat(actual.contains(probe), is(expected.contains(probe)));
+        assertThat(newArrayList(actual.headSet(probe, true)), is(newArrayList(expected.headSet(probe, true))));
+        assertThat(newArrayList(actual.tailSet(probe, false)), is(newArrayList(expected.tailSet(probe, false))));
+        assertThat(
+            newArrayList(actual.headSet(probe, true).descendingIterator()),
+            is(newArrayList(expected.headSet(probe, true).descendingIterator()))
+        );
+    }
+
+    @Test
+    public void subSetsAreViews() {
+
+        Track<NopHit> source = createTrackFromFile(getResourceFile("Track1.txt"));
+        ColumnarTrack<NopHit> columnar = ColumnarTrack.of(source.points());
+
+        List<Point<NopHit>> all = newArrayList(source.points());
+        NavigableSet<Point<NopHit>> middle = columnar.subSet(all.get(10), true, all.get(20), false);
+
+        assertThat(middle.size(), is(10));
+        assertThat(middle.first(), is(all.get(10)));
+        assertThat(middle.last(), is(all.get(19)));
+        assertThat(middle.higher(all.get(19)), nullValue());
+        assertThat(middle.lower(all.get(10)), nullValue());
+        assertThat(middle.headSet(all.get(15)).size(), is(5));
+    }
+
+    @Test
+    public void columnarTracksAreImmutable() {
+
+        Track<NopHit> source = createTrackFromFile(getResourceFile("Track1.txt"));
+        ColumnarTrack<NopHit> columnar = ColumnarTrack.of(source.points());
+
+        assertThrows(UnsupportedOperationException.class, () -> columnar.pollFirst());
+        assertThrows(UnsupportedOperationException.class, () -> columnar.add(source.points().first()));
+        assertThrows(UnsupportedOperationException.class, () -> columnar.remove(source.points().first()));
+    }
+}
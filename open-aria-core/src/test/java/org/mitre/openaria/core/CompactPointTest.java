@@ -0,0 +1,133 @@
+package org.mitre.openaria.core;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.time.Instant.EPOCH;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mitre.caasd.commons.fileutil.FileUtils.getResourceFile;
+import static org.mitre.openaria.core.Tracks.createTrackFromFile;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.mitre.caasd.commons.Distance;
+import org.mitre.openaria.core.formats.nop.NopHit;
+
+import org.junit.jupiter.api.Test;
+
+public class CompactPointTest {
+
+    @Test
+    public void compactPointsRoundTripToPoints() {
+
+        Track<NopHit> track = createTrackFromFile(getResourceFile("Track1.txt"));
+
+        for (Point<NopHit> p : track.points()) {
+            CompactPoint<NopHit> compact = CompactPoint.of(p);
+
+            assertThat(compact.toPoint(), is(p));
+            assertThat(compact.time(), is(p.time()));
+            assertThat(compact.latLong(), is(p.latLong()));
+            assertThat(compact.altitude(), is(p.altitude()));
+            assertThat(compact.speed(), is(p.speed()));
+            assertThat(compact.course(), is(p.course()));
+            assertThat(compact.position(), is(p.position()));
+            assertThat(compact.velocity(), is(p.velocity()));
+            assertThat(compact.trackId(), is(p.trackId()));
+        }
+    }
+
+    @Test
+    public void nopHitsCanBeParsedDirectlyIntoCompactPoints() {
+
+        Track<NopHit> track = createTrackFromFile(getResourceFile("Track1.txt"));
+
+        for (Point<NopHit> p : track.points()) {
+            CompactPoint<NopHit> compact = NopHit.compactFrom(p.rawData().rawMessage());
+
+            assertThat(compact, is(CompactPoint.of(p)));
+            assertThat(compact.toPoint(), is(p));
+        }
+    }
+
+    @Test
+    public void pointBuilderCanBuildCompactPoints() {
+
+        PointBuilder<String> builder = Point.<String>builder()
+            .time(EPOCH.plusMillis(123))
+            .latLong(12.0, -34.0)
+            .altitude(Distance.ofFeet(1500))
+            .trackId("abc")
+            .rawData("raw");
+
+        CompactPoint<String> noVelocity = builder.buildCompact();
+        assertThat(noVelocity.toPoint(), is(builder.build()));
+        assertThat(noVelocity.velocity(), nullValue());
+        assertThat(noVelocity.speedInKnots(), is(Double.NaN));
+
+        CompactPoint<String> withVelocity = builder.speedInKnots(250).courseInDegrees(90).buildCompact();
+        assertThat(withVelocity.toPoint(), is(builder.build()));
+        assertThat(withVelocity.speedInKnots(), is(250.0));
+        assertThat(withVelocity.altitudeInFeet(), is(1500.0));
+
+        //a PointBuilder can also be seeded from a CompactPoint
+        assertThat(new PointBuilder<>(withVelocity).build(), is(withVelocity.toPoint()));
+    }
+
+    @Test
+    public void compactPointsSortLikePoints() {
+
+        Track<NopHit> track = createTrackFromFile(getResourceFile("Track1.txt"));
+
+        List<Point<NopHit>> points = newArrayList(track.points());
+        //add a 2nd point at an existing time to exercise tie-breaking
+        points.add(Point.builder(points.get(3)).latLong(0.0, 0.0).build());
+
+        List<CompactPoint<NopHit>> compact = newArrayList(points.stream().map(CompactPoint::of).toList());
+        Collections.shuffle(compact);
+        Collections.sort(compact);
+        Collections.sort(points);
+
+        assertThat(compact.stream().map(CompactPoint::toPoint).toList(), is(points));
+    }
+
+    @Test
+    public void tiesAreBrokenLikePoints() {
+
+        PointBuilder<String> base = Point.<String>builder().time(EPOCH).latLong(1.0, 1.0);
+
+        List<Point<String>> points = newArrayList(
+            base.build(),
+            Point.builder(base.build()).altitude(Distance.ofFeet(100)).build(),
+            Point.builder(base.build()).altitude(Distance.ofFeet(-50)).build(),
+            Point.builder(base.build()).altitude(Distance.ofFeet(100)).trackId("b").build(),
+            Point.builder(base.build()).altitude(Distance.ofFeet(100)).trackId("a").build(),
+            Point.builder(base.build()).latLong(1.0, 0.5).build(),
+            Point.builder(base.build()).latLong(0.5, 2.0).trackId("z").build()
+        );
+
+        List<CompactPoint<String>> compact = newArrayList(points.stream().map(CompactPoint::of).toList());
+        Collections.shuffle(compact);
+        Collections.sort(compact);
+        Collections.sort(points);
+
+        assertThat(compact.stream().map(CompactPoint::toPoint).toList(), is(points));
+        for (int i = 0; i < compact.size(); i++) {
+            for (int j = 0; j < compact.size(); j++) {
+                int expected = Integer.signum(points.get(i).compareTo(points.get(j)));
+                int sorted = Integer.signum(CompactPoint.of(points.get(i)).compareTo(CompactPoint.of(points.get(j))));
+                assertThat(sorted, is(expected));
+            }
+        }
+    }
+
+    @Test
+    public void velocityRequiresSpeedAndCourse() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> new CompactPoint<String>(0L, 0.0, 0.0, Double.NaN, 100.0, Double.NaN, null, null)
+        );
+    }
+}
@@ -0,0 +1,99 @@
+package org.mitre.openaria.core;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.time.Instant;
+import java.util.Map;
+
+import org.mitre.caasd.commons.YyyyMmDd;
+
+import com.google.common.math.StatsAccumulator;
+import org.junit.jupiter.api.Test;
+
+public class DailyStatsTest {
+
+    @Test
+    public void epochDayOfRoundsTowardThePast() {
+        assertThat(DailyStats.epochDayOf(Instant.parse("1970-01-01T23:59:59Z")), is(0L));
+        assertThat(DailyStats.epochDayOf(Instant.parse("1969-12-31T23:59:59.999Z")), is(-1L));
+        assertThat(DailyStats.epochDayOf(Instant.parse("2024-01-02T00:00:00Z")), is(19724L));
+    }
+
+    @Test
+    public void countsSpanGrowingRangesOfDays() {
+
+        DailyStats stats = new DailyStats();
+        stats.increment(19724L, 3);
+        stats.increment(19730L, 1); //grows the range forward
+        stats.increment(19700L, 2); //grows the range backward
+        stats.increment(19724L, 1);
+
+        Map<YyyyMmDd, Long> counts = stats.counts();
+
+        assertThat(stats.totalCount(), is(7L));
+        assertThat(counts.values(), contains(2L, 4L, 1L));
+        assertThat(counts.get(YyyyMmDd.from(Instant.parse("2024-01-02T12:00:00Z"))), is(4L));
+    }
+
+    @Test
+    public void accumulatorMapIsLive() {
+
+        DailyStats stats = new DailyStats();
+        Map<YyyyMmDd, StatsAccumulator> accumulators = stats.accumulators();
+
+        stats.accumulatorFor(19724L).add(10.0);
+        stats.accumulatorFor(19000L).add(5.0);
+        stats.accumulatorFor(19724L).add(20.0);
+
+        assertThat(accumulators.size(), is(2));
+        StatsAccumulator jan2 = accumulators.get(YyyyMmDd.from(Instant.parse("2024-01-02T00:00:00Z")));
+        assertThat(jan2.count(), is(2L));
+        assertThat(jan2.mean(), is(15.0));
+        assertThat(stats.accumulatorFor(19724L) == jan2, is(true));
+    }
+
+    @Test
+    public void outlierDaysDoNotStretchTheArrays() {
+
+        DailyStats stats = new DailyStats();
+        stats.increment(19724L, 3);
+        stats.increment(DailyStats.epochDayOf(Instant.EPOCH), 1);
+        stats.increment(DailyStats.epochDayOf(Instant.parse("2099-06-01T00:00:00Z")), 1);
+        stats.increment(DailyStats.epochDayOf(Instant.parse("9999-12-31T00:00:00Z")), 1);
+        stats.increment(DailyStats.epochDayOf(Instant.EPOCH), 1);
+        stats.increment(19725L, 2); //still fits in the arrays
+
+        Map<YyyyMmDd, Long> counts = stats.counts();
+
+        assertThat(stats.totalCount(), is(9L));
+        assertThat(counts.size(), is(5));
+        assertThat(counts.get(YyyyMmDd.from(Instant.EPOCH)), is(2L));
+        assertThat(counts.get(YyyyMmDd.from(Instant.parse("2024-01-03T00:00:00Z"))), is(2L));
+    }
+
+    @Test
+    public void extremeDaysAreAccepted() {
+
+        DailyStats stats = new DailyStats();
+        stats.increment(19724L, 1);
+        stats.increment(DailyStats.epochDayOf(Instant.MAX), 1);
+        stats.increment(DailyStats.epochDayOf(Instant.MIN), 1);
+
+        assertThat(stats.totalCount(), is(3L));
+    }
+
+    @Test
+    public void outlierAccumulatorsAreReused() {
+
+        DailyStats stats = new DailyStats();
+        stats.accumulatorFor(19724L).add(1.0);
+        stats.accumulatorFor(0L).add(2.0);
+        stats.accumulatorFor(0L).add(4.0);
+
+        StatsAccumulator epochDay = stats.accumulators().get(YyyyMmDd.from(Instant.EPOCH));
+        assertThat(epochDay.count(), is(2L));
+        assertThat(stats.accumulatorFor(0L) == epochDay, is(true));
+    }
+}
@@ -0,0 +1,210 @@
+package org.mitre.openaria.core;
+
+import static java.time.Instant.EPOCH;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.mitre.caasd.commons.HasTime;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SpillingTimeQueueTest {
+
+    @TempDir
+    public File tempDir;
+
+    record TimePojo(Instant time) implements HasTime {}
+
+    static final SpillCodec<TimePojo> CODEC = new SpillCodec<>() {
+        @Override
+        public byte[] encode(TimePojo item) {
+            return ByteBuffer.allocate(8).putLong(item.time().toEpochMilli()).array();
+        }
+
+        @Override
+        public TimePojo decode(byte[] bytes) {
+            return new TimePojo(Instant.ofEpochMilli(ByteBuffer.wrap(bytes).getLong()));
+        }
+    };
+
+    private SpillingTimeQueue<TimePojo> newQueue(int maxRecordsInMemory) {
+        return new SpillingTimeQueue<>(
+            new CalendarQueue<>(Duration.ofSeconds(1), Duration.ofSeconds(30)),
+            new SpillConfig<>(CODEC, maxRecordsInMemory, tempDir)
+        );
+    }
+
+    private int numRunFiles() {
+        return tempDir.listFiles().length;
+    }
+
+    @Test
+    public void pollsDataInTimeOrder() {
+
+        Random rng = new Random(17L);
+        SpillingTimeQueue<TimePojo> queue = newQueue(1_000);
+
+        List<TimePojo> input = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            long jitter = (i % 100 == 0) ? -rng.nextInt(300_000) : rng.nextInt(5_000);
+            input.add(new TimePojo(EPOCH.plusMillis(i * 50L + jitter)));
+        }
+        queue.addAll(input);
+
+        assertThat(queue.size(), is(input.size()));
+        assertThat(queue.numSpilledRecords(), greaterThan(0));
+        assertThat(queue.numRuns(), greaterThan(1));
+        assertThat(numRunFiles(), is(queue.numRuns()));
+
+        List<Instant> expected = new ArrayList<>(Lists.transform(input, TimePojo::time));
+        expected.sort(Comparator.naturalOrder());
+
+        for (Instant time : expected) {
+            assertThat(queue.peek().time(), is(time));
+            assertThat(queue.poll().time(), is(time));
+        }
+        assertThat(queue.isEmpty(), is(true));
+        assertThat(queue.poll(), nullValue());
+        assertThat(queue.numRuns(), is(0));
+        assertThat("Drained run files are deleted", numRunFiles(), is(0));
+    }
+
+    @Test
+    public void interleavedAddsAndPollsMatchPriorityQueue() {
+
+        Random rng = new Random(7L);
+        SpillingTimeQueue<TimePojo> queue = newQueue(64);
+        PriorityQueue<TimePojo> reference = new PriorityQueue<>(Comparator.comparing(TimePojo::time));
+
+        for (int i = 0; i < 10_000; i++) {
+            TimePojo pojo = new TimePojo(EPOCH.plusMillis(i * 10L + rng.nextInt(2_000)));
+            queue.add(pojo);
+            reference.add(pojo);
+            if (i % 3 == 0) {
+                assertThat(queue.poll().time(), is(reference.poll().time()));
+            }
+            assertThat(queue.size(), is(reference.size()));
+        }
+        while (!reference.isEmpty()) {
+            assertThat(queue.poll().time(), is(reference.poll().time()));
+        }
+        assertThat(queue.isEmpty(), is(true));
+    }
+
+    @Test
+    public void iteratorVisitsSpilledAndInMemoryData() {
+
+        SpillingTimeQueue<TimePojo> queue = newQueue(4);
+        List<TimePojo> input = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            input.add(new TimePojo(EPOCH.plusSeconds(i)));
+        }
+        queue.addAll(input);
+        queue.poll();
+
+        assertThat(queue.numSpilledRecords(), greaterThan(0));
+        assertThat(Lists.newArrayList(queue), containsInAnyOrder(input.subList(1, 25).toArray()));
+    }
+
+    @Test
+    public void clearDeletesRunFiles() {
+
+        SpillingTimeQueue<TimePojo> queue = newQueue(4);
+        for (int i = 0; i < 25; i++) {
+            queue.add(new TimePojo(EPOCH.plusSeconds(i)));
+        }
+        assertThat(numRunFiles(), greaterThan(0));
+
+        queue.clear();
+
+        assertThat(queue.isEmpty(), is(true));
+        assertThat(queue.numSpilledRecords(), is(0));
+        assertThat(numRunFiles(), is(0));
+    }
+
+    @Test
+    public void closeDeletesRunFilesAndTheDirectoryItCreated() {
+
+        File spillDir = new File(tempDir, "spill");
+        SpillingTimeQueue<TimePojo> queue = new SpillingTimeQueue<>(
+            new CalendarQueue<>(Duration.ofSeconds(1), Duration.ofSeconds(30)),
+            new SpillConfig<>(CODEC, 4, spillDir)
+        );
+        for (int i = 0; i < 25; i++) {
+            queue.add(new TimePojo(EPOCH.plusSeconds(i)));
+        }
+        assertThat(spillDir.listFiles().length, greaterThan(0));
+
+        queue.close();
+
+        assertThat(queue.isEmpty(), is(true));
+        assertThat(spillDir.exists(), is(false));
+    }
+
+    @Test
+    public void closeKeepsADirectoryItDidNotCreate() {
+
+        SpillingTimeQueue<TimePojo> queue = newQueue(4);
+        for (int i = 0; i < 25; i++) {
+            queue.add(new TimePojo(EPOCH.plusSeconds(i)));
+        }
+        queue.close();
+
+        assertThat(numRunFiles(), is(0));
+        assertThat(tempDir.isDirectory(), is(true));
+    }
+
+    @Test
+    public void recordsLargerThanTheReadBufferAreRead() {
+
+        //each record is padded to 100KB, which exceeds the 64KB read buffer
+        SpillCodec<TimePojo> paddedCodec = new SpillCodec<>() {
+            @Override
+            public byte[] encode(TimePojo item) {
+                return ByteBuffer.allocate(100_000).putLong(item.time().toEpochMilli()).array();
+            }
+
+            @Override
+            public TimePojo decode(byte[] bytes) {
+                return CODEC.decode(bytes);
+            }
+        };
+        SpillingTimeQueue<TimePojo> queue = new SpillingTimeQueue<>(
+            new CalendarQueue<>(Duration.ofSeconds(1), Duration.ofSeconds(30)),
+            new SpillConfig<>(paddedCodec, 4, tempDir)
+        );
+        for (int i = 0; i < 25; i++) {
+            queue.add(new TimePojo(EPOCH.plusSeconds(25 - i)));
+        }
+        assertThat(queue.numSpilledRecords(), greaterThan(0));
+
+        for (int i = 1; i <= 25; i++) {
+            assertThat(queue.poll().time(), is(EPOCH.plusSeconds(i)));
+        }
+        assertThat(numRunFiles(), is(0));
+    }
+
+    @Test
+    public void configRequiresRoomInMemory() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> new SpillConfig<>(CODEC, 1, tempDir)
+        );
+    }
+}
@@ -3,12 +3,19 @@ package org.mitre.openaria.core;
 
 import static java.time.Instant.EPOCH;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mitre.caasd.commons.ConsumingCollections.newConsumingArrayList;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -119,4 +126,79 @@ public class StreamingTimeSorterTest {
             lastPoint = point;
         }
     }
+
+    @Test
+    public void acceptAllSortsAndCountsEveryInput() {
+
+        Duration maxLag = Duration.ofSeconds(10L);
+
+        ConsumingArrayList<TimePojo> consumer = newConsumingArrayList();
+
+        StreamingTimeSorter<TimePojo> sorter = new StreamingTimeSorter<>(consumer, maxLag);
+
+        List<TimePojo> data = testData();
+        sorter.acceptAll(data.subList(0, 4));
+        sorter.acceptAll(data.subList(4, data.size()));
+        sorter.flush();
+
+        verifyPointWereOrdered(consumer);
+        assertThat(sorter.integritySummarizer().totalInputCount(), is((long) data.size()));
+        assertThat(
+            consumer.size() + sorter.integritySummarizer().droppedCount(),
+            is((long) data.size())
+        );
+    }
+
+    @Test
+    public void acceptAllCountsInputByDay() {
+
+        ConsumingArrayList<TimePojo> consumer = newConsumingArrayList();
+        StreamingTimeSorter<TimePojo> sorter = new StreamingTimeSorter<>(consumer, Duration.ofHours(1));
+
+        Instant midnight = Instant.parse("2024-01-02T00:00:00Z");
+        sorter.acceptAll(List.of(
+            new TimePojo(midnight.minusSeconds(2)),
+            new TimePojo(midnight.minusSeconds(1)),
+            new TimePojo(midnight),
+            new TimePojo(midnight.minusSeconds(3))
+        ));
+
+        assertThat(sorter.integritySummarizer().completePointCounts().values(), contains(3L, 1L));
+    }
+
+    @Test
+    public void checkpointRestoresTheTimeSeenByTarget() throws IOException {
+
+        SpillCodec<TimePojo> codec = new SpillCodec<>() {
+            @Override
+            public byte[] encode(TimePojo item) {
+                return ByteBuffer.allocate(8).putLong(item.time().toEpochMilli()).array();
+            }
+
+            @Override
+            public TimePojo decode(byte[] bytes) {
+                return new TimePojo(Instant.ofEpochMilli(ByteBuffer.wrap(bytes).getLong()));
+            }
+        };
+
+        StreamingTimeSorter<TimePojo> sorter = new StreamingTimeSorter<>(newConsumingArrayList(), Duration.ofSeconds(10));
+        testData().forEach(sorter);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sorter.writeCheckpoint(new DataOutputStream(bytes), codec);
+
+        ConsumingArrayList<TimePojo> downstream = newConsumingArrayList();
+        ConsumingArrayList<TimePojo> rejected = newConsumingArrayList();
+        StreamingTimeSorter<TimePojo> restored = new StreamingTimeSorter<>(downstream, Duration.ofSeconds(10), rejected);
+        restored.restoreCheckpoint(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), codec);
+
+        assertThat(restored.timeSeenByTarget(), is(EPOCH.plusSeconds(12)));
+
+        //replaying a Point the target has already passed must not reach the target
+        restored.accept(new TimePojo(EPOCH.plusSeconds(11)));
+        restored.accept(new TimePojo(EPOCH.plusSeconds(40)));
+
+        assertThat(rejected, contains(new TimePojo(EPOCH.plusSeconds(11))));
+        assertThat(downstream, contains(new TimePojo(EPOCH.plusSeconds(13)), new TimePojo(EPOCH.plusSeconds(23))));
+    }
 }
@@ -0,0 +1,73 @@
+package org.mitre.openaria.core;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mitre.caasd.commons.fileutil.FileUtils.getResourceFile;
+import static org.mitre.openaria.core.Tracks.createTrackFromFile;
+
+import java.time.Instant;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import org.mitre.openaria.core.formats.nop.NopHit;
+
+import org.junit.jupiter.api.Test;
+
+public class TimeSortedPointsTest {
+
+    @Test
+    public void kNearestWindowMatchesKNearestPoints() {
+
+        Track<NopHit> track = createTrackFromFile(getResourceFile("Track1.txt"));
+        TimeSortedPoints<NopHit> sorted = track.timeSortedPoints();
+
+        assertThat(sorted.size(), is(track.size()));
+
+        Instant start = track.startTime().minusSeconds(30);
+        Instant end = track.endTime().plusSeconds(30);
+
+        for (int k : new int[]{1, 2, 7, 9, track.size(), track.size() + 1}) {
+            //query at every Point, halfway between Points (i.e. ties), and at arbitrary times
+            for (Point<NopHit> p : track.points()) {
+                confirmSameNeighbors(track, sorted, p.time(), k);
+                confirmSameNeighbors(track, sorted, p.time().plusMillis(2_000), k);
+            }
+            for (Instant t = start; t.isBefore(end); t = t.plusMillis(1_357)) {
+                confirmSameNeighbors(track, sorted, t, k);
+            }
+        }
+    }
+
+    private static void confirmSameNeighbors(Track<NopHit> track, TimeSortedPoints<NopHit> sorted, Instant time, int k) {
+
+        int start = sorted.kNearestStart(time, k);
+        int end = start + Math.min(k, sorted.size());
+
+        NavigableSet<Point<NopHit>> window = new TreeSet<>();
+        for (int i = start; i < end; i++) {
+            window.add(sorted.get(i));
+        }
+        assertThat(window, is(track.kNearestPoints(time, k)));
+    }
+
+    @Test
+    public void timeSortedPointsAreBuiltOncePerTrack() {
+
+        Track<NopHit> track = createTrackFromFile(getResourceFile("Track1.txt"));
+
+        assertThat(track.timeSortedPoints(), sameInstance(track.timeSortedPoints()));
+    }
+
+    @Test
+    public void negativeKIsRejected() {
+
+        Track<NopHit> track = createTrackFromFile(getResourceFile("Track1.txt"));
+
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> track.timeSortedPoints().kNearestStart(track.startTime(), -1)
+        );
+    }
+}
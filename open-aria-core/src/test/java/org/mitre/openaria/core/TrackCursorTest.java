@@ -0,0 +1,78 @@
+package org.mitre.openaria.core;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mitre.caasd.commons.fileutil.FileUtils.getResourceFile;
+import static org.mitre.openaria.core.Tracks.createTrackFromFile;
+
+import java.time.Instant;
+import java.util.Random;
+
+import org.mitre.openaria.core.formats.nop.NopHit;
+
+import org.junit.jupiter.api.Test;
+
+public class TrackCursorTest {
+
+    @Test
+    public void cursorMatchesInterpolatedPoint() {
+
+        Track<NopHit> track = createTrackFromFile(getResourceFile("Track1.txt"));
+        TrackCursor<NopHit> cursor = track.cursor();
+
+        //step through the track, hitting the exact time of the first and last point
+        for (Instant time = track.startTime(); !time.isAfter(track.endTime()); time = time.plusMillis(1_250)) {
+            confirmCursorMatches(track, cursor, time);
+        }
+        confirmCursorMatches(track, cursor, track.endTime());
+
+        //every time that matches a point exactly
+        for (Point<NopHit> p : track.points()) {
+            confirmCursorMatches(track, cursor, p.time());
+        }
+    }
+
+    @Test
+    public void cursorCanMoveBackwards() {
+
+        Track<NopHit> track = createTrackFromFile(getResourceFile("Track1.txt"));
+        TrackCursor<NopHit> cursor = track.cursor();
+
+        long durationInMs = track.endTime().toEpochMilli() - track.startTime().toEpochMilli();
+        Random rng = new Random(17L);
+        for (int i = 0; i < 500; i++) {
+            Instant time = track.startTime().plusMillis((long) (rng.nextDouble() * durationInMs));
+            confirmCursorMatches(track, cursor, time);
+        }
+    }
+
+    @Test
+    public void cursorDoesNotExtrapolate() {
+
+        Track<NopHit> track = createTrackFromFile(getResourceFile("Track1.txt"));
+        TrackCursor<NopHit> cursor = track.cursor();
+
+        assertThat(cursor.moveTo(track.startTime().minusMillis(1)), is(false));
+        assertThat(cursor.hasSample(), is(false));
+        assertThat(Double.isNaN(cursor.latitude()), is(true));
+        assertThrows(IllegalStateException.class, () -> cursor.toPoint());
+
+        assertThat(cursor.moveTo(track.endTime().plusMillis(1)), is(false));
+        assertThat(cursor.moveTo(track.endTime()), is(true));
+        assertThat(cursor.hasSample(), is(true));
+    }
+
+    private static void confirmCursorMatches(Track<NopHit> track, TrackCursor<NopHit> cursor, Instant time) {
+
+        Point<NopHit> expected = track.interpolatedPoint(time).get();
+
+        assertThat(cursor.moveTo(time), is(true));
+        assertThat(cursor.toPoint(), is(expected));
+        assertThat(cursor.latitude(), is(expected.latitude()));
+        assertThat(cursor.longitude(), is(expected.longitude()));
+        assertThat(cursor.altitudeInFeet(), is(expected.altitude().inFeet()));
+        assertThat(cursor.speedInKnots(), is(expected.speed().inKnots()));
+        assertThat(cursor.courseInDegrees(), is(expected.course().inDegrees()));
+    }
+}
@@ -16,8 +16,10 @@ import static org.mitre.openaria.core.formats.nop.NopParsingUtils.parseNopTime;
 import java.io.File;
 import java.time.Instant;
 import java.util.Collection;
+import java.util.List;
 import java.util.NavigableSet;
 import java.util.Optional;
+import java.util.TreeSet;
 
 import org.mitre.caasd.commons.TimeWindow;
 import org.mitre.openaria.core.formats.nop.NopHit;
@@ -71,6 +73,67 @@ public class TrackTest {
         assertTrue(result.get().time().equals(t1));
     }
 
+    @Test
+    public void ofPresortedMatchesOf() {
+
+        Track<NopHit> source = createTrackFromFile(getResourceFile("Track1.txt"));
+
+        //a time-sorted List (with one duplicate) like the one a TrackMaker assembles
+        List<Point<NopHit>> timeSorted = newArrayList(source.points());
+        timeSorted.add(5, timeSorted.get(5));
+
+        Track<NopHit> presorted = Track.ofPresorted(timeSorted);
+        Track<NopHit> sorted = Track.of(timeSorted);
+
+        assertThat(presorted, is(sorted));
+        assertThat(presorted.size(), is(source.size()));
+        assertThat(newArrayList(presorted.points()), is(newArrayList(sorted.points())));
+
+        Instant time = parseNopTime("07/08/2017", "14:11:59.454");
+        assertThat(presorted.kNearestPoints(time, 5), is(sorted.kNearestPoints(time, 5)));
+        assertThat(presorted.interpolatedPoint(time), is(sorted.interpolatedPoint(time)));
+        assertThrows(UnsupportedOperationException.class, () -> presorted.points().pollFirst());
+    }
+
+    @Test
+    public void derivedAttributesAreComputedOnce() {
+
+        Track<NopHit> track = createTrackFromFile(getResourceFile("Track1.txt"));
+        Track<NopHit> copy = Track.of(newArrayList(track.points()));
+
+        assertThat(track.asTimeWindow(), sameInstance(track.asTimeWindow()));
+        assertThat(track.trackId(), sameInstance(track.trackId()));
+        assertThat(track.callsign(), sameInstance(track.callsign()));
+        assertThat(track.aircraftType(), sameInstance(track.aircraftType()));
+
+        //a Track with different (but equal) Points gets its own, equal, values
+        assertThat(copy.asTimeWindow(), not(sameInstance(track.asTimeWindow())));
+        assertThat(copy.asTimeWindow(), is(track.asTimeWindow()));
+        assertThat(copy.trackId(), is(track.trackId()));
+        assertThat(copy.callsign(), is(track.callsign()));
+        assertThat(copy.aircraftType(), is(track.aircraftType()));
+    }
+
+    @Test
+    public void mutablePointSetsAreCopied() {
+
+        Track<NopHit> source = createTrackFromFile(getResourceFile("Track1.txt"));
+        TreeSet<Point<NopHit>> mutablePoints = new TreeSet<>(source.points());
+
+        Track<NopHit> track = new Track<>(mutablePoints);
+        TimeWindow window = track.asTimeWindow();
+        mutablePoints.pollFirst();
+
+        //the Track (and its cached TimeWindow) does not see changes to the original set
+        assertThat(track.size(), is(source.size()));
+        assertThat(track.asTimeWindow(), is(window));
+        assertThat(track, is(source));
+        assertThrows(UnsupportedOperationException.class, () -> track.points().pollFirst());
+
+        //immutable sets are not copied
+        assertThat(new Track<>(source.points()).points(), sameInstance(source.points()));
+    }
+
     @Test
     public void testGetOverlapWith() {
 
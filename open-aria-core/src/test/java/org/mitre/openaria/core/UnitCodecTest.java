@@ -0,0 +1,48 @@
+package org.mitre.openaria.core;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mitre.openaria.core.UnitCodec.*;
+
+import org.mitre.caasd.commons.Course;
+import org.mitre.caasd.commons.Distance;
+import org.mitre.caasd.commons.Speed;
+
+import org.junit.jupiter.api.Test;
+
+public class UnitCodecTest {
+
+    @Test
+    public void valuesAreEncodedInFixedUnits() {
+        assertThat(feetOrNaN(Distance.ofMeters(3.048)), is(Distance.ofMeters(3.048).inFeet()));
+        assertThat(knotsOrNaN(Speed.ofKnots(250)), is(250.0));
+        assertThat(degreesOrNaN(Course.ofDegrees(90)), is(90.0));
+
+        assertThat(altitudeOrNull(1500.0), is(Distance.ofFeet(1500)));
+        assertThat(speedOrNull(250.0), is(Speed.ofKnots(250)));
+        assertThat(courseOrNull(90.0), is(Course.ofDegrees(90)));
+        assertThat(velocityOrNull(250.0, 90.0), is(new Velocity(Speed.ofKnots(250), Course.ofDegrees(90))));
+    }
+
+    @Test
+    public void missingValuesAreNaN() {
+        assertThat(feetOrNaN(null), is(Double.NaN));
+        assertThat(knotsOrNaN(null), is(Double.NaN));
+        assertThat(degreesOrNaN(null), is(Double.NaN));
+
+        assertThat(altitudeOrNull(Double.NaN), nullValue());
+        assertThat(speedOrNull(Double.NaN), nullValue());
+        assertThat(courseOrNull(Double.NaN), nullValue());
+        assertThat(velocityOrNull(Double.NaN, Double.NaN), nullValue());
+    }
+
+    @Test
+    public void missingValuesSortFirst() {
+        assertThat(compareNullable(Double.NaN, Double.NaN), is(0));
+        assertThat(compareNullable(Double.NaN, -1000.0), is(-1));
+        assertThat(compareNullable(-1000.0, Double.NaN), is(1));
+        assertThat(Integer.signum(compareNullable(10.0, 20.0)), is(-1));
+        assertThat(compareNullable(20.0, 20.0), is(0));
+    }
+}
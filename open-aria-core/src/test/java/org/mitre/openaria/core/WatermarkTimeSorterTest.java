@@ -0,0 +1,230 @@
+package org.mitre.openaria.core;
+
+import static java.time.Instant.EPOCH;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mitre.caasd.commons.ConsumingCollections.newConsumingArrayList;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mitre.caasd.commons.ConsumingCollections.ConsumingArrayList;
+import org.mitre.caasd.commons.HasTime;
+
+import org.junit.jupiter.api.Test;
+
+public class WatermarkTimeSorterTest {
+
+    record SourcedPojo(String source, Instant time) implements HasTime {}
+
+    static final WatermarkConfig<SourcedPojo> CONFIG = new WatermarkConfig<>(
+        SourcedPojo::source,
+        Duration.ofSeconds(5),
+        10
+    );
+
+    private static SourcedPojo pojo(String source, long epochSec) {
+        return new SourcedPojo(source, EPOCH.plusSeconds(epochSec));
+    }
+
+    /* Two sources: "fast" is skewSec seconds ahead of "slow". */
+    private static List<SourcedPojo> skewedInput(int skewSec) {
+        List<SourcedPojo> input = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            input.add(pojo("fast", i + skewSec));
+            input.add(pojo("slow", i));
+        }
+        return input;
+    }
+
+    private static List<SourcedPojo> skewedInput() {
+        return skewedInput(30);
+    }
+
+    /* A dense "slow" source (10 Hz) and a sparse "fast" source (every 10 sec) that is 30 sec ahead. */
+    private static List<SourcedPojo> denseLaggingInput() {
+        List<SourcedPojo> input = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Instant time = EPOCH.plusMillis(100L * i);
+            if (i % 100 == 0) {
+                input.add(new SourcedPojo("fast", time.plusSeconds(30)));
+            }
+            input.add(new SourcedPojo("slow", time));
+        }
+        return input;
+    }
+
+    @Test
+    public void dataIsHeldUntilTheSlowestSourceCatchesUp() {
+
+        WatermarkConfig<SourcedPojo> config = new WatermarkConfig<>(SourcedPojo::source, Duration.ofSeconds(5), 4);
+
+        ConsumingArrayList<SourcedPojo> output = newConsumingArrayList();
+        WatermarkTimeSorter<SourcedPojo> sorter = new WatermarkTimeSorter<>(config, output);
+
+        //nothing is released during the 4 record "warm-up"
+        sorter.accept(pojo("slow", 0));
+        sorter.accept(pojo("fast", 30));
+        assertThat(output, hasSize(0));
+        assertThat(sorter.outputWatermark(), nullValue());
+
+        //the output watermark is set by "slow" (40 - 5 seconds)
+        sorter.accept(pojo("slow", 40));
+        sorter.accept(pojo("fast", 70));
+        assertThat(output, contains(pojo("slow", 0), pojo("fast", 30)));
+        assertThat(sorter.outputWatermark(), is(EPOCH.plusSeconds(35)));
+
+        //"fast" races ahead, its data waits for "slow"
+        sorter.accept(pojo("fast", 80));
+        assertThat(output, hasSize(2));
+
+        sorter.accept(pojo("slow", 60));
+        sorter.accept(pojo("slow", 90));
+
+        assertThat(
+            output,
+            contains(pojo("slow", 0), pojo("fast", 30), pojo("slow", 40), pojo("slow", 60), pojo("fast", 70))
+        );
+        assertThat(sorter.numRecordsInQueue(), is(2));
+    }
+
+    @Test
+    public void skewedSourcesAreMergedWithoutDrops() {
+
+        ConsumingArrayList<SourcedPojo> output = newConsumingArrayList();
+        StreamingTimeSorter<SourcedPojo> watermarkSorter = new StreamingTimeSorter<>(
+            output, ignoredInput -> {}, CONFIG
+        );
+        denseLaggingInput().forEach(watermarkSorter);
+        watermarkSorter.flush();
+
+        assertThat(watermarkSorter.integritySummarizer().droppedCount(), is(0L));
+        assertThat(output, hasSize(3030));
+        for (int i = 1; i < output.size(); i++) {
+            assertThat(output.get(i - 1).time().isAfter(output.get(i).time()), is(false));
+        }
+
+        //an ApproximateTimeSorter that holds MORE records than the WatermarkTimeSorter still drops data
+        StreamingTimeSorter<SourcedPojo> approxSorter = new StreamingTimeSorter<>(
+            newConsumingArrayList(), Duration.ofSeconds(19)
+        );
+        denseLaggingInput().forEach(approxSorter);
+        approxSorter.flush();
+
+        assertThat(
+            approxSorter.inMemoryBuffer().sizeHighWaterMark(),
+            greaterThan(watermarkSorter.sortBuffer().sizeHighWaterMark())
+        );
+        assertThat(approxSorter.integritySummarizer().droppedCount(), greaterThan(0L));
+    }
+
+    /* A dense "fast" source (10 Hz) and a "slow" source that is 2 minutes behind it. "slow" sends
+     * just enough data to never go idle. */
+    private static List<SourcedPojo> sparseLaggingInput() {
+        List<SourcedPojo> input = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Instant time = EPOCH.plusMillis(100L * i);
+            input.add(new SourcedPojo("fast", time.plusSeconds(120)));
+            if (i % 9 == 0) {
+                input.add(new SourcedPojo("slow", time));
+            }
+        }
+        return input;
+    }
+
+    @Test
+    public void sourcesBeyondTheMaxSkewAreIdle() {
+
+        WatermarkConfig<SourcedPojo> config = new WatermarkConfig<>(
+            SourcedPojo::source, Duration.ofSeconds(5), 10, Duration.ofSeconds(60)
+        );
+        WatermarkTimeSorter<SourcedPojo> sorter = new WatermarkTimeSorter<>(config, newConsumingArrayList());
+        sparseLaggingInput().forEach(sorter);
+
+        assertThat(sorter.numIdleSources(), is(1));
+        assertThat(sorter.sizeHighWaterMark(), lessThan(100));
+
+        //without a small maxSkew the buffer holds all 2 minutes of "fast" data
+        WatermarkTimeSorter<SourcedPojo> unbounded = new WatermarkTimeSorter<>(CONFIG, newConsumingArrayList());
+        sparseLaggingInput().forEach(unbounded);
+
+        assertThat(unbounded.numIdleSources(), is(0));
+        assertThat(unbounded.sizeHighWaterMark(), greaterThan(1000));
+    }
+
+    @Test
+    public void laggingSourceIsNotIdle() {
+
+        //"slow" is 2 minutes behind "fast" but it keeps delivering data, so it is never idle
+        ConsumingArrayList<SourcedPojo> output = newConsumingArrayList();
+        StreamingTimeSorter<SourcedPojo> sorter = new StreamingTimeSorter<>(
+            output, ignoredInput -> {}, CONFIG
+        );
+        WatermarkTimeSorter<SourcedPojo> buffer = (WatermarkTimeSorter<SourcedPojo>) sorter.sortBuffer();
+
+        for (SourcedPojo pojo : skewedInput(120)) {
+            sorter.accept(pojo);
+            assertThat(buffer.numIdleSources(), is(0));
+        }
+        sorter.flush();
+
+        assertThat(sorter.integritySummarizer().droppedCount(), is(0L));
+        assertThat(output, hasSize(600));
+        assertThat(output.stream().filter(pojo -> pojo.source().equals("slow")).count(), is(300L));
+    }
+
+    @Test
+    public void idleSourcesDoNotBlockTheOutput() {
+
+        ConsumingArrayList<SourcedPojo> output = newConsumingArrayList();
+        WatermarkTimeSorter<SourcedPojo> sorter = new WatermarkTimeSorter<>(CONFIG, output);
+
+        sorter.accept(pojo("stalled", 0));
+        for (int i = 1; i <= 100; i++) {
+            sorter.accept(pojo("live", i));
+        }
+
+        //"stalled" became idle 10 records after its last record, then "live" released its own data
+        assertThat(sorter.numSources(), is(2));
+        assertThat(sorter.numIdleSources(), is(1));
+        assertThat(sorter.outputWatermark(), is(EPOCH.plusSeconds(95)));
+        assertThat(output, hasSize(96));
+        assertThat(sorter.sizeHighWaterMark(), is(12));
+    }
+
+    @Test
+    public void batchesProduceTheSameOutput() {
+
+        ConsumingArrayList<SourcedPojo> singles = newConsumingArrayList();
+        WatermarkTimeSorter<SourcedPojo> singleSorter = new WatermarkTimeSorter<>(CONFIG, singles);
+        skewedInput().forEach(singleSorter);
+        singleSorter.flush();
+
+        ConsumingArrayList<SourcedPojo> batched = newConsumingArrayList();
+        WatermarkTimeSorter<SourcedPojo> batchSorter = new WatermarkTimeSorter<>(CONFIG, batched);
+        List<SourcedPojo> input = skewedInput();
+        for (int i = 0; i < input.size(); i += 50) {
+            batchSorter.acceptAll(input.subList(i, i + 50));
+        }
+        batchSorter.flush();
+
+        assertThat(batched, hasSize(singles.size()));
+        for (int i = 0; i < singles.size(); i++) {
+            assertThat(batched.get(i).time(), is(singles.get(i).time()));
+        }
+    }
+
+    @Test
+    public void noWatermarkBeforeData() {
+        WatermarkTimeSorter<SourcedPojo> sorter = new WatermarkTimeSorter<>(CONFIG, newConsumingArrayList());
+        assertThat(sorter.outputWatermark(), nullValue());
+        assertThat(sorter.numSources(), is(0));
+    }
+}
@@ -11,11 +11,14 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.SpillCodec;
+import org.mitre.openaria.core.formats.ariabin.AriaBinWriter;
 import org.mitre.openaria.core.formats.ariacsv.AriaCsvHit;
 import org.mitre.openaria.core.formats.nop.NopHit;
 
 import com.google.common.collect.Lists;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class FormatsTest {
 
@@ -27,6 +30,12 @@ class FormatsTest {
         assertDoesNotThrow(() -> Formats.getFormat(" NOP "));
     }
 
+    @Test
+    void supportsParallelNop() {
+        assertDoesNotThrow(() -> Formats.getFormat("nop-parallel"));
+        assertDoesNotThrow(() -> Formats.getFormat(" NOP-PARALLEL "));
+    }
+
     @Test
     void supportsCsv() {
         assertDoesNotThrow(() -> Formats.getFormat("csv"));
@@ -35,6 +44,12 @@ class FormatsTest {
         assertDoesNotThrow(() -> Formats.getFormat(" CSV "));
     }
 
+    @Test
+    void supportsAriaBin() {
+        assertDoesNotThrow(() -> Formats.getFormat("aria-bin"));
+        assertDoesNotThrow(() -> Formats.getFormat(" ARIA-BIN "));
+    }
+
     @Test
     void doesNotSupportAdsb() {
         // Hopefully we will support ADSB at some point in the future ...
@@ -71,6 +86,19 @@ class FormatsTest {
     }
 
 
+    @Test
+    void parallelNopFormatCanParseCompressedNop() {
+        File nopData = new File("src/test/resources/nop/STARS_SAMPLE.txt.gz");
+
+        @SuppressWarnings("unchecked")
+        Format<NopHit> format = (Format<NopHit>) Formats.getFormat("nop-parallel");
+
+        List<Point<NopHit>> data = Lists.newArrayList(format.parseFile(nopData));
+
+        assertThat(data, hasSize(12593));
+    }
+
+
     @Test
     void csvFormatCanParseCsv() {
         File csvData = new File("src/test/resources/openariacsv/scaryTrackData_openAriaCsv.txt");
@@ -95,4 +123,74 @@ class FormatsTest {
         assertThat(dataAsStrings.contains(example2), is(true));
         assertThat(dataAsStrings.contains(example3), is(true));
     }
-}
\ No newline at end of file
+
+
+    @Test
+    void parseBatchesPartitionsTheData() {
+        File nopData = new File("src/test/resources/nop/STARS_SAMPLE.txt.gz");
+
+        List<List<Point<NopHit>>> batches = Lists.newArrayList(Formats.nop().parseBatches(nopData, 1000));
+
+        assertThat(batches, hasSize(13));
+        assertThat(batches.get(0), hasSize(1000));
+        assertThat(batches.get(12), hasSize(593));
+    }
+
+
+    @Test
+    void spillCodecRoundTripsNopAndCsv() {
+        File nopData = new File("src/test/resources/nop/STARS_SAMPLE.txt.gz");
+        File csvData = new File("src/test/resources/openariacsv/scaryTrackData_openAriaCsv.txt");
+
+        assertRoundTrips(Formats.nop(), nopData);
+        assertRoundTrips(Formats.csv(), csvData);
+    }
+
+    @Test
+    void spillCodecRoundTripsAriaBin(@TempDir File tempDir) throws Exception {
+        File csvData = new File("src/test/resources/openariacsv/scaryTrackData_openAriaCsv.txt");
+        File binFile = new File(tempDir, "scary.ariabin");
+        AriaBinWriter.convert(Formats.csv(), csvData, binFile, true);
+
+        assertRoundTrips(Formats.ariaBin(), binFile);
+    }
+
+    private static <T> void assertRoundTrips(Format<T> format, File data) {
+        SpillCodec<Point<T>> codec = format.spillCodec();
+
+        for (Point<T> pt : Lists.newArrayList(format.parseFile(data))) {
+            Point<T> copy = codec.decode(codec.encode(pt));
+            assertThat(copy.time(), is(pt.time()));
+            assertThat(copy.latLong(), is(pt.latLong()));
+            assertThat(copy.trackId(), is(pt.trackId()));
+            assertThat(copy.altitude() == null, is(pt.altitude() == null));
+            if (pt.altitude() != null) {
+                assertThat(copy.altitude().inFeet(), is(pt.altitude().inFeet()));
+            }
+            assertThat(copy.velocity() == null, is(pt.velocity() == null));
+            if (pt.velocity() != null) {
+                assertThat(copy.speed().inKnots(), is(pt.speed().inKnots()));
+                assertThat(copy.course().inDegrees(), is(pt.course().inDegrees()));
+            }
+            assertThat(format.asRawString(copy.rawData()), is(format.asRawString(pt.rawData())));
+        }
+    }
+
+    @Test
+    void formatsWithoutARawDataCodecCannotSpill() {
+        Format<String> textOnly = new Format<>() {
+            @Override
+            public Iterator<Point<String>> parseFile(File file) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String asRawString(String positionReport) {
+                return positionReport;
+            }
+        };
+
+        //the failure happens when the codec is requested, not when the first record is spilled
+        assertThrows(UnsupportedOperationException.class, textOnly::spillCodec);
+    }
+}
@@ -0,0 +1,200 @@
+package org.mitre.openaria.core.formats;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.formats.ariacsv.AriaCsvHit;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MergedFileIteratorTest {
+
+    @TempDir
+    public File tempDir;
+
+    /* Split the sample data (which contains 2 tracks) into one file per track. */
+    private List<File> oneFilePerTrack() throws IOException {
+        File source = new File("src/test/resources/openariacsv/scaryTrackData_openAriaCsv.txt");
+        List<String> lines = Files.readAllLines(source.toPath());
+
+        File trackA = new File(tempDir, "track_D21-3472.txt");
+        File trackB = new File(tempDir, "track_D21-2643.txt");
+        Files.write(trackA.toPath(), lines.stream().filter(s -> s.contains(",D21-3472,")).toList());
+        Files.write(trackB.toPath(), lines.stream().filter(s -> s.contains(",D21-2643,")).toList());
+
+        return List.of(trackA, trackB);
+    }
+
+    @Test
+    void mergedPointsAreTimeOrdered() throws IOException {
+
+        List<Point<AriaCsvHit>> points;
+        try (MergedFileIterator<AriaCsvHit> iter = new MergedFileIterator<>(Formats.csv(), oneFilePerTrack())) {
+            points = Lists.newArrayList(iter);
+        }
+
+        assertThat(points, hasSize(520));
+        assertThat(points.stream().filter(p -> p.trackId().equals("D21-3472")).count(), is(338L));
+
+        for (int i = 1; i < points.size(); i++) {
+            assertThat(points.get(i - 1).time().isAfter(points.get(i).time()), is(false));
+        }
+    }
+
+    @Test
+    void singleFileIsUnchanged() throws IOException {
+
+        File file = oneFilePerTrack().get(1);
+
+        List<Point<AriaCsvHit>> expected = Lists.newArrayList(Formats.csv().parseFile(file));
+        List<Point<AriaCsvHit>> merged = Lists.newArrayList(
+            new MergedFileIterator<>(Formats.csv(), List.of(file))
+        );
+
+        assertThat(merged, hasSize(182));
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(merged.get(i).rawData().rawCsvText(), is(expected.get(i).rawData().rawCsvText()));
+        }
+    }
+
+    @Test
+    void parsingFailuresReachTheMergingThread() {
+
+        File missingFile = new File(tempDir, "doesNotExist.txt");
+
+        MergedFileIterator<AriaCsvHit> iter = new MergedFileIterator<>(Formats.csv(), List.of(missingFile));
+
+        assertThrows(IllegalStateException.class, iter::hasNext);
+    }
+
+    @Test
+    void closeStopsIteration() throws IOException {
+
+        MergedFileIterator<AriaCsvHit> iter = new MergedFileIterator<>(Formats.csv(), oneFilePerTrack());
+        iter.next();
+        iter.close();
+
+        assertThat(iter.hasNext(), is(false));
+    }
+
+    /* A csv Format whose parsers count down the latch when they are closed. */
+    private static Format<AriaCsvHit> closeTrackingCsv(CountDownLatch closed) {
+        return new Format<>() {
+            @Override
+            public Iterator<Point<AriaCsvHit>> parseFile(File file) {
+                return new ClosingIterator(Formats.csv().parseFile(file), closed);
+            }
+
+            @Override
+            public String asRawString(AriaCsvHit positionReport) {
+                return positionReport.rawCsvText();
+            }
+        };
+    }
+
+    private record ClosingIterator(Iterator<Point<AriaCsvHit>> iter, CountDownLatch closed)
+        implements Iterator<Point<AriaCsvHit>>, AutoCloseable {
+
+        @Override
+        public boolean hasNext() {
+            return iter.hasNext();
+        }
+
+        @Override
+        public Point<AriaCsvHit> next() {
+            return iter.next();
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+
+    @Test
+    void parsersAreClosedWhenTheirFileIsExhausted() throws Exception {
+
+        CountDownLatch closed = new CountDownLatch(2);
+
+        try (MergedFileIterator<AriaCsvHit> iter = new MergedFileIterator<>(closeTrackingCsv(closed), oneFilePerTrack())) {
+            assertThat(Lists.newArrayList(iter), hasSize(520));
+            assertThat(closed.await(10, TimeUnit.SECONDS), is(true));
+        }
+    }
+
+    @Test
+    void parsersAreClosedWhenMergeIsClosedEarly() throws Exception {
+
+        CountDownLatch closed = new CountDownLatch(2);
+
+        MergedFileIterator<AriaCsvHit> iter = new MergedFileIterator<>(closeTrackingCsv(closed), oneFilePerTrack());
+        iter.next();
+        iter.close();
+
+        assertThat(closed.await(10, TimeUnit.SECONDS), is(true));
+    }
+
+    /* A csv Format whose batches (of 50 Points) are separated by empty batches. */
+    private static Format<AriaCsvHit> csvWithEmptyBatches() {
+        return new Format<>() {
+            @Override
+            public Iterator<Point<AriaCsvHit>> parseFile(File file) {
+                return Formats.csv().parseFile(file);
+            }
+
+            @Override
+            public Iterator<List<Point<AriaCsvHit>>> parseBatches(File file, int batchSize) {
+                List<List<Point<AriaCsvHit>>> batches = new ArrayList<>();
+                batches.add(List.of());
+                for (List<Point<AriaCsvHit>> batch : Lists.partition(Lists.newArrayList(parseFile(file)), 50)) {
+                    batches.add(batch);
+                    batches.add(List.of());
+                }
+                return batches.iterator();
+            }
+
+            @Override
+            public String asRawString(AriaCsvHit positionReport) {
+                return positionReport.rawCsvText();
+            }
+        };
+    }
+
+    @Test
+    void emptyBatchesAreSkipped() throws IOException {
+
+        try (MergedFileIterator<AriaCsvHit> iter = new MergedFileIterator<>(csvWithEmptyBatches(), oneFilePerTrack())) {
+            assertThat(Lists.newArrayList(iter), hasSize(520));
+        }
+    }
+
+    @Test
+    void filesMatchingUsesGlob() throws IOException {
+
+        oneFilePerTrack();
+        Files.writeString(new File(tempDir, "notes.md").toPath(), "not data");
+
+        List<File> files = MergedFileIterator.filesMatching(tempDir, "track_*.txt");
+
+        assertThat(
+            files.stream().map(File::getName).toList(),
+            contains("track_D21-2643.txt", "track_D21-3472.txt")
+        );
+        assertThat(MergedFileIterator.filesMatching(tempDir, "*"), hasSize(3));
+    }
+}
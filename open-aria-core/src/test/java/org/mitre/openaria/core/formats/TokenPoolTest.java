@@ -0,0 +1,56 @@
+package org.mitre.openaria.core.formats;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class TokenPoolTest {
+
+    @Test
+    void equalTokensAreShared() {
+
+        TokenPool pool = new TokenPool(64);
+
+        String first = pool.pooled("[RH],STARS,A80_B,N732JE,C210", 17, 23);
+        String second = pool.pooled("[RH],STARS,D10_B,N732JE,B737", 17, 23);
+
+        assertThat(first, is("N732JE"));
+        assertSame(first, second);
+        assertThat(pool.missCount(), is(1L));
+        assertThat(pool.hitCount(), is(1L));
+    }
+
+    @Test
+    void collisionsNeverProduceWrongTokens() {
+
+        //a single slot forces every distinct token to collide
+        TokenPool pool = new TokenPool(1);
+
+        assertEquals("IFR", pool.pooled("IFR"));
+        assertEquals("VFR", pool.pooled("VFR"));
+        assertEquals("IFR", pool.pooled("IFR"));
+        assertThat(pool.missCount(), is(3L));
+        assertThat(pool.hitCount(), is(0L));
+    }
+
+    @Test
+    void emptyAndNullTokens() {
+
+        TokenPool pool = new TokenPool(16);
+
+        assertThat(pool.pooled("a,,b", 2, 2), is(""));
+        assertThat(pool.pooled(null), nullValue());
+    }
+
+    @Test
+    void capacityMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenPool(0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenPool(100));
+        assertThat(new TokenPool(128).capacity(), is(128));
+    }
+}
@@ -0,0 +1,154 @@
+package org.mitre.openaria.core.formats.ariabin;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.util.List;
+
+import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.formats.Format;
+import org.mitre.openaria.core.formats.Formats;
+import org.mitre.openaria.core.formats.ariacsv.AriaCsvHit;
+import org.mitre.openaria.core.formats.nop.NopEncoder;
+import org.mitre.openaria.core.formats.nop.NopHit;
+import org.mitre.openaria.smoothing.CoastedPointRemover;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AriaBinReaderTest {
+
+    @TempDir
+    public File tempDir;
+
+    @Test
+    void nopDataSurvivesConversion() throws Exception {
+
+        File nopData = new File("src/test/resources/nop/STARS_SAMPLE.txt.gz");
+        File binFile = new File(tempDir, "stars.ariabin");
+
+        long count = AriaBinWriter.convert(Formats.nop(), nopData, binFile, true);
+
+        List<Point<NopHit>> original = Lists.newArrayList(Formats.nop().parseFile(nopData));
+        List<Point<AriaBinHit>> replayed = readAll(binFile);
+
+        assertThat(count, is(12593L));
+        assertThat(replayed, hasSize(12593));
+        assertSameData(original, Formats.nop(), replayed);
+
+        for (int i = 0; i < original.size(); i++) {
+            NopHit nop = original.get(i).rawData();
+            AriaBinHit bin = replayed.get(i).rawData();
+            assertThat(bin.callsign(), is(nop.callsign()));
+            assertThat(bin.aircraftType(), is(nop.aircraftType()));
+            assertThat(bin.beaconActual(), is(nop.beaconActual()));
+            assertThat(bin.flightRules(), is(nop.flightRules()));
+            assertThat(bin.sourceDetails(), is(nop.sourceDetails()));
+            assertThat(
+                CoastedPointRemover.isCoasted(replayed.get(i)),
+                is(CoastedPointRemover.isCoasted(original.get(i)))
+            );
+        }
+    }
+
+    @Test
+    void csvDataSurvivesConversion() throws Exception {
+
+        File csvData = new File("src/test/resources/openariacsv/scaryTrackData_openAriaCsv.txt");
+        File binFile = new File(tempDir, "scary.ariabin");
+
+        AriaBinWriter.convert(Formats.csv(), csvData, binFile, true);
+
+        List<Point<AriaCsvHit>> original = Lists.newArrayList(Formats.csv().parseFile(csvData));
+        List<Point<AriaBinHit>> replayed = readAll(binFile);
+
+        assertThat(replayed, hasSize(520));
+        assertSameData(original, Formats.csv(), replayed);
+    }
+
+    @Test
+    void rawMessagesCanBeOmitted() throws Exception {
+
+        File csvData = new File("src/test/resources/openariacsv/scaryTrackData_openAriaCsv.txt");
+        File binFile = new File(tempDir, "noRaw.ariabin");
+
+        AriaBinWriter.convert(Formats.csv(), csvData, binFile, false);
+
+        List<Point<AriaBinHit>> replayed = readAll(binFile);
+
+        assertThat(replayed, hasSize(520));
+        assertThat(replayed.get(0).rawData().hasRawMessage(), is(false));
+        assertThrows(IllegalStateException.class, () -> replayed.get(0).rawData().rawMessage());
+    }
+
+    @Test
+    void channelIsReleasedAfterTheLastRecord() throws Exception {
+
+        File nopData = new File("src/test/resources/nop/STARS_SAMPLE.txt.gz");
+        File binFile = new File(tempDir, "stars.ariabin");
+        AriaBinWriter.convert(Formats.nop(), nopData, binFile, true);
+
+        AriaBinReader reader = new AriaBinReader(binFile);
+        assertThat(reader.isChannelOpen(), is(true));
+
+        List<Point<AriaBinHit>> points = Lists.newArrayList(reader);
+
+        assertThat(reader.isChannelOpen(), is(false));
+        assertThat(reader.hasNext(), is(false));
+        //raw messages are memory-mapped, so they remain readable
+        assertThat(points.get(points.size() - 1).rawData().hasRawMessage(), is(true));
+        points.get(points.size() - 1).rawData().rawMessage();
+    }
+
+    @Test
+    void nopEncoderReusesStoredNopMessages() throws Exception {
+
+        File nopData = new File("src/test/resources/nop/STARS_SAMPLE.txt.gz");
+        File binFile = new File(tempDir, "stars.ariabin");
+        AriaBinWriter.convert(Formats.nop(), nopData, binFile, true);
+
+        Point<NopHit> original = Formats.nop().parseFile(nopData).next();
+        Point<AriaBinHit> replayed = readAll(binFile).get(0);
+
+        NopEncoder encoder = new NopEncoder();
+        assertThat(encoder.asRawNop(replayed), is(original.rawData().rawMessage().rawMessage()));
+    }
+
+    @Test
+    void rejectsFilesThatAreNotAriaBin() {
+        File nopData = new File("src/test/resources/nop/STARS_SAMPLE.txt.gz");
+
+        assertThrows(IllegalArgumentException.class, () -> new AriaBinReader(nopData));
+    }
+
+    private static List<Point<AriaBinHit>> readAll(File binFile) throws Exception {
+        try (AriaBinReader reader = new AriaBinReader(binFile)) {
+            return Lists.newArrayList(reader);
+        }
+    }
+
+    private static <T> void assertSameData(List<Point<T>> original, Format<T> format,
+        List<Point<AriaBinHit>> replayed) {
+
+        Format<AriaBinHit> binFormat = Formats.ariaBin();
+
+        for (int i = 0; i < original.size(); i++) {
+            Point<T> expected = original.get(i);
+            Point<AriaBinHit> actual = replayed.get(i);
+
+            assertThat(actual.time(), is(expected.time()));
+            assertThat(actual.latLong(), is(expected.latLong()));
+            assertThat(actual.altitude(), is(expected.altitude()));
+            assertThat(actual.velocity(), is(expected.velocity()));
+            assertThat(actual.trackId(), is(expected.trackId()));
+            assertThat(
+                binFormat.asRawString(actual.rawData()),
+                is(format.asRawString(expected.rawData()))
+            );
+        }
+    }
+}
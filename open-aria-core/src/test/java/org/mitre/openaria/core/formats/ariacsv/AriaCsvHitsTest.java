@@ -86,4 +86,25 @@ class AriaCsvHitsTest {
         assertThat(pt.rawData().token(8), is("EXTRA_FIELD_B"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void missingAltitudeIsNull() {
+
+        String rawCsv = ",,2018-03-24T14:41:09.371Z,vehicleIdNumber,42.9525,-83.7056,,EXTRA";
+
+        AriaCsvHit hit = AriaCsvHit.from(rawCsv);
+
+        assertThat(hit.altitude(), nullValue());
+        assertThat(Double.isNaN(hit.altitudeInFeet()), is(true));
+    }
+
+    @Test
+    public void timesWithoutMillisecondsAreParsed() {
+
+        String rawCsv = ",,2018-03-24T14:41:09Z,vehicleIdNumber,42.9525,-83.7056,2700";
+
+        AriaCsvHit hit = AriaCsvHit.from(rawCsv);
+
+        assertThat(hit.time(), is(Instant.parse("2018-03-24T14:41:09Z")));
+        assertThat(hit.altitudeInFeet(), is(2700.0));
+    }
+}
@@ -2,6 +2,7 @@ package org.mitre.openaria.core.formats.nop;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mitre.openaria.core.formats.nop.NopMessageType.isNopRadarHit;
 
 import org.junit.jupiter.api.Test;
@@ -31,4 +32,32 @@ public class NopMessageTypeTest {
         assertThat(isNopRadarHit(AGW_1), is(true));
         assertThat(isNopRadarHit(AGW_2), is(true));
     }
+
+    @Test
+    public void classify_matchesEveryPrefix() {
+        for (NopMessageType type : NopMessageType.values()) {
+            assertThat(NopMessageType.classify(type.messagePrefix() + "abc,def"), is(type));
+        }
+        assertThat(NopMessageType.classify(STARS_1), is(NopMessageType.STARS_RADAR_HIT));
+        assertThat(NopMessageType.classify(CENTER_1), is(NopMessageType.CENTER_RADAR_HIT));
+        assertThat(NopMessageType.classify(MEARTS_1), is(NopMessageType.MEARTS_RADAR_HIT));
+        assertThat(NopMessageType.classify(AGW_1), is(NopMessageType.AGW_RADAR_HIT));
+    }
+
+    @Test
+    public void classify_rejectsUnknownLines() {
+        assertThat(NopMessageType.classify(""), nullValue());
+        assertThat(NopMessageType.classify("[RH]"), nullValue());
+        assertThat(NopMessageType.classify("[RH],ASDE,X"), nullValue());
+        assertThat(NopMessageType.classify("[XX],abc"), nullValue());
+        assertThat(NopMessageType.classify("THIS LINE IS GARBAGE"), nullValue());
+    }
+
+    @Test
+    public void tryParse_rejectsTruncatedRadarHits() {
+        String truncated = STARS_1.substring(0, STARS_1.indexOf("034.27719"));
+
+        assertThat(NopMessageType.STARS_RADAR_HIT.tryParse(truncated), nullValue());
+        assertThat(NopMessageType.STARS_RADAR_HIT.tryParse(STARS_1).rawMessage(), is(STARS_1));
+    }
 }
@@ -43,6 +43,18 @@ public class NopParserTest {
         assertThat(parser.exceptionCount(), is(0));
     }
 
+    @Test
+    public void testStarsParsingWithReadAhead() throws Exception {
+
+        try (NopParser parser = NopParser.withReadAhead(new File(STARS_FILE))) {
+
+            parseAllMessages(parser);
+
+            assertThat(parser.currentLineCount(), is(12667));
+            assertThat(parser.exceptionCount(), is(0));
+        }
+    }
+
     @Test
     public void testCenterParsing() {
 
@@ -87,6 +99,49 @@ public class NopParserTest {
     }
 
 
+    @Test
+    public void testRadarHitsOnly() {
+
+        NopParser allMessages = new NopParser(new File(STARS_FILE));
+        int numRadarHits = 0;
+        while (allMessages.hasNext()) {
+            if (allMessages.next().getNopType().isRadarHit()) {
+                numRadarHits++;
+            }
+        }
+
+        NopParser parser = new NopParser(new File(STARS_FILE), true);
+        int numMessages = 0;
+        while (parser.hasNext()) {
+            assertThat(parser.next().getNopType().isRadarHit(), is(true));
+            numMessages++;
+        }
+
+        assertThat(numMessages, is(numRadarHits));
+        assertThat(parser.currentLineCount(), is(12667));
+        assertThat(parser.skippedCount(), is(12667 - numRadarHits));
+        assertThat(parser.exceptionCount(), is(0));
+    }
+
+    @Test
+    public void testRadarHitsOnlyCountsBadLines() {
+
+        NopParser parser = new NopParser(new File(FILE_WITH_BAD_LINE), true);
+
+        assertDoesNotThrow(() -> parseAllMessages(parser));
+
+        assertEquals(1, parser.exceptionCount());
+        assertEquals(5, parser.currentLineCount());
+    }
+
+    @Test
+    public void testRadarHitsOnlyWithManyFlaws() {
+
+        NopParser parser = new NopParser(new File(FILE_WITH_LOTS_OF_BAD_LINES), true);
+
+        assertDoesNotThrow(() -> parseAllMessages(parser));
+    }
+
     private void parseAllMessages(NopParser parser) {
 
         while (parser.hasNext()) {
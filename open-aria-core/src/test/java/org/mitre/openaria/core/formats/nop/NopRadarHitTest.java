@@ -1,7 +1,13 @@
 package org.mitre.openaria.core.formats.nop;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.time.DateTimeException;
+import java.time.Instant;
+
 import org.junit.jupiter.api.Test;
 
 class NopRadarHitTest {
@@ -28,6 +34,110 @@ class NopRadarHitTest {
             () -> new NopRadarHitImpl(badLatitude));
     }
 
+    @Test
+    public void fieldsMatchTokenizedValues() {
+
+        String raw = "[RH],STARS,A80_B,07/10/2016,12:48:02.483,DAL1419,B752,D,2672,059,282,357,033.47637,-084.04471,2874,2672,37.2195,18.4657,1,O,A,A80,,ONY,ATL,1244,ATL,ACT,IFR,,01596,,,,,,L,1,,0,{RH}";
+
+        StarsRadarHit hit = new StarsRadarHit(raw);
+
+        assertEquals(NopParsingUtils.parseNopTime("07/10/2016", "12:48:02.483"), hit.time());
+        assertEquals("A80", hit.facility());
+        assertEquals("DAL1419", hit.callSign());
+        assertEquals("B752", hit.aircraftType());
+        assertEquals("2672", hit.reportedBeaconCode());
+        assertEquals(59, hit.altitudeInHundredsOfFeet());
+        assertEquals(282.0, hit.speed());
+        assertEquals(357.0, hit.heading());
+        assertEquals(33.47637, hit.latitude());
+        assertEquals(-84.04471, hit.longitude());
+        assertEquals("2874", hit.trackNumber());
+        assertEquals(2672, hit.assignedBeaconCode());
+        assertEquals(37.2195, hit.x());
+        assertEquals(18.4657, hit.y());
+        assertEquals("A80", hit.sensorIdLetters());
+        assertEquals("IFR", hit.flightRules());
+        assertNull(hit.scratchpad1());
+    }
+
+    @Test
+    public void stringFieldsAreDecodedOnce() {
+
+        String raw = "[RH],STARS,A80_B,07/10/2016,12:48:02.483,DAL1419,B752,D,2672,059,282,357,033.47637,-084.04471,2874,2672,37.2195,18.4657,1,O,A,A80,,ONY,ATL,1244,ATL,ACT,IFR,,01596,,,,,,L,1,,0,{RH}";
+
+        StarsRadarHit hit = new StarsRadarHit(raw);
+
+        assertSame(hit.callSign(), hit.callSign());
+        assertSame(hit.aircraftType(), hit.aircraftType());
+        assertSame(hit.facility(), hit.facility());
+        assertSame(hit.trackNumber(), hit.trackNumber());
+    }
+
+    @Test
+    public void missingNumericFieldsAreNull() {
+
+        String raw = "[RH],STARS,GEG,07/08/2017,14:09:11.474,,,,1200,,0,,47.61734,-117.54339,655,,0.3008,-0.1445,,,,GEG,,,,,,,IFR,,,,,,,,,,,,{RH}";
+
+        StarsRadarHit hit = new StarsRadarHit(raw);
+
+        assertNull(hit.altitudeInHundredsOfFeet());
+        assertNull(hit.heading());
+        assertNull(hit.assignedBeaconCode());
+        assertNull(hit.callSign());
+        assertEquals(-0.1445, hit.y());
+    }
+
+    @Test
+    public void dashSeparatedDatesParse() {
+
+        String raw = "[RH],Center,ZLA_B,07-10-2016,06:35:40.000,ROU1884,A319,Z,7211,312,510,051,33.9483,-115.6908,790,,,,,ZLA/19,,ZLA_B,,,,E0625,CYYZ,,IFR,,790,1396403226,SAN,1025,312//350,,L,1,,,{RH}";
+
+        CenterRadarHit hit = new CenterRadarHit(raw);
+
+        assertEquals(NopParsingUtils.parseNopTime("07-10-2016", "06:35:40.000"), hit.time());
+        assertEquals("790", hit.computerId());
+    }
+
+    @Test
+    public void outOfRangeDatesAndTimesMatchTheJavaTimeParser() {
+        //the fast path must not decode these itself (Feb 30th, hour 24, minute 60)
+        assertTimeParsingMatches("02/30/2016", "12:48:02.483");
+        assertTimeParsingMatches("02/29/2017", "12:48:02.483");
+        assertTimeParsingMatches("13/10/2016", "12:48:02.483");
+        assertTimeParsingMatches("07/10/2016", "24:00:00.000");
+        assertTimeParsingMatches("07/10/2016", "24:48:02.483");
+        assertTimeParsingMatches("07/10/2016", "12:60:02.483");
+    }
+
+    @Test
+    public void validDatesAndTimesMatchTheJavaTimeParser() {
+        assertTimeParsingMatches("02/29/2016", "23:59:59.999");
+        assertTimeParsingMatches("12-31-2016", "00:00:00.000");
+    }
+
+    /* Parsing a region of the raw text must behave exactly like parsing the date and time tokens. */
+    private static void assertTimeParsingMatches(String date, String time) {
+
+        String raw = "[RH],STARS,A80_B," + date + "," + time + ",DAL1419";
+        int dateStart = raw.indexOf(date);
+        int timeStart = raw.indexOf(time);
+
+        Instant expected;
+        try {
+            expected = NopParsingUtils.parseNopTime(date, time);
+        } catch (DateTimeException ex) {
+            assertThrows(
+                ex.getClass(),
+                () -> NopParsingUtils.parseNopTime(raw, dateStart, dateStart + date.length(), timeStart, timeStart + time.length())
+            );
+            return;
+        }
+        assertEquals(
+            expected,
+            NopParsingUtils.parseNopTime(raw, dateStart, dateStart + date.length(), timeStart, timeStart + time.length())
+        );
+    }
+
     public static class NopRadarHitImpl extends NopRadarHit {
 
         public NopRadarHitImpl(String text) {
@@ -0,0 +1,132 @@
+package org.mitre.openaria.core.formats.nop;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+
+import org.mitre.caasd.commons.fileutil.FileUtils;
+import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.PointIterator;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ParallelNopParserTest {
+
+    String STARS_FILE = System.getProperty("user.dir") + "/src/test/resources/nop/STARS_SAMPLE.txt.gz";
+
+    String FILE_WITH_BAD_LINE = System.getProperty("user.dir") + "/src/test/resources/nop/NopFileWithBadLine.txt";
+
+    @TempDir
+    public File tempDir;
+
+    private File unzippedStarsFile() throws Exception {
+        File target = new File(tempDir, "STARS_SAMPLE.txt");
+        try (InputStream in = new GZIPInputStream(new FileInputStream(STARS_FILE))) {
+            Files.copy(in, target.toPath());
+        }
+        return target;
+    }
+
+    @Test
+    public void outputMatchesSequentialParsing_smallChunks() throws Exception {
+
+        File starsFile = unzippedStarsFile();
+
+        List<Point<NopHit>> expected = Lists.newArrayList(new PointIterator(new NopParser(starsFile)));
+
+        //tiny chunks ensure many chunk boundaries are handled
+        ParallelNopParser parser = new ParallelNopParser(starsFile, 1024, new ForkJoinPool(4));
+        List<Point<NopHit>> actual = Lists.newArrayList(parser);
+
+        assertThat(actual.size(), is(expected.size()));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(
+                expected.get(i).rawData().rawMessage().rawMessage(),
+                actual.get(i).rawData().rawMessage().rawMessage()
+            );
+        }
+        assertThat(parser.currentLineCount(), is(12667));
+        assertThat(parser.exceptionCount(), is(0));
+    }
+
+    @Test
+    public void outputMatchesSequentialParsing_defaultChunks() throws Exception {
+
+        File starsFile = unzippedStarsFile();
+
+        List<Point<NopHit>> expected = Lists.newArrayList(new PointIterator(new NopParser(starsFile)));
+        List<Point<NopHit>> actual = Lists.newArrayList(new ParallelNopParser(starsFile));
+
+        assertThat(actual, is(expected));
+    }
+
+    @Test
+    public void badLinesAreCounted() {
+
+        ParallelNopParser parser = new ParallelNopParser(new File(FILE_WITH_BAD_LINE), 64, ForkJoinPool.commonPool());
+
+        parser.forEachRemaining(pt -> {});
+
+        assertEquals(1, parser.exceptionCount());
+        assertEquals(5, parser.currentLineCount());
+    }
+
+    @Test
+    public void handlesWindowsLineEndingsAndMissingFinalNewline() throws Exception {
+
+        String rh1 = "[RH],STARS,A80_B,07/10/2016,12:43:40.867,N732JE,C210,F,5634,053,158,146,032.35068,-084.54589,2478,5634,12.2195,-49.0616,1,Z,E,A80,PBI,O24,O12,,O12,ACT,VFR,,01278,,,,,,S,1,,0,{RH}";
+        String rh2 = "[RH],STARS,A80_B,07/10/2016,12:43:40.868,,,,0000,000,148,138,032.72556,-082.78178,0950,0000,101.4617,-25.6671,,,,A80,,,,,,CST,IFR,,00000,,,,,,,1,,1,{RH}";
+
+        File testFile = new File(tempDir, "crlf.txt");
+        FileUtils.appendToFile(testFile, rh1 + "\r\n[HB],7/12/2016 19:12:37,EOS:10,{HB}\r\n" + rh2);
+
+        ParallelNopParser parser = new ParallelNopParser(testFile, 16, ForkJoinPool.commonPool());
+        List<Point<NopHit>> points = Lists.newArrayList(parser);
+
+        assertThat(points.size(), is(2));
+        assertThat(points.get(0).rawData().rawMessage().rawMessage(), is(rh1));
+        assertThat(points.get(1).rawData().rawMessage().rawMessage(), is(rh2));
+        assertThat(parser.currentLineCount(), is(3));
+    }
+
+    @Test
+    public void rejectsCompressedFiles() {
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> new ParallelNopParser(new File(STARS_FILE))
+        );
+    }
+
+    @Test
+    public void channelIsReleasedAtEndOfFile() throws Exception {
+
+        ParallelNopParser parser = new ParallelNopParser(unzippedStarsFile(), 1024, ForkJoinPool.commonPool());
+        assertThat(parser.isChannelOpen(), is(true));
+
+        parser.forEachRemaining(pt -> {});
+
+        assertThat(parser.isChannelOpen(), is(false));
+        assertThat(parser.hasNext(), is(false));
+    }
+
+    @Test
+    public void closedParserHasNoNext() throws Exception {
+
+        ParallelNopParser parser = new ParallelNopParser(unzippedStarsFile(), 1024, ForkJoinPool.commonPool());
+        assertThat(parser.hasNext(), is(true));
+
+        parser.close();
+        assertThat(parser.hasNext(), is(false));
+    }
+}
@@ -1,18 +1,36 @@
 package org.mitre.openaria.core.temp;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
 import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.formats.Formats;
 import org.mitre.openaria.core.formats.NopToCsv;
 import org.mitre.openaria.core.formats.ariacsv.AriaCsvHit;
 import org.mitre.openaria.core.formats.nop.NopHit;
 
+import com.google.common.collect.Lists;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class NopToCsvTest {
 
+    @TempDir
+    public File tempDir;
+
 
     public static final String CENTER_RH_MESSAGE = "[RH],Center,ZLA_B,07-10-2016,06:16:35.000,SKW5840,CRJ2,L,4712,110,355,124,33.4922,-118.1300,465,,,,,/,,ZLA_B,,,,D0608,SAN,,IFR,,465,1396392357,LAX,,110//110,,L,1,,,{RH}";
     public static final String STARS_RH_MESSAGE = "[RH],STARS,A80_B,07/10/2016,20:03:53.856,DAL200,MD88,D,1311,159,339,221,034.27719,-083.63591,1519,1311,57.2078,66.6181,1,L,A,A80,,DRE,ATL,2006,ATL,ACT,IFR,,01465,,,,,27L,L,1,,0,{RH}";
@@ -64,4 +82,65 @@ class NopToCsvTest {
         assertThat(pt.rawCsvText(), is(",,2019-11-05T15:28:06.020Z,ZUA-257,11.6384,141.6778,40000,W1JIXSxNRUFSVFMsWlVBX0IsMTEtMDUtMjAxOSwxNToyODowNi4wMjAsVUFMMTg1LEI3MzcsTCwyNjQ2LDQwMCw0NTAsMjM5LDAxMS42Mzg0LDE0MS42Nzc4LDI1NywsNjcuNTAyODcsMTQ1LjkxNjksLFpVQS8xRiwsWlVBX0IsLCwsLCwsLCwsLCxFMTQzMCw0MDAvLzQwMCwsTCwxLHtSSH0"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void convertedFileMatchesLineByLineConversion() throws IOException {
+
+        File nopData = new File("src/test/resources/nop/STARS_SAMPLE.txt.gz");
+        File csvData = new File(tempDir, "STARS_SAMPLE.csv.gz");
+
+        List<String> expected = Lists.newArrayList(Formats.nop().parseFile(nopData)).stream()
+            .map(pt -> NopToCsv.nopToAriaCsvFormat(pt.rawData().rawMessage().rawMessage()))
+            .toList();
+
+        long rowCount = NopToCsv.convertFile(nopData, csvData);
+
+        //the sample spans several batches, they must be written in their original order
+        assertThat(rowCount, is((long) expected.size()));
+        assertThat(readGzipLines(csvData), is(expected));
+    }
+
+    @Test
+    public void nonRadarHitsAreSkipped() throws IOException {
+
+        File nopData = new File(tempDir, "mixed.txt");
+        File csvData = new File(tempDir, "mixed.csv");
+        Files.write(nopData.toPath(), List.of(CENTER_RH_MESSAGE, "[HB],not a radar hit", STARS_RH_MESSAGE));
+
+        long rowCount = NopToCsv.convertFile(nopData, csvData);
+
+        assertThat(rowCount, is(2L));
+        assertThat(
+            Files.readAllLines(csvData.toPath()),
+            contains(
+                NopToCsv.nopToAriaCsvFormat(CENTER_RH_MESSAGE),
+                NopToCsv.nopToAriaCsvFormat(STARS_RH_MESSAGE)
+            )
+        );
+    }
+
+    @Test
+    public void convertDirectoryWritesOneFilePerInput() throws IOException {
+
+        File inputDir = new File(tempDir, "nop");
+        File outputDir = new File(tempDir, "csv");
+        inputDir.mkdirs();
+        Files.write(new File(inputDir, "STARS_A80_RH_20160710.txt").toPath(), List.of(STARS_RH_MESSAGE));
+        Files.write(new File(inputDir, "CENTER_ZLA_RH_20160710.txt").toPath(), List.of(CENTER_RH_MESSAGE));
+        Files.write(new File(inputDir, "notes.md").toPath(), List.of("not data"));
+
+        long rowCount = NopToCsv.convertDirectory(inputDir, "*_RH_*.txt", outputDir);
+
+        assertThat(rowCount, is(2L));
+        assertThat(
+            Arrays.stream(outputDir.list()).sorted().toList(),
+            contains("CENTER_ZLA_RH_20160710.csv", "STARS_A80_RH_20160710.csv")
+        );
+        assertThat(Files.readAllLines(new File(outputDir, "STARS_A80_RH_20160710.csv").toPath()), hasSize(1));
+    }
+
+    private static List<String> readGzipLines(File gzFile) throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(gzFile))) {
+            return new String(in.readAllBytes(), UTF_8).lines().toList();
+        }
+    }
+}
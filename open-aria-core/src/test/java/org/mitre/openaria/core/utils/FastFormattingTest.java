@@ -0,0 +1,59 @@
+package org.mitre.openaria.core.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class FastFormattingTest {
+
+    @ParameterizedTest
+    @ValueSource(doubles = {
+        0.0, -0.0, -0.00001, 0.00005, -0.00005, 42.95595, 1.00005, 2.5, -2.5, 0.5, 34.27719,
+        -83.63591, 11000, 999999.99995, 1e12, -1e12, Double.MIN_VALUE, Double.NaN,
+        Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+    })
+    void appendFixedMatchesJdk(double value) {
+        for (int decimals = 0; decimals <= FastFormatting.MAX_DECIMALS; decimals++) {
+            assertEquals(
+                String.format(Locale.ROOT, "%." + decimals + "f", value),
+                FastFormatting.formatFixed(value, decimals)
+            );
+        }
+    }
+
+    @Test
+    void appendFixedMatchesJdk_randomCoordinates() {
+
+        Random rng = new Random(17L);
+
+        for (int i = 0; i < 100_000; i++) {
+            double value = (rng.nextDouble() - 0.5) * 360.0;
+            //NOP coordinates have 5 decimal places, so rounding them to 4 decimals often "ties"
+            double nopValue = Math.round(value * 100_000) / 100_000.0;
+
+            assertEquals(String.format(Locale.ROOT, "%.4f", value), FastFormatting.formatFixed(value, 4));
+            assertEquals(String.format(Locale.ROOT, "%.4f", nopValue), FastFormatting.formatFixed(nopValue, 4));
+        }
+    }
+
+    @Test
+    void appendFixedAppends() {
+        StringBuilder sb = new StringBuilder("lat=");
+        FastFormatting.appendFixed(sb, 33.49219, 4).append(",alt=");
+        FastFormatting.appendFixed(sb, 11000.0, 0);
+
+        assertEquals("lat=33.4922,alt=11000", sb.toString());
+    }
+
+    @Test
+    void unsupportedDecimalsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> FastFormatting.formatFixed(1.0, -1));
+        assertThrows(IllegalArgumentException.class, () -> FastFormatting.formatFixed(1.0, 9));
+    }
+}
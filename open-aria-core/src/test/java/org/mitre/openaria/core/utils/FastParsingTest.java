@@ -0,0 +1,153 @@
+package org.mitre.openaria.core.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class FastParsingTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "033.47637", "-084.04471", "0", "-0", "-0.0", "+12.5", "5.", ".5", "37.2195",
+        "1.5E10", "  12 ", "123456789012345678901234567890", "0.1234567890123456789012345"
+    })
+    void parseDoubleMatchesJdk(String number) {
+
+        String wrapped = "abc," + number + ",xyz";
+        int start = 4;
+        int end = start + number.length();
+
+        assertEquals(
+            Double.parseDouble(number),
+            FastParsing.parseDouble(wrapped, start, end)
+        );
+    }
+
+    @Test
+    void parseDoubleMatchesJdk_randomCoordinates() {
+
+        Random rng = new Random(17L);
+
+        for (int i = 0; i < 100_000; i++) {
+            double value = (rng.nextDouble() - 0.5) * 360.0;
+            String text = String.format(Locale.US, "%.5f", value);
+
+            assertEquals(Double.parseDouble(text), FastParsing.parseDouble(text, 0, text.length()));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "-", ".", "1.2.3", "abc", "12a"})
+    void parseDoubleRejectsGarbage(String garbage) {
+        assertThrows(
+            NumberFormatException.class,
+            () -> FastParsing.parseDouble(garbage, 0, garbage.length())
+        );
+    }
+
+    @Test
+    void parseIntReadsRegion() {
+        assertEquals(2478, FastParsing.parseInt("a,2478,b", 2, 6));
+        assertEquals(-12, FastParsing.parseInt("-12", 0, 3));
+        assertThrows(NumberFormatException.class, () -> FastParsing.parseInt("a,,b", 2, 2));
+    }
+
+    @Test
+    void parseDigitsRejectsNonDigits() {
+        assertEquals(2016, FastParsing.parseDigits("07/10/2016", 6, 10));
+        assertEquals(-1, FastParsing.parseDigits("07/10/2016", 0, 3));
+    }
+
+    @Test
+    void epochDayMatchesLocalDate() {
+
+        LocalDate date = LocalDate.of(1899, 1, 1);
+        LocalDate end = LocalDate.of(2101, 1, 1);
+
+        while (date.isBefore(end)) {
+            assertEquals(
+                date.toEpochDay(),
+                FastParsing.epochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth())
+            );
+            date = date.plusDays(1);
+        }
+    }
+
+    @Test
+    void epochMillisMatchesInstant() {
+        assertEquals(
+            Instant.parse("2016-07-10T12:48:02.483Z").toEpochMilli(),
+            FastParsing.epochMillis(2016, 7, 10, 12, 48, 2, 483)
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "2018-03-24T14:41:09.371Z", "2018-03-24T14:41:09Z", "2016-02-29T23:59:59.9Z",
+        "1969-12-31T23:59:59.123456789Z", "2020-01-01T00:00:00.000000Z",
+        "2018-03-24T14:41:09.371+01:00", "2016-12-31T23:59:60Z"
+    })
+    void parseInstantMatchesJdk(String timestamp) {
+
+        String wrapped = ",," + timestamp + ",D21-3472";
+        int start = 2;
+        int end = start + timestamp.length();
+
+        assertEquals(Instant.parse(timestamp), FastParsing.parseInstant(wrapped, start, end));
+    }
+
+    @Test
+    void parseInstantMatchesJdk_randomTimes() {
+
+        Random rng = new Random(17L);
+
+        for (int i = 0; i < 100_000; i++) {
+            Instant instant = Instant.ofEpochMilli(rng.nextLong(4_102_444_800_000L));
+            String text = instant.toString();
+
+            assertEquals(instant, FastParsing.parseInstant(text, 0, text.length()));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "2018-02-30T14:41:09.371Z", "2018-03-24T24:41:09.371Z", "garbage"})
+    void parseInstantRejectsGarbage(String garbage) {
+        assertThrows(
+            DateTimeParseException.class,
+            () -> FastParsing.parseInstant(garbage, 0, garbage.length())
+        );
+    }
+
+    @Test
+    void invalidDatesAreRejected() {
+        assertThrows(DateTimeException.class, () -> FastParsing.epochDay(2017, 2, 29));
+        assertThrows(DateTimeException.class, () -> FastParsing.epochDay(2017, 13, 1));
+        assertThrows(DateTimeException.class, () -> FastParsing.epochMillis(2017, 1, 1, 24, 0, 0, 0));
+    }
+
+    @Test
+    void validityChecksMatchTheCalendar() {
+        assertTrue(FastParsing.isValidDate(2016, 2, 29));
+        assertFalse(FastParsing.isValidDate(2017, 2, 29));
+        assertFalse(FastParsing.isValidDate(2016, 2, 30));
+        assertFalse(FastParsing.isValidDate(2016, 4, 31));
+        assertFalse(FastParsing.isValidDate(2016, 0, 1));
+
+        assertTrue(FastParsing.isValidTime(23, 59, 59));
+        assertFalse(FastParsing.isValidTime(24, 0, 0));
+        assertFalse(FastParsing.isValidTime(12, 60, 0));
+        assertFalse(FastParsing.isValidTime(12, 0, 60));
+    }
+}
@@ -0,0 +1,78 @@
+package org.mitre.openaria.core.utils;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mitre.caasd.commons.Spherical.distanceInNM;
+
+import java.util.Random;
+
+import org.mitre.caasd.commons.LatLong;
+
+import org.junit.jupiter.api.Test;
+
+public class ProximityGateTest {
+
+    @Test
+    public void negativeDistancesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ProximityGate(-1.0));
+    }
+
+    @Test
+    public void clearCasesAreAnsweredCorrectly() {
+
+        ProximityGate gate = new ProximityGate(5.0);
+
+        LatLong origin = LatLong.of(42.0, -73.0);
+        assertThat(gate.isCloserThan(origin, origin), is(true));
+        assertThat(gate.isCloserThan(origin, LatLong.of(42.01, -73.01)), is(true));
+        assertThat(gate.isCloserThan(origin, LatLong.of(43.0, -73.0)), is(false));
+        assertThat(gate.isCloserThan(origin, LatLong.of(42.0, -72.0)), is(false));
+    }
+
+    @Test
+    public void closeLocationsOnEitherSideOfTheAntiMeridian() {
+
+        ProximityGate gate = new ProximityGate(5.0);
+
+        assertThat(gate.isCloserThan(LatLong.of(10.0, 179.99), LatLong.of(10.0, -179.99)), is(true));
+        assertThat(gate.isCloserThan(LatLong.of(10.0, 179.0), LatLong.of(10.0, -179.0)), is(false));
+    }
+
+    @Test
+    public void theThresholdItselfIsHandledExactly() {
+
+        LatLong one = LatLong.of(0.0, 0.0);
+        LatLong two = LatLong.of(0.0, 0.05);
+        ProximityGate gate = new ProximityGate(distanceInNM(one, two));
+
+        assertThat("isCloserThan is a strict comparison", gate.isCloserThan(one, two), is(false));
+        assertThat("isWithin is inclusive", gate.isWithin(one, two), is(true));
+    }
+
+    @Test
+    public void alwaysMatchesTheExactComputation() {
+
+        Random rng = new Random(17L);
+
+        for (double maxDistInNm : new double[]{0.1, 5.0, 30.0}) {
+            ProximityGate gate = new ProximityGate(maxDistInNm);
+            double spreadInDegrees = 3.0 * maxDistInNm / 60.0;
+
+            for (int i = 0; i < 100_000; i++) {
+                //include high latitudes, where the exact computation is always used
+                double lat = rng.nextDouble() * 178.0 - 89.0;
+                double lng = rng.nextDouble() * 350.0 - 175.0;
+                LatLong one = LatLong.of(lat, lng);
+                LatLong two = LatLong.of(
+                    Math.max(-90.0, Math.min(90.0, lat + (rng.nextDouble() * 2 - 1) * spreadInDegrees)),
+                    lng + (rng.nextDouble() * 2 - 1) * spreadInDegrees
+                );
+
+                double exactDist = distanceInNM(one, two);
+                assertThat(gate.isCloserThan(one, two), is(exactDist < maxDistInNm));
+                assertThat(gate.isWithin(one, two), is(exactDist <= maxDistInNm));
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.mitre.openaria.core.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReadAheadInputStreamTest {
+
+    String STARS_FILE = System.getProperty("user.dir") + "/src/test/resources/nop/STARS_SAMPLE.txt.gz";
+
+    @TempDir
+    public File tempDir;
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] gunzip(File file) throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] readAll(InputStream stream) throws IOException {
+        try (InputStream in = stream) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void decompressedBytesMatchGzipInputStream() throws IOException {
+        File starsFile = new File(STARS_FILE);
+
+        assertArrayEquals(gunzip(starsFile), readAll(ReadAheadInputStream.decompressing(starsFile)));
+    }
+
+    @Test
+    void multiMemberFilesAreFullyDecompressed() throws IOException {
+
+        Random rng = new Random(17L);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+        for (int i = 0; i < 25; i++) {
+            byte[] member = new byte[rng.nextInt(200_000)];
+            for (int j = 0; j < member.length; j++) {
+                member[j] = (byte) ('a' + rng.nextInt(6));
+            }
+            expected.write(member);
+            compressed.write(gzip(member));
+        }
+
+        File multiMember = new File(tempDir, "multiMember.txt.gz");
+        Files.write(multiMember.toPath(), compressed.toByteArray());
+
+        byte[] actual = readAll(ReadAheadInputStream.decompressing(multiMember));
+
+        assertArrayEquals(expected.toByteArray(), actual);
+        assertArrayEquals(gunzip(multiMember), actual);
+    }
+
+    @Test
+    void corruptDataIsReportedToTheReader() throws IOException {
+
+        byte[] compressed = gzip("[RH],STARS,A80_B,07/10/2016,12:43:40.867".getBytes());
+        compressed[compressed.length - 6] ^= 1; //damage the CRC
+
+        File corrupt = new File(tempDir, "corrupt.txt.gz");
+        Files.write(corrupt.toPath(), compressed);
+
+        assertThrows(IOException.class, () -> readAll(ReadAheadInputStream.decompressing(corrupt)));
+    }
+
+    private File write(String fileName, byte[]... parts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            bytes.write(part);
+        }
+        File file = new File(tempDir, fileName);
+        Files.write(file.toPath(), bytes.toByteArray());
+        return file;
+    }
+
+    /* Rewrite a gzip member so its header has the optional CRC16 (FHCRC) field. */
+    private static byte[] withHeaderCrc(byte[] member, int crcAdjustment) {
+        byte[] header = Arrays.copyOf(member, 10);
+        header[3] |= 2;
+        CRC32 crc = new CRC32();
+        crc.update(header);
+        int crc16 = (int) (crc.getValue() + crcAdjustment) & 0xFFFF;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.writeBytes(header);
+        bytes.write(crc16 & 0xFF);
+        bytes.write(crc16 >>> 8);
+        bytes.write(member, 10, member.length - 10);
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void trailingGarbageIsIgnoredLikeGzipInputStream() throws IOException {
+
+        byte[] first = gzip("first member".getBytes());
+        byte[] second = gzip("second member".getBytes());
+        byte[] random = new byte[500];
+        new Random(5L).nextBytes(random);
+        random[0] = 0x00; //not a gzip magic number
+
+        File[] files = {
+            write("random.gz", first, second, random),
+            write("badMethod.gz", first, second, new byte[] {0x1f, (byte) 0x8b, 7, 0, 0, 0, 0, 0, 0, 0}),
+            write("truncatedHeader.gz", first, second, new byte[] {0x1f, (byte) 0x8b, 8}),
+            write("badHeaderCrc.gz", first, second, withHeaderCrc(gzip("third".getBytes()), 1))
+        };
+
+        for (File file : files) {
+            assertArrayEquals(gunzip(file), readAll(ReadAheadInputStream.decompressing(file)));
+            assertArrayEquals("first membersecond member".getBytes(), gunzip(file));
+        }
+    }
+
+    @Test
+    void headersAreReadLikeGzipInputStream() throws IOException {
+
+        byte[] reservedFlags = gzip("reserved flags".getBytes());
+        reservedFlags[3] |= 0x20;
+
+        File file = write(
+            "headers.gz",
+            gzip("plain".getBytes()),
+            reservedFlags,
+            withHeaderCrc(gzip("header crc".getBytes()), 0)
+        );
+
+        assertArrayEquals(gunzip(file), readAll(ReadAheadInputStream.decompressing(file)));
+        assertArrayEquals("plainreserved flagsheader crc".getBytes(), gunzip(file));
+
+        File corruptHeader = write("corruptHeader.gz", withHeaderCrc(gzip("header crc".getBytes()), 1));
+
+        assertThrows(ZipException.class, () -> gunzip(corruptHeader));
+        assertThrows(ZipException.class, () -> readAll(ReadAheadInputStream.decompressing(corruptHeader)));
+    }
+
+    @Test
+    void compressedAndUncompressedFilesUseTheSameCharset() throws IOException {
+
+        byte[] text = "[RH],STARS,A80_B,caf\u00e9,\u00fcber\n".getBytes(Charset.defaultCharset());
+        File plain = write("text.txt", text);
+        File compressed = write("text.txt.gz", gzip(text));
+
+        try (BufferedReader plainReader = ReadAheadInputStream.readerFor(plain);
+             BufferedReader gzReader = ReadAheadInputStream.readerFor(compressed)) {
+            assertEquals(plainReader.readLine(), gzReader.readLine());
+        }
+    }
+
+    @Test
+    void sourceIsReadThroughTheRing() throws IOException {
+
+        byte[] data = new byte[100_000];
+        new Random(3L).nextBytes(data);
+
+        //a tiny ring forces the read-ahead thread to wait for the reader many times
+        ReadAheadInputStream in = new ReadAheadInputStream(sink -> sink.write(data), 1000, 2);
+
+        assertArrayEquals(data, readAll(in));
+    }
+
+    @Test
+    void closedStreamCannotBeRead() throws IOException {
+
+        ReadAheadInputStream in = ReadAheadInputStream.decompressing(new File(STARS_FILE));
+        assertEquals('[', in.read());
+
+        in.close();
+        assertThrows(IOException.class, in::read);
+    }
+}
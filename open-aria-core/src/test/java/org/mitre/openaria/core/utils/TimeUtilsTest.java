@@ -54,4 +54,16 @@ public class TimeUtilsTest {
         );
     }
 
+    @Test
+    public void testNanosBetween() {
+
+        Instant start = Instant.EPOCH.plusMillis(1_500);
+        Instant end = Instant.EPOCH.plusSeconds(3).plusNanos(250);
+
+        assertEquals(Duration.between(start, end).toNanos(), TimeUtils.nanosBetween(start, end));
+        assertEquals(Duration.between(end, start).toNanos(), TimeUtils.nanosBetween(end, start));
+        assertEquals(-1L, TimeUtils.nanosBetween(Instant.EPOCH, Instant.EPOCH.minusNanos(1)));
+        assertEquals(0L, TimeUtils.nanosBetween(start, start));
+    }
+
 }
\ No newline at end of file
@@ -9,6 +9,7 @@ import java.util.function.Predicate;
 
 import org.mitre.caasd.commons.Pair;
 import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.utils.ProximityGate;
 
 /**
  * A CylindricalFilter tells us when two points are both (A) within a certain vertical distance and
@@ -20,6 +21,9 @@ public class CylindricalFilter implements Predicate<Pair<Point, Point>> {
 
     private final double maxVerticalSeparationInFt;
 
+    /* Tests the horizontal separation (in NM) without a great-circle computation when possible. */
+    private final ProximityGate horizontalGate;
+
     /**
      * When this flag is set to true the filter will ignore the vertical dimension when altitude
      * data is missing.
@@ -33,6 +37,7 @@ public class CylindricalFilter implements Predicate<Pair<Point, Point>> {
         this.maxHorizontalSeparationInFt = maxHorizontalSeparationInFt;
         this.maxVerticalSeparationInFt = maxVerticalSeparationInFt;
         this.allowMissingAlt = allowMissingAlt;
+        this.horizontalGate = new ProximityGate(maxHorizontalSeparationInFt / feetPerNM());
     }
 
     /**
@@ -66,9 +71,7 @@ public class CylindricalFilter implements Predicate<Pair<Point, Point>> {
     }
 
     private boolean testHorizontal(Pair<Point, Point> pair) {
-        double horizontalSep = pair.first().distanceInNmTo(pair.second());
-        return horizontalSep * feetPerNM() <= maxHorizontalSeparationInFt;
-
+        return horizontalGate.isWithin(pair.first().latLong(), pair.second().latLong());
     }
 
 }
@@ -16,6 +16,7 @@ import org.mitre.caasd.commons.Time;
 import org.mitre.caasd.commons.collect.DistanceMetric;
 import org.mitre.caasd.commons.collect.MetricTree;
 import org.mitre.caasd.commons.collect.SearchResult;
+import org.mitre.openaria.core.BatchConsumer;
 import org.mitre.openaria.core.Point;
 
 /**
@@ -27,6 +28,7 @@ import org.mitre.openaria.core.Point;
  * "close together".
  * <p>
  * Anytime a "close Pair of Points" is found it is passed to the consumer provided at construction.
+ * Two Points with the same (non-null) trackId come from the same track, so they are never paired.
  * This consumer can be configured to suit the user. Possible uses include: (A) consumers that
  * perform additional filtering, (B) consumers that perform logging, (C) consumers that publish
  * pairs to a database or other external system, and (D) consumers that are actually a chain of
@@ -39,7 +41,7 @@ import org.mitre.openaria.core.Point;
  * Filtering input Points using an ApproximateTimeSorter and/or a StrictTimeSortEnforcer may be
  * helpful because the input stream of Points MUST be sorted by time.
  */
-public class PointPairFinder implements Consumer<Point> {
+public class PointPairFinder implements BatchConsumer<Point> {
 
     /**
      * Any pair of points less than this distance apart is passed to the Consumer.
@@ -169,8 +171,14 @@ public class PointPairFinder implements Consumer<Point> {
     }
 
     private void makeAndPublishPairs(List<SearchResult<Point, Object>> list, Point newPoint) {
+        String newTrackId = newPoint.trackId();
         for (SearchResult<Point, Object> searchResult : list) {
-            publishOnePair(Pair.of(newPoint, searchResult.key()));
+            Point closePoint = searchResult.key();
+            //skip before allocating a Pair (pooled trackIds usually match by reference)
+            if (newTrackId != null && newTrackId.equals(closePoint.trackId())) {
+                continue;
+            }
+            publishOnePair(Pair.of(newPoint, closePoint));
         }
     }
 
@@ -7,8 +7,10 @@ import static com.google.common.collect.Maps.newHashMap;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static org.mitre.caasd.commons.Functions.ALWAYS_TRUE;
-import static org.mitre.openaria.threading.TempUtils.keyExtractor;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -18,8 +20,9 @@ import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import org.mitre.caasd.commons.Pair;
-import org.mitre.openaria.core.KeyExtractor;
+import org.mitre.openaria.core.BatchConsumer;
 import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.SpillCodec;
 import org.mitre.openaria.core.Track;
 import org.mitre.openaria.core.TrackPair;
 import org.mitre.openaria.pointpairing.PairingConfig;
@@ -39,17 +42,18 @@ import org.mitre.openaria.threading.TrackMaker;
  * <p>
  * A TrackPairer uses a TrackMaker and a PointPairFinder to perform its work.
  */
-public class TrackPairer implements Consumer<Point> {
+public class TrackPairer implements BatchConsumer<Point> {
 
     private static final Duration MAX_DURATION_BETWEEN_PTS_OF_SAME_TRACK = Duration.ofSeconds(45);
 
-    /** Makes "join keys" that group individual Points into groups of Points that become Tracks. */
-    private final KeyExtractor<Point> keyExtractor;
-
     private final TrackMaker trackMaker;
     private final PointPairFinder pairFinder;
     private final Predicate<Pair<Point, Point>> trackPairingRequirement;
-    private final HashMap<String, OpenTrackPair> openTrackPairs_noTracks;
+    /*
+     * OpenTrackPairs without tracks, indexed by their greater trackId and then their lesser trackId.
+     * Two levels of maps find a pair without allocating a composite key for each close pair.
+     */
+    private final HashMap<String, HashMap<String, OpenTrackPair>> openTrackPairs_noTracks;
     private final List<OpenTrackPair> openTrackPairs_oneTrack;
     private final Consumer<Track> downstreamTrackConsumer;
     private final Consumer<TrackPair> downstreamPairConsumer;
@@ -149,8 +153,6 @@ public class TrackPairer implements Consumer<Point> {
         this.downstreamTrackConsumer = downstream.trackConsumer();
         this.trackPairingRequirement = checkNotNull(trackPairingRequirement);
 
-        this.keyExtractor = keyExtractor();
-
         //when the internal TrackMaker produces a track call "incorporateNewTrack"
         this.trackMaker = new TrackMaker<>(maxTimeBetweenPointsOfSameTrack, this::incorporateNewTrack);
 
@@ -189,10 +191,12 @@ public class TrackPairer implements Consumer<Point> {
          * "OpenTrackPairs with one track" to a separate list then the duplicates joinkeys will
          * cause a missed pair because one of the tracks will get overwritten.
          */
-        for (OpenTrackPair otp : openTrackPairs_noTracks.values()) {
-            boolean trackWasAdded = otp.offer(newTrack);
-            if (trackWasAdded) {
-                promoteThese.add(otp);
+        for (HashMap<String, OpenTrackPair> partners : openTrackPairs_noTracks.values()) {
+            for (OpenTrackPair otp : partners.values()) {
+                boolean trackWasAdded = otp.offer(newTrack);
+                if (trackWasAdded) {
+                    promoteThese.add(otp);
+                }
             }
         }
 
@@ -209,8 +213,7 @@ public class TrackPairer implements Consumer<Point> {
 
         //perform promotions
         for (OpenTrackPair otp : promoteThese) {
-            String key = otp.asKey();
-            openTrackPairs_noTracks.remove(key);
+            removeOpenPairWithoutTracks(otp);
             openTrackPairs_oneTrack.add(otp);
         }
 
@@ -228,24 +231,52 @@ public class TrackPairer implements Consumer<Point> {
     //Ingest information saying "these two aircraft are so close they should be paired together"
     private void incorporateNewPointPair(Pair<Point, Point> newPair) {
 
-        if (pointsComeFromSameTracks(newPair)) {
+        //Points without a trackId never join a Track (see accept), so they cannot form a TrackPair
+        if (newPair.first().trackIdIsMissing() || newPair.second().trackIdIsMissing()) {
             return;
         }
 
+        //the PointPairFinder never pairs two Points from the same track
         if (!trackPairingRequirement.test(newPair)) {
             return;
         }
 
-        OpenTrackPair otp = new OpenTrackPair(
-            keyExtractor.joinKeyFor(newPair.first()),
-            keyExtractor.joinKeyFor(newPair.second())
-        );
+        String key1 = newPair.first().trackId();
+        String key2 = newPair.second().trackId();
+
+        //the same two tracks are usually close for many consecutive points, only allocate once
+        if (key1.compareTo(key2) > 0) {
+            addOpenPairWithoutTracks(key1, key2);
+        } else {
+            addOpenPairWithoutTracks(key2, key1);
+        }
+    }
+
+    private void addOpenPairWithoutTracks(String greaterKey, String lesserKey) {
+        HashMap<String, OpenTrackPair> partners = openTrackPairs_noTracks.get(greaterKey);
+        if (partners == null) {
+            partners = new HashMap<>();
+            openTrackPairs_noTracks.put(greaterKey, partners);
+        }
+        if (!partners.containsKey(lesserKey)) {
+            partners.put(lesserKey, new OpenTrackPair(greaterKey, lesserKey));
+        }
+    }
 
-        openTrackPairs_noTracks.putIfAbsent(otp.asKey(), otp);
+    private void removeOpenPairWithoutTracks(OpenTrackPair otp) {
+        HashMap<String, OpenTrackPair> partners = openTrackPairs_noTracks.get(otp.key1);
+        partners.remove(otp.key2);
+        if (partners.isEmpty()) {
+            openTrackPairs_noTracks.remove(otp.key1);
+        }
     }
 
-    private boolean pointsComeFromSameTracks(Pair<Point, Point> newPair) {
-        return newPair.first().trackId().equals(newPair.second().trackId());
+    private int numOpenPairsWithoutTracks() {
+        int count = 0;
+        for (HashMap<String, OpenTrackPair> partners : openTrackPairs_noTracks.values()) {
+            count += partners.size();
+        }
+        return count;
     }
 
     public TrackMaker innerTrackMaker() {
@@ -260,6 +291,68 @@ public class TrackPairer implements Consumer<Point> {
         return this.numTrackPairsIdentified;
     }
 
+    /**
+     * Write the inner TrackMaker's "tracks under construction" and every OpenTrackPair (i.e. pairs
+     * that are still waiting for one or both of their Tracks) to a compact binary checkpoint.
+     * <p>
+     * The PointPairFinder's short window of recent Points is not written. Consequently, a close
+     * pair of Points that straddles a restart can be missed.
+     *
+     * @param out   Receives the checkpoint
+     * @param codec Encodes each Point
+     */
+    public void writeCheckpoint(DataOutput out, SpillCodec<Point> codec) throws IOException {
+        trackMaker.writeCheckpoint(out, codec);
+
+        out.writeInt(numOpenPairsWithoutTracks());
+        for (HashMap<String, OpenTrackPair> partners : openTrackPairs_noTracks.values()) {
+            for (OpenTrackPair otp : partners.values()) {
+                out.writeUTF(otp.key1);
+                out.writeUTF(otp.key2);
+            }
+        }
+
+        out.writeInt(openTrackPairs_oneTrack.size());
+        for (OpenTrackPair otp : openTrackPairs_oneTrack) {
+            out.writeUTF(otp.key1);
+            out.writeUTF(otp.key2);
+            Track knownTrack = (otp.track1 != null) ? otp.track1 : otp.track2;
+            NavigableSet<Point> points = (NavigableSet<Point>) knownTrack.points();
+            out.writeInt(points.size());
+            for (Point point : points) {
+                codec.write(out, point);
+            }
+        }
+    }
+
+    /**
+     * Rebuild this TrackPairer's in-flight state from a checkpoint made by writeCheckpoint. This
+     * TrackPairer must not have received any Points.
+     *
+     * @param in    Provides the checkpoint
+     * @param codec Decodes each Point
+     */
+    public void restoreCheckpoint(DataInput in, SpillCodec<Point> codec) throws IOException {
+        trackMaker.restoreCheckpoint(in, codec);
+
+        int numNoTracks = in.readInt();
+        for (int i = 0; i < numNoTracks; i++) {
+            addOpenPairWithoutTracks(in.readUTF(), in.readUTF());
+        }
+
+        int numOneTrack = in.readInt();
+        for (int i = 0; i < numOneTrack; i++) {
+            OpenTrackPair otp = new OpenTrackPair(in.readUTF(), in.readUTF());
+            int numPoints = in.readInt();
+            List<Point> points = new ArrayList<>(numPoints);
+            for (int j = 0; j < numPoints; j++) {
+                points.add(codec.read(in));
+            }
+            otp.offer(Track.ofPresorted((List) points));
+            openTrackPairs_oneTrack.add(otp);
+        }
+    }
+
     @Override
     public void accept(Point t) {
         if (t.trackIdIsMissing()) {
@@ -269,6 +362,19 @@ public class TrackPairer implements Consumer<Point> {
         this.trackMaker.accept(t);
     }
 
+    /**
+     * Accept a time-sorted batch of Points. Each Point is still given to the PointPairFinder and
+     * then the TrackMaker before the next Point is processed. This interleaving cannot be batched
+     * because a TrackPair must never be matched with a Track that closed before the pair of close
+     * Points was found.
+     */
+    @Override
+    public void acceptAll(List<? extends Point> batch) {
+        for (Point t : batch) {
+            accept(t);
+        }
+    }
+
     /**
      * An OpenTrackPair is a placeholder for a Pair<Track, Track> that we want are building on the
      * fly.
@@ -279,22 +385,16 @@ public class TrackPairer implements Consumer<Point> {
      */
     private class OpenTrackPair {
 
+        /* The trackIds of the two tracks (key1 is the greater trackId). */
         private final String key1;
         private final String key2;
 
         private Track track1;
         private Track track2;
 
-        OpenTrackPair(String inputKey1, String inputKey2) {
-
-            if (inputKey1.compareTo(inputKey2) > 0) {
-                this.key1 = inputKey1;
-                this.key2 = inputKey2;
-            } else {
-                this.key1 = inputKey2;
-                this.key2 = inputKey1;
-            }
-
+        OpenTrackPair(String key1, String key2) {
+            this.key1 = key1;
+            this.key2 = key2;
             track1 = null;
             track2 = null;
         }
@@ -304,7 +404,7 @@ public class TrackPairer implements Consumer<Point> {
 
             Point firstPoint = ((NavigableSet<Point<?>>) track.points()).first();
 
-            String trackKey = keyExtractor.joinKeyFor(firstPoint);
+            String trackKey = firstPoint.trackId();
 
             /*
              * DO NOT allow "track1" or "track2" to be set twice. This can lead to lost events if
@@ -317,12 +417,12 @@ public class TrackPairer implements Consumer<Point> {
              * also happen to have the same TrackJoinKey) are not GUARANTEED to have come close to
              * the long-lived track.
              */
-            if (track1 == null && trackKey.equals(key1.toString())) {
+            if (track1 == null && trackKey.equals(key1)) {
                 this.track1 = track;
                 return true;
             }
 
-            if (track2 == null && trackKey.equals(key2.toString())) {
+            if (track2 == null && trackKey.equals(key2)) {
                 this.track2 = track;
                 return true;
             }
@@ -336,10 +436,5 @@ public class TrackPairer implements Consumer<Point> {
             }
             return new TrackPair(track1, track2);
         }
-
-        /** @return A key that can be used to put/get this objects in a Map. */
-        public String asKey() {
-            return key1.toString() + "_" + key2.toString();
-        }
     }
 }
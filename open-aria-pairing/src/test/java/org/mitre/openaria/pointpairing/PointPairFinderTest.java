@@ -102,6 +102,32 @@ public class PointPairFinderTest {
         );
     }
 
+    @Test
+    public void pointsFromTheSameTrackAreNotPaired() {
+
+        DistanceMetric<Point> metric = new PointDistanceMetric(1.0, 1.0);
+        TestSink sink = new TestSink();
+
+        PointPairFinder pairer = new PointPairFinder(Duration.ofSeconds(13), metric, 1250.0, sink);
+
+        //"Aa" and "BB" have the same hashCode, but they are still different tracks
+        pairer.accept(newPoint("Aa", Instant.EPOCH));
+        pairer.accept(newPoint("Aa", Instant.EPOCH.plusMillis(500)));
+
+        assertEquals(0, sink.count, "Both points come from the same track");
+
+        pairer.accept(newPoint("BB", Instant.EPOCH.plusMillis(1000)));
+
+        assertEquals(2, sink.count, "The BB point is close to both Aa points");
+        assertEquals("BB", sink.lastPair.first().trackId());
+        assertEquals("Aa", sink.lastPair.second().trackId());
+    }
+
+    private static Point newPoint(String trackId, Instant time) {
+        return (new PointBuilder())
+            .trackId(trackId).time(time).latLong(0.0, 0.0).altitude(Distance.ofFeet(0.0)).build();
+    }
+
     @Test
     public void testUnorderedPoints() {
 
@@ -12,7 +12,12 @@ import static org.mitre.caasd.commons.ConsumingCollections.newConsumingArrayList
 import static org.mitre.openaria.core.Point.builder;
 import static org.mitre.openaria.pointpairing.PairingConfig.standardPairingProperties;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -20,11 +25,14 @@ import java.util.NavigableSet;
 import java.util.function.Predicate;
 
 import org.mitre.caasd.commons.ConsumingCollections.ConsumingArrayList;
+import org.mitre.caasd.commons.Distance;
 import org.mitre.caasd.commons.Pair;
 import org.mitre.openaria.core.Point;
 import org.mitre.openaria.core.PointIterator;
+import org.mitre.openaria.core.SpillCodec;
 import org.mitre.openaria.core.Track;
 import org.mitre.openaria.core.TrackPair;
+import org.mitre.openaria.core.formats.Formats;
 import org.mitre.openaria.core.formats.nop.NopEncoder;
 import org.mitre.openaria.core.formats.nop.NopHit;
 import org.mitre.openaria.core.formats.nop.NopParser;
@@ -79,6 +87,76 @@ public class TrackPairerTest {
         assertThat(pairConsumer, hasSize(1));
     }
 
+    @Test
+    public void tracksWithCollidingTrackIdsArePaired() {
+        ConsumingArrayList<Track> trackConsumer = newConsumingArrayList();
+        ConsumingArrayList<TrackPair> pairConsumer = newConsumingArrayList();
+        TrackPairer pairer = new TrackPairer(trackConsumer, pairConsumer, standardPairingProperties());
+
+        //"Aa" and "BB" have the same hashCode
+        pairer.accept(pointAt("Aa", 0));
+        pairer.accept(pointAt("BB", 500));
+        pairer.accept(pointAt("Aa", 1_000));
+        pairer.accept(pointAt("BB", 1_500));
+        pairer.innerTrackMaker().flushAllTracks();
+
+        assertThat(trackConsumer, hasSize(2));
+        assertThat(pairConsumer, hasSize(1));
+    }
+
+    @Test
+    public void pointsWithoutATrackIdAreNotPaired() {
+        ConsumingArrayList<TrackPair> pairConsumer = newConsumingArrayList();
+        TrackPairer pairer = new TrackPairer(pairConsumer, standardPairingProperties());
+
+        //feed the PointPairFinder directly, TrackPairer.accept would drop the 2nd Point
+        pairer.innerPairFinder().accept(pointAt("Aa", 0));
+        pairer.innerPairFinder().accept(pointAt(null, 500));
+        pairer.accept(pointAt("Aa", 1_000));
+        pairer.innerTrackMaker().flushAllTracks();
+
+        assertThat(pairConsumer, hasSize(0));
+        assertThat(pairer.numTrackPairsIdentified(), is(0L));
+    }
+
+    private static Point<String> pointAt(String trackId, long epochMs) {
+        return Point.<String>builder()
+            .trackId(trackId)
+            .time(Instant.EPOCH.plusMillis(epochMs))
+            .latLong(40.0, -75.0)
+            .altitude(Distance.ofFeet(5_000))
+            .build();
+    }
+
+    @Test
+    public void checkpointRestoresInFlightTracksAndPairs() throws IOException {
+        ConsumingArrayList<Track> trackConsumer = newConsumingArrayList();
+        ConsumingArrayList<TrackPair> pairConsumer = newConsumingArrayList();
+        SpillCodec<Point> codec = (SpillCodec) Formats.nop().spillCodec();
+
+        ArrayList<Point<NopHit>> points = getTestPoints();
+        Collections.sort(points);
+        int half = points.size() / 2;
+
+        //process the first half of the data, then checkpoint and "shut down"
+        TrackPairer before = new TrackPairer(trackConsumer, pairConsumer, standardPairingProperties());
+        points.subList(0, half).forEach(before);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        before.writeCheckpoint(new DataOutputStream(bytes), codec);
+
+        //"restart" and process the second half of the data
+        TrackPairer after = new TrackPairer(trackConsumer, pairConsumer, standardPairingProperties());
+        after.restoreCheckpoint(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), codec);
+        points.subList(half, points.size()).forEach(after);
+        after.innerTrackMaker().flushAllTracks();
+
+        //the same Tracks and TrackPair are found as when the data is processed without a restart
+        assertThat(trackConsumer, hasSize(2));
+        assertThat(pairConsumer, hasSize(1));
+        assertThat(trackConsumer.get(0).size() + trackConsumer.get(1).size(), is(points.size()));
+    }
+
     @Test
     public void confirmTracksMatch() {
 
@@ -3,6 +3,7 @@ package org.mitre.openaria.system;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Objects.requireNonNull;
+import static org.apache.kafka.clients.consumer.ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG;
 import static org.apache.kafka.clients.consumer.ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG;
 import static org.mitre.caasd.commons.util.PropertyUtils.*;
 import static org.mitre.openaria.core.formats.nop.Facility.toFacility;
@@ -13,18 +14,22 @@ import static org.mitre.openaria.kafka.KafkaPropertyUtils.verifyKafkaBrokers;
 import java.io.File;
 import java.time.Duration;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import org.mitre.caasd.commons.util.ErrorCatchingTask;
 import org.mitre.caasd.commons.util.ExceptionHandler;
 import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.SpillCodec;
+import org.mitre.openaria.core.formats.Formats;
 import org.mitre.openaria.core.formats.nop.Facility;
 import org.mitre.openaria.core.formats.nop.NopHit;
 import org.mitre.openaria.core.temp.Extras.HasSourceDetails;
@@ -41,6 +46,7 @@ import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
 
 /**
@@ -79,6 +85,27 @@ public class KafkaIngestor<KAFKA_VAL, PK> {
     /** This object (which is usually built by parsing a .yaml file) configures that algorithm. */
     private final Options options;
 
+    /** Encodes the Points in each checkpoint (null when checkpoints are disabled). */
+    private final SpillCodec<Point> checkpointCodec;
+
+    /**
+     * The Kafka offset each TopicPartition should resume from (as recorded by the checkpoints
+     * restored at startup). Entries are removed once the KafkaConsumer has seeked to them.
+     */
+    private final Map<TopicPartition, Long> restoredOffsets;
+
+    /**
+     * The offsets of the most recent round of checkpoints. These are committed to Kafka by the
+     * data pulling thread (KafkaConsumers are not thread-safe). Null when nothing is pending.
+     */
+    private final AtomicReference<Map<TopicPartition, OffsetAndMetadata>> offsetsToCommit;
+
+    /**
+     * Held while Kafka records are offered to the SwimLanes and while a round of checkpoints is
+     * written. A round therefore sees every record either processed or queued in some SwimLane.
+     */
+    private final Object checkpointLock = new Object();
+
     /**
      * @param options          These options control how data is retrieved and processed
      * @param kafkaProps       The Properties passed to a KafkaConsumer constructor
@@ -100,6 +127,9 @@ public class KafkaIngestor<KAFKA_VAL, PK> {
         ExceptionHandler exceptionHandler
     ) {
         this.options = requireNonNull(options);
+        this.checkpointCodec = checkpointCodecFor(options, requireNonNull(converter));
+        this.restoredOffsets = new ConcurrentHashMap<>();
+        this.offsetsToCommit = new AtomicReference<>();
         this.kpiFactory = requireNonNull(kpiFactory);
         this.partitionMapping = requireNonNull(partitionMapping);
         this.swimLanes = buildSwimLanes();
@@ -115,6 +145,8 @@ public class KafkaIngestor<KAFKA_VAL, PK> {
         );
         this.latencyCollectors = buildLatencyCollectors();
 
+        restoreCheckpoints();
+        scheduleCheckpointing();
         scheduleDataProcessingTasks();
         scheduleDataPullingTask();
         scheduleIngestSummaryLogging();
@@ -137,7 +169,7 @@ public class KafkaIngestor<KAFKA_VAL, PK> {
              * A data backup in this queue can, in principle, contain 100% of all prefetch-able data
              * and thus prevent downloading more data from Kafka.
              */
-            map.put(place, new SwimLane(kpiFactory.createKpi(place), options.pointPrefetchLimit * 2));
+            map.put(place, new SwimLane(kpiFactory.createKpi(place), options.pointPrefetchLimit * 2, checkpointsEnabled()));
         }
         return map;
     }
@@ -152,6 +184,21 @@ public class KafkaIngestor<KAFKA_VAL, PK> {
         return map;
     }
 
+    /*
+     * Reject a checkpointing config whose RecordHelper cannot encode Points now, rather than when
+     * the first checkpoint is written (or restored).
+     */
+    private static SpillCodec<Point> checkpointCodecFor(Options options, RecordHelper<?, ?> converter) {
+        if (options.checkpointDirectory == null) {
+            return null;
+        }
+        try {
+            return requireNonNull(converter.pointCodec());
+        } catch (UnsupportedOperationException uoe) {
+            throw new IllegalArgumentException("A checkpoint.dir was configured but the RecordHelper cannot encode Points", uoe);
+        }
+    }
+
     /* Perform some light validation of the Properties object we use to configure Kafka. */
     private KafkaConsumer<String, KAFKA_VAL> buildKafkaConsumer(Properties kafkaProps) {
         verifyKafkaBrokers(kafkaProps);
@@ -160,6 +207,14 @@ public class KafkaIngestor<KAFKA_VAL, PK> {
             "The Kafka Properties config must contain a partition.assignment.strategy"
         );
 
+        if (checkpointsEnabled()) {
+            //offsets are only committed once the data before them is captured in a checkpoint
+            Properties copy = new Properties();
+            copy.putAll(kafkaProps);
+            copy.put(ENABLE_AUTO_COMMIT_CONFIG, "false");
+            return new KafkaConsumer<>(copy);
+        }
+
         return new KafkaConsumer<>(kafkaProps);
     }
 
@@ -185,6 +240,18 @@ public class KafkaIngestor<KAFKA_VAL, PK> {
             List<TopicPartition> topicPartitions = options.topicPartitions();
             kafkaConsumer.assign(topicPartitions);  //enforce specific partitions.
             kafkaConsumer.seekToBeginning(topicPartitions);
+            //...unless a checkpoint says where a partition's data should resume
+            seekToRestoredOffsets(topicPartitions);
+        }
+    }
+
+    /* Resume each (newly assigned) TopicPartition from the offset its checkpoint recorded. */
+    private void seekToRestoredOffsets(Collection<TopicPartition> assignedPartitions) {
+        for (TopicPartition tp : assignedPartitions) {
+            Long offset = restoredOffsets.remove(tp);
+            if (offset != null) {
+                kafkaConsumer.seek(tp, offset);
+            }
         }
     }
 
@@ -231,6 +298,8 @@ public class KafkaIngestor<KAFKA_VAL, PK> {
         @Override
         public void run() {
 
+            commitCheckpointedOffsets();
+
             if (shouldPullMoreData()) {
                 pullDataFromKafka();
                 numConsecutivePullsSkipped = 0;
@@ -255,21 +324,31 @@ public class KafkaIngestor<KAFKA_VAL, PK> {
             ConsumerRecords<String, KAFKA_VAL> records = kafkaConsumer.poll(timeout);
             System.out.println("done polling [" + records.count() + " records retrieved]");
 
-            for (ConsumerRecord<String, KAFKA_VAL> record : records) {
+            synchronized (checkpointLock) {
+                for (ConsumerRecord<String, KAFKA_VAL> record : records) {
 
-                Optional<? extends Point> optional = converter.parse(record);
+                    Optional<? extends Point> optional = converter.parse(record);
 
-                if (optional.isPresent()) {
-                    Point point = optional.get();
+                    if (optional.isPresent()) {
+                        Point point = optional.get();
 
-                    PK partitionKey = converter.partitionKeyFor(point);
-                    swimLanes.get(partitionKey).offerToQueue(point);
-                    latencyCollectors.get(partitionKey).incorporate(record, point);
-                    ingestSummarizer.incorporate(record, point);
+                        PK partitionKey = converter.partitionKeyFor(point);
+                        swimLanes.get(partitionKey).offerToQueue(point, inputName(record), record.offset());
+                        latencyCollectors.get(partitionKey).incorporate(record, point);
+                        ingestSummarizer.incorporate(record, point);
+                    }
                 }
             }
         }
 
+        /* Runs on the data pulling thread because KafkaConsumers are not thread-safe. */
+        private void commitCheckpointedOffsets() {
+            Map<TopicPartition, OffsetAndMetadata> offsets = offsetsToCommit.getAndSet(null);
+            if (offsets != null && options.useConsumerGroups) {
+                kafkaConsumer.commitSync(offsets);
+            }
+        }
+
         private void warnIfTooManyCancels() {
             final int LIMIT = 100;
             if (numConsecutivePullsSkipped >= LIMIT && numConsecutivePullsSkipped % LIMIT == 0) {
@@ -363,6 +442,94 @@ public class KafkaIngestor<KAFKA_VAL, PK> {
         );
     }
 
+    private boolean checkpointsEnabled() {
+        return options.checkpointDirectory != null;
+    }
+
+    private File checkpointFileFor(PK place) {
+        return new File(options.checkpointDirectory, "checkpoint-" + place + ".bin");
+    }
+
+    /* The name of an input stream (as stored in a checkpoint), e.g. "points-7". */
+    private static String inputName(ConsumerRecord<?, ?> record) {
+        return record.topic() + "-" + record.partition();
+    }
+
+    private static TopicPartition topicPartitionNamed(String inputName) {
+        int split = inputName.lastIndexOf('-');
+        return new TopicPartition(inputName.substring(0, split), Integer.parseInt(inputName.substring(split + 1)));
+    }
+
+    /*
+     * Rebuild each SwimLane's in-flight tracks (and sort buffer) from the prior run's checkpoint.
+     * The Kafka offsets stored with each checkpoint tell the KafkaConsumer where to resume, so the
+     * Points processed after the checkpoint (or still queued when the JVM stopped) are read again.
+     * Each SwimLane ignores re-read records its restored state already reflects.
+     */
+    private void restoreCheckpoints() {
+        if (!checkpointsEnabled()) {
+            return;
+        }
+        for (Map.Entry<PK, SwimLane> entry : swimLanes.entrySet()) {
+            File checkpoint = checkpointFileFor(entry.getKey());
+            if (checkpoint.exists()) {
+                Map<String, Long> positions = entry.getValue().restoreCheckpoint(checkpoint, checkpointCodec);
+                //when SwimLanes share a TopicPartition resume from the earliest offset (nothing is skipped)
+                positions.forEach((input, offset) -> restoredOffsets.merge(topicPartitionNamed(input), offset, Math::min));
+            }
+        }
+    }
+
+    /*
+     * Write a checkpoint of every SwimLane periodically AND when the JVM shuts down. This way a
+     * restart does not force-close every open track (and lose every half-found TrackPair).
+     */
+    private void scheduleCheckpointing() {
+        if (!checkpointsEnabled()) {
+            return;
+        }
+        ErrorCatchingTask task = new ErrorCatchingTask(
+            () -> writeCheckpoints(),
+            serviceAssets.exceptionHandler()
+        );
+
+        serviceAssets.fastTaskExecutor().scheduleWithFixedDelay(
+            task,
+            options.checkpointPeriodSec,
+            options.checkpointPeriodSec,
+            TimeUnit.SECONDS
+        );
+
+        Runtime.getRuntime().addShutdownHook(new Thread(task, "checkpoint-on-shutdown"));
+    }
+
+    /*
+     * Checkpoint every SwimLane, then hand the offsets those checkpoints reflect to the data pulling
+     * thread for committing. Kafka's committed offsets therefore never run ahead of the checkpoints.
+     *
+     * Each SwimLane stores the offset of its earliest unprocessed record (queued records included),
+     * and the committed offset of a TopicPartition is the minimum across every SwimLane. No records
+     * are offered while the round is written, otherwise a record offered to a SwimLane that was
+     * already checkpointed could fall below the offset committed for a later SwimLane.
+     */
+    private void writeCheckpoints() {
+        File directory = new File(options.checkpointDirectory);
+        checkState(directory.isDirectory() || directory.mkdirs(), "Cannot create: " + directory.getAbsolutePath());
+
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        synchronized (checkpointLock) {
+            for (Map.Entry<PK, SwimLane> entry : swimLanes.entrySet()) {
+                Map<String, Long> positions = entry.getValue().writeCheckpoint(checkpointFileFor(entry.getKey()), checkpointCodec);
+                positions.forEach((input, offset) -> offsets.merge(
+                    topicPartitionNamed(input),
+                    new OffsetAndMetadata(offset),
+                    (a, b) -> a.offset() <= b.offset() ? a : b
+                ));
+            }
+        }
+        offsetsToCommit.set(offsets);
+    }
+
     public Map<PK, KafkaLatencyCollector> latencyCollectors() {
         return this.latencyCollectors;
     }
@@ -404,6 +571,11 @@ public class KafkaIngestor<KAFKA_VAL, PK> {
         Optional<? extends Point> parse(ConsumerRecord<String, KFK_VAL> consumerRecord);
 
         PK partitionKeyFor(Point point);
+
+        /** @return Encodes and decodes the Points this RecordHelper makes (used for checkpoints). */
+        default SpillCodec<Point> pointCodec() {
+            throw new UnsupportedOperationException("This RecordHelper does not support checkpoints");
+        }
     }
 
     public static class NopPlugin implements RecordHelper<String, Facility> {
@@ -431,6 +603,11 @@ public class KafkaIngestor<KAFKA_VAL, PK> {
                 return Facility.A80;
             }
         }
+
+        @Override
+        public SpillCodec<Point> pointCodec() {
+            return (SpillCodec) Formats.nop().spillCodec();
+        }
     }
 
     public static RecordHelper<String, Facility> nopPlugin() {
@@ -473,6 +650,9 @@ public class KafkaIngestor<KAFKA_VAL, PK> {
         public void onPartitionsAssigned(Collection<TopicPartition> assignedPartitions) {
             //SEE COMMENT IN "onPartitionsRevoked" to see how these two methods inter-relate
 
+            //a checkpointed partition resumes where its checkpoint left off
+            seekToRestoredOffsets(assignedPartitions);
+
             //identify the TopicPartition that were revoked BUT NOT immediately reassigned
             this.recentlyRevoked.removeAll(assignedPartitions);
 
@@ -552,6 +732,15 @@ public class KafkaIngestor<KAFKA_VAL, PK> {
         /** The name of kafka topic where raw point data is found. */
         public final String pointTopic;
 
+        /**
+         * Where checkpoints of each SwimLane's in-flight state are written (and restored from at
+         * startup). Checkpoints are disabled when this is null.
+         */
+        public final String checkpointDirectory;
+
+        /** The delay between two consecutive rounds of checkpoint writing. */
+        public final Integer checkpointPeriodSec;
+
         public Options(Properties properties) {
             this.pointPrefetchLimit = getInt("point.prefetch.limit", properties);
             this.numWorkerThreads = getInt("numWorkerThreads", properties);
@@ -560,6 +749,8 @@ public class KafkaIngestor<KAFKA_VAL, PK> {
             this.minPartition = getInt("min.consumer.partition", properties);
             this.maxPartition = getInt("max.consumer.partition", properties);
             this.pointTopic = getString("kafkaTopicName", properties);
+            this.checkpointDirectory = properties.getProperty("checkpoint.dir");
+            this.checkpointPeriodSec = getOptionalInt("checkpoint.period.sec", properties, 300);
         }
 
         public Options() {
@@ -570,6 +761,8 @@ public class KafkaIngestor<KAFKA_VAL, PK> {
             this.minPartition = null;
             this.maxPartition = null;
             this.pointTopic = null; //this should be set via YAML
+            this.checkpointDirectory = null; //checkpoints are disabled by default
+            this.checkpointPeriodSec = 300;
         }
 
         List<TopicPartition> topicPartitions() {
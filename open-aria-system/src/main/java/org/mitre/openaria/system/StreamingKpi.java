@@ -1,20 +1,45 @@
 package org.mitre.openaria.system;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Collections.emptyMap;
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.mitre.caasd.commons.util.DemotedException.demote;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.text.NumberFormat;
 import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.function.Consumer;
 
+import org.mitre.openaria.core.ApproximateTimeSorter.BufferType;
+import org.mitre.openaria.core.BatchConsumer;
 import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.SpillCodec;
+import org.mitre.openaria.core.SpillConfig;
 import org.mitre.openaria.core.StreamingTimeSorter;
 import org.mitre.openaria.core.Track;
 import org.mitre.openaria.core.TrackPair;
+import org.mitre.openaria.core.WatermarkConfig;
 import org.mitre.openaria.pointpairing.PairingConfig;
 import org.mitre.openaria.pointpairing.PointPairFinder;
+import org.mitre.openaria.threading.ShardedTrackMaker;
 import org.mitre.openaria.threading.TrackMaker;
+import org.mitre.openaria.threading.TrackMakerMetrics;
 import org.mitre.openaria.trackpairing.TrackPairer;
 
 /**
@@ -32,7 +57,7 @@ import org.mitre.openaria.trackpairing.TrackPairer;
  * @param <T> The Event Detection algorithm "at the heart" this StreamingKpi (which must implement
  *            either {@literal Consumer<Track>} or {@literal Consumer<TrackPair>})
  */
-public class StreamingKpi<T> implements Consumer<Point> {
+public class StreamingKpi<T> implements BatchConsumer<Point>, AutoCloseable {
 
     /**
      * Sets the "Point sort" Duration used in the StreamingPointSorter. This impacts the amount of
@@ -41,12 +66,22 @@ public class StreamingKpi<T> implements Consumer<Point> {
      */
     public static final String IN_MEMORY_SORT_BUFFER_SEC = "in.memory.sort.buffer.sec";
 
+    /* Identifies a checkpoint file (the ASCII bytes "ARCK") and its layout version. */
+    private static final int CHECKPOINT_MAGIC = 0x4152434B;
+
+    private static final int CHECKPOINT_VERSION = 2;
+
+    private static final int CHECKPOINT_BUFFER_SIZE = 1 << 16;
+
     /* Corrects out-of-time-sequence flaws in the incoming Point data. */
     private final StreamingTimeSorter pointSorter;
 
     /* Enables queries into the total number of tracks processed */
     private final TrackMaker trackMaker;
 
+    /* Replaces the trackMaker when Tracks are made on several threads (otherwise this is null) */
+    private final ShardedTrackMaker shardedTrackMaker;
+
     /* Enables queries into the total number of trackPairs processed */
     private final TrackPairer trackPairer;
 
@@ -77,6 +112,23 @@ public class StreamingKpi<T> implements Consumer<Point> {
      * @return A StreamingKpi that analyzes TrackPairs.
      */
     public static <T extends Consumer<TrackPair>> StreamingKpi<T> trackPairKpi(T trackPairAnalyzer, PairingConfig pairingConfig, int inMemoryBufferSec) {
+        return trackPairKpi(trackPairAnalyzer, pairingConfig, inMemoryBufferSec, BufferType.PRIORITY_QUEUE);
+    }
+
+    /**
+     * Create a StreamingKpi that can accept a stream of Point data and convert that Point stream
+     * into a Stream of TrackPairs that the trackPairAnalyzer can operate on.
+     *
+     * @param <T>               A class that implements an Event Detection algorithm which operates
+     *                          on TrackPairs.
+     * @param trackPairAnalyzer An instance of the Event Detection algorithm.
+     * @param pairingConfig     Defines what "close" means when creating TrackPairs.
+     * @param inMemoryBufferSec How much Point data is kept in memory to smooth out timing errors
+     * @param sortBufferType    The data structure that holds the in-memory Point buffer
+     *
+     * @return A StreamingKpi that analyzes TrackPairs.
+     */
+    public static <T extends Consumer<TrackPair>> StreamingKpi<T> trackPairKpi(T trackPairAnalyzer, PairingConfig pairingConfig, int inMemoryBufferSec, BufferType sortBufferType) {
 
         TrackPairer trackPairer = new TrackPairer(trackPairAnalyzer, pairingConfig);
 
@@ -84,7 +136,63 @@ public class StreamingKpi<T> implements Consumer<Point> {
 
         StreamingTimeSorter pointSorter = new StreamingTimeSorter(
             trackPairer,
-            Duration.ofSeconds(inMemoryBufferSec)
+            Duration.ofSeconds(inMemoryBufferSec),
+            ignoredInput -> {},
+            sortBufferType
+        );
+
+        return new StreamingKpi<>(trackPairAnalyzer, trackPairer, pointSorter);
+    }
+
+    /**
+     * Create a StreamingKpi that can accept a stream of Point data and convert that Point stream
+     * into a Stream of TrackPairs that the trackPairAnalyzer can operate on. The Point sort buffer
+     * spills older Points to disk, this permits a very large inMemoryBufferSec.
+     *
+     * @param <T>               A class that implements an Event Detection algorithm which operates
+     *                          on TrackPairs.
+     * @param trackPairAnalyzer An instance of the Event Detection algorithm.
+     * @param pairingConfig     Defines what "close" means when creating TrackPairs.
+     * @param inMemoryBufferSec How much Point data is buffered to smooth out timing errors
+     * @param spillConfig       Where, when, and how buffered Points are spilled to disk
+     *
+     * @return A StreamingKpi that analyzes TrackPairs.
+     */
+    public static <T extends Consumer<TrackPair>> StreamingKpi<T> trackPairKpi(T trackPairAnalyzer, PairingConfig pairingConfig, int inMemoryBufferSec, SpillConfig<Point> spillConfig) {
+
+        TrackPairer trackPairer = new TrackPairer(trackPairAnalyzer, pairingConfig);
+
+        StreamingTimeSorter pointSorter = new StreamingTimeSorter(
+            trackPairer,
+            Duration.ofSeconds(inMemoryBufferSec),
+            ignoredInput -> {},
+            spillConfig
+        );
+
+        return new StreamingKpi<>(trackPairAnalyzer, trackPairer, pointSorter);
+    }
+
+    /**
+     * Create a StreamingKpi that can accept a stream of Point data and convert that Point stream
+     * into a Stream of TrackPairs that the trackPairAnalyzer can operate on. The Point data is
+     * merged from several unsynchronized sources (e.g. radars) using a per-source watermark.
+     *
+     * @param <T>               A class that implements an Event Detection algorithm which operates
+     *                          on TrackPairs.
+     * @param trackPairAnalyzer An instance of the Event Detection algorithm.
+     * @param pairingConfig     Defines what "close" means when creating TrackPairs.
+     * @param watermarkConfig   How Point sources are identified and how long they are waited for
+     *
+     * @return A StreamingKpi that analyzes TrackPairs.
+     */
+    public static <T extends Consumer<TrackPair>> StreamingKpi<T> trackPairKpi(T trackPairAnalyzer, PairingConfig pairingConfig, WatermarkConfig<Point> watermarkConfig) {
+
+        TrackPairer trackPairer = new TrackPairer(trackPairAnalyzer, pairingConfig);
+
+        StreamingTimeSorter pointSorter = new StreamingTimeSorter(
+            trackPairer,
+            ignoredInput -> {},
+            watermarkConfig
         );
 
         return new StreamingKpi<>(trackPairAnalyzer, trackPairer, pointSorter);
@@ -117,9 +225,45 @@ public class StreamingKpi<T> implements Consumer<Point> {
         return new StreamingKpi<>(trackAnalyzer, trackMaker, pointSorter);
     }
 
+    /**
+     * Create a StreamingKpi that can accept a stream of Point data and convert that Point stream
+     * into a Stream of Tracks that the trackAnalyzer can operate on. Tracks are made by a
+     * ShardedTrackMaker, so the work of making Tracks is spread across several threads.
+     *
+     * @param <T>                    A class that implements an Event Detection algorithm which
+     *                               operates on Tracks. This is called by one thread at a time.
+     * @param trackAnalyzer          An instance of the Event Detection algorithm.
+     * @param inMemorySortBufferSize Controls how much data we buffer in memory before releasing the
+     *                               point data to the TrackMaker.  This corrects out of order
+     *                               data.
+     * @param numShards              The number of threads used to make Tracks
+     *
+     * @return A StreamingKpi that analyzes Tracks.
+     */
+    public static <T extends Consumer<Track>> StreamingKpi<T> trackBasedKpi(T trackAnalyzer, Duration inMemorySortBufferSize, int numShards) {
+
+        ShardedTrackMaker trackMaker = new ShardedTrackMaker(numShards, trackAnalyzer);
+
+        StreamingTimeSorter pointSorter = new StreamingTimeSorter(
+            trackMaker, inMemorySortBufferSize
+        );
+
+        return new StreamingKpi<>(trackAnalyzer, trackMaker, pointSorter);
+    }
+
     private StreamingKpi(T coreLogic, TrackMaker trackMaker, StreamingTimeSorter pointSorter) {
         this.coreLogic = checkNotNull(coreLogic);
         this.trackMaker = checkNotNull(trackMaker);
+        this.shardedTrackMaker = null;
+        this.pointSorter = checkNotNull(pointSorter);
+        this.trackPairer = null;
+        this.curPointCount = 0L;
+    }
+
+    private StreamingKpi(T coreLogic, ShardedTrackMaker shardedTrackMaker, StreamingTimeSorter pointSorter) {
+        this.coreLogic = checkNotNull(coreLogic);
+        this.trackMaker = null;
+        this.shardedTrackMaker = checkNotNull(shardedTrackMaker);
         this.pointSorter = checkNotNull(pointSorter);
         this.trackPairer = null;
         this.curPointCount = 0L;
@@ -131,6 +275,7 @@ public class StreamingKpi<T> implements Consumer<Point> {
         this.trackPairer = checkNotNull(trackPairer);
         this.pointSorter = checkNotNull(pointSorter);
         this.trackMaker = trackPairer.innerTrackMaker();
+        this.shardedTrackMaker = null;
         this.curPointCount = 0L;
     }
 
@@ -151,19 +296,38 @@ public class StreamingKpi<T> implements Consumer<Point> {
         heartbeat();
     }
 
+    /**
+     * Accept a batch of Points (e.g. from Format.parseBatches). The batch flows through the Point
+     * sorter, and onward to the TrackMaker or TrackPairer, as a batch. This amortizes per-Point
+     * bookkeeping (like sort buffer eviction checks) over the whole batch.
+     */
+    @Override
+    public void acceptAll(List<? extends Point> batch) {
+        long priorCount = curPointCount;
+        curPointCount += batch.size();
+        pointSorter.acceptAll(batch);
+        if (priorCount / 100_000 != curPointCount / 100_000) {
+            printHeartbeat();
+        }
+    }
+
     private void heartbeat() {
         if (curPointCount % 100_000 == 0) {
-            System.out.println("  Processed Point: "
-                + NumberFormat.getNumberInstance(Locale.US).format(curPointCount));
+            printHeartbeat();
         }
     }
 
+    private void printHeartbeat() {
+        System.out.println("  Processed Point: "
+            + NumberFormat.getNumberInstance(Locale.US).format(curPointCount));
+    }
+
     public long numPointsProcessed() {
         return this.curPointCount;
     }
 
     public long numTracksProcessed() {
-        return trackMaker().numTracksPublished();
+        return trackMakerMetrics().numTracksPublished();
     }
 
     public long numTrackPairsProcessed() {
@@ -176,21 +340,153 @@ public class StreamingKpi<T> implements Consumer<Point> {
         return this.pointSorter;
     }
 
+    /** @return The TrackMaker (this is null when Tracks are made by a ShardedTrackMaker). */
     public TrackMaker trackMaker() {
         return trackMaker;
     }
 
+    /**
+     * @return The metrics of the component that makes Tracks. This is the TrackMaker, or the
+     *     ShardedTrackMaker (whose metrics are summed across its shards) when Tracks are made on
+     *     several threads.
+     */
+    public TrackMakerMetrics trackMakerMetrics() {
+        return (isNull(shardedTrackMaker)) ? trackMaker : shardedTrackMaker;
+    }
+
+    /** @return The ShardedTrackMaker (this is null when Tracks are made by a single TrackMaker). */
+    public ShardedTrackMaker shardedTrackMaker() {
+        return shardedTrackMaker;
+    }
+
     public PointPairFinder pointPairFinder() {
         return (isNull(trackPairer))
             ? null
             : trackPairer.innerPairFinder();
     }
 
+    /**
+     * Write this StreamingKpi's in-flight state to a compact binary checkpoint file. The checkpoint
+     * holds (1) the "tracks under construction", (2) any TrackPairs that are waiting for one or
+     * both of their Tracks, and (3) the Points held in the Point sorter. Nothing is flushed.
+     * <p>
+     * The checkpoint is written to a temporary file that then replaces the target file, so a crash
+     * while writing never corrupts the prior checkpoint. A StreamingKpi that uses a
+     * ShardedTrackMaker waits for every shard to finish its queued work before writing, and its
+     * checkpoint can only be restored by a StreamingKpi with the same number of shards.
+     *
+     * @param target Where the checkpoint is written
+     * @param codec  Encodes each Point (see Format.spillCodec())
+     */
+    public void writeCheckpoint(File target, SpillCodec<Point> codec) {
+        writeCheckpoint(target, codec, emptyMap());
+    }
+
+    /**
+     * Write this StreamingKpi's in-flight state (see writeCheckpoint(File, SpillCodec)) along with
+     * the position in each input stream that state reflects (e.g. the next Kafka offset of each
+     * TopicPartition). Storing the input positions in the same file keeps the two consistent, a
+     * restart that resumes the input at these positions does not skip any Points. A restart can
+     * repeat Points when several StreamingKpis share an input and the input resumes from the
+     * earliest of their positions, a caller that must not repeat Points drops the records that
+     * precede this StreamingKpi's own positions (as SwimLane does).
+     *
+     * @param target         Where the checkpoint is written
+     * @param codec          Encodes each Point (see Format.spillCodec())
+     * @param inputPositions The position of the next unprocessed record of each input stream
+     */
+    public void writeCheckpoint(File target, SpillCodec<Point> codec, Map<String, Long> inputPositions) {
+        checkNotNull(inputPositions);
+
+        File temp = new File(target.getAbsolutePath() + ".tmp");
+        try {
+            try (FileOutputStream fileOut = new FileOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, CHECKPOINT_BUFFER_SIZE))) {
+                out.writeInt(CHECKPOINT_MAGIC);
+                out.writeInt(CHECKPOINT_VERSION);
+                out.writeInt(inputPositions.size());
+                for (Map.Entry<String, Long> entry : inputPositions.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+                //tracks are written first because restoring the sorter can release Points to them
+                if (nonNull(shardedTrackMaker)) {
+                    shardedTrackMaker.writeCheckpoint(out, codec);
+                } else if (isNull(trackPairer)) {
+                    trackMaker.writeCheckpoint(out, codec);
+                } else {
+                    trackPairer.writeCheckpoint(out, codec);
+                }
+                pointSorter.writeCheckpoint(out, codec);
+            }
+            Files.move(temp.toPath(), target.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException ioe) {
+            throw demote("Could not write checkpoint: " + target.getAbsolutePath(), ioe);
+        }
+    }
+
+    /**
+     * Restore the in-flight state written by writeCheckpoint. This must be called before this
+     * StreamingKpi receives any Points.
+     *
+     * @param source A checkpoint file
+     * @param codec  Decodes each Point (see Format.spillCodec())
+     *
+     * @return The input positions that were stored with the checkpoint (empty if none were)
+     */
+    public Map<String, Long> restoreCheckpoint(File source, SpillCodec<Point> codec) {
+        checkState(curPointCount == 0, "Checkpoints can only be restored before receiving Points");
+
+        try (FileInputStream fileIn = new FileInputStream(source);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(fileIn, CHECKPOINT_BUFFER_SIZE))) {
+            checkState(in.readInt() == CHECKPOINT_MAGIC, source.getName() + " is not a checkpoint");
+            checkState(in.readInt() == CHECKPOINT_VERSION, "Unsupported checkpoint version");
+            int numPositions = in.readInt();
+            Map<String, Long> inputPositions = new LinkedHashMap<>();
+            for (int i = 0; i < numPositions; i++) {
+                inputPositions.put(in.readUTF(), in.readLong());
+            }
+            if (nonNull(shardedTrackMaker)) {
+                shardedTrackMaker.restoreCheckpoint(in, codec);
+            } else if (isNull(trackPairer)) {
+                trackMaker.restoreCheckpoint(in, codec);
+            } else {
+                trackPairer.restoreCheckpoint(in, codec);
+            }
+            pointSorter.restoreCheckpoint(in, codec);
+            return inputPositions;
+        } catch (IOException ioe) {
+            throw demote("Could not read checkpoint: " + source.getAbsolutePath(), ioe);
+        }
+    }
+
     /**
      * Flush all Point data that is stored in this StreamingKpi's inner Point sorter.
      */
     public void flush() {
         pointSorter.flush();
-        trackMaker.flushAllTracks();
+        if (isNull(shardedTrackMaker)) {
+            trackMaker.flushAllTracks();
+        } else {
+            shardedTrackMaker.flushAllTracks();
+        }
+    }
+
+    /**
+     * Flush all Point data (see flush()) and then stop any threads this StreamingKpi started (i.e.
+     * the threads of a ShardedTrackMaker) and delete any files the Point sorter spilled to disk.
+     * These resources are released even if the flush fails. A closed StreamingKpi cannot receive
+     * more Points.
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            if (nonNull(shardedTrackMaker)) {
+                shardedTrackMaker.close();
+            }
+            pointSorter.close();
+        }
     }
 }
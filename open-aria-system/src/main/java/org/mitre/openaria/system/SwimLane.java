@@ -15,17 +15,23 @@
  */
 package org.mitre.openaria.system;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 import static org.mitre.caasd.commons.fileutil.FileUtils.writeToNewFile;
 import static org.mitre.caasd.commons.util.DemotedException.demote;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.SpillCodec;
 
 import com.google.common.collect.Lists;
 
@@ -40,9 +46,29 @@ public class SwimLane {
     private static long failBreadCrumbTrigger = 1;
     static String OVER_FLOW_FILEPREFIX = "WARNING-swimlane-overflow-";
 
-    private final BlockingQueue<Point> queue;
+    /*
+     * Holds bare Points unless this SwimLane tracks input positions, in which case Points that
+     * arrive with a position are wrapped in a QueuedPoint.
+     */
+    private final BlockingQueue<Object> queue;
     private final StreamingKpi kpi;
 
+    /* When false (no checkpoints) Points are never wrapped and processing takes no lock. */
+    private final boolean tracksInputPositions;
+
+    /*
+     * The position (e.g. Kafka offset) after the last processed record of each input stream. These
+     * positions are saved with each checkpoint so a restart resumes the input where the KPI's
+     * checkpointed state left off.
+     */
+    private final Map<String, Long> inputPositions;
+
+    /*
+     * The positions restored from a checkpoint. Records before these positions are already
+     * reflected in the restored KPI, so they are ignored when the input is read again.
+     */
+    private final Map<String, Long> resumePositions;
+
     private int numPointsIngested;
     private int numPointsProcessed;
 
@@ -58,7 +84,18 @@ public class SwimLane {
     private boolean flushOnNextExecution;
 
     public SwimLane(StreamingKpi kpi, int capacity) {
+        this(kpi, capacity, false);
+    }
+
+    /**
+     * @param kpi                  The KPI that processes this SwimLane's data
+     * @param capacity             The maximum number of queued Points
+     * @param tracksInputPositions Whether the input position of each Point is tracked so this
+     *                             SwimLane can be checkpointed (see writeCheckpoint)
+     */
+    public SwimLane(StreamingKpi kpi, int capacity, boolean tracksInputPositions) {
         this.kpi = kpi;
+        this.tracksInputPositions = tracksInputPositions;
         /*
          * The amount of data in a SwimLane queue will vary widely. Sometimes a queues
          * will contain
@@ -71,17 +108,40 @@ public class SwimLane {
          * swim lane) that are frequently empty by design
          */
         this.queue = new LinkedBlockingQueue<>(capacity);
+        this.inputPositions = new HashMap<>();
+        this.resumePositions = new ConcurrentHashMap<>();
         this.flushOnNextExecution = false;
     }
 
     public void offerToQueue(Point p) {
+        enqueue(p);
+    }
+
+    /**
+     * @param p        A Point to process
+     * @param input    The input stream the Point came from (e.g. a Kafka TopicPartition)
+     * @param position The Point's position in that input stream (e.g. its Kafka offset)
+     */
+    public void offerToQueue(Point p, String input, long position) {
+        if (!tracksInputPositions) {
+            enqueue(p);
+            return;
+        }
+        Long resumePosition = resumePositions.get(checkNotNull(input));
+        if (resumePosition != null && position < resumePosition) {
+            return; //the restored checkpoint already reflects this record
+        }
+        enqueue(new QueuedPoint(p, input, position));
+    }
+
+    private void enqueue(Object item) {
         // @todo -- THIS IS FLAWED, this call WILL drop point data when the queue is
         // full
         // WE CANNOT (???) BLOCK (i.e. swap to queue.put(p)) BECAUSE THE "DATA LOADING
         // THREAD" IS THE SAME AS THE "DATA PROCESSING THREAD"
         // ARE YOU SURE? The one data pulling task would block at offerToQueue while the
         // other threads would continue processing data and emptying queues
-        boolean addedToQueue = queue.offer(p);
+        boolean addedToQueue = queue.offer(item);
 
         numPointsIngested++;
 
@@ -110,16 +170,38 @@ public class SwimLane {
         }
     }
 
+    /*
+     * When input positions are tracked processQueuedData locks this SwimLane (as do the checkpoint
+     * methods) so a checkpoint (which is written by a different thread) never runs in parallel with
+     * the KPI processing data.
+     */
     public void processQueuedData() {
+        if (tracksInputPositions) {
+            synchronized (this) {
+                drainAndProcess();
+            }
+        } else {
+            drainAndProcess();
+        }
+    }
+
+    private void drainAndProcess() {
         // drain the current queue to a separate List so that we process a well-defined
         // bite of data.
         // We don't want to set up an infinite race between the data provider and the kpi
-        List<Point> dataToProcess = Lists.newArrayList();
+        List<Object> dataToProcess = Lists.newArrayList();
         queue.drainTo(dataToProcess);
 
         int batchSize = dataToProcess.size();
 
-        dataToProcess.forEach(kpi);
+        for (Object item : dataToProcess) {
+            if (item instanceof QueuedPoint queued) {
+                kpi.accept(queued.point);
+                inputPositions.put(queued.input, queued.position + 1);
+            } else {
+                kpi.accept((Point) item);
+            }
+        }
 
         numPointsProcessed += batchSize;
 
@@ -152,6 +234,51 @@ public class SwimLane {
         }
     }
 
+    /**
+     * Write the KPI's in-flight state, and the input position that state reflects, to a checkpoint
+     * file (see StreamingKpi.writeCheckpoint). Points that are still queued are not part of the
+     * checkpoint. The position stored for an input is therefore the position of its earliest
+     * queued record (when one is queued), so that record and every later one are read again when
+     * the input resumes from the saved positions.
+     * <p>
+     * When several SwimLanes share an input their checkpoints only combine safely if no Points are
+     * offered to any of them while they are written (see KafkaIngestor.writeCheckpoints).
+     *
+     * @return The input positions stored in the checkpoint
+     */
+    public synchronized Map<String, Long> writeCheckpoint(File target, SpillCodec<Point> codec) {
+        checkState(tracksInputPositions, "This SwimLane does not track input positions");
+
+        Map<String, Long> earliestQueued = new HashMap<>();
+        for (Object item : queue) {
+            if (item instanceof QueuedPoint queued) {
+                earliestQueued.putIfAbsent(queued.input, queued.position);
+            }
+        }
+        Map<String, Long> positions = new HashMap<>(inputPositions);
+        positions.putAll(earliestQueued);
+
+        kpi.writeCheckpoint(target, codec, positions);
+        return positions;
+    }
+
+    /**
+     * Restore the KPI's in-flight state (see StreamingKpi.restoreCheckpoint).
+     *
+     * Records offered later that precede these positions are ignored because the restored state
+     * already reflects them.
+     *
+     * @return The input positions stored in the checkpoint, the input should resume from here
+     */
+    public synchronized Map<String, Long> restoreCheckpoint(File source, SpillCodec<Point> codec) {
+        checkState(tracksInputPositions, "This SwimLane does not track input positions");
+
+        Map<String, Long> positions = kpi.restoreCheckpoint(source, codec);
+        inputPositions.putAll(positions);
+        resumePositions.putAll(positions);
+        return positions;
+    }
+
     public StreamingKpi kpi() {
         return this.kpi;
     }
@@ -167,4 +294,7 @@ public class SwimLane {
     public int numPointsProcessed() {
         return numPointsProcessed;
     }
+
+    /** A Point and its position in the input stream it came from. */
+    private record QueuedPoint(Point point, String input, long position) {}
 }
@@ -7,13 +7,17 @@ import static org.mitre.openaria.system.SwimLane.OVER_FLOW_FILEPREFIX;
 
 import java.io.File;
 import java.time.Duration;
+import java.util.Map;
 import java.util.function.Consumer;
 
 import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.SpillCodec;
 import org.mitre.openaria.core.Track;
+import org.mitre.openaria.core.formats.Formats;
 
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class SwimLaneTest {
 
@@ -112,4 +116,64 @@ public class SwimLaneTest {
         warn10.delete();
         warn100.delete();
     }
+
+    @Test
+    public void checkpointsStoreTheNextInputPosition(@TempDir File tempDir) {
+
+        SpillCodec<Point> codec = (SpillCodec) Formats.nop().spillCodec();
+        File checkpoint = new File(tempDir, "checkpoint.bin");
+
+        SwimLane lane = new SwimLane(simpleStreamingKpi(), 10, true);
+        lane.offerToQueue(Point.builder().latLong(0.0, 1.0).time(EPOCH).build(), "points-3", 7L);
+        lane.offerToQueue(Point.builder().latLong(0.0, 1.0).time(EPOCH.plusSeconds(1)).build(), "points-3", 8L);
+        lane.processQueuedData();
+        //queued (but unprocessed) Points are not reflected in the checkpoint
+        lane.offerToQueue(Point.builder().latLong(0.0, 1.0).time(EPOCH.plusSeconds(2)).build(), "points-3", 9L);
+
+        assertThat(lane.writeCheckpoint(checkpoint, codec), is(Map.of("points-3", 9L)));
+
+        SwimLane restored = new SwimLane(simpleStreamingKpi(), 10, true);
+        assertThat(restored.restoreCheckpoint(checkpoint, codec), is(Map.of("points-3", 9L)));
+        assertThat(restored.kpi().pointSorter().inMemoryBuffer().numRecordsInQueue(), is(2));
+    }
+
+    @Test
+    public void checkpointsStoreTheEarliestQueuedInputPosition(@TempDir File tempDir) {
+
+        SpillCodec<Point> codec = (SpillCodec) Formats.nop().spillCodec();
+
+        //offsets 5 and 6 of "points-3" go to laneA, offset 4 is still queued in laneB
+        SwimLane laneA = new SwimLane(simpleStreamingKpi(), 10, true);
+        SwimLane laneB = new SwimLane(simpleStreamingKpi(), 10, true);
+        laneB.offerToQueue(Point.builder().latLong(0.0, 1.0).time(EPOCH).build(), "points-3", 4L);
+        laneA.offerToQueue(Point.builder().latLong(0.0, 1.0).time(EPOCH).build(), "points-3", 5L);
+        laneA.offerToQueue(Point.builder().latLong(0.0, 1.0).time(EPOCH.plusSeconds(1)).build(), "points-3", 6L);
+        laneA.processQueuedData();
+
+        assertThat(laneA.writeCheckpoint(new File(tempDir, "a.bin"), codec), is(Map.of("points-3", 7L)));
+        //the queued record is read again after a restart
+        assertThat(laneB.writeCheckpoint(new File(tempDir, "b.bin"), codec), is(Map.of("points-3", 4L)));
+    }
+
+    @Test
+    public void restoredSwimLanesIgnoreRecordsTheirCheckpointReflects(@TempDir File tempDir) {
+
+        SpillCodec<Point> codec = (SpillCodec) Formats.nop().spillCodec();
+        File checkpoint = new File(tempDir, "checkpoint.bin");
+
+        SwimLane lane = new SwimLane(simpleStreamingKpi(), 10, true);
+        lane.offerToQueue(Point.builder().latLong(0.0, 1.0).time(EPOCH).build(), "points-3", 7L);
+        lane.processQueuedData();
+        lane.writeCheckpoint(checkpoint, codec);
+
+        SwimLane restored = new SwimLane(simpleStreamingKpi(), 10, true);
+        restored.restoreCheckpoint(checkpoint, codec);
+
+        //offset 7 is re-read (e.g. another SwimLane's checkpoint resumed the input earlier)
+        restored.offerToQueue(Point.builder().latLong(0.0, 1.0).time(EPOCH).build(), "points-3", 7L);
+        restored.offerToQueue(Point.builder().latLong(0.0, 1.0).time(EPOCH.plusSeconds(1)).build(), "points-3", 8L);
+        restored.offerToQueue(Point.builder().latLong(0.0, 1.0).time(EPOCH.plusSeconds(2)).build(), "points-4", 0L);
+
+        assertThat(restored.queueSize(), is(2));
+    }
 }
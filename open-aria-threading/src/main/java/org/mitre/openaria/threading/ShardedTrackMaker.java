@@ -0,0 +1,416 @@
+package org.mitre.openaria.threading;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static org.mitre.openaria.threading.TempUtils.keyExtractor;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import org.mitre.openaria.core.BatchConsumer;
+import org.mitre.openaria.core.KeyExtractor;
+import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.SpillCodec;
+import org.mitre.openaria.core.Track;
+
+/**
+ * A ShardedTrackMaker spreads the work of a TrackMaker across several threads.
+ * <p>
+ * Points are hash-partitioned by their join key (i.e. their trackId) across N inner TrackMakers.
+ * Each inner TrackMaker (a "shard") runs on its own thread and receives Points in batches via a
+ * bounded queue. Consequently, the thread supplying Points blocks (rather than consuming more
+ * memory) when a shard falls behind. Every Point with a given key goes to the same shard, and each
+ * shard receives its Points in the order they were supplied. Therefore, the per-key time-ordering a
+ * TrackMaker requires is preserved and each shard makes exactly the Tracks a single TrackMaker
+ * would make for those keys.
+ * <p>
+ * Each batch sent to a shard carries the time of the most recent input Point. Shards use this
+ * time to close stale Tracks (see TrackMaker.advanceTime) even when they receive few Points.
+ * <p>
+ * Closed Tracks from every shard are passed to the single outputMechanism supplied at construction.
+ * The outputMechanism is only called by one thread at a time (but not always by the same thread).
+ * Tracks are published in the order each shard closes them, the relative order of Tracks from
+ * different shards is not deterministic.
+ * <p>
+ * A failure on a shard's thread (e.g. a Point that is out of time-order, or an Error thrown by the
+ * outputMechanism) is recorded and rethrown to the thread supplying Points by the next call to
+ * accept, acceptAll, flushAllTracks, or writeCheckpoint. A shard that has failed ignores all further
+ * input.
+ * <p>
+ * The shard threads run until close() is called.
+ * <p>
+ * Warning: Like a TrackMaker, a ShardedTrackMaker should receive input from only one thread.
+ *
+ * @param <T> The type of raw data backing the Points
+ */
+public class ShardedTrackMaker<T> implements BatchConsumer<Point<T>>, TrackMakerMetrics, AutoCloseable {
+
+    /** The number of Points routed (across all shards) between hand-offs to the shard threads. */
+    static final int BATCH_SIZE = 1024;
+
+    /** The number of batches that can wait for a shard before the input thread blocks. */
+    static final int BATCHES_PER_SHARD = 8;
+
+    private final KeyExtractor<Point> keyExtractor;
+
+    private final List<Shard> shards;
+
+    private final Consumer<Track<T>> outputMechanism;
+
+    /* Guarantees the outputMechanism is never called by two shards at once. */
+    private final Object outputLock = new Object();
+
+    private final Duration forcedTrackClosureAge;
+
+    /* The number of Points routed to the shards' pending batches since the last hand-off. */
+    private int numPending;
+
+    /* The time of the most recent input Point. */
+    private Instant latestTime;
+
+    private boolean isClosed;
+
+    /**
+     * @param numShards            The number of inner TrackMakers (each has its own thread)
+     * @param maxTimeBetweenPoints The maximum time between any two points that can be from the same
+     *                             Track.
+     * @param maxTrackAge          Tracks longer than this are automatically closed and published
+     * @param outputMechanism      Where complete tracks are sent to (this need not be thread-safe)
+     */
+    public ShardedTrackMaker(int numShards, Duration maxTimeBetweenPoints, Duration maxTrackAge, Consumer<Track<T>> outputMechanism) {
+        checkArgument(numShards >= 1, "At least one shard is required");
+        this.outputMechanism = checkNotNull(outputMechanism);
+        this.forcedTrackClosureAge = checkNotNull(maxTrackAge);
+        this.keyExtractor = keyExtractor();
+
+        Consumer<Track<T>> sharedOutput = track -> publish(track);
+        this.shards = new ArrayList<>(numShards);
+        for (int i = 0; i < numShards; i++) {
+            TrackMaker<T> maker = new TrackMaker<>(maxTimeBetweenPoints, maxTrackAge, sharedOutput);
+            Shard shard = new Shard(i, maker);
+            shards.add(shard);
+            shard.thread.start();
+        }
+    }
+
+    /**
+     * @param numShards            The number of inner TrackMakers (each has its own thread)
+     * @param maxTimeBetweenPoints The maximum time between any two points that can be from the same
+     *                             Track.
+     * @param outputMechanism      Where complete tracks are sent to (this need not be thread-safe)
+     */
+    public ShardedTrackMaker(int numShards, Duration maxTimeBetweenPoints, Consumer<Track<T>> outputMechanism) {
+        this(numShards, maxTimeBetweenPoints, TrackMaker.DEFAULT_TRACK_CLOSURE_AGE, outputMechanism);
+    }
+
+    /**
+     * @param numShards       The number of inner TrackMakers (each has its own thread)
+     * @param outputMechanism Where complete tracks are sent to (this need not be thread-safe)
+     */
+    public ShardedTrackMaker(int numShards, Consumer<Track<T>> outputMechanism) {
+        this(numShards, TrackMaker.DEFAULT_MAX_TIME_DELTA, TrackMaker.DEFAULT_TRACK_CLOSURE_AGE, outputMechanism);
+    }
+
+    /* Runs on the shard threads. */
+    private void publish(Track<T> track) {
+        synchronized (outputLock) {
+            outputMechanism.accept(track);
+        }
+    }
+
+    @Override
+    public void accept(Point<T> newPoint) {
+        route(newPoint);
+        if (numPending >= BATCH_SIZE) {
+            handOff(false, null);
+        }
+    }
+
+    @Override
+    public void acceptAll(List<? extends Point<T>> batch) {
+        for (Point<T> newPoint : batch) {
+            route(newPoint);
+        }
+        if (numPending >= BATCH_SIZE) {
+            handOff(false, null);
+        }
+    }
+
+    private void route(Point<T> newPoint) {
+        String key = keyExtractor.joinKeyFor(newPoint);
+        Shard shard = shards.get(Math.floorMod(key.hashCode(), shards.size()));
+        shard.pending.add(newPoint);
+        numPending++;
+        latestTime = newPoint.time();
+    }
+
+    /*
+     * Send every shard its pending Points (and the latest input time). An empty batch is still
+     * sent because the time advance can close that shard's stale tracks.
+     */
+    private void handOff(boolean flush, CountDownLatch done) {
+        checkState(!isClosed, "This ShardedTrackMaker was closed");
+        rethrowShardFailure();
+        for (Shard shard : shards) {
+            shard.submit(new Task<>(shard.pending, latestTime, flush, done));
+            shard.pending = new ArrayList<>();
+        }
+        numPending = 0;
+    }
+
+    /**
+     * Forcibly push all "tracks under construction" (in every shard) to the outputMechanism. This
+     * method blocks until every shard has processed all of its input and published its Tracks.
+     */
+    public void flushAllTracks() {
+        handOffAndWait(true);
+    }
+
+    /* Hand off all pending input, then block until every shard has processed it (and is idle). */
+    private void handOffAndWait(boolean flush) {
+        CountDownLatch done = new CountDownLatch(shards.size());
+        handOff(flush, done);
+        try {
+            done.await();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the TrackMaker shards", ie);
+        }
+        rethrowShardFailure();
+    }
+
+    private void rethrowShardFailure() {
+        for (Shard shard : shards) {
+            if (shard.failure != null) {
+                throw new IllegalStateException("TrackMaker shard " + shard.index + " failed", shard.failure);
+            }
+        }
+    }
+
+    /**
+     * Write every shard's "tracks under construction" to a compact binary checkpoint (see
+     * TrackMaker.writeCheckpoint). This method waits until every shard has processed all of its
+     * input, so the checkpoint reflects every Point this ShardedTrackMaker has received. The tracks
+     * are not closed.
+     *
+     * @param out   Receives the checkpoint
+     * @param codec Encodes each Point
+     */
+    public void writeCheckpoint(DataOutput out, SpillCodec<Point<T>> codec) throws IOException {
+        //once every shard is idle its TrackMaker can be read safely from this thread
+        handOffAndWait(false);
+
+        out.writeInt(shards.size());
+        for (Shard shard : shards) {
+            shard.maker.writeCheckpoint(out, codec);
+        }
+    }
+
+    /**
+     * Rebuild every shard's "tracks under construction" from a checkpoint made by writeCheckpoint.
+     * This ShardedTrackMaker must not have received any Points and must have the same number of
+     * shards as the ShardedTrackMaker that wrote the checkpoint (so each Track is restored to the
+     * shard its future Points are routed to).
+     *
+     * @param in    Provides the checkpoint
+     * @param codec Decodes each Point
+     */
+    public void restoreCheckpoint(DataInput in, SpillCodec<Point<T>> codec) throws IOException {
+        checkState(latestTime == null, "Checkpoints can only be restored before receiving Points");
+        int numShards = in.readInt();
+        checkState(
+            numShards == shards.size(),
+            "The checkpoint has %s shards, this ShardedTrackMaker has %s", numShards, shards.size()
+        );
+
+        //the shards are idle, handing off the next Task publishes these changes to their threads
+        for (Shard shard : shards) {
+            shard.maker.restoreCheckpoint(in, codec);
+            shard.updateMetrics();
+        }
+    }
+
+    /**
+     * Stop all shard threads (this method returns once they have stopped). Tracks that were not
+     * flushed are discarded, call flushAllTracks() first to publish them.
+     */
+    @Override
+    public void close() {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        shards.forEach(shard -> shard.thread.interrupt());
+        try {
+            for (Shard shard : shards) {
+                shard.thread.join();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** @return True when every shard thread has stopped (e.g. after close()). */
+    boolean isStopped() {
+        return shards.stream().noneMatch(shard -> shard.thread.isAlive());
+    }
+
+    public int numShards() {
+        return shards.size();
+    }
+
+    /*
+     * The accessors below sum the metrics of every shard. Each shard updates its metrics after
+     * processing a batch. Consequently, these values lag the input until flushAllTracks() is called.
+     */
+
+    @Override
+    public int currentPointCount() {
+        return (int) sum(shard -> shard.currentPointCount);
+    }
+
+    @Override
+    public int numTracksUnderConstruction() {
+        return (int) sum(shard -> shard.numTracksUnderConstruction);
+    }
+
+    /** @return The sum of each shard's high-water mark (an upper bound on the true high-water mark). */
+    @Override
+    public int numTracksUnderConstructionHighWaterMark() {
+        return (int) sum(shard -> shard.numTracksHighWaterMark);
+    }
+
+    @Override
+    public long numPointsPublished() {
+        return sum(shard -> shard.numPointsPublished);
+    }
+
+    @Override
+    public long numTracksPublished() {
+        return sum(shard -> shard.numTracksPublished);
+    }
+
+    /** Tracks are closed as soon as they get this old. */
+    @Override
+    public Duration forceTrackClosureAge() {
+        return this.forcedTrackClosureAge;
+    }
+
+    /** @return The sum of each shard's high-water mark (an upper bound on the true high-water mark). */
+    @Override
+    public int sizeHighWaterMark() {
+        return (int) sum(shard -> shard.sizeHighWaterMark);
+    }
+
+    private long sum(ToLongFunction<Shard> metric) {
+        return shards.stream().mapToLong(metric).sum();
+    }
+
+    /**
+     * The work handed to a shard: a batch of Points, the latest input time, whether to flush all
+     * tracks, and (optionally) a latch that signals the shard has finished this Task.
+     */
+    private record Task<T>(List<Point<T>> points, Instant time, boolean flush, CountDownLatch done) {}
+
+    /** One inner TrackMaker, the thread that runs it, and a snapshot of its metrics. */
+    private class Shard {
+
+        final int index;
+
+        final TrackMaker<T> maker;
+
+        final BlockingQueue<Task<T>> tasks = new ArrayBlockingQueue<>(BATCHES_PER_SHARD);
+
+        final Thread thread;
+
+        /* Points routed to this shard that have not been handed off (used by the input thread). */
+        List<Point<T>> pending = new ArrayList<>();
+
+        /* Set by the shard's thread, once set no further Points are processed. */
+        volatile Throwable failure;
+
+        volatile int currentPointCount;
+
+        volatile int numTracksUnderConstruction;
+
+        volatile int numTracksHighWaterMark;
+
+        volatile int sizeHighWaterMark;
+
+        volatile long numPointsPublished;
+
+        volatile long numTracksPublished;
+
+        Shard(int index, TrackMaker<T> maker) {
+            this.index = index;
+            this.maker = maker;
+            this.thread = new Thread(this::run, "track-maker-shard-" + index);
+            thread.setDaemon(true);
+        }
+
+        /* Runs on the input thread. */
+        void submit(Task<T> task) {
+            try {
+                tasks.put(task);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while handing Points to shard " + index, ie);
+            }
+        }
+
+        /* Runs on this Shard's thread. */
+        private void run() {
+            try {
+                while (true) {
+                    Task<T> task = tasks.take();
+                    try {
+                        if (failure == null) {
+                            process(task);
+                            updateMetrics();
+                        }
+                    } catch (Throwable t) {
+                        //the input thread rethrows this (this thread must survive to release latches)
+                        this.failure = t;
+                    } finally {
+                        if (task.done() != null) {
+                            task.done().countDown();
+                        }
+                    }
+                }
+            } catch (InterruptedException ie) {
+                //close() was called
+            }
+        }
+
+        private void process(Task<T> task) {
+            maker.acceptAll(task.points());
+            if (task.time() != null) {
+                maker.advanceTime(task.time());
+            }
+            if (task.flush()) {
+                maker.flushAllTracks();
+            }
+        }
+
+        /* Runs on this Shard's thread (or on the input thread while this Shard is idle). */
+        void updateMetrics() {
+            currentPointCount = maker.currentPointCount();
+            numTracksUnderConstruction = maker.numTracksUnderConstruction();
+            numTracksHighWaterMark = maker.numTracksUnderConstructionHighWaterMark();
+            sizeHighWaterMark = maker.sizeHighWaterMark();
+            numPointsPublished = maker.numPointsPublished();
+            numTracksPublished = maker.numTracksPublished();
+        }
+    }
+}
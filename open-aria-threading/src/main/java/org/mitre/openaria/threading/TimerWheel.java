@@ -0,0 +1,193 @@
+package org.mitre.openaria.threading;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.List;
+
+/**
+ * A TimerWheel is a hierarchical timing wheel that finds the entries whose deadline has passed in
+ * O(number of expired entries) amortized time.
+ * <p>
+ * Time is measured in integer "ticks" (e.g. epoch milliseconds). Each level of the wheel is a ring
+ * of 64 slots. A slot on level 0 covers 1 tick, a slot on level 1 covers 64 ticks, a slot on level
+ * 2 covers 4096 ticks, etc. An entry is placed on the lowest level that can hold its deadline.
+ * When time advances past a higher-level slot, the entries in that slot "cascade" down to a finer
+ * level (or expire). Consequently, each entry is touched a small, bounded number of times before
+ * it expires.
+ * <p>
+ * Entries are intrusive (each entry is a node of a doubly linked list). Scheduling, rescheduling,
+ * and cancelling an entry are O(1) and never allocate. This matters because a TrackMaker
+ * reschedules a track every time the track receives a Point.
+ * <p>
+ * A TimerWheel is not thread-safe.
+ *
+ * @param <T> The type of value held by each Entry
+ */
+class TimerWheel<T> {
+
+    private static final int BITS_PER_LEVEL = 6;
+
+    private static final int SLOTS_PER_LEVEL = 1 << BITS_PER_LEVEL;
+
+    private static final int SLOT_MASK = SLOTS_PER_LEVEL - 1;
+
+    /* 6 levels span 2^36 ticks (about 2 years of milliseconds), later deadlines wait on top. */
+    private static final int NUM_LEVELS = 6;
+
+    /* Each slot is a circular list with a sentinel head, an empty slot points to itself. */
+    private final Entry<T>[][] slots;
+
+    /* Every entry whose deadline is at or before this tick has been (or is about to be) expired. */
+    private long currentTick;
+
+    private int size;
+
+    /** @param startTick The initial time of this TimerWheel */
+    @SuppressWarnings("unchecked")
+    TimerWheel(long startTick) {
+        this.currentTick = startTick;
+        this.slots = new Entry[NUM_LEVELS][SLOTS_PER_LEVEL];
+        for (Entry<T>[] level : slots) {
+            for (int i = 0; i < SLOTS_PER_LEVEL; i++) {
+                level[i] = Entry.sentinel();
+            }
+        }
+    }
+
+    /**
+     * Schedule (or reschedule) an Entry. An Entry whose deadline has already passed is returned by
+     * the next call to advance.
+     */
+    void schedule(Entry<T> entry, long deadlineTick) {
+        if (entry.isScheduled()) {
+            entry.unlink();
+        } else {
+            size++;
+        }
+        entry.deadlineTick = deadlineTick;
+        link(entry);
+    }
+
+    /** Remove an Entry from this TimerWheel (this does nothing if the Entry is not scheduled). */
+    void cancel(Entry<T> entry) {
+        if (entry.isScheduled()) {
+            entry.unlink();
+            size--;
+        }
+    }
+
+    /**
+     * Advance time and collect every Entry whose deadline is at or before nowTick. The returned
+     * Entries are no longer scheduled.
+     *
+     * @param nowTick The current time, this cannot be less than the prior nowTick
+     * @param expired Receives the values of the expired Entries (in no particular order)
+     */
+    void advance(long nowTick, List<T> expired) {
+        checkArgument(nowTick >= currentTick, "Time cannot move backwards");
+        long priorTick = currentTick;
+        currentTick = nowTick;
+
+        for (int level = 0; level < NUM_LEVELS; level++) {
+            int shift = level * BITS_PER_LEVEL;
+            long priorIndex = priorTick >> shift;
+            long nowIndex = nowTick >> shift;
+            if (level > 0 && priorIndex == nowIndex) {
+                break; //this level (and every coarser level) has not moved
+            }
+            /*
+             * Level 0 revisits the prior tick's slot because entries can be scheduled into the
+             * current tick's slot between calls. Coarser levels only visit newly reached slots.
+             */
+            long firstIndex = (level == 0) ? priorIndex : priorIndex + 1;
+            long numSlots = Math.min(nowIndex - firstIndex + 1, SLOTS_PER_LEVEL);
+            for (long i = 0; i < numSlots; i++) {
+                drainSlot(slots[level][(int) ((firstIndex + i) & SLOT_MASK)], expired);
+            }
+        }
+    }
+
+    /* Expire, or cascade to a finer level, every entry in one slot. */
+    private void drainSlot(Entry<T> sentinel, List<T> expired) {
+        //detach the whole list first, entries may be re-linked into this same slot
+        Entry<T> entry = sentinel.next;
+        sentinel.next = sentinel;
+        sentinel.prev = sentinel;
+
+        while (entry != sentinel) {
+            Entry<T> next = entry.next;
+            entry.next = null;
+            entry.prev = null;
+            if (entry.deadlineTick <= currentTick) {
+                size--;
+                expired.add(entry.value);
+            } else {
+                link(entry);
+            }
+            entry = next;
+        }
+    }
+
+    /* Place an entry in the finest level that can hold its deadline. */
+    private void link(Entry<T> entry) {
+        long delta = Math.max(entry.deadlineTick - currentTick, 0);
+        int level = 0;
+        while (level < NUM_LEVELS - 1 && (delta >> ((level + 1) * BITS_PER_LEVEL)) != 0) {
+            level++;
+        }
+        long deadline = Math.max(entry.deadlineTick, currentTick);
+        int slot = (int) ((deadline >> (level * BITS_PER_LEVEL)) & SLOT_MASK);
+
+        Entry<T> sentinel = slots[level][slot];
+        entry.prev = sentinel.prev;
+        entry.next = sentinel;
+        sentinel.prev.next = entry;
+        sentinel.prev = entry;
+    }
+
+    /** @return The number of scheduled Entries. */
+    int size() {
+        return size;
+    }
+
+    /** @return The time of the most recent call to advance (or the startTick). */
+    long currentTick() {
+        return currentTick;
+    }
+
+    /** A value that can be scheduled in a TimerWheel. */
+    static class Entry<T> {
+
+        final T value;
+
+        long deadlineTick;
+
+        Entry<T> prev;
+
+        Entry<T> next;
+
+        Entry(T value) {
+            this.value = value;
+        }
+
+        private static <T> Entry<T> sentinel() {
+            Entry<T> sentinel = new Entry<>(null);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        boolean isScheduled() {
+            return next != null;
+        }
+
+        private void unlink() {
+            checkState(isScheduled());
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+}
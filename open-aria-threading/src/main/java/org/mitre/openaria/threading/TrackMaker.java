@@ -2,28 +2,31 @@ package org.mitre.openaria.threading;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.max;
 import static java.util.Objects.isNull;
-import static org.mitre.caasd.commons.Spherical.distanceInNM;
 import static org.mitre.caasd.commons.Time.*;
+import static org.mitre.openaria.core.utils.TimeUtils.nanosBetween;
 import static org.mitre.openaria.threading.TempUtils.keyExtractor;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.function.Consumer;
 
 import org.mitre.caasd.commons.util.ParallelismDetector;
+import org.mitre.openaria.core.BatchConsumer;
 import org.mitre.openaria.core.KeyExtractor;
 import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.SpillCodec;
 import org.mitre.openaria.core.Track;
+import org.mitre.openaria.core.utils.ProximityGate;
 
 /**
  * A TrackMaker combines Points from a time-sorted stream of Points to make CommonTracks. Once a
@@ -36,22 +39,36 @@ import org.mitre.openaria.core.Track;
  * <p>Note, a, ApproximateTimeSorter and/or a StrictTimeSortEnforcer can help ensure Points
  * supplied to this TrackMaker meet the "all Points are time-sorted" requirement.
  *
+ * <p>A Track is closed when it goes stale (i.e. it has not received a Point for longer than the
+ * maxTimeBetweenPoints) or when it reaches the forced closure age. Every Track is scheduled in a
+ * TimerWheel at the earlier of these two deadlines. Consequently, finding the Tracks that must be
+ * closed costs O(number of closed Tracks) rather than a scan of the open Tracks. Closure is driven
+ * by the time of the incoming Points, advanceTime(Instant) can close Tracks when the input stream
+ * goes quiet.
+ *
  * <p>Warning: TrackMaker is not thread-safe. It is a mistake to call "accept(Point)" in one
  * thread and "flushAllTracks()" in another thread.
  *
  * @param <T> The type of raw data backing the Points
  */
-public class TrackMaker<T> implements Consumer<Point<T>> {
+public class TrackMaker<T> implements BatchConsumer<Point<T>>, TrackMakerMetrics {
 
     /** The default maximum amount of time allowed between two points of the same track. */
-    private static final Duration DEFAULT_MAX_TIME_DELTA = Duration.ofSeconds(45);
+    static final Duration DEFAULT_MAX_TIME_DELTA = Duration.ofSeconds(45);
 
     /**
      * The default maximum track age before tracks are forcibly closed and pushed downstream. Forced
      * track closing prevents memory-leaks caused by tracks that NEVER end (a problem caused by
      * certain types of radar noise AND real-world aircraft like blimps and surveillance aircraft).
      */
-    private static final Duration DEFAULT_TRACK_CLOSURE_AGE = Duration.ofHours(2);
+    static final Duration DEFAULT_TRACK_CLOSURE_AGE = Duration.ofHours(2);
+
+    /** A Point cannot be added to a track if it is 5 NM (or more) from the track's last Point. */
+    private static final ProximityGate MAX_DISTANCE_GATE = new ProximityGate(5.0);
+
+    /** Closed tracks are published in LRU-ACCESS order (i.e. ascending lastAccess). */
+    private static final Comparator<TrackUnderConstruction> LRU_ACCESS_ORDER =
+        Comparator.comparingLong(TrackUnderConstruction::lastAccess);
 
     /**
      * Tracks under construction are automatically closed when they grow too long. This prevents a
@@ -65,17 +82,30 @@ public class TrackMaker<T> implements Consumer<Point<T>> {
      */
     private final Duration maxTimeBetweenTrackPoints;
 
+    /* The two durations above in nanoseconds, the per-Point time checks use primitive math. */
+    private final long forcedTrackClosureAgeNanos;
+
+    private final long maxTimeBetweenTrackPointsNanos;
+
     /** This time only increases. Thus, the currentTime is also the "time high-water mark" */
     private Instant currentTime;
 
     /** Makes "join keys" that group individual Points into groups of Points that become Tracks. */
     private final KeyExtractor<Point> keyExtractor;
 
+    private final HashMap<String, TrackUnderConstruction> tracksUnderConstruction;
+
     /**
-     * This HashMap's iteration order reflects LRU-ACCESS order. We can quickly iterate its entries
-     * to find stale tracks that need to be removed.
+     * Schedules each TrackUnderConstruction at the (epoch millisecond) time it should be closed.
+     * This is created when the first Point arrives.
      */
-    private final LinkedHashMap<String, TrackUnderConstruction> tracksUnderConstruction;
+    private TimerWheel<TrackUnderConstruction> expiryWheel;
+
+    /* Reused to collect the tracks found by the expiryWheel, this avoids a per-Point allocation. */
+    private final ArrayList<TrackUnderConstruction> expiredTracks = new ArrayList<>();
+
+    /** Counts calls to "access" a TrackUnderConstruction, this sets each track's lastAccess. */
+    private long accessCounter = 0;
 
     private final Consumer<Track<T>> outputMechanism;
 
@@ -111,9 +141,11 @@ public class TrackMaker<T> implements Consumer<Point<T>> {
         this.maxTimeBetweenTrackPoints = checkNotNull(maxTimeBetweenPoints);
         this.forcedTrackClosureAge = checkNotNull(maxTrackAge);
         checkArgument(theDuration(maxTrackAge).isGreaterThan(maxTimeBetweenPoints));
+        this.forcedTrackClosureAgeNanos = maxTrackAge.toNanos();
+        this.maxTimeBetweenTrackPointsNanos = maxTimeBetweenPoints.toNanos();
         this.currentTime = null;
         this.keyExtractor = keyExtractor();
-        this.tracksUnderConstruction = new LinkedHashMap<>(16, 0.75f, true);
+        this.tracksUnderConstruction = new HashMap<>();
         this.outputMechanism = outputMechanism;
     }
 
@@ -150,6 +182,21 @@ public class TrackMaker<T> implements Consumer<Point<T>> {
         );
     }
 
+    /**
+     * Accept a time-sorted batch of Points. This is equivalent to calling accept(Point) on each
+     * Point, but the thread-safety guard is only engaged once per batch.
+     */
+    @Override
+    public void acceptAll(List<? extends Point<T>> batch) {
+
+        //ensure this method is never called by multiple threads at the same time.
+        parallelismDetector.run(() -> {
+            for (Point<T> newPoint : batch) {
+                doAccept(newPoint);
+            }
+        });
+    }
+
     private void doAccept(Point newPoint) {
         updateTimeAndConfirmOrdering(newPoint.time());
 
@@ -161,10 +208,32 @@ public class TrackMaker<T> implements Consumer<Point<T>> {
         closeStaleTracks();
     }
 
+    /**
+     * Close (and publish) every Track that is stale as of the given time. This lets a data source
+     * that has gone quiet (or a periodic "heartbeat") close Tracks without supplying new Points.
+     * Times before the time of the most recent Point (or time advance) are ignored.
+     *
+     * <p>Calling this method in parallel with "accept(Point)" or "flushAllTracks()" will fail.
+     *
+     * @param time The current time of the data stream
+     */
+    public void advanceTime(Instant time) {
+        checkNotNull(time);
+
+        parallelismDetector.run(() -> {
+            if (currentTime != null && time.isBefore(currentTime)) {
+                return;
+            }
+            updateTimeAndConfirmOrdering(time);
+            closeStaleTracks();
+        });
+    }
+
     private void updateTimeAndConfirmOrdering(Instant candidateTime) {
 
         if (currentTime == null) {
             currentTime = candidateTime;
+            expiryWheel = new TimerWheel<>(candidateTime.toEpochMilli());
             return;
         }
 
@@ -176,26 +245,29 @@ public class TrackMaker<T> implements Consumer<Point<T>> {
 
         String key = keyExtractor.joinKeyFor(newPoint);
 
-        if (tracksUnderConstruction.containsKey(key)) {
-            considerAddingPointToAnExistingTrack(key, newPoint);
+        //one hash lookup per Point (the key is a pooled trackId whose hash code is cached)
+        TrackUnderConstruction existingTrack = tracksUnderConstruction.get(key);
+
+        if (existingTrack != null) {
+            existingTrack.setLastAccess(++accessCounter);
+            considerAddingPointToAnExistingTrack(key, existingTrack, newPoint);
         } else {
             startNewTrack(key, newPoint);
         }
     }
 
-    private void considerAddingPointToAnExistingTrack(String key, Point newPoint) {
-
-        TrackUnderConstruction existingTrack = tracksUnderConstruction.get(key);
+    private void considerAddingPointToAnExistingTrack(String key, TrackUnderConstruction existingTrack, Point newPoint) {
 
         if (canAddPointToExistingTrack(existingTrack, newPoint)) {
             existingTrack.addPoint(newPoint);
             currentSize++;
+            scheduleExpiry(existingTrack);
         } else {
             /*
              * The existing TrackUnderConstruction cannot "accept" the newPoint. Therefore, we close
              * that TrackUnderConstruction and start a new one.
              */
-            closeAndPublish(newArrayList(key));
+            removeAndPublish(key);
             startNewTrack(key, newPoint);
         }
     }
@@ -223,73 +295,66 @@ public class TrackMaker<T> implements Consumer<Point<T>> {
          * arrive in time order.
          */
         Point lastPoint = tuc.lastPoint();
-        double distInNM = distanceInNM(lastPoint.latLong(), candidatePoint.latLong());
-
-        final double MAX_DISTANCE_IN_NM = 5.0;
-        return distInNM < MAX_DISTANCE_IN_NM;
+        return MAX_DISTANCE_GATE.isCloserThan(lastPoint.latLong(), candidatePoint.latLong());
     }
 
     private boolean isCloseInTime(TrackUnderConstruction tuc, Point candidatePoint) {
 
-        Duration timeDelta = tuc.timeSince(candidatePoint.time());
-        return timeDelta.minus(maxTimeBetweenTrackPoints).isNegative();
+        long timeDeltaNanos = nanosBetween(tuc.timeOfLatestPoint(), candidatePoint.time());
+        return timeDeltaNanos < maxTimeBetweenTrackPointsNanos;
     }
 
     private boolean doesNotExceedMaxTime(TrackUnderConstruction tuc, Point candidatePoint) {
 
-        Duration trackDurationWithNewPoint = durationBtw(
-            candidatePoint.time(),
-            tuc.timeOfEarliestPoint(),
-            tuc.timeOfLatestPoint()
-        );
-        return trackDurationWithNewPoint.toMillis() < forcedTrackClosureAge.toMillis();
+        //all Points are time-sorted, so the candidate is always the latest point
+        long trackDurationWithNewPoint = nanosBetween(tuc.timeOfEarliestPoint(), candidatePoint.time());
+        return trackDurationWithNewPoint < forcedTrackClosureAgeNanos;
     }
 
     private void startNewTrack(String key, Point seedPoint) {
         currentSize++;
-        this.tracksUnderConstruction.put(key, new TrackUnderConstruction(seedPoint));
+        TrackUnderConstruction newTrack = new TrackUnderConstruction(key, seedPoint);
+        newTrack.setLastAccess(++accessCounter);
+        this.tracksUnderConstruction.put(key, newTrack);
+        scheduleExpiry(newTrack);
     }
 
-    /** Find and close tracks that haven't received data recently. */
-    private void closeStaleTracks() {
-        closeAndPublish(findStaleTracks());
+    /**
+     * (Re)schedule a track's closure at the earlier of: (A) when it will go stale and (B) when it
+     * will reach the forced closure age. Deadlines are rounded down to the millisecond, the exact
+     * check is made when the TimerWheel reports the track.
+     */
+    private void scheduleExpiry(TrackUnderConstruction tuc) {
+        long staleTick = tuc.timeOfLatestPoint().toEpochMilli() + maxTimeBetweenTrackPointsNanos / 1_000_000;
+        long forcedTick = tuc.timeOfEarliestPoint().toEpochMilli() + forcedTrackClosureAgeNanos / 1_000_000;
+        expiryWheel.schedule(tuc.expiryEntry(), Math.min(staleTick, forcedTick));
     }
 
-    private HashSet<String> findStaleTracks() {
-
-        HashSet<String> staleTracks = new HashSet<>();
-
-        Iterator<Map.Entry<String, TrackUnderConstruction>> iter = tracksUnderConstruction.entrySet().iterator();
-        while (iter.hasNext()) {
-            Map.Entry<String, TrackUnderConstruction> entry = iter.next();
-
-            TrackUnderConstruction candidateForClosure = entry.getValue();
-            String keyOfCandidate = entry.getKey();
+    /** Find and close tracks that haven't received data recently (or have grown too old). */
+    private void closeStaleTracks() {
+        expiryWheel.advance(currentTime.toEpochMilli(), expiredTracks);
+        if (expiredTracks.isEmpty()) {
+            return;
+        }
 
-            if (trackDataIsStale(candidateForClosure)) {
-                staleTracks.add(keyOfCandidate);
-            } else {
-                /*
-                 * we know the Map.Entry iteration occurs in LRU order. So once we start seeing
-                 * non-stale tracks EVERY subsequent track will be non-stale so we don't have to
-                 * search anymore
-                 */
-                break;
+        try {
+            expiredTracks.sort(LRU_ACCESS_ORDER);
+            for (TrackUnderConstruction tuc : expiredTracks) {
+                if (mustClose(tuc)) {
+                    removeAndPublish(tuc.key());
+                } else {
+                    //the exact deadline is later in the current millisecond
+                    expiryWheel.schedule(tuc.expiryEntry(), currentTime.toEpochMilli());
+                }
             }
+        } finally {
+            expiredTracks.clear();
         }
-
-        return staleTracks;
     }
 
-    private boolean trackDataIsStale(TrackUnderConstruction workingTrack) {
-
-        Duration timeDelta = workingTrack.timeSince(currentTime);
-
-        return maxTimeBetweenTrackPoints.minus(timeDelta).isNegative();
-    }
-
-    private void closeAndPublish(Collection<String> closeTheseTracks) {
-        closeTheseTracks.forEach(key -> removeAndPublish(key));
+    private boolean mustClose(TrackUnderConstruction tuc) {
+        return nanosBetween(tuc.timeOfLatestPoint(), currentTime) > maxTimeBetweenTrackPointsNanos
+            || nanosBetween(tuc.timeOfEarliestPoint(), currentTime) >= forcedTrackClosureAgeNanos;
     }
 
     private void removeAndPublish(String key) {
@@ -311,12 +376,14 @@ public class TrackMaker<T> implements Consumer<Point<T>> {
         if (isNull(closeMe)) {
             return;
         }
+        expiryWheel.cancel(closeMe.expiryEntry());
 
         currentSize -= closeMe.size();
         numPointsPublished += closeMe.size();
         numTracksPublished++;
 
-        Track trackToPublish = Track.of( (LinkedList) closeMe.points());
+        //the points are already in time order, so the Track can be built in linear time
+        Track trackToPublish = Track.ofPresorted((List) closeMe.points());
         outputMechanism.accept(trackToPublish);
     }
 
@@ -331,32 +398,103 @@ public class TrackMaker<T> implements Consumer<Point<T>> {
     public void flushAllTracks() {
 
         parallelismDetector.run(() -> {
-            ArrayList<String> allKnownKeys = newArrayList(tracksUnderConstruction.keySet());
-            closeAndPublish(allKnownKeys);
+            ArrayList<TrackUnderConstruction> allTracks = new ArrayList<>(tracksUnderConstruction.values());
+            allTracks.sort(LRU_ACCESS_ORDER);
+            allTracks.forEach(tuc -> removeAndPublish(tuc.key()));
         });
     }
 
+    /**
+     * Write every "track under construction" (and the current time) to a compact binary checkpoint.
+     * The tracks are not closed. A TrackMaker can be rebuilt from this checkpoint (see
+     * restoreCheckpoint) after a restart, so the tracks in flight are not force-closed and split.
+     *
+     * <p>Calling this method in parallel with "accept(Point)" will produce a corrupt checkpoint.
+     *
+     * @param out   Receives the checkpoint
+     * @param codec Encodes each Point
+     */
+    public void writeCheckpoint(DataOutput out, SpillCodec<Point<T>> codec) throws IOException {
+        out.writeBoolean(currentTime != null);
+        if (currentTime != null) {
+            out.writeLong(currentTime.getEpochSecond());
+            out.writeInt(currentTime.getNano());
+        }
+
+        //LRU-ACCESS order is preserved by writing (and later restoring) tracks in that order
+        ArrayList<TrackUnderConstruction> allTracks = new ArrayList<>(tracksUnderConstruction.values());
+        allTracks.sort(LRU_ACCESS_ORDER);
+
+        out.writeInt(allTracks.size());
+        for (TrackUnderConstruction tuc : allTracks) {
+            List<Point> points = tuc.points();
+            out.writeInt(points.size());
+            for (Point point : points) {
+                codec.write(out, point);
+            }
+        }
+    }
+
+    /**
+     * Rebuild the "tracks under construction" from a checkpoint made by writeCheckpoint. This
+     * TrackMaker must not have received any Points.
+     *
+     * @param in    Provides the checkpoint
+     * @param codec Decodes each Point
+     */
+    public void restoreCheckpoint(DataInput in, SpillCodec<Point<T>> codec) throws IOException {
+        checkState(currentTime == null, "Checkpoints can only be restored before receiving Points");
+
+        if (!in.readBoolean()) {
+            return; //the checkpoint was taken before any Points arrived
+        }
+        updateTimeAndConfirmOrdering(Instant.ofEpochSecond(in.readLong(), in.readInt()));
+
+        int numTracks = in.readInt();
+        for (int i = 0; i < numTracks; i++) {
+            int numPoints = in.readInt();
+            Point<T> firstPoint = codec.read(in);
+            String key = keyExtractor.joinKeyFor(firstPoint);
+
+            startNewTrack(key, firstPoint);
+            TrackUnderConstruction tuc = tracksUnderConstruction.get(key);
+            for (int j = 1; j < numPoints; j++) {
+                tuc.addPoint(codec.read(in));
+            }
+            currentSize += numPoints - 1;
+            scheduleExpiry(tuc);
+        }
+        sizeHighWaterMark = max(sizeHighWaterMark, currentSize);
+        numTracksHighWaterMark = max(numTracksHighWaterMark, tracksUnderConstruction.size());
+    }
+
+    @Override
     public int currentPointCount() {
         return currentSize;
     }
 
+    @Override
     public int numTracksUnderConstruction() {
         return tracksUnderConstruction.size();
     }
 
+    @Override
     public int numTracksUnderConstructionHighWaterMark() {
         return numTracksHighWaterMark;
     }
 
+    @Override
     public long numPointsPublished() {
         return numPointsPublished;
     }
 
+    @Override
     public long numTracksPublished() {
         return numTracksPublished;
     }
 
     /** Tracks are closed as soon as they get this old. */
+    @Override
     public Duration forceTrackClosureAge() {
         return this.forcedTrackClosureAge;
     }
@@ -365,6 +503,7 @@ public class TrackMaker<T> implements Consumer<Point<T>> {
      * @return The highest number of Points ever held in this TrackMaker's family of Tracks Under
      *     Construction. This value gives insight into how much memory is used by the TrackMaker.
      */
+    @Override
     public int sizeHighWaterMark() {
         return sizeHighWaterMark;
     }
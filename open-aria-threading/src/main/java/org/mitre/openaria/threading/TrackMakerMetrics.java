@@ -0,0 +1,30 @@
+package org.mitre.openaria.threading;
+
+import java.time.Duration;
+
+/**
+ * TrackMakerMetrics describe the state and output of a component that makes Tracks from Points.
+ * A TrackMaker reports its own values. A ShardedTrackMaker reports the sum of its shards' values.
+ *
+ * @see TrackMaker
+ * @see ShardedTrackMaker
+ */
+public interface TrackMakerMetrics {
+
+    /** @return The number of Points held in the "tracks under construction". */
+    int currentPointCount();
+
+    int numTracksUnderConstruction();
+
+    int numTracksUnderConstructionHighWaterMark();
+
+    long numPointsPublished();
+
+    long numTracksPublished();
+
+    /** Tracks are closed as soon as they get this old. */
+    Duration forceTrackClosureAge();
+
+    /** @return The highest number of Points ever held in the "tracks under construction". */
+    int sizeHighWaterMark();
+}
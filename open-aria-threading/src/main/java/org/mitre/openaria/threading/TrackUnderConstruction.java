@@ -4,8 +4,8 @@ package org.mitre.openaria.threading;
 import java.io.Serializable;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Collection;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.mitre.openaria.core.Point;
 
@@ -21,19 +21,38 @@ import org.mitre.openaria.core.Point;
  * Convenient access to the last Point in this track is provided to assist decisions about when to
  * "close" a TrackUnderConstruction.
  * <p>
+ * Points are kept in a growable array (not a LinkedList) because a TrackMaker can hold millions of
+ * Points at once, a linked list would add one node object per Point.
+ * <p>
+ * Each TrackUnderConstruction carries the bookkeeping a TrackMaker needs to find it again when it
+ * expires (its join key, its TimerWheel entry, and when it was last accessed).
+ * <p>
  * This class is not public as it should not be used outside this package.
  */
 class TrackUnderConstruction implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
-    private final LinkedList<Point> points;
+    private final String key;
+
+    private final ArrayList<Point> points;
+
+    /* Schedules the closure of this track, rebuilt lazily after deserialization. */
+    private transient TimerWheel.Entry<TrackUnderConstruction> expiryEntry;
 
-    TrackUnderConstruction(Point firstPoint) {
-        this.points = new LinkedList<>();
+    /* The TrackMaker's access counter when this track last received a Point (or was created). */
+    private long lastAccess;
+
+    TrackUnderConstruction(String key, Point firstPoint) {
+        this.key = key;
+        this.points = new ArrayList<>();
         this.points.add(firstPoint);
     }
 
+    String key() {
+        return key;
+    }
+
     final void addPoint(Point point) {
         //we don't need to verify that this point occurs at or after the exist last point.
         //this is gauranteed by the TrackMaker ensuring that ALL points are in time order
@@ -41,25 +60,41 @@ class TrackUnderConstruction implements Serializable {
     }
 
     Instant timeOfEarliestPoint() {
-        return points.getFirst().time();
+        return points.get(0).time();
     }
 
     Instant timeOfLatestPoint() {
-        return points.getLast().time();
+        return lastPoint().time();
     }
 
-    Collection<Point> points() {
+    /** @return The Points of this track in time order. */
+    List<Point> points() {
         return points;
     }
 
     public Point lastPoint() {
-        return points.getLast();
+        return points.get(points.size() - 1);
     }
 
     public int size() {
         return points.size();
     }
 
+    TimerWheel.Entry<TrackUnderConstruction> expiryEntry() {
+        if (expiryEntry == null) {
+            expiryEntry = new TimerWheel.Entry<>(this);
+        }
+        return expiryEntry;
+    }
+
+    long lastAccess() {
+        return lastAccess;
+    }
+
+    void setLastAccess(long lastAccess) {
+        this.lastAccess = lastAccess;
+    }
+
     /**
      * @param timeAfterLastPointsTime An Instant that occurs after this Track's last point.
      *
@@ -60,7 +60,7 @@ public class ProfilingDemo {
         System.out.println("\nInput: " + sourceFile.getName());
         System.out.println(" Size: " + sourceFile.length());
 
-        PointIterator iterator = new PointIterator(new NopParser(sourceFile));
+        PointIterator iterator = new PointIterator(new NopParser(sourceFile, true));
 
         //This TrackMaker will smooth every Track it emits...
         Smoother smoother = new Smoother();
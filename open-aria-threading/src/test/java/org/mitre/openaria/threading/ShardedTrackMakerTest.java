@@ -0,0 +1,209 @@
+package org.mitre.openaria.threading;
+
+import static java.time.Instant.EPOCH;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.mitre.openaria.core.Point;
+import org.mitre.openaria.core.PointBuilder;
+import org.mitre.openaria.core.PointCodec;
+import org.mitre.openaria.core.SpillCodec;
+import org.mitre.openaria.core.Track;
+
+import org.junit.jupiter.api.Test;
+
+public class ShardedTrackMakerTest {
+
+    private static final Duration MAX_POINT_DELTA = Duration.ofSeconds(30);
+
+    /* Collects a summary of each Track, the ShardedTrackMaker calls this from several threads. */
+    static class TrackSummaries implements Consumer<Track<Object>> {
+
+        List<String> summaries = new ArrayList<>();
+
+        @Override
+        public void accept(Track<Object> track) {
+            summaries.add(track.trackId() + "@" + track.startTime() + "x" + track.size());
+        }
+    }
+
+    private static Point<Object> newPoint(String trackId, long epochSec) {
+        return (new PointBuilder<Object>())
+            .trackId(trackId)
+            .time(EPOCH.plusSeconds(epochSec))
+            .latLong(0.0, 0.0)
+            .build();
+    }
+
+    /*
+     * 200 tracks that report every 4 seconds for one hour. Every track has a 90 second gap (at a
+     * track specific time) so every trackId is split into two Tracks.
+     */
+    private static List<Point<Object>> manyTracks() {
+        List<Point<Object>> points = new ArrayList<>();
+        for (long sec = 0; sec < 3_600; sec += 4) {
+            for (int id = 0; id < 200; id++) {
+                long gapStart = 600 + id * 10;
+                if (sec < gapStart || sec >= gapStart + 90) {
+                    points.add(newPoint("track" + id, sec));
+                }
+            }
+        }
+        return points;
+    }
+
+    @Test
+    public void makesTheSameTracksAsOneTrackMaker() {
+
+        List<Point<Object>> points = manyTracks();
+
+        TrackSummaries expected = new TrackSummaries();
+        TrackMaker<Object> single = new TrackMaker<>(MAX_POINT_DELTA, expected);
+        points.forEach(single);
+        single.flushAllTracks();
+
+        TrackSummaries actual = new TrackSummaries();
+        try (ShardedTrackMaker<Object> sharded = new ShardedTrackMaker<>(4, MAX_POINT_DELTA, actual)) {
+            points.forEach(sharded);
+            sharded.flushAllTracks();
+
+            assertThat(actual.summaries, containsInAnyOrder(expected.summaries.toArray()));
+            assertThat(sharded.numTracksPublished(), is(400L));
+            assertThat(sharded.numPointsPublished(), is((long) points.size()));
+            assertThat(sharded.currentPointCount(), is(0));
+            assertThat(sharded.numTracksUnderConstruction(), is(0));
+        }
+    }
+
+    @Test
+    public void batchesMakeTheSameTracks() {
+
+        List<Point<Object>> points = manyTracks();
+
+        TrackSummaries expected = new TrackSummaries();
+        TrackMaker<Object> single = new TrackMaker<>(MAX_POINT_DELTA, expected);
+        points.forEach(single);
+        single.flushAllTracks();
+
+        TrackSummaries actual = new TrackSummaries();
+        try (ShardedTrackMaker<Object> sharded = new ShardedTrackMaker<>(3, MAX_POINT_DELTA, actual)) {
+            for (int i = 0; i < points.size(); i += 500) {
+                sharded.acceptAll(points.subList(i, Math.min(i + 500, points.size())));
+            }
+            sharded.flushAllTracks();
+
+            assertThat(actual.summaries, containsInAnyOrder(expected.summaries.toArray()));
+        }
+    }
+
+    @Test
+    public void shardFailuresAreRethrown() {
+
+        try (ShardedTrackMaker<Object> sharded = new ShardedTrackMaker<>(2, MAX_POINT_DELTA, new TrackSummaries())) {
+            sharded.accept(newPoint("a", 100));
+            sharded.accept(newPoint("a", 50)); //out of time order
+
+            assertThrows(IllegalStateException.class, () -> sharded.flushAllTracks());
+        }
+    }
+
+    @Test
+    public void errorsOnShardThreadsAreRethrown() {
+
+        Consumer<Track<Object>> brokenOutput = track -> {
+            throw new AssertionError("output failed");
+        };
+
+        try (ShardedTrackMaker<Object> sharded = new ShardedTrackMaker<>(2, MAX_POINT_DELTA, brokenOutput)) {
+            sharded.accept(newPoint("a", 100));
+
+            IllegalStateException ise = assertThrows(IllegalStateException.class, () -> sharded.flushAllTracks());
+            assertThat(ise.getCause() instanceof AssertionError, is(true));
+        }
+    }
+
+    @Test
+    public void closeStopsTheShardThreads() {
+
+        ShardedTrackMaker<Object> sharded = new ShardedTrackMaker<>(3, MAX_POINT_DELTA, new TrackSummaries());
+        sharded.accept(newPoint("a", 100));
+        sharded.close();
+
+        assertThat(sharded.isStopped(), is(true));
+        assertThrows(IllegalStateException.class, () -> sharded.flushAllTracks());
+    }
+
+    /* The Points in these tests carry no raw data. */
+    private static final SpillCodec<Point<Object>> CODEC = new PointCodec<>(new SpillCodec<>() {
+        @Override
+        public byte[] encode(Object rawData) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object decode(byte[] bytes) {
+            throw new UnsupportedOperationException();
+        }
+    });
+
+    @Test
+    public void checkpointsPreserveTracksInFlight() throws IOException {
+
+        List<Point<Object>> points = manyTracks();
+        List<Point<Object>> firstHalf = points.subList(0, points.size() / 2);
+        List<Point<Object>> secondHalf = points.subList(points.size() / 2, points.size());
+
+        TrackSummaries expected = new TrackSummaries();
+        TrackMaker<Object> single = new TrackMaker<>(MAX_POINT_DELTA, expected);
+        points.forEach(single);
+        single.flushAllTracks();
+
+        TrackSummaries actual = new TrackSummaries();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int numTracksInFlight;
+        try (ShardedTrackMaker<Object> before = new ShardedTrackMaker<>(4, MAX_POINT_DELTA, actual)) {
+            firstHalf.forEach(before);
+            //the tracks in flight are NOT flushed
+            before.writeCheckpoint(new DataOutputStream(bytes), CODEC);
+            numTracksInFlight = before.numTracksUnderConstruction();
+        }
+        assertThat(numTracksInFlight > 0, is(true));
+
+        try (ShardedTrackMaker<Object> after = new ShardedTrackMaker<>(4, MAX_POINT_DELTA, actual)) {
+            after.restoreCheckpoint(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), CODEC);
+            assertThat(after.numTracksUnderConstruction(), is(numTracksInFlight));
+
+            secondHalf.forEach(after);
+            after.flushAllTracks();
+        }
+
+        assertThat(actual.summaries, containsInAnyOrder(expected.summaries.toArray()));
+    }
+
+    @Test
+    public void checkpointsRequireTheSameNumberOfShards() throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ShardedTrackMaker<Object> before = new ShardedTrackMaker<>(4, MAX_POINT_DELTA, new TrackSummaries())) {
+            before.accept(newPoint("a", 100));
+            before.writeCheckpoint(new DataOutputStream(bytes), CODEC);
+        }
+
+        try (ShardedTrackMaker<Object> after = new ShardedTrackMaker<>(2, MAX_POINT_DELTA, new TrackSummaries())) {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            assertThrows(IllegalStateException.class, () -> after.restoreCheckpoint(in, CODEC));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.mitre.openaria.threading;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class TimerWheelTest {
+
+    @Test
+    public void entriesExpireAtTheirDeadline() {
+
+        TimerWheel<String> wheel = new TimerWheel<>(1_000);
+        wheel.schedule(new TimerWheel.Entry<>("soon"), 1_010);
+        wheel.schedule(new TimerWheel.Entry<>("later"), 1_000 + 5_000); //a coarser level
+        wheel.schedule(new TimerWheel.Entry<>("muchLater"), 1_000 + 50_000_000); //an even coarser level
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(1_009, expired);
+        assertThat(expired, empty());
+
+        wheel.advance(1_010, expired);
+        assertThat(expired, contains("soon"));
+
+        expired.clear();
+        wheel.advance(5_999, expired);
+        assertThat(expired, empty());
+        wheel.advance(6_000, expired);
+        assertThat(expired, contains("later"));
+
+        expired.clear();
+        wheel.advance(1_000 + 50_000_000 - 1, expired);
+        assertThat(expired, empty());
+        assertThat(wheel.size(), is(1));
+        wheel.advance(1_000 + 50_000_000, expired);
+        assertThat(expired, contains("muchLater"));
+        assertThat(wheel.size(), is(0));
+    }
+
+    @Test
+    public void largeTimeJumpsExpireEverything() {
+
+        TimerWheel<Integer> wheel = new TimerWheel<>(0);
+        for (int i = 0; i < 100; i++) {
+            wheel.schedule(new TimerWheel.Entry<>(i), i * 997L);
+        }
+
+        List<Integer> expired = new ArrayList<>();
+        wheel.advance(100 * 997L, expired);
+
+        assertThat(expired.size(), is(100));
+        assertThat(wheel.size(), is(0));
+    }
+
+    @Test
+    public void reschedulingMovesAnEntry() {
+
+        TimerWheel<String> wheel = new TimerWheel<>(0);
+        TimerWheel.Entry<String> entry = new TimerWheel.Entry<>("track");
+        wheel.schedule(entry, 100);
+        wheel.schedule(entry, 200); //e.g. the track received a new Point
+
+        assertThat(wheel.size(), is(1));
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(150, expired);
+        assertThat(expired, empty());
+        wheel.advance(200, expired);
+        assertThat(expired, contains("track"));
+        assertThat(entry.isScheduled(), is(false));
+    }
+
+    @Test
+    public void cancelledEntriesNeverExpire() {
+
+        TimerWheel<String> wheel = new TimerWheel<>(0);
+        TimerWheel.Entry<String> a = new TimerWheel.Entry<>("a");
+        TimerWheel.Entry<String> b = new TimerWheel.Entry<>("b");
+        wheel.schedule(a, 10);
+        wheel.schedule(b, 10);
+        wheel.cancel(a);
+        wheel.cancel(a); //cancelling twice is harmless
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(20, expired);
+        assertThat(expired, containsInAnyOrder("b"));
+    }
+
+    @Test
+    public void pastDeadlinesExpireOnTheNextAdvance() {
+
+        TimerWheel<String> wheel = new TimerWheel<>(500);
+        wheel.schedule(new TimerWheel.Entry<>("overdue"), 10);
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(500, expired);
+        assertThat(expired, contains("overdue"));
+    }
+
+    @Test
+    public void timeCannotMoveBackwards() {
+        TimerWheel<String> wheel = new TimerWheel<>(500);
+        assertThrows(IllegalArgumentException.class, () -> wheel.advance(499, new ArrayList<>()));
+    }
+}
@@ -6,15 +6,24 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mitre.caasd.commons.ConsumingCollections.newConsumingArrayList;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.mitre.caasd.commons.ConsumingCollections.ConsumingArrayList;
 import org.mitre.openaria.core.Point;
 import org.mitre.openaria.core.PointBuilder;
+import org.mitre.openaria.core.SpillCodec;
 import org.mitre.openaria.core.Track;
+import org.mitre.openaria.core.formats.Formats;
 import org.mitre.openaria.core.formats.nop.NopHit;
 
 import org.junit.jupiter.api.Test;
@@ -109,6 +118,94 @@ public class TrackMakerTest {
         );
     }
 
+    @Test
+    public void trackIdsWithCollidingHashCodesMakeSeparateTracks() {
+
+        ConsumingArrayList<Track<NopHit>> tracks = newConsumingArrayList();
+        TrackMaker maker = new TrackMaker(Duration.ofSeconds(30), tracks);
+
+        //"Aa" and "BB" have the same hashCode
+        maker.accept(newPoint("Aa", Instant.EPOCH));
+        maker.accept(newPoint("BB", Instant.EPOCH.plusSeconds(1)));
+        maker.accept(newPoint("Aa", Instant.EPOCH.plusSeconds(2)));
+
+        assertThat(maker.numTracksUnderConstruction(), is(2));
+
+        maker.flushAllTracks();
+
+        assertThat(tracks.size(), is(2));
+        assertThat(tracks.stream().mapToInt(Track::size).sum(), is(3));
+    }
+
+    @Test
+    public void advanceTimeClosesStaleTracks() {
+
+        Duration TIME_LIMIT = Duration.ofSeconds(5);
+        TestConsumer consumer = new TestConsumer();
+
+        TrackMaker maker = new TrackMaker(TIME_LIMIT, consumer);
+
+        maker.accept(newPoint("track1", Instant.EPOCH));
+        maker.accept(newPoint("track2", Instant.EPOCH.plusSeconds(3)));
+
+        maker.advanceTime(Instant.EPOCH.plus(TIME_LIMIT));
+        assertThat("track1 is at the TIME_LIMIT, not over it", consumer.numCallsToAccept, is(0));
+
+        maker.advanceTime(Instant.EPOCH.plus(TIME_LIMIT).plusMillis(1));
+        assertThat("track1 is stale", consumer.numCallsToAccept, is(1));
+        assertThat(maker.numTracksUnderConstruction(), is(1));
+
+        //times in the past are ignored
+        maker.advanceTime(Instant.EPOCH);
+        assertThat(consumer.numCallsToAccept, is(1));
+
+        maker.advanceTime(Instant.EPOCH.plusSeconds(60));
+        assertThat(consumer.numCallsToAccept, is(2));
+        assertThat(maker.currentPointCount(), is(0));
+    }
+
+    @Test
+    public void tracksReachingTheMaxAgeAreClosedByOtherTracksPoints() {
+
+        Duration maxPointDelta = Duration.ofSeconds(30);
+        Duration maxTrackAge = Duration.ofMinutes(1);
+        ConsumingArrayList<Track<?>> sink = newConsumingArrayList();
+
+        TrackMaker maker = new TrackMaker(maxPointDelta, maxTrackAge, sink);
+
+        //"old" receives a point every 10 seconds, so it never goes stale
+        for (int i = 0; i <= 5; i++) {
+            maker.accept(newPoint("old", Instant.EPOCH.plusSeconds(10 * i)));
+        }
+        assertThat(sink.size(), is(0));
+
+        //a Point from a different track is enough to close "old" when it reaches the max age
+        maker.accept(newPoint("other", Instant.EPOCH.plusSeconds(60)));
+        assertThat(sink.size(), is(1));
+        assertThat(sink.get(0).size(), is(6));
+    }
+
+    @Test
+    public void staleTracksArePublishedInLruOrder() {
+
+        Duration TIME_LIMIT = Duration.ofSeconds(5);
+        ConsumingArrayList<Track<?>> sink = newConsumingArrayList();
+
+        TrackMaker maker = new TrackMaker(TIME_LIMIT, sink);
+
+        maker.accept(newPoint("a", Instant.EPOCH));
+        maker.accept(newPoint("b", Instant.EPOCH.plusMillis(1)));
+        maker.accept(newPoint("c", Instant.EPOCH.plusMillis(2)));
+        maker.accept(newPoint("a", Instant.EPOCH.plusMillis(3)));
+
+        maker.advanceTime(Instant.EPOCH.plusSeconds(10));
+
+        assertThat(sink.size(), is(3));
+        assertThat(sink.get(0).trackId(), is("b"));
+        assertThat(sink.get(1).trackId(), is("c"));
+        assertThat(sink.get(2).trackId(), is("a"));
+    }
+
     @Test
     public void testMakingTracksWithDistantPoints() {
         /*
@@ -344,4 +441,67 @@ public class TrackMakerTest {
         assertThat("The first has exactly 1 point", sink.get(0).size(), is(1));
         assertThat("The second has exactly 5 points", sink.get(1).size(), is(5));
     }
+
+    @Test
+    public void checkpointRestoresTracksUnderConstruction() throws IOException {
+
+        Duration maxPointDelta = Duration.ofSeconds(45);
+        SpillCodec<Point<NopHit>> codec = Formats.nop().spillCodec();
+
+        List<Point<NopHit>> points = Stream.of(
+            "[RH],STARS,A90,08/28/2020,01:09:46.140,,,,1522,318,524,,42.74582,-73.62129,2600,0,,,,,,A90,,,,,,,IFR,,,,,,,,,,,,{RH}",
+            "[RH],STARS,A90,08/28/2020,01:11:10.101,,,,1522,304,529,91,42.74110,-73.34395,2600,0,,,,,,A90,,,,,,,IFR,,,,,,,,,,,,{RH}",
+            "[RH],STARS,A90,08/28/2020,01:11:14.751,,,,1522,304,528,91,42.74089,-73.32845,2600,0,,,,,,A90,,,,,,,IFR,,,,,,,,,,,,{RH}",
+            "[RH],STARS,A90,08/28/2020,01:11:19.351,,,,1522,303,526,91,42.74067,-73.31317,2600,0,,,,,,A90,,,,,,,IFR,,,,,,,,,,,,{RH}",
+            "[RH],STARS,A90,08/28/2020,01:11:28.581,,,,1522,302,524,91,42.74023,-73.28268,2600,0,,,,,,A90,,,,,,,IFR,,,,,,,,,,,,{RH}",
+            "[RH],STARS,A90,08/28/2020,01:11:33.201,,,,1522,301,524,90,42.74004,-73.26742,2600,0,,,,,,A90,,,,,,,IFR,,,,,,,,,,,,{RH}"
+        ).map(NopHit::from).toList();
+
+        ConsumingArrayList<Track<NopHit>> sink = new ConsumingArrayList<>();
+        TrackMaker<NopHit> before = new TrackMaker<>(maxPointDelta, sink);
+        points.subList(0, 3).forEach(before);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        before.writeCheckpoint(new DataOutputStream(bytes), codec);
+
+        TrackMaker<NopHit> after = new TrackMaker<>(maxPointDelta, sink);
+        after.restoreCheckpoint(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), codec);
+        assertThat(after.currentPointCount(), is(2));
+        assertThat(after.numTracksUnderConstruction(), is(1));
+
+        //a Point that is older than the checkpoint is rejected
+        assertThrows(IllegalArgumentException.class, () -> after.accept(points.get(1)));
+
+        points.subList(3, 6).forEach(after);
+        after.flushAllTracks();
+
+        assertThat("The track that straddles the checkpoint is not split", sink.size(), is(2));
+        assertThat(sink.get(0).size(), is(1));
+        assertThat(sink.get(1).size(), is(5));
+    }
+
+    @Test
+    public void acceptAllMatchesAccept() {
+
+        Duration maxPointDelta = Duration.ofSeconds(45);
+
+        List<Point<NopHit>> points = Stream.of(
+            "[RH],STARS,A90,08/28/2020,01:09:46.140,,,,1522,318,524,,42.74582,-73.62129,2600,0,,,,,,A90,,,,,,,IFR,,,,,,,,,,,,{RH}",
+            "[RH],STARS,A90,08/28/2020,01:11:10.101,,,,1522,304,529,91,42.74110,-73.34395,2600,0,,,,,,A90,,,,,,,IFR,,,,,,,,,,,,{RH}",
+            "[RH],STARS,A90,08/28/2020,01:11:14.751,,,,1522,304,528,91,42.74089,-73.32845,2600,0,,,,,,A90,,,,,,,IFR,,,,,,,,,,,,{RH}",
+            "[RH],STARS,A90,08/28/2020,01:11:19.351,,,,1522,303,526,91,42.74067,-73.31317,2600,0,,,,,,A90,,,,,,,IFR,,,,,,,,,,,,{RH}"
+        ).map(NopHit::from).toList();
+
+        ConsumingArrayList<Track<NopHit>> sink = new ConsumingArrayList<>();
+        TrackMaker<NopHit> tm = new TrackMaker<>(maxPointDelta, sink);
+
+        tm.acceptAll(points.subList(0, 2)); //the 2nd point evicts the "1st track" (it is too stale)
+        tm.acceptAll(points.subList(2, 4));
+        tm.flushAllTracks();
+
+        assertThat("Two tracks are emitted", sink.size(), is(2));
+        assertThat("The first has exactly 1 point", sink.get(0).size(), is(1));
+        assertThat("The second has exactly 3 points", sink.get(1).size(), is(3));
+        assertThat(tm.numPointsPublished(), is(4L));
+    }
 }
@@ -19,7 +19,7 @@ public class TrackUnderConstructionTest {
         Point<?> firstPoint = Point.builder().time(EPOCH.minusSeconds(5)).latLong(0.0, 0.0).build();
         Point<?> secondPoint = Point.builder().time(EPOCH).latLong(0.0, 0.0).build();
 
-        TrackUnderConstruction tip = new TrackUnderConstruction(firstPoint);
+        TrackUnderConstruction tip = new TrackUnderConstruction("key", firstPoint);
         tip.addPoint(secondPoint);
 
         //the "last point" should be the oldest point added
@@ -31,7 +31,7 @@ public class TrackUnderConstructionTest {
 
         Point<?> firstPoint = Point.builder().time(Instant.now()).latLong(0.0, 0.0).build();
 
-        TrackUnderConstruction tip = new TrackUnderConstruction(firstPoint);
+        TrackUnderConstruction tip = new TrackUnderConstruction("key", firstPoint);
 
         //the "last point" should be the oldest point added
         assertEquals(